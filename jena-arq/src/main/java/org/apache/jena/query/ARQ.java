@@ -286,6 +286,20 @@ public class ARQ
     // Hash table: GROUP BY, MINUS, SERVICE, VALUES, and hash joins <br>
     public static final Symbol spillToDiskThreshold = SystemARQ.allocSymbol("spillToDiskThreshold") ;
     
+    /**
+     * Run hash joins using a {@link java.util.concurrent.ForkJoinPool}: the probe table is built
+     * as stripes in parallel and batches of the other side are joined in parallel.
+     * The value is either "true", to use the common pool, a {@link java.util.concurrent.ForkJoinPool}
+     * to use, which the caller shuts down, or the number of threads, which must be the
+     * parallelism of the common pool.
+     * The order of the join results is not defined.
+     * <p/>
+     * Default: unset, which is a single-threaded hash join.
+     * This setting is ignored if {@link #spillToDiskThreshold} is set.
+     * Left joins are not affected.
+     */
+    public static final Symbol parallelHashJoin = SystemARQ.allocSymbol("parallelHashJoin") ;
+    
     // Optimizer controls.
     
     /** 
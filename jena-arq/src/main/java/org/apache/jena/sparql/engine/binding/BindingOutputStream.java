@@ -149,6 +149,8 @@ public class BindingOutputStream implements Sink<Binding>
     private static boolean needVars(List<Var> vars, Binding binding)
     {
         if ( vars == null ) return true ;
+        // More variables in the binding than in VARS would be lost.
+        if ( binding.size() != vars.size() ) return true ;
         for ( Var v : vars )
         {
             if ( ! binding.contains(v) )
@@ -20,15 +20,24 @@ package org.apache.jena.sparql.engine.iterator;
 
 import java.util.ArrayList ;
 import java.util.Collection ;
+import java.util.Comparator ;
 import java.util.Iterator ;
 import java.util.List ;
 
+import org.apache.jena.atlas.data.BagFactory ;
+import org.apache.jena.atlas.data.SortedDataBag ;
+import org.apache.jena.atlas.data.ThresholdPolicy ;
+import org.apache.jena.atlas.data.ThresholdPolicyFactory ;
 import org.apache.jena.atlas.iterator.Iter ;
 import org.apache.jena.atlas.iterator.IteratorDelayedInitialization ;
+import org.apache.jena.atlas.iterator.IteratorSlotted ;
+import org.apache.jena.atlas.lib.Closeable ;
 import org.apache.jena.atlas.lib.Pair ;
 import org.apache.jena.ext.com.google.common.collect.HashMultimap;
 import org.apache.jena.ext.com.google.common.collect.Multimap;
 import org.apache.jena.graph.Node ;
+import org.apache.jena.riot.system.SerializationFactoryFinder ;
+import org.apache.jena.sparql.ARQConstants ;
 import org.apache.jena.sparql.core.Var ;
 import org.apache.jena.sparql.core.VarExprList ;
 import org.apache.jena.sparql.engine.ExecutionContext ;
@@ -39,7 +48,21 @@ import org.apache.jena.sparql.engine.binding.BindingMap ;
 import org.apache.jena.sparql.expr.ExprAggregator ;
 import org.apache.jena.sparql.expr.NodeValue ;
 import org.apache.jena.sparql.expr.aggregate.Accumulator ;
+import org.apache.jena.sparql.expr.aggregate.AccumulatorMergeable ;
+import org.apache.jena.sparql.util.NodeUtils ;
 
+/**
+ * Grouping and aggregation.
+ * <p>
+ * Groups are kept in memory unless the number of groups exceeds the spill
+ * threshold of the context ({@link org.apache.jena.query.ARQ#spillToDiskThreshold})
+ * and every aggregator has an {@link AccumulatorMergeable} accumulator
+ * (COUNT, SUM, MIN, MAX, AVG, SAMPLE; not DISTINCT forms other than MIN and MAX, GROUP_CONCAT or custom aggregates).
+ * Then the partial aggregates of the groups so far are written to a {@link SortedDataBag},
+ * sorted by group key, and grouping starts again with no groups in memory.
+ * At the end, the partial aggregates for each group are merged from the sorted bag,
+ * one group at a time.
+ */
 public class QueryIterGroup extends QueryIterPlainWrapper
 {
 	private final QueryIterator embeddedIterator;
@@ -90,11 +113,30 @@ public class QueryIterGroup extends QueryIterPlainWrapper
                 // Phase 1 : assign bindings to buckets by key and pump through the aggregators.
                 Multimap<Binding, Pair<Var, Accumulator>> accumulators = HashMultimap.create() ;
 
+                // Spill partial aggregates, when there are too many groups.
+                ThresholdPolicy<Binding> policy = spillPolicy(aggregators, execCxt) ;
+                SortedDataBag<Binding> spill = null ;
+
                 while ( iter.hasNext() )
                 {
                     Binding b = iter.nextBinding() ;
                     Binding key = genKey(groupVarExpr, b, execCxt) ;
 
+                    if ( ! accumulators.containsKey(key) )
+                    {
+                        if ( policy.isThresholdExceeded() )
+                        {
+                            if ( spill == null )
+                                spill = BagFactory.newSortedBag(ThresholdPolicyFactory.policyFromContext(execCxt.getContext()), 
+                                                                SerializationFactoryFinder.bindingSerializationFactory(),
+                                                                keyComparator(groupVarExpr)) ;
+                            spill(spill, accumulators, aggregators) ;
+                            accumulators.clear() ;
+                            policy.reset() ;
+                        }
+                        policy.increment(key) ;
+                    }
+
                     if ( noAggregators )
                     {
                         // Put in a dummy to remember the input.
@@ -118,6 +160,14 @@ public class QueryIterGroup extends QueryIterPlainWrapper
                         pair.getRight().accumulate(b, execCxt) ;
                 }
 
+                if ( spill != null )
+                {
+                    // Phase 2 : Merge the partial aggregates, which are sorted by group key.
+                    spill(spill, accumulators, aggregators) ;
+                    accumulators.clear() ;
+                    return new IterMergeGroups(spill, groupVarExpr, aggregators) ;
+                }
+
                 // Phase 2 : Empty input
                 // has as iter.hasNext false at start.
 
@@ -166,24 +216,176 @@ public class QueryIterGroup extends QueryIterPlainWrapper
                 for ( Binding k : accumulators.keySet() )
                 {
                     Collection<Pair<Var, Accumulator>> accs = accumulators.get(k) ;
-                    BindingMap b = BindingFactory.create(k) ;
-                    
-                    for ( Pair<Var, Accumulator> pair : accs )
-                    {
-                        Var v = pair.getLeft() ;
-                        NodeValue value = pair.getRight().getValue() ;
-                        Node n = (value==null) ? null : value.asNode() ;
-                        if ( v == null || n == null )
-                        {} 
-                        else
-                            b.add(v, n) ;
-                    }
-                    results.add(b) ;
+                    results.add(result(k, accs)) ;
                 }
                 return results.iterator() ;
             }
         };
     }
+
+    // The group key and the values of the aggregators.
+    private static Binding result(Binding key, Collection<Pair<Var, Accumulator>> accs)
+    {
+        BindingMap b = BindingFactory.create(key) ;
+        
+        for ( Pair<Var, Accumulator> pair : accs )
+        {
+            Var v = pair.getLeft() ;
+            NodeValue value = pair.getRight().getValue() ;
+            Node n = (value==null) ? null : value.asNode() ;
+            if ( v == null || n == null )
+            {} 
+            else
+                b.add(v, n) ;
+        }
+        return b ;
+    }
+
+    // ---- Spilling
+
+    private static ThresholdPolicy<Binding> spillPolicy(List<ExprAggregator> aggregators, ExecutionContext execCxt)
+    {
+        if ( execCxt == null || ! canSpill(aggregators) )
+            return ThresholdPolicyFactory.never() ;
+        return ThresholdPolicyFactory.policyFromContext(execCxt.getContext()) ;
+    }
+
+    // Spilling needs all the accumulators to be mergeable.
+    private static boolean canSpill(List<ExprAggregator> aggregators)
+    {
+        if ( aggregators == null )
+            return true ;
+        for ( ExprAggregator agg : aggregators )
+        {
+            if ( ! ( agg.getAggregator().createAccumulator() instanceof AccumulatorMergeable ) )
+                return false ;
+        }
+        return true ;
+    }
+
+    // The variable in a spilled row for part of the partial state of an aggregator.
+    private static Var partialStateVar(Var aggVar, int idx)
+    {
+        return Var.alloc(ARQConstants.allocVarMarker+"group"+aggVar.getVarName()+"."+idx) ;
+    }
+
+    private static Comparator<Binding> keyComparator(VarExprList groupVarExpr)
+    {
+        List<Var> vars = groupVarExpr.getVars() ;
+        return (b1, b2) -> {
+            for ( Var v : vars )
+            {
+                int x = NodeUtils.compareRDFTerms(b1.get(v), b2.get(v)) ;
+                if ( x != 0 )
+                    return x ;
+            }
+            return 0 ;
+        } ;
+    }
+
+    // Write the groups, with their partial aggregates, to the bag. 
+    private static void spill(SortedDataBag<Binding> spill, Multimap<Binding, Pair<Var, Accumulator>> accumulators,
+                              List<ExprAggregator> aggregators)
+    {
+        for ( Binding key : accumulators.keySet() )
+        {
+            BindingMap row = BindingFactory.create() ;
+            row.addAll(key) ;
+            for ( Pair<Var, Accumulator> pair : accumulators.get(key) )
+            {
+                if ( pair == placeholder )
+                    continue ;
+                List<Node> state = ((AccumulatorMergeable)pair.getRight()).getPartialState() ;
+                for ( int i = 0 ; i < state.size() ; i++ )
+                {
+                    Node n = state.get(i) ;
+                    if ( n != null )
+                        row.add(partialStateVar(pair.getLeft(), i), n) ;
+                }
+            }
+            spill.add(row) ;
+        }
+    }
+
+    /** Merge runs of rows for the same group key, from a bag sorted by group key. */  
+    private static class IterMergeGroups extends IteratorSlotted<Binding> implements Closeable
+    {
+        private final SortedDataBag<Binding> spill ;
+        private final Iterator<Binding> rows ;
+        private final List<Var> groupVars ;
+        private final List<ExprAggregator> aggregators ;
+        private Binding pending = null ;
+
+        IterMergeGroups(SortedDataBag<Binding> spill, VarExprList groupVarExpr, List<ExprAggregator> aggregators)
+        {
+            this.spill = spill ;
+            this.rows = spill.iterator() ;
+            this.groupVars = groupVarExpr.getVars() ;
+            this.aggregators = ( aggregators == null ) ? new ArrayList<>() : aggregators ;
+        }
+
+        @Override
+        protected boolean hasMore()
+        {
+            return pending != null || rows.hasNext() ;
+        }
+
+        @Override
+        protected Binding moveToNext()
+        {
+            Binding row = ( pending != null ) ? pending : rows.next() ;
+            pending = null ;
+            Binding key = key(row) ;
+            List<Pair<Var, Accumulator>> accs = new ArrayList<>(aggregators.size()) ;
+            for ( ExprAggregator agg : aggregators )
+                accs.add(Pair.create(agg.getVar(), agg.getAggregator().createAccumulator())) ;
+            for (;;)
+            {
+                merge(accs, row) ;
+                if ( ! rows.hasNext() )
+                    break ;
+                row = rows.next() ;
+                if ( ! key.equals(key(row)) )
+                {
+                    pending = row ;
+                    break ;
+                }
+            }
+            return result(key, accs) ;
+        }
+
+        private Binding key(Binding row)
+        {
+            BindingMap key = BindingFactory.create() ;
+            for ( Var v : groupVars )
+            {
+                Node n = row.get(v) ;
+                if ( n != null )
+                    key.add(v, n) ;
+            }
+            return key ;
+        }
+
+        private static void merge(List<Pair<Var, Accumulator>> accs, Binding row)
+        {
+            for ( Pair<Var, Accumulator> pair : accs )
+            {
+                AccumulatorMergeable acc = (AccumulatorMergeable)pair.getRight() ;
+                // The same length as the state it was written from.
+                int len = acc.getPartialState().size() ;
+                List<Node> state = new ArrayList<>(len) ;
+                for ( int i = 0 ; i < len ; i++ )
+                    state.add(row.get(partialStateVar(pair.getLeft(), i))) ;
+                acc.merge(state) ;
+            }
+        }
+
+        @Override
+        protected void closeIterator()
+        {
+            spill.close() ;
+        }
+    }
     
     static private Binding genKey(VarExprList vars, Binding binding, ExecutionContext execCxt) 
     {
@@ -18,10 +18,14 @@
 
 package org.apache.jena.sparql.engine.join;
 
+import java.util.BitSet ;
 import java.util.Iterator ;
 import java.util.List ;
 
+import org.apache.jena.atlas.data.ThresholdPolicy ;
+import org.apache.jena.atlas.data.ThresholdPolicyFactory ;
 import org.apache.jena.atlas.iterator.Iter ;
+import org.apache.jena.query.ARQ ;
 import org.apache.jena.sparql.algebra.Algebra ;
 import org.apache.jena.sparql.core.Var ;
 import org.apache.jena.sparql.engine.ExecutionContext ;
@@ -35,6 +39,14 @@ import org.apache.jena.sparql.engine.join.JoinKey ;
  *  
  * This code materializes one input into the probe table
  * then hash joins the other input from the stream side.
+ * <p>
+ * If the probe side passes the spill threshold of the {@link ThresholdPolicy} from the
+ * context (see {@link org.apache.jena.query.ARQ#spillToDiskThreshold}), both sides are
+ * hash-partitioned to temporary files and joined one partition at a time
+ * (a "grace" hash join), so only one partition of the probe side is in memory at once.
+ * A partition still over the threshold is partitioned again when it is read back.
+ * Probe rows with no join key are not spilled; they are needed by every partition.
+ * Each partition has its own call of {@link #joinFinished()}.
  */
 
 public abstract class AbstractIterHashJoin extends QueryIter2 {
@@ -45,9 +57,12 @@ public abstract class AbstractIterHashJoin extends QueryIter2 {
     // See also stats in the probe table.
     
     protected final JoinKey               joinKey ;
-    protected final HashProbeTable        hashTable ;
+    // The probe table for the current partition, if spilled.
+    protected HashProbeTable              hashTable ;
 
     private QueryIterator               iterStream ;
+    // The stream rows being joined: iterStream, or a partition when spilled.
+    private Iterator<Binding>           rowsStream ;
     private Binding                     rowStream       = null ;
     private Iterator<Binding>           iterCurrent ;
     private boolean                     yielded ;       // Flag to note when current probe causes a result. 
@@ -59,6 +74,14 @@ public abstract class AbstractIterHashJoin extends QueryIter2 {
     
     private Binding slot = null ;
 
+    // Spilled to disk.
+    private HashJoinPartitions          partitions      = null ;
+    // Stream rows with no join key are joined in every partition.
+    private Iterator<Binding>           rowsStreamNoKey = null ;
+    private int                         noKeyIndex      = -1 ;
+    // Which have yielded a result, in any partition so far.
+    private BitSet                      noKeyYielded    = null ;
+
     protected AbstractIterHashJoin(JoinKey joinKey, QueryIterator probeIter, QueryIterator streamIter, ExecutionContext execCxt) {
         super(probeIter, streamIter, execCxt) ;
         
@@ -78,6 +101,7 @@ public abstract class AbstractIterHashJoin extends QueryIter2 {
         
         this.joinKey = joinKey ;
         this.iterStream = streamIter ;
+        this.rowsStream = streamIter ;
         this.hashTable = new HashProbeTable(joinKey) ;
         this.iterCurrent = null ;
         buildHashTable(probeIter) ;
@@ -86,15 +110,74 @@ public abstract class AbstractIterHashJoin extends QueryIter2 {
         
     private void buildHashTable(QueryIterator iter1) {
         state = Phase.HASH ;
+        ExecutionContext execCxt = getExecContext() ;
+        ThresholdPolicy<Binding> policy = ( execCxt == null )
+            ? ThresholdPolicyFactory.never()
+            : ThresholdPolicyFactory.policyFromContext(execCxt.getContext()) ;
         for (; iter1.hasNext();) {
             Binding row1 = iter1.next() ;
             s_countProbe ++ ;
+            if ( partitions == null && policy.isThresholdExceeded() )
+                spill() ;
+            if ( partitions != null ) {
+                partitions.addProbe(row1) ;
+                continue ;
+            }
             hashTable.put(row1) ;
+            policy.increment(row1) ;
         }
         iter1.close() ;
+        if ( partitions != null ) {
+            for (; iterStream.hasNext();)
+                partitions.addStream(iterStream.next()) ;
+            noKeyYielded = new BitSet() ;
+            nextPartition() ;
+        }
         state = Phase.STREAM ;
     }
 
+    // Move the probe table so far to disk. The rest of the probe side goes to disk as it is read.
+    private void spill() {
+        partitions = new HashJoinPartitions(joinKey, getExecContext().getContext().getLong(ARQ.spillToDiskThreshold, -1)) ;
+        hashTable.keyedValues().forEachRemaining(partitions::addProbe) ;
+        hashTable.noKeyValues().forEachRemaining(partitions::addProbe) ;
+        hashTable.clear() ;
+        hashTable = null ;
+    }
+
+    /** Start the next partition, if spilled and there is one. */
+    private boolean nextPartition() {
+        if ( partitions == null )
+            return false ;
+        if ( ! partitions.nextPartition() )
+            return false ;
+        hashTable = partitions.probeTable() ;
+        rowsStream = partitions.stream() ;
+        rowsStreamNoKey = partitions.streamNoKey() ;
+        noKeyIndex = -1 ;
+        return true ;
+    }
+
+    /** Whether this is the last (or only) partition of the join. */ 
+    protected boolean isLastPartition() {
+        return partitions == null || partitions.isLastPartition() ;
+    }
+
+    // The next stream row, or null.
+    private Binding nextStreamRow() {
+        if ( rowsStream.hasNext() )
+            return rowsStream.next() ;
+        if ( rowsStreamNoKey != null && rowsStreamNoKey.hasNext() ) {
+            noKeyIndex++ ;
+            return rowsStreamNoKey.next() ;
+        }
+        return null ;
+    }
+
+    private boolean isStreamNoKeyRow() {
+        return rowsStreamNoKey != null && noKeyIndex >= 0 ;
+    }
+
     @Override
     protected boolean hasNextBinding() {
         if ( isFinished() ) 
@@ -119,30 +202,50 @@ public abstract class AbstractIterHashJoin extends QueryIter2 {
     protected Binding moveToNextBindingOrNull() {
         // iterCurrent is the iterator of entries in the
         // probe hashed table for the current stream row.     
-        // iterStream is the stream of incoming rows.
+        // rowsStream is the stream of incoming rows.
         
-        switch ( state ) {
-            case DONE : return null ;
-            case HASH : 
-            case INIT :
-                throw new IllegalStateException() ;
-            case TRAILER :
-                return doOneTail() ;
-            case STREAM :
+        for(;;) {
+            switch ( state ) {
+                case DONE : return null ;
+                case HASH : 
+                case INIT :
+                    throw new IllegalStateException() ;
+                case TRAILER : {
+                    Binding b = doOneTail() ;
+                    if ( b != null )
+                        return b ;
+                    // This partition is finished.
+                    iterTail = null ;
+                    if ( ! nextPartition() ) {
+                        // Completely finished now.
+                        state = Phase.DONE ;
+                        return null ;
+                    }
+                    state = Phase.STREAM ;
+                    continue ;
+                }
+                case STREAM : {
+                    Binding b = doOneStream() ;
+                    if ( b != null )
+                        return b ;
+                    // End of the stream rows: now in TRAILER.
+                    continue ;
+                }
+            }
         }
-        
+    }
+
+    private Binding doOneStream() {
         for(;;) {
             // Ensure we are processing a row. 
             while ( iterCurrent == null ) {
                 // Move on to the next row from the right.
-                if ( ! iterStream.hasNext() ) {
+                rowStream = nextStreamRow() ;
+                if ( rowStream == null ) {
                     state = Phase.TRAILER ;
                     iterTail = joinFinished() ;
-                    if ( iterTail != null )
-                        return doOneTail() ;
                     return null ;
                 }
-                rowStream = iterStream.next() ;
                 s_countScan ++ ;
                 iterCurrent = hashTable.getCandidates(rowStream) ;
                 yielded = false ;
@@ -151,7 +254,7 @@ public abstract class AbstractIterHashJoin extends QueryIter2 {
             // Emit one row using the rightRow and the current matched left rows. 
             if ( ! iterCurrent.hasNext() ) {
                 iterCurrent = null ;
-                if ( ! yielded ) {
+                if ( ! yielded && unmatched() ) {
                     Binding b = noYieldedRows(rowStream) ;
                     if ( b != null ) {
                         s_countScan ++ ;
@@ -174,23 +277,29 @@ public abstract class AbstractIterHashJoin extends QueryIter2 {
                 // Reject
             } else {
                 yielded = true ;
+                if ( isStreamNoKeyRow() )
+                    noKeyYielded.set(noKeyIndex) ;
                 s_countResults ++ ;
                 return r2 ;
             }
         }
     }    
-    
+
+    // The current stream row has not yielded in this partition: is it unmatched overall?
+    // When spilled, a stream row with no join key is only unmatched after the last partition.
+    private boolean unmatched() {
+        if ( ! isStreamNoKeyRow() )
+            return true ;
+        return isLastPartition() && ! noKeyYielded.get(noKeyIndex) ;
+    }
     
     private Binding doOneTail() {
         // Only in TRAILING
-        if ( iterTail.hasNext() ) {
+        if ( iterTail != null && iterTail.hasNext() ) {
             s_countResults ++ ;
             s_trailerResults ++ ;
             return iterTail.next() ;
         }
-        state = Phase.DONE ;
-        // Completely finished now.
-        iterTail = null ;
         return null ;
     }
     
@@ -212,7 +321,8 @@ public abstract class AbstractIterHashJoin extends QueryIter2 {
     protected abstract Binding noYieldedRows(Binding rowStream) ;
 
     /**
-     * Signal the end of the hash join.
+     * Signal the end of the hash join, or of a partition of it if spilled
+     * (see {@link #isLastPartition()}).
      * Outer joins can now add any "no matched" results.
      * @return QueryIterator or null
      */
@@ -222,14 +332,22 @@ public abstract class AbstractIterHashJoin extends QueryIter2 {
     protected void closeSubIterator() {
         if ( JoinLib.JOIN_EXPLAIN ) {
             String x = String.format(
-                         "HashJoin: LHS=%d RHS=%d Results=%d RightMisses=%d MaxBucket=%d NoKeyBucket=%d",
-                         s_countProbe, s_countScan, s_countResults, 
-                         hashTable.s_countScanMiss, hashTable.s_maxBucketSize, hashTable.s_noKeyBucketSize) ;
+                         "HashJoin: LHS=%d RHS=%d Results=%d",
+                         s_countProbe, s_countScan, s_countResults) ;
+            if ( partitions != null )
+                // Spilled: the probe table, if any, is only the last partition.
+                x = x + String.format(" Partitions=%d", partitions.partitionCount()) ;
+            else if ( hashTable != null )
+                x = x + String.format(" RightMisses=%d MaxBucket=%d NoKeyBucket=%d",
+                                      hashTable.s_countScanMiss, hashTable.s_maxBucketSize, hashTable.s_noKeyBucketSize) ;
             System.out.println(x) ;
         }
         // In case it's a peek iterator.
         iterStream.close() ;
-        hashTable.clear(); 
+        if ( hashTable != null )
+            hashTable.clear(); 
+        if ( partitions != null )
+            partitions.close() ;
     }
 
     @Override
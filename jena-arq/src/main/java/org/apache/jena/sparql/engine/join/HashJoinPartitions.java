@@ -0,0 +1,244 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.sparql.engine.join;
+
+import java.util.ArrayDeque ;
+import java.util.ArrayList ;
+import java.util.Deque ;
+import java.util.Iterator ;
+import java.util.List ;
+
+import org.apache.jena.atlas.data.BagFactory ;
+import org.apache.jena.atlas.data.DataBag ;
+import org.apache.jena.atlas.data.SerializationFactory ;
+import org.apache.jena.atlas.data.ThresholdPolicyFactory ;
+import org.apache.jena.atlas.iterator.Iter ;
+import org.apache.jena.atlas.lib.Closeable ;
+import org.apache.jena.riot.system.SerializationFactoryFinder ;
+import org.apache.jena.sparql.engine.binding.Binding ;
+
+/**
+ * The two sides of a hash join, hash-partitioned to temporary files so that the
+ * join can be done one partition at a time ("grace" hash join).
+ * <p>
+ * Rows with the join key go to the partition for their hash. When a partition is
+ * read back, if its probe side is still over the threshold, it is partitioned again
+ * on other bits of the hash, both sides, and the new partitions are joined instead.
+ * A partition where all the probe rows have the same hash can not be split; it is
+ * read into memory whatever its size.
+ * <p>
+ * Rows with no join key match rows in every partition: those from the stream side
+ * are written once and streamed again for each partition; those from the probe side
+ * are kept in memory and shared by all the partition probe tables. The number of
+ * probe rows with no join key is not bounded by the threshold.
+ */
+class HashJoinPartitions implements Closeable {
+    /** Number of partitions each time a partition is split; a power of two. */
+    static final int NumPartitions = 32 ;
+    private static final int PartitionBits = Integer.numberOfTrailingZeros(NumPartitions) ;
+    // Levels of partitioning, using different bits of the hash each time. 
+    private static final int MaxLevel = 64 / PartitionBits - 1 ;
+
+    private static class Partition {
+        final int level ;
+        final DataBag<Binding> probe = newBag() ;
+        final DataBag<Binding> stream = newBag() ;
+        // Whether all the probe rows have the same hash.
+        Object probeHash = null ;
+        boolean probeOneHash = true ;
+
+        Partition(int level) {
+            this.level = level ;
+        }
+
+        void addProbe(Binding row, Object longHash) {
+            if ( probe.size() == 0 )
+                probeHash = longHash ;
+            else if ( probeOneHash && ! probeHash.equals(longHash) )
+                probeOneHash = false ;
+            probe.add(row) ;
+        }
+
+        void close() {
+            probe.close() ;
+            stream.close() ;
+        }
+    }
+
+    private final JoinKey                 joinKey ;
+    private final long                    threshold ;
+    private final List<Partition>         initial ;
+    // Partitions still to be joined, next first.
+    private final Deque<Partition>        pending     = new ArrayDeque<>() ;
+    private Partition                     current     = null ;
+    private boolean                       started     = false ;
+    // Number of partitions joined so far, including the current one.
+    private long                          count       = 0 ;
+    private final DataBag<Binding>        streamNoKey ;
+    private final List<Binding>           probeNoKey  = new ArrayList<>() ;
+
+    /**
+     * @param joinKey
+     * @param threshold The number of probe rows a partition can have in memory.  
+     */
+    HashJoinPartitions(JoinKey joinKey, long threshold) {
+        this.joinKey = joinKey ;
+        this.threshold = threshold ;
+        this.initial = newPartitions(0) ;
+        this.streamNoKey = newBag() ;
+    }
+
+    // Always on disk.
+    private static DataBag<Binding> newBag() {
+        SerializationFactory<Binding> serializationFactory = SerializationFactoryFinder.bindingSerializationFactory() ;
+        return BagFactory.newDefaultBag(ThresholdPolicyFactory.count(0), serializationFactory) ;
+    }
+
+    private static List<Partition> newPartitions(int level) {
+        List<Partition> x = new ArrayList<>(NumPartitions) ;
+        for ( int i = 0 ; i < NumPartitions ; i++ )
+            x.add(new Partition(level)) ;
+        return x ;
+    }
+
+    static int partition(Object longHash, int level) {
+        long h = JoinLib.spread(longHash) ;
+        return (int)(h >>> (level * PartitionBits)) & (NumPartitions - 1) ;
+    }
+
+    public void addProbe(Binding row) {
+        addProbe(row, JoinLib.hash(joinKey, row)) ;
+    }
+
+    public void addProbe(Binding row, Object longHash) {
+        if ( longHash == JoinLib.noKeyHash )
+            probeNoKey.add(row) ;
+        else
+            initial.get(partition(longHash, 0)).addProbe(row, longHash) ;
+    }
+
+    public void addStream(Binding row) {
+        Object longHash = JoinLib.hash(joinKey, row) ;
+        if ( longHash == JoinLib.noKeyHash )
+            streamNoKey.add(row) ;
+        else
+            initial.get(partition(longHash, 0)).stream.add(row) ;
+    }
+
+    /**
+     * Finish the current partition, if any, and move to the next one.
+     * Call after all rows have been added.
+     * @return false if there are no more partitions.
+     */
+    public boolean nextPartition() {
+        if ( ! started ) {
+            started = true ;
+            pending.addAll(initial) ;
+        }
+        if ( current != null )
+            current.close() ;
+        current = null ;
+        while ( ! pending.isEmpty() ) {
+            Partition p = pending.removeFirst() ;
+            if ( p.probe.size() <= threshold || p.probeOneHash || p.level >= MaxLevel ) {
+                current = p ;
+                count++ ;
+                return true ;
+            }
+            // Too large: split it, and join the parts in its place.
+            List<Partition> parts = split(p) ;
+            for ( int i = parts.size() - 1 ; i >= 0 ; i-- )
+                pending.addFirst(parts.get(i)) ;
+        }
+        return false ;
+    }
+
+    private List<Partition> split(Partition p) {
+        int level = p.level + 1 ;
+        List<Partition> parts = newPartitions(level) ;
+        Iterator<Binding> iter = iterator(p.probe) ;
+        while ( iter.hasNext() ) {
+            Binding row = iter.next() ;
+            Object longHash = JoinLib.hash(joinKey, row) ;
+            parts.get(partition(longHash, level)).addProbe(row, longHash) ;
+        }
+        Iter.close(iter) ;
+        iter = iterator(p.stream) ;
+        while ( iter.hasNext() ) {
+            Binding row = iter.next() ;
+            parts.get(partition(JoinLib.hash(joinKey, row), level)).stream.add(row) ;
+        }
+        Iter.close(iter) ;
+        p.close() ;
+        return parts ;
+    }
+
+    /** Whether the current partition is the last one. */
+    public boolean isLastPartition() {
+        return pending.isEmpty() ;
+    }
+
+    /**
+     * Read the current partition of the probe side into memory. Only the table for the
+     * first partition matches stream rows with no join key to probe rows with
+     * no join key.
+     */
+    public HashProbeTable probeTable() {
+        HashProbeTable table = new HashProbeTable(joinKey, probeNoKey, count == 1) ;
+        DataBag<Binding> bag = current.probe ;
+        Iterator<Binding> iter = iterator(bag) ;
+        while ( iter.hasNext() )
+            table.put(iter.next()) ;
+        Iter.close(iter) ;
+        // The partition is in memory now.
+        bag.close() ;
+        return table ;
+    }
+
+    public Iterator<Binding> stream() {
+        return iterator(current.stream) ;
+    }
+
+    public Iterator<Binding> streamNoKey() {
+        return iterator(streamNoKey) ;
+    }
+
+    private static Iterator<Binding> iterator(DataBag<Binding> bag) {
+        // An empty bag has no file to read.
+        if ( bag.size() == 0 )
+            return Iter.nullIterator() ;
+        return bag.iterator() ;
+    }
+
+    /** The number of partitions started so far, including those from re-partitioning. */
+    public long partitionCount() {
+        return count ;
+    }
+
+    @Override
+    public void close() {
+        initial.forEach(Partition::close) ;
+        pending.forEach(Partition::close) ;
+        if ( current != null )
+            current.close() ;
+        streamNoKey.close() ;
+        probeNoKey.clear() ;
+    }
+}
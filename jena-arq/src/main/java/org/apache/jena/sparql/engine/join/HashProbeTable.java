@@ -38,18 +38,35 @@ class HashProbeTable {
     /*package*/ long s_maxMatchGroup   = 0;
     /*package*/ long s_countScanMiss   = 0;
 
-    private final List<Binding>             noKeyBucket = new ArrayList<>();
+    private final List<Binding>             noKeyBucket;
     private final Multimap<Object, Binding> buckets;
     private final JoinKey                   joinKey;
+    // Whether a row with no join key is matched against noKeyBucket.
+    private final boolean                   noKeyMatchesNoKey;
 
     HashProbeTable(JoinKey joinKey) {
+        this(joinKey, new ArrayList<>(), true);
+    }
+
+    /**
+     * A probe table that shares the rows with no join key with other tables.
+     * This is for a partition of a spilled hash join, where each of the rows
+     * with no join key must be matched in one partition only.
+     */
+    HashProbeTable(JoinKey joinKey, List<Binding> noKeyBucket, boolean noKeyMatchesNoKey) {
         this.joinKey = joinKey;
+        this.noKeyBucket = noKeyBucket;
+        this.noKeyMatchesNoKey = noKeyMatchesNoKey;
         buckets = ArrayListMultimap.create();
     }
 
     public void put(Binding row) {
+        put(row, JoinLib.hash(joinKey, row));
+    }
+
+    /** Add a row, with its hash already calculated. */
+    public void put(Binding row, Object longHash) {
         s_count++;
-        Object longHash = JoinLib.hash(joinKey, row);
         if ( longHash == JoinLib.noKeyHash ) {
             noKeyBucket.add(row);
             return;
@@ -58,16 +75,30 @@ class HashProbeTable {
     }
 
     public Iterator<Binding> getCandidates(Binding row) {
+        return candidates(JoinLib.hash(joinKey, row), true);
+    }
+
+    /**
+     * The candidates for a hash, without updating the statistics.
+     * Once the table is filled, this is safe to call from several threads at once.
+     */
+    public Iterator<Binding> getCandidatesNoStats(Object longHash) {
+        return candidates(longHash, false);
+    }
+
+    private Iterator<Binding> candidates(Object longHash, boolean stats) {
         Iterator<Binding> iter = null;
-        Object longHash = JoinLib.hash(joinKey, row);
-        if ( longHash == JoinLib.noKeyHash )
+        if ( longHash == JoinLib.noKeyHash ) {
             iter = buckets.values().iterator();
-        else {
+            if ( ! noKeyMatchesNoKey )
+                return iter;
+        } else {
             Collection<Binding> x = buckets.get(longHash);
             if ( x != null ) {
-                s_maxMatchGroup = Math.max(s_maxMatchGroup, x.size());
+                if ( stats )
+                    s_maxMatchGroup = Math.max(s_maxMatchGroup, x.size());
                 iter = x.iterator();
-            } else {
+            } else if ( stats ) {
                 s_countScanMiss ++ ;
             }
         }
@@ -110,6 +141,16 @@ class HashProbeTable {
         return Iter.concat(buckets.values().iterator(),
                            noKeyBucket.iterator()) ;
     }
+
+    /** The rows with a join key. */
+    public Iterator<Binding> keyedValues() {
+        return buckets.values().iterator() ;
+    }
+
+    /** The rows with no join key. */
+    public Iterator<Binding> noKeyValues() {
+        return noKeyBucket.iterator() ;
+    }
     
     public void clear() {
         buckets.clear();
@@ -20,6 +20,7 @@ package org.apache.jena.sparql.engine.join;
 
 import java.util.ArrayList;
 import java.util.List ;
+import java.util.concurrent.ForkJoinPool ;
 
 import org.apache.jena.atlas.iterator.Iter ;
 import org.apache.jena.sparql.algebra.Algebra ;
@@ -112,7 +113,7 @@ public class Join {
      */
     public static QueryIterator hashJoin(QueryIterator left, QueryIterator right, ExecutionContext execCxt) {
         //return new QueryIterNestedLoopJoin(left, right, conditions, execCxt) ;
-        return QueryIterHashJoin.create(left, right, execCxt) ;
+        return hashJoin(null, left, right, execCxt) ;
     }
 
     /** Evaluate using a hash join.
@@ -124,6 +125,9 @@ public class Join {
      * @return          QueryIterator
      */
     public static QueryIterator hashJoin(JoinKey joinKey, QueryIterator left, QueryIterator right, ExecutionContext execCxt) {
+        ForkJoinPool pool = QueryIterParallelHashJoin.pool(execCxt) ;
+        if ( pool != null )
+            return QueryIterParallelHashJoin.create(joinKey, left, right, pool, execCxt) ;
         return QueryIterHashJoin.create(joinKey, left, right, execCxt) ;
     }
 
@@ -61,5 +61,19 @@ class JoinLib {
               return noKeyHash ;
           return x ;
       }
+
+    /**
+     * Mix the bits of a hash from {@link #hash(JoinKey, Binding)}, not {@link #noKeyHash},
+     * so that any part of the result can be used to divide rows into groups
+     * (spill partitions, parallel stripes) independently of the buckets of a
+     * {@link HashProbeTable}, which use the hash itself.
+     */
+    public static long spread(Object longHash) {
+        long h = (Long)longHash ;
+        h ^= h >>> 33 ;
+        h *= 0xff51afd7ed558ccdL ;
+        h ^= h >>> 33 ;
+        return h ;
+    }
 }
 
@@ -86,13 +86,19 @@ public class QueryIterHashLeftJoin_Left extends AbstractIterHashJoin {
         this.conditions = conditions ;
     }
 
+    // Left rows that have matched. If the join is spilled, the left rows with
+    // the join key are in one partition, those without are in every partition.
     private Set<Binding> leftHits = new HashSet<>() ; 
+    private Set<Binding> leftNoKeyHits = new HashSet<>() ; 
     
     @Override
     protected Binding yieldOneResult(Binding rowCurrentProbe, Binding rowStream, Binding rowResult) {
         if ( conditions != null && ! conditions.isSatisfied(rowResult, getExecContext()) )
             return null ;
-        leftHits.add(rowCurrentProbe) ;
+        if ( JoinLib.hash(joinKey, rowCurrentProbe) == JoinLib.noKeyHash )
+            leftNoKeyHits.add(rowCurrentProbe) ;
+        else
+            leftHits.add(rowCurrentProbe) ;
         return rowResult ; 
     }
     
@@ -104,7 +110,11 @@ public class QueryIterHashLeftJoin_Left extends AbstractIterHashJoin {
     
     @Override
     protected QueryIterator joinFinished() {
-        Iterator<Binding> iter = Iter.filter(hashTable.values(), b-> ! leftHits.contains(b) )  ;
+        Set<Binding> hits = leftHits ;
+        leftHits = new HashSet<>() ;
+        Iterator<Binding> iter = Iter.filter(hashTable.keyedValues(), b-> ! hits.contains(b) )  ;
+        if ( isLastPartition() )
+            iter = Iter.concat(iter, Iter.filter(hashTable.noKeyValues(), b-> ! leftNoKeyHits.contains(b) )) ;
         return new QueryIterPlainWrapper(iter, getExecContext()) ;
     }
 }
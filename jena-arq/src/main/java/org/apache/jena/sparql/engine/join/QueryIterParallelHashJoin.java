@@ -0,0 +1,363 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.sparql.engine.join;
+
+import java.util.ArrayList ;
+import java.util.Arrays ;
+import java.util.Collections ;
+import java.util.Iterator ;
+import java.util.List ;
+import java.util.concurrent.ForkJoinPool ;
+import java.util.concurrent.ForkJoinTask ;
+import java.util.concurrent.RecursiveAction ;
+import java.util.concurrent.RecursiveTask ;
+
+import org.apache.jena.atlas.iterator.Iter ;
+import org.apache.jena.query.ARQ ;
+import org.apache.jena.sparql.ARQException ;
+import org.apache.jena.sparql.algebra.Algebra ;
+import org.apache.jena.sparql.core.Var ;
+import org.apache.jena.sparql.engine.ExecutionContext ;
+import org.apache.jena.sparql.engine.QueryIterator ;
+import org.apache.jena.sparql.engine.binding.Binding ;
+import org.apache.jena.sparql.engine.binding.BindingFactory ;
+import org.apache.jena.sparql.engine.iterator.QueryIter2 ;
+import org.apache.jena.sparql.engine.iterator.QueryIterNullIterator ;
+import org.apache.jena.sparql.engine.iterator.QueryIterPeek ;
+import org.apache.jena.sparql.util.Context ;
+
+/** Hash join using a {@link ForkJoinPool}.
+ * <p>
+ * The left is materialized and hashed, in parallel, into a number of
+ * striped probe tables. The right is read in batches, and the rows of a batch are
+ * joined in parallel while the next batch is read.
+ * <p>
+ * The inputs are only read on the calling thread; the rows are materialized as they are read
+ * because a binding from storage may only be usable on the thread (and in the transaction)
+ * that created it.
+ * The order of the results is not defined.
+ * 
+ * @see ARQ#parallelHashJoin
+ */
+public class QueryIterParallelHashJoin extends QueryIter2 {
+    // Rows per parallel task.
+    /*package*/ static int TaskSize   = 256 ;
+    // Rows of the right read for each round of probing.
+    /*package*/ static int BatchSize  = 16*1024 ;
+
+    private final JoinKey               joinKey ;
+    private final ForkJoinPool          pool ;
+    private final QueryIterator         iterStream ;
+    private final HashProbeTable[]      stripes ;
+    private ForkJoinTask<List<Binding>> pending     = null ;
+    private Iterator<Binding>           results     = Iter.nullIterator() ;
+    private boolean                     finished    = false ;
+
+    /**
+     * The pool to use for hash joins with this execution context, or null
+     * if hash joins are not to be run in parallel.
+     * A pool set in the context belongs to the caller, which shuts it down.
+     */
+    public static ForkJoinPool pool(ExecutionContext execCxt) {
+        if ( execCxt == null || execCxt.getContext() == null )
+            return null ;
+        Context context = execCxt.getContext() ;
+        if ( ! context.isDefined(ARQ.parallelHashJoin) )
+            return null ;
+        // Bounded memory takes priority.
+        if ( context.getLong(ARQ.spillToDiskThreshold, -1) >= 0 )
+            return null ;
+        Object v = context.get(ARQ.parallelHashJoin) ;
+        if ( v instanceof ForkJoinPool )
+            return (ForkJoinPool)v ;
+        String x = v.toString() ;
+        if ( x.equalsIgnoreCase("true") )
+            return ForkJoinPool.commonPool() ;
+        if ( x.equalsIgnoreCase("false") )
+            return null ;
+        int threads ;
+        try { threads = Integer.parseInt(x) ; }
+        catch (NumberFormatException ex) {
+            throw new ARQException("Value for "+ARQ.parallelHashJoin+" is not 'true', 'false' or a number: "+x) ;
+        }
+        if ( threads <= 1 )
+            return null ;
+        ForkJoinPool common = ForkJoinPool.commonPool() ;
+        if ( threads == common.getParallelism() )
+            return common ;
+        // A pool would have no owner to shut it down.
+        throw new ARQException("No pool for "+threads+" threads: set "+ARQ.parallelHashJoin
+                               +" to a ForkJoinPool, or to 'true' for the common pool ("+common.getParallelism()+" threads)") ;
+    }
+
+    /**
+     * Create a parallel hash join QueryIterator.
+     * @param joinKey  Join key - if null, one is guessed by snooping the input QueryIterators
+     * @param left
+     * @param right
+     * @param pool
+     * @param execCxt
+     * @return QueryIterator
+     */
+    public static QueryIterator create(JoinKey joinKey, QueryIterator left, QueryIterator right, ForkJoinPool pool, ExecutionContext execCxt) {
+        // Easy cases.
+        if ( ! left.hasNext() || ! right.hasNext() ) {
+            left.close() ;
+            right.close() ;
+            return QueryIterNullIterator.create(execCxt) ;
+        }
+        return new QueryIterParallelHashJoin(joinKey, left, right, pool, execCxt) ;
+    }
+
+    private QueryIterParallelHashJoin(JoinKey joinKey, QueryIterator left, QueryIterator right, ForkJoinPool pool, ExecutionContext execCxt) {
+        super(left, right, execCxt) ;
+        if ( joinKey == null ) {
+            QueryIterPeek pLeft = QueryIterPeek.create(left, execCxt) ;
+            QueryIterPeek pRight = QueryIterPeek.create(right, execCxt) ;
+            List<Var> varsLeft = Iter.toList(pLeft.peek().vars()) ;
+            List<Var> varsRight = Iter.toList(pRight.peek().vars()) ;
+            joinKey = JoinKey.createVarKey(varsLeft, varsRight) ;
+            left = pLeft ;
+            right = pRight ;
+        }
+        this.joinKey = joinKey ;
+        this.pool = pool ;
+        this.iterStream = right ;
+        this.stripes = buildStripes(left) ;
+        left.close() ;
+    }
+
+    private HashProbeTable[] buildStripes(QueryIterator iter) {
+        List<Binding> rows = readRows(iter, Integer.MAX_VALUE) ;
+        int numStripes = numStripes(pool.getParallelism()) ;
+        // Rows with no join key are kept once, with stripe 0. 
+        List<Binding> noKeyBucket = new ArrayList<>() ;
+        HashProbeTable[] tables = new HashProbeTable[numStripes] ;
+        for ( int i = 0 ; i < numStripes ; i++ )
+            tables[i] = new HashProbeTable(joinKey, noKeyBucket, i == 0) ;
+        Object[] hashes = new Object[rows.size()] ;
+        int[] stripeOf = new int[rows.size()] ;
+        pool.invoke(new HashRows(joinKey, numStripes, rows, hashes, stripeOf, 0, rows.size())) ;
+        // Group the row indexes by stripe: stripe i is byStripe[offsets[i]] to byStripe[offsets[i+1]-1].
+        int[] offsets = new int[numStripes+1] ;
+        for ( int x : stripeOf )
+            offsets[x+1]++ ;
+        for ( int i = 0 ; i < numStripes ; i++ )
+            offsets[i+1] += offsets[i] ;
+        int[] next = Arrays.copyOf(offsets, numStripes) ;
+        int[] byStripe = new int[stripeOf.length] ;
+        for ( int i = 0 ; i < stripeOf.length ; i++ )
+            byStripe[next[stripeOf[i]]++] = i ;
+        pool.invoke(new FillStripes(tables, rows, hashes, byStripe, offsets, 0, numStripes)) ;
+        return tables ;
+    }
+
+    /** A power of two, several per thread so that skewed keys still spread the work. */
+    private static int numStripes(int parallelism) {
+        int x = Integer.highestOneBit(Math.max(1, parallelism) * 4 - 1) << 1 ;
+        return Math.min(x, 1024) ;
+    }
+
+    private static int stripe(Object longHash, int numStripes) {
+        if ( longHash == JoinLib.noKeyHash )
+            return 0 ;
+        return (int)JoinLib.spread(longHash) & (numStripes - 1) ;
+    }
+
+    // Read and materialize up to max rows.
+    private static List<Binding> readRows(Iterator<Binding> iter, int max) {
+        List<Binding> rows = new ArrayList<>() ;
+        while ( rows.size() < max && iter.hasNext() )
+            rows.add(BindingFactory.materialize(iter.next())) ;
+        return rows ;
+    }
+
+    private static class HashRows extends RecursiveAction {
+        private final JoinKey joinKey ;
+        private final int numStripes ;
+        private final List<Binding> rows ;
+        private final Object[] hashes ;
+        private final int[] stripeOf ;
+        private final int start ;
+        private final int finish ;
+
+        HashRows(JoinKey joinKey, int numStripes, List<Binding> rows, Object[] hashes, int[] stripeOf, int start, int finish) {
+            this.joinKey = joinKey ;
+            this.numStripes = numStripes ;
+            this.rows = rows ;
+            this.hashes = hashes ;
+            this.stripeOf = stripeOf ;
+            this.start = start ;
+            this.finish = finish ;
+        }
+
+        @Override
+        protected void compute() {
+            if ( finish - start > TaskSize ) {
+                int mid = (start + finish) >>> 1 ;
+                invokeAll(new HashRows(joinKey, numStripes, rows, hashes, stripeOf, start, mid),
+                          new HashRows(joinKey, numStripes, rows, hashes, stripeOf, mid, finish)) ;
+                return ;
+            }
+            for ( int i = start ; i < finish ; i++ ) {
+                Object longHash = JoinLib.hash(joinKey, rows.get(i)) ;
+                hashes[i] = longHash ;
+                stripeOf[i] = stripe(longHash, numStripes) ;
+            }
+        }
+    }
+
+    // Each stripe is filled by one task.
+    private static class FillStripes extends RecursiveAction {
+        private final HashProbeTable[] tables ;
+        private final List<Binding> rows ;
+        private final Object[] hashes ;
+        private final int[] byStripe ;
+        private final int[] offsets ;
+        private final int start ;
+        private final int finish ;
+
+        FillStripes(HashProbeTable[] tables, List<Binding> rows, Object[] hashes, int[] byStripe, int[] offsets, int start, int finish) {
+            this.tables = tables ;
+            this.rows = rows ;
+            this.hashes = hashes ;
+            this.byStripe = byStripe ;
+            this.offsets = offsets ;
+            this.start = start ;
+            this.finish = finish ;
+        }
+
+        @Override
+        protected void compute() {
+            if ( finish - start > 1 ) {
+                int mid = (start + finish) >>> 1 ;
+                invokeAll(new FillStripes(tables, rows, hashes, byStripe, offsets, start, mid),
+                          new FillStripes(tables, rows, hashes, byStripe, offsets, mid, finish)) ;
+                return ;
+            }
+            HashProbeTable table = tables[start] ;
+            for ( int k = offsets[start] ; k < offsets[start+1] ; k++ ) {
+                int i = byStripe[k] ;
+                table.put(rows.get(i), hashes[i]) ;
+            }
+        }
+    }
+
+    // Join a range of a batch of rows from the right.
+    private class Probe extends RecursiveTask<List<Binding>> {
+        private final List<Binding> batch ;
+        private final int start ;
+        private final int finish ;
+
+        Probe(List<Binding> batch, int start, int finish) {
+            this.batch = batch ;
+            this.start = start ;
+            this.finish = finish ;
+        }
+
+        @Override
+        protected List<Binding> compute() {
+            if ( finish - start > TaskSize ) {
+                int mid = (start + finish) >>> 1 ;
+                Probe probe1 = new Probe(batch, start, mid) ;
+                probe1.fork() ;
+                List<Binding> results2 = new Probe(batch, mid, finish).compute() ;
+                List<Binding> results1 = probe1.join() ;
+                if ( results1.isEmpty() )
+                    return results2 ;
+                results1.addAll(results2) ;
+                return results1 ;
+            }
+            List<Binding> output = new ArrayList<>() ;
+            for ( int i = start ; i < finish ; i++ ) {
+                Binding rowStream = batch.get(i) ;
+                Object longHash = JoinLib.hash(joinKey, rowStream) ;
+                if ( longHash == JoinLib.noKeyHash ) {
+                    // Every row of the left is a candidate.
+                    for ( HashProbeTable table : stripes )
+                        join(table.getCandidatesNoStats(longHash), rowStream, output) ;
+                } else
+                    join(stripes[stripe(longHash, stripes.length)].getCandidatesNoStats(longHash), rowStream, output) ;
+            }
+            return output ;
+        }
+
+        private void join(Iterator<Binding> candidates, Binding rowStream, List<Binding> output) {
+            if ( candidates == null )
+                return ;
+            while ( candidates.hasNext() ) {
+                Binding r = Algebra.merge(candidates.next(), rowStream) ;
+                if ( r != null )
+                    output.add(r) ;
+            }
+        }
+    }
+
+    // Read the next batch of the right and start joining it.
+    private ForkJoinTask<List<Binding>> nextBatch() {
+        if ( finished )
+            return null ;
+        List<Binding> batch = readRows(iterStream, BatchSize) ;
+        if ( batch.size() < BatchSize )
+            finished = true ;
+        if ( batch.isEmpty() )
+            return null ;
+        return pool.submit(new Probe(batch, 0, batch.size())) ;
+    }
+
+    @Override
+    protected boolean hasNextBinding() {
+        for ( ;; ) {
+            if ( results.hasNext() )
+                return true ;
+            if ( pending == null ) {
+                pending = nextBatch() ;
+                if ( pending == null )
+                    return false ;
+            }
+            ForkJoinTask<List<Binding>> task = pending ;
+            // Overlap reading the next batch with probing this one.
+            pending = nextBatch() ;
+            results = task.join().iterator() ;
+        }
+    }
+
+    @Override
+    protected Binding moveToNextBinding() {
+        return results.next() ;
+    }
+
+    @Override
+    protected void closeSubIterator() {
+        if ( pending != null )
+            pending.cancel(false) ;
+        pending = null ;
+        results = Collections.emptyIterator() ;
+        iterStream.close() ;
+        for ( HashProbeTable table : stripes )
+            table.clear() ;
+    }
+
+    @Override
+    protected void requestSubCancel() {
+        if ( pending != null )
+            pending.cancel(false) ;
+    }
+}
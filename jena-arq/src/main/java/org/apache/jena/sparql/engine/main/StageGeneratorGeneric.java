@@ -31,6 +31,7 @@ import org.apache.jena.sparql.engine.iterator.QueryIterPeek ;
 import org.apache.jena.sparql.engine.optimizer.reorder.ReorderLib ;
 import org.apache.jena.sparql.engine.optimizer.reorder.ReorderProc ;
 import org.apache.jena.sparql.engine.optimizer.reorder.ReorderTransformation ;
+import org.apache.jena.sparql.engine.optimizer.reorder.Reorderable ;
 import org.apache.jena.sparql.mgt.Explain ;
 
 /** Generic - always works - StageGenerator */
@@ -50,6 +51,16 @@ public class StageGeneratorGeneric implements StageGenerator {
         ReorderTransformation reorder = reorderFixed ;
         StageGenerator executor = StageBuilder.executeInline ;
 
+        if ( graph instanceof Reorderable ) {
+            // The graph supplies its own reordering, which applies whatever the input.
+            ReorderTransformation graphReorder = ((Reorderable)graph).getReorderTransform() ;
+            if ( graphReorder != null ) {
+                if ( input.isJoinIdentity() && pattern.size() >= 2 )
+                    pattern = graphReorder.reorder(pattern) ;
+                reorder = graphReorder ;
+            }
+        }
+
         return execute(pattern, reorder, executor, input, execCxt) ;
     }
 
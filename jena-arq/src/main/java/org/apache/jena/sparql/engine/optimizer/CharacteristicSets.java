@@ -0,0 +1,200 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.sparql.engine.optimizer;
+
+import java.util.* ;
+
+import org.apache.jena.atlas.iterator.Iter ;
+import org.apache.jena.graph.Graph ;
+import org.apache.jena.graph.Node ;
+import org.apache.jena.graph.Triple ;
+
+/**
+ * Characteristic sets: subjects grouped by the set of predicates they have.
+ * <p>
+ * For each distinct predicate set, the number of subjects with exactly that set
+ * and the number of triples for each predicate is recorded. This gives
+ * estimates for star-shaped patterns (several triple patterns with the same
+ * subject) that take the correlation between predicates into account, which
+ * per-predicate statistics do not.
+ * <p>
+ * See "Characteristic Sets: Accurate Cardinality Estimation for RDF Queries with
+ * Multiple Joins", Neumann and Moerkotte, ICDE 2011.
+ * 
+ * @see org.apache.jena.sparql.engine.optimizer.reorder.ReorderCharacteristicSets
+ */
+public final class CharacteristicSets
+{
+    /** One characteristic set. */
+    public static final class CharacteristicSet
+    {
+        private final Set<Node> predicates ;
+        private final Map<Node, Long> occurrences ;
+        private long count = 0 ;
+
+        private CharacteristicSet(Set<Node> predicates) {
+            this.predicates = Collections.unmodifiableSet(predicates) ;
+            this.occurrences = new HashMap<>(predicates.size()*2) ;
+        }
+
+        /** The predicates of the subjects in this set. */
+        public Set<Node> getPredicates()        { return predicates ; }
+
+        /** Number of subjects. */
+        public long getCount()                  { return count ; }
+
+        /** Number of triples with the predicate over all subjects in this set. */
+        public long getOccurrences(Node predicate) {
+            return occurrences.getOrDefault(predicate, 0L) ;
+        }
+
+        @Override
+        public String toString() {
+            return "CS["+count+" "+occurrences+"]" ;
+        }
+    }
+
+    /** Accumulate characteristic sets, one subject at a time. */
+    public static final class Builder
+    {
+        private final Map<Set<Node>, CharacteristicSet> sets = new HashMap<>() ;
+        private long triples = 0 ;
+
+        /** Add one subject, given the number of triples for each of its predicates. */
+        public Builder addSubject(Map<Node, Long> predicateCounts) {
+            if ( predicateCounts.isEmpty() )
+                return this ;
+            CharacteristicSet cs = sets.get(predicateCounts.keySet()) ;
+            if ( cs == null ) {
+                Set<Node> key = new HashSet<>(predicateCounts.keySet()) ;
+                cs = new CharacteristicSet(key) ;
+                sets.put(key, cs) ;
+            }
+            cs.count++ ;
+            for ( Map.Entry<Node, Long> e : predicateCounts.entrySet() ) {
+                cs.occurrences.merge(e.getKey(), e.getValue(), Long::sum) ;
+                triples += e.getValue() ;
+            }
+            return this ;
+        }
+
+        public CharacteristicSets build() {
+            return new CharacteristicSets(sets.values(), triples) ;
+        }
+    }
+
+    /** Calculate the characteristic sets of any graph. This holds the predicates of every subject in memory. */
+    public static CharacteristicSets create(Graph graph) {
+        Map<Node, Map<Node, Long>> subjects = new HashMap<>() ;
+        Iterator<Triple> iter = graph.find(Node.ANY, Node.ANY, Node.ANY) ;
+        try {
+            while(iter.hasNext()) {
+                Triple t = iter.next() ;
+                subjects.computeIfAbsent(t.getSubject(), s->new HashMap<>()).merge(t.getPredicate(), 1L, Long::sum) ;
+            }
+        } finally { Iter.close(iter) ; }
+        Builder builder = new Builder() ;
+        subjects.values().forEach(builder::addSubject) ;
+        return builder.build() ;
+    }
+
+    public static Builder builder() {
+        return new Builder() ;
+    }
+
+    private final List<CharacteristicSet> sets ;
+    // Predicate to the sets containing it.
+    private final Map<Node, List<CharacteristicSet>> byPredicate = new HashMap<>() ;
+    private final long tripleCount ;
+    private final long subjectCount ;
+
+    private CharacteristicSets(Collection<CharacteristicSet> sets, long tripleCount) {
+        this.sets = Collections.unmodifiableList(new ArrayList<>(sets)) ;
+        this.tripleCount = tripleCount ;
+        long subjects = 0 ;
+        for ( CharacteristicSet cs : sets ) {
+            subjects += cs.count ;
+            for ( Node p : cs.predicates )
+                byPredicate.computeIfAbsent(p, x->new ArrayList<>()).add(cs) ;
+        }
+        this.subjectCount = subjects ;
+    }
+
+    public List<CharacteristicSet> getSets()    { return sets ; }
+
+    public long getTripleCount()                { return tripleCount ; }
+
+    public long getSubjectCount()               { return subjectCount ; }
+
+    /** The characteristic sets that include all the predicates. */
+    public List<CharacteristicSet> matching(Collection<Node> predicates) {
+        if ( predicates.isEmpty() )
+            return sets ;
+        // Start from the predicate in the fewest sets.
+        List<CharacteristicSet> candidates = null ;
+        for ( Node p : predicates ) {
+            List<CharacteristicSet> x = byPredicate.getOrDefault(p, Collections.emptyList()) ;
+            if ( candidates == null || x.size() < candidates.size() )
+                candidates = x ;
+        }
+        List<CharacteristicSet> result = new ArrayList<>(candidates.size()) ;
+        for ( CharacteristicSet cs : candidates ) {
+            if ( cs.predicates.containsAll(predicates) )
+                result.add(cs) ;
+        }
+        return result ;
+    }
+
+    /** Number of subjects that have all the predicates. */
+    public long subjects(Collection<Node> predicates) {
+        long n = 0 ;
+        for ( CharacteristicSet cs : matching(predicates) )
+            n += cs.count ;
+        return n ;
+    }
+
+    /** Number of triples with predicate {@code p} for subjects that have all the predicates. */
+    public long occurrences(Collection<Node> predicates, Node p) {
+        long n = 0 ;
+        for ( CharacteristicSet cs : matching(predicates) )
+            n += cs.getOccurrences(p) ;
+        return n ;
+    }
+
+    /**
+     * Estimate the number of results of a star pattern: one triple pattern for
+     * each predicate, all with the same subject variable and object variables.
+     */
+    public double estimateStar(Collection<Node> predicates) {
+        double n = 0 ;
+        for ( CharacteristicSet cs : matching(predicates) ) {
+            double x = cs.count ;
+            for ( Node p : predicates )
+                x = x * cs.getOccurrences(p) / cs.count ;
+            n += x ;
+        }
+        return n ;
+    }
+
+    @Override
+    public String toString() {
+        return "CharacteristicSets[sets="+sets.size()+", subjects="+subjectCount+", triples="+tripleCount+"]" ;
+    }
+}
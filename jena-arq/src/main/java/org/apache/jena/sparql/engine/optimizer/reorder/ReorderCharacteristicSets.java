@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.sparql.engine.optimizer.reorder;
+
+import java.util.* ;
+
+import org.apache.jena.graph.Node ;
+import org.apache.jena.graph.Triple ;
+import org.apache.jena.sparql.core.BasicPattern ;
+import org.apache.jena.sparql.core.Var ;
+import org.apache.jena.sparql.engine.optimizer.CharacteristicSets ;
+import org.apache.jena.sparql.sse.Item ;
+
+/**
+ * Reorder using {@link CharacteristicSets}.
+ * <p>
+ * Triple patterns are grouped into stars by subject. The weight of a triple
+ * pattern uses the subjects that have all the (fixed) predicates of its star so
+ * the most selective star is started first, and within a star, the predicate
+ * with fewest triples per subject comes first. Once the subject is bound, the
+ * weight is the number of triples per subject.
+ */
+public class ReorderCharacteristicSets implements ReorderTransformation
+{
+    private final CharacteristicSets sets ;
+
+    public ReorderCharacteristicSets(CharacteristicSets sets) {
+        this.sets = sets ;
+    }
+
+    public CharacteristicSets getCharacteristicSets() {
+        return sets ;
+    }
+
+    @Override
+    public ReorderProc reorderIndexes(BasicPattern pattern) {
+        return new Planner(pattern).reorderIndexes(pattern) ;
+    }
+
+    @Override
+    public BasicPattern reorder(BasicPattern pattern) {
+        return reorderIndexes(pattern).reorder(pattern) ;
+    }
+
+    /** Per-pattern state : the stars of the pattern being reordered. */
+    private class Planner extends ReorderTransformationSubstitution {
+        private final List<Triple> triples ;
+        private final Map<PatternTriple, Triple> origin = new IdentityHashMap<>() ;
+        private final Map<Node, Set<Node>> stars = new HashMap<>() ;
+
+        Planner(BasicPattern pattern) {
+            triples = pattern.getList() ;
+            for ( Triple t : triples ) {
+                if ( t.getPredicate().isConcrete() )
+                    stars.computeIfAbsent(t.getSubject(), s->new HashSet<>()).add(t.getPredicate()) ;
+            }
+        }
+
+        @Override
+        protected List<PatternTriple> modifyComponents(List<PatternTriple> components) {
+            for ( int i = 0 ; i < components.size() ; i++ )
+                origin.put(components.get(i), triples.get(i)) ;
+            return components ;
+        }
+
+        @Override
+        protected double weight(PatternTriple pt) {
+            Triple triple = origin.get(pt) ;
+            boolean subjectBound = isBound(pt.subject) ;
+            boolean objectBound = isBound(pt.object) ;
+            if ( triple == null || ! triple.getPredicate().isConcrete() ) {
+                // No predicate : the average triples per subject or all triples.
+                if ( ! subjectBound )
+                    return sets.getTripleCount() ;
+                return sets.getSubjectCount() == 0 ? 0 : (double)sets.getTripleCount() / sets.getSubjectCount() ;
+            }
+            Set<Node> star = stars.get(triple.getSubject()) ;
+            Node p = triple.getPredicate() ;
+            long n = sets.subjects(star) ;
+            if ( n == 0 )
+                // No matches.
+                return 0 ;
+            double perSubject = (double)sets.occurrences(star, p) / n ;
+            if ( subjectBound )
+                return objectBound ? Math.min(1, perSubject) : perSubject ;
+            // A subject has the object at most once.
+            return objectBound ? n : n * perSubject ;
+        }
+    }
+
+    private static boolean isBound(Item item) {
+        return ! ( item.isNode() && Var.isVar(item.getNode()) ) ;
+    }
+
+    @Override
+    public String toString() {
+        return "ReorderCharacteristicSets["+sets+"]" ;
+    }
+}
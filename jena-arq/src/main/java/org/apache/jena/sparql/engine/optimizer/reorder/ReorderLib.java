@@ -18,7 +18,9 @@
 
 package org.apache.jena.sparql.engine.optimizer.reorder ;
 
+import org.apache.jena.graph.Graph ;
 import org.apache.jena.sparql.core.BasicPattern ;
+import org.apache.jena.sparql.engine.optimizer.CharacteristicSets ;
 import org.apache.jena.sparql.engine.optimizer.StatsMatcher ;
 
 public class ReorderLib
@@ -85,4 +87,11 @@ public class ReorderLib
         return new ReorderWeighted(stats) ;
     }
 
+    /** Return a transformation that reorders based on the characteristic sets of a graph.
+     * The characteristic sets are calculated once, when this is called.
+     */
+    public static ReorderTransformation characteristicSets(Graph graph) {
+        return new ReorderCharacteristicSets(CharacteristicSets.create(graph)) ;
+    }
+
 }
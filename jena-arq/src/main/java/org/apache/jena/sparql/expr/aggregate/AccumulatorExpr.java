@@ -21,6 +21,7 @@ package org.apache.jena.sparql.expr.aggregate;
 import java.util.HashSet ;
 import java.util.Set ;
 
+import org.apache.jena.graph.Node ;
 import org.apache.jena.sparql.engine.binding.Binding ;
 import org.apache.jena.sparql.expr.Expr ;
 import org.apache.jena.sparql.expr.ExprEvalException ;
@@ -80,6 +81,21 @@ public abstract class AccumulatorExpr implements Accumulator
 
     /** Get the count of accumulated values */ 
     protected long getAccCount() { return accCount ; }
+
+    /** Get the count of errors */ 
+    protected long getErrorCount() { return errorCount ; }
+
+    /** Add the counts from the partial state of another accumulator (see {@link AccumulatorMergeable}) */
+    protected void mergeCounts(long accCount, long errorCount) {
+        this.accCount += accCount ;
+        this.errorCount += errorCount ;
+    }
+
+    // Partial state encoding.
+    protected static Node countToNode(long count)       { return NodeValue.makeInteger(count).asNode() ; }
+    protected static long nodeToCount(Node node)        { return NodeValue.makeNode(node).getInteger().longValue() ; }
+    protected static Node valueToNode(NodeValue nv)     { return ( nv == null ) ? null : nv.asNode() ; }
+    protected static NodeValue nodeToValue(Node node)   { return ( node == null ) ? null : NodeValue.makeNode(node) ; }
     
     /** Called if no errors to get the accumulated result */
     protected abstract NodeValue getAccValue() ; 
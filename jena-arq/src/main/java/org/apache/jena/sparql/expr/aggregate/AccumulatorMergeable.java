@@ -0,0 +1,38 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.sparql.expr.aggregate;
+
+import java.util.List ;
+
+import org.apache.jena.graph.Node ;
+
+/** An {@link Accumulator} whose state part way through a group can be saved, as RDF terms,
+ *  and later merged into another accumulator for the same group.
+ *  Grouping uses this to write partial aggregates to disk when there are too many groups
+ *  to keep in memory.
+ */
+public interface AccumulatorMergeable extends Accumulator
+{
+    /** The state of the accumulator so far. Elements may be null. */ 
+    public List<Node> getPartialState() ;
+    
+    /** Merge a state, from {@link #getPartialState()} of an accumulator for the same aggregator, into this accumulator. */
+    public void merge(List<Node> partialState) ;
+}
@@ -18,6 +18,9 @@
 
 package org.apache.jena.sparql.expr.aggregate;
 
+import java.util.Arrays ;
+import java.util.List ;
+
 import org.apache.jena.graph.Node ;
 import org.apache.jena.sparql.engine.binding.Binding ;
 import org.apache.jena.sparql.expr.Expr ;
@@ -60,7 +63,7 @@ public class AggAvg extends AggregatorBase
     }
     
     // ---- Accumulator
-    private static class AccAvg extends AccumulatorExpr
+    private static class AccAvg extends AccumulatorExpr implements AccumulatorMergeable
     {
         // Non-empty case but still can be nothing because the expression may be undefined.
         private NodeValue total = noValuesToAvg ;
@@ -106,5 +109,22 @@ public class AggAvg extends AggregatorBase
             NodeValue nvCount = NodeValue.makeInteger(count) ;
             return XSDFuncOp.numDivide(total, nvCount) ;
         }
+
+        @Override
+        public List<Node> getPartialState()
+        { return Arrays.asList(valueToNode(total), countToNode(count), countToNode(getErrorCount())) ; }
+
+        @Override
+        public void merge(List<Node> partialState)
+        {
+            long otherCount = nodeToCount(partialState.get(1)) ;
+            if ( otherCount > 0 )
+            {
+                NodeValue nv = nodeToValue(partialState.get(0)) ;
+                total = ( count == 0 ) ? nv : XSDFuncOp.numAdd(nv, total) ;
+                count += otherCount ;
+            }
+            mergeCounts(0, nodeToCount(partialState.get(2))) ;
+        }
     }
 }
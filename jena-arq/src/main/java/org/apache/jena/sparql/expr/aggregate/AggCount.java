@@ -18,6 +18,9 @@
 
 package org.apache.jena.sparql.expr.aggregate;
 
+import java.util.Collections ;
+import java.util.List ;
+
 import org.apache.jena.atlas.logging.Log ;
 import org.apache.jena.graph.Node ;
 import org.apache.jena.sparql.engine.binding.Binding ;
@@ -70,7 +73,7 @@ public class AggCount extends AggregatorBase
         return true ;
     }
 
-    static class AccCount implements Accumulator
+    static class AccCount implements AccumulatorMergeable
     {
         private long count = 0 ;
         public AccCount()   { }
@@ -80,5 +83,13 @@ public class AggCount extends AggregatorBase
         // Errors can't occur.
         @Override
         public NodeValue getValue()             { return NodeValue.makeInteger(count) ; }
+
+        @Override
+        public List<Node> getPartialState()
+        { return Collections.singletonList(getValue().asNode()) ; }
+
+        @Override
+        public void merge(List<Node> partialState)
+        { count += NodeValue.makeNode(partialState.get(0)).getInteger().longValue() ; }
     }
 }
@@ -18,6 +18,9 @@
 
 package org.apache.jena.sparql.expr.aggregate;
 
+import java.util.Arrays ;
+import java.util.List ;
+
 import org.apache.jena.graph.Node ;
 import org.apache.jena.sparql.engine.binding.Binding ;
 import org.apache.jena.sparql.expr.Expr ;
@@ -40,7 +43,7 @@ abstract class AggMinBase extends AggregatorBase
     public final Node getValueEmpty()     { return null ; } 
 
     // ---- Accumulator
-    private static class AccMin extends AccumulatorExpr
+    private static class AccMin extends AccumulatorExpr implements AccumulatorMergeable
     {
         // Non-empty case but still can be nothing because the expression may be undefined.
         private NodeValue minSoFar = null ;
@@ -73,5 +76,18 @@ abstract class AggMinBase extends AggregatorBase
         @Override
         public NodeValue getAccValue()
         { return minSoFar ; }
+
+        @Override
+        public List<Node> getPartialState()
+        { return Arrays.asList(valueToNode(minSoFar), countToNode(getErrorCount())) ; }
+
+        @Override
+        public void merge(List<Node> partialState)
+        {
+            NodeValue nv = nodeToValue(partialState.get(0)) ;
+            if ( nv != null && ( minSoFar == null || NodeValue.compareAlways(minSoFar, nv) > 0 ) )
+                minSoFar = nv ;
+            mergeCounts(0, nodeToCount(partialState.get(1))) ;
+        }
     }
 }
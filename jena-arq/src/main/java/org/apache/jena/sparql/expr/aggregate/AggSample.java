@@ -18,6 +18,9 @@
 
 package org.apache.jena.sparql.expr.aggregate;
 
+import java.util.Collections ;
+import java.util.List ;
+
 import org.apache.jena.graph.Node ;
 import org.apache.jena.sparql.engine.binding.Binding ;
 import org.apache.jena.sparql.expr.Expr ;
@@ -56,7 +59,7 @@ public class AggSample extends AggregatorBase
     } 
 
     // ---- Accumulator
-    private static class AccSample extends AccumulatorExpr
+    private static class AccSample extends AccumulatorExpr implements AccumulatorMergeable
     {
         // Sample: first evaluation of the expression that is not an error.
         private NodeValue sampleSoFar = null ;
@@ -85,5 +88,16 @@ public class AggSample extends AggregatorBase
             // Return any seen value and null only if none.
             return getAccValue();
         }
+
+        @Override
+        public List<Node> getPartialState() {
+            return Collections.singletonList(valueToNode(sampleSoFar));
+        }
+
+        @Override
+        public void merge(List<Node> partialState) {
+            if ( sampleSoFar == null )
+                sampleSoFar = nodeToValue(partialState.get(0));
+        }
     }
 }
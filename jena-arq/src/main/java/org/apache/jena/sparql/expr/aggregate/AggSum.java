@@ -18,6 +18,9 @@
 
 package org.apache.jena.sparql.expr.aggregate;
 
+import java.util.Arrays ;
+import java.util.List ;
+
 import org.apache.jena.graph.Node ;
 import org.apache.jena.sparql.engine.binding.Binding ;
 import org.apache.jena.sparql.expr.Expr ;
@@ -59,7 +62,7 @@ public class AggSum  extends AggregatorBase
     } 
 
     // ---- Accumulator
-    private static class AccSum extends AccumulatorExpr
+    private static class AccSum extends AccumulatorExpr implements AccumulatorMergeable
     {
         // Non-empty case but still can be nothing because the expression may be undefined.
         private NodeValue total = null ;
@@ -87,5 +90,18 @@ public class AggSum  extends AggregatorBase
         @Override
         public NodeValue getAccValue()
         { return total ; }
+
+        @Override
+        public List<Node> getPartialState()
+        { return Arrays.asList(valueToNode(total), countToNode(getErrorCount())) ; }
+
+        @Override
+        public void merge(List<Node> partialState)
+        {
+            NodeValue nv = nodeToValue(partialState.get(0)) ;
+            if ( nv != null )
+                total = ( total == null ) ? nv : XSDFuncOp.numAdd(nv, total) ;
+            mergeCounts(0, nodeToCount(partialState.get(1))) ;
+        }
     }
 }
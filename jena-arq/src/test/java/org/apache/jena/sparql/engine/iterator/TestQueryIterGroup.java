@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.sparql.engine.iterator;
+
+import org.apache.jena.atlas.junit.BaseTest ;
+import org.apache.jena.query.* ;
+import org.apache.jena.rdf.model.Model ;
+import org.apache.jena.rdf.model.ModelFactory ;
+import org.apache.jena.rdf.model.Resource ;
+import org.apache.jena.sparql.resultset.ResultSetCompare ;
+import org.junit.BeforeClass ;
+import org.junit.Test ;
+
+/** GROUP BY, in memory and spilling partial aggregates to disk. */
+public class TestQueryIterGroup extends BaseTest {
+    
+    private static Model data ;
+    
+    @BeforeClass public static void beforeClass() {
+        data = ModelFactory.createDefaultModel() ;
+        String NS = "http://example/" ;
+        for ( int i = 0 ; i < 200 ; i++ ) {
+            Resource s = data.createResource(NS+"s"+(i % 37)) ;
+            data.addLiteral(s, data.createProperty(NS+"p"), i) ;
+            if ( i % 5 == 0 )
+                data.addLiteral(s, data.createProperty(NS+"q"), 1.5*i) ;
+            if ( i % 50 == 0 )
+                // Not a number: error for SUM and AVG.
+                data.add(data.createResource(NS+"s"+i), data.createProperty(NS+"p"), "x"+i) ;
+        }
+    }
+    
+    private static final String PRE = "PREFIX : <http://example/> " ;
+    
+    @Test public void group_spill_count()       { test("SELECT ?s (COUNT(*) AS ?c) { ?s ?p ?o } GROUP BY ?s") ; }
+    @Test public void group_spill_count_var()   { test("SELECT ?s (COUNT(?q) AS ?c) { ?s :p ?o OPTIONAL { ?s :q ?q } } GROUP BY ?s") ; }
+    @Test public void group_spill_sum()         { test("SELECT ?s (SUM(?o) AS ?x) { ?s :p ?o } GROUP BY ?s") ; }
+    @Test public void group_spill_avg()         { test("SELECT ?s (AVG(?o) AS ?x) (AVG(?q) AS ?y) { ?s :p ?o OPTIONAL { ?s :q ?q } } GROUP BY ?s") ; }
+    @Test public void group_spill_min_max()     { test("SELECT ?s (MIN(?o) AS ?x) (MAX(?o) AS ?y) (MAX(DISTINCT ?q) AS ?z) { ?s :p ?o OPTIONAL { ?s :q ?q } } GROUP BY ?s") ; }
+    @Test public void group_spill_sample()      { test("SELECT ?s (SAMPLE(?s) AS ?x) { ?s :p ?o } GROUP BY ?s") ; }
+    @Test public void group_spill_no_agg()      { test("SELECT ?s { ?s :p ?o } GROUP BY ?s") ; }
+    // Unbound group key.
+    @Test public void group_spill_unbound()     { test("SELECT ?q (COUNT(*) AS ?c) { ?s :p ?o OPTIONAL { ?s :q ?q } } GROUP BY ?q") ; }
+    @Test public void group_spill_expr()        { test("SELECT ?k (COUNT(*) AS ?c) (SUM(?o) AS ?x) { ?s :p ?o } GROUP BY (STRLEN(STR(?s)) AS ?k) ?s") ; }
+    // Not mergeable: stays in memory.
+    @Test public void group_spill_concat()      { test("SELECT ?s (COUNT(DISTINCT ?o) AS ?c) { ?s ?p ?o } GROUP BY ?s") ; }
+    // One group for the whole input.
+    @Test public void group_spill_all()         { test("SELECT (COUNT(*) AS ?c) (SUM(?o) AS ?x) { ?s :p ?o }") ; }
+    // No input.
+    @Test public void group_spill_empty()       { test("SELECT (COUNT(*) AS ?c) { ?s :z ?o }") ; }
+
+    private static void test(String queryString) {
+        Query query = QueryFactory.create(PRE+queryString) ;
+        ResultSetRewindable expected = exec(query, -1) ;
+        for ( long threshold : new long[] {0, 1, 5, 1000} ) {
+            ResultSetRewindable actual = exec(query, threshold) ;
+            expected.reset() ;
+            boolean b = ResultSetCompare.equalsByTerm(expected, actual) ;
+            if ( ! b ) {
+                expected.reset() ;
+                actual.reset() ;
+                ResultSetFormatter.out(expected) ;
+                ResultSetFormatter.out(actual) ;
+            }
+            assertTrue("Threshold "+threshold, b) ;
+        }
+    }
+
+    private static ResultSetRewindable exec(Query query, long threshold) {
+        try ( QueryExecution qExec = QueryExecutionFactory.create(query, data) ) {
+            if ( threshold >= 0 )
+                qExec.getContext().set(ARQ.spillToDiskThreshold, threshold) ;
+            return ResultSetFactory.makeRewindable(qExec.execSelect()) ;
+        }
+    }
+}
@@ -19,20 +19,30 @@
 package org.apache.jena.sparql.engine.join;
 
 import java.util.List ;
+import java.util.concurrent.ForkJoinPool ;
 
 import org.apache.jena.atlas.io.IndentedWriter ;
 import org.apache.jena.atlas.iterator.Iter ;
 import org.apache.jena.atlas.lib.StrUtils ;
+import org.apache.jena.graph.Graph ;
+import org.apache.jena.query.ARQ ;
 import org.apache.jena.query.ResultSet ;
 import org.apache.jena.query.ResultSetFactory ;
 import org.apache.jena.sparql.algebra.Table ;
 import org.apache.jena.sparql.algebra.TableFactory ;
+import org.apache.jena.sparql.core.DatasetGraph ;
 import org.apache.jena.sparql.core.Var ;
+import org.apache.jena.sparql.engine.ExecutionContext ;
 import org.apache.jena.sparql.engine.QueryIterator ;
 import org.apache.jena.sparql.engine.binding.Binding ;
+import org.apache.jena.sparql.engine.binding.BindingFactory ;
+import org.apache.jena.sparql.engine.binding.BindingMap ;
+import org.apache.jena.sparql.engine.main.OpExecutorFactory ;
 import org.apache.jena.sparql.expr.ExprList ;
 import org.apache.jena.sparql.resultset.ResultSetCompare ;
 import org.apache.jena.sparql.sse.SSE ;
+import org.apache.jena.sparql.util.Context ;
+import org.apache.jena.sparql.util.NodeFactoryExtra ;
 import org.junit.Assert ;
 
 /** Tests for inner/equi joins */ 
@@ -237,6 +247,35 @@ public abstract class AbstractTestJoin extends Assert {
     
     // Code
 
+    /** A table of n rows: {@code ?a} is {@code i mod m}, except every k'th row does not have {@code ?a}, and {@code ?var} is i. */ 
+    protected static Table tableLarge(String var, int n, int m, int k) {
+        Var varA = Var.alloc("a") ;
+        Var varX = Var.alloc(var) ;
+        Table table = TableFactory.create() ;
+        for ( int i = 0 ; i < n ; i++ ) {
+            BindingMap b = BindingFactory.create() ;
+            if ( i % k != 0 )
+                b.add(varA, NodeFactoryExtra.intToNode(i % m)) ;
+            b.add(varX, NodeFactoryExtra.intToNode(i)) ;
+            table.addBinding(b) ;
+        }
+        return table ;
+    }
+
+    /** An execution context where operations spill to disk after the threshold. */
+    protected static ExecutionContext spillExecCxt(long threshold) {
+        Context context = new Context() ;
+        context.set(ARQ.spillToDiskThreshold, threshold) ;
+        return new ExecutionContext(context, (Graph)null, (DatasetGraph)null, (OpExecutorFactory)null) ;
+    }
+
+    /** An execution context where hash joins run in parallel, using the pool. */
+    protected static ExecutionContext parallelExecCxt(ForkJoinPool pool) {
+        Context context = new Context() ;
+        context.set(ARQ.parallelHashJoin, pool) ;
+        return new ExecutionContext(context, (Graph)null, (DatasetGraph)null, (OpExecutorFactory)null) ;
+    }
+
     protected static Table parseTableInt(String... strings) {
         String x = StrUtils.strjoinNL(strings) ;
         return SSE.parseTable(x) ;
@@ -28,12 +28,17 @@ import org.junit.runners.Suite.SuiteClasses ;
     , TestJoinNestedLoopSimple.class    // Real simple materializing version.
     , TestJoinNestedLoop.class
     , TestHashJoin.class
+    , TestHashJoinSpill.class
+    , TestHashJoinParallel.class
+    , TestHashJoinPartitions.class
     
     , TestLeftJoinSimple.class
     , TestLeftJoinNestedLoopSimple.class    // Real simple materializing version.
     , TestLeftJoinNestedLoop.class
     , TestHashLeftJoin_Left.class           // Left hash, stream right 
     , TestHashLeftJoin_Right.class          // Normal implementation.
+    , TestHashLeftJoin_LeftSpill.class
+    , TestHashLeftJoin_RightSpill.class
 })
 
 public class TS_Join { }
@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.sparql.engine.join;
+
+import static org.junit.Assert.assertNull ;
+import static org.junit.Assert.assertSame ;
+
+import java.util.concurrent.ForkJoinPool ;
+
+import org.apache.jena.graph.Graph ;
+import org.apache.jena.query.ARQ ;
+import org.apache.jena.sparql.ARQException ;
+import org.apache.jena.sparql.algebra.Table ;
+import org.apache.jena.sparql.algebra.TableFactory ;
+import org.apache.jena.sparql.core.DatasetGraph ;
+import org.apache.jena.sparql.engine.ExecutionContext ;
+import org.apache.jena.sparql.engine.QueryIterator ;
+import org.apache.jena.sparql.engine.main.OpExecutorFactory ;
+import org.apache.jena.sparql.engine.ref.TableJoin ;
+import org.apache.jena.sparql.expr.ExprList ;
+import org.apache.jena.sparql.util.Context ;
+import org.junit.AfterClass ;
+import org.junit.BeforeClass ;
+import org.junit.Test ;
+
+/** Hash join in parallel, with small tasks and batches so that the tests use several of each */
+public class TestHashJoinParallel extends AbstractTestInnerJoin {
+    private static int taskSize ;
+    private static int batchSize ;
+    private static ForkJoinPool pool ;
+
+    @BeforeClass public static void beforeClass() {
+        taskSize = QueryIterParallelHashJoin.TaskSize ;
+        batchSize = QueryIterParallelHashJoin.BatchSize ;
+        QueryIterParallelHashJoin.TaskSize = 2 ;
+        QueryIterParallelHashJoin.BatchSize = 7 ;
+        pool = new ForkJoinPool(4) ;
+    }
+
+    @AfterClass public static void afterClass() {
+        QueryIterParallelHashJoin.TaskSize = taskSize ;
+        QueryIterParallelHashJoin.BatchSize = batchSize ;
+        pool.shutdown() ;
+    }
+
+    @Override
+    public QueryIterator join(JoinKey joinKey, Table left, Table right, ExprList conditions) {
+        return Join.hashJoin(joinKey, left.iterator(null), right.iterator(null), parallelExecCxt(pool)) ;
+    }
+
+    @Test public void join_parallel_01() {
+        Table left = tableLarge("b", 300, 40, 25) ;
+        Table right = tableLarge("c", 200, 50, 30) ;
+        Table expected = TableFactory.create(TableJoin.join(left.iterator(null), right, null, null)) ;
+        testJoin("a", left, right, expected) ;
+    }
+
+    @Test public void join_parallel_02() {
+        // No join key guessed from the first rows.
+        Table left = tableLarge("b", 100, 20, 7) ;
+        Table right = tableLarge("c", 500, 30, 3) ;
+        Table expected = TableFactory.create(TableJoin.join(left.iterator(null), right, null, null)) ;
+        testJoin(null, left, right, expected) ;
+    }
+
+    @Test public void join_parallel_03() {
+        // Exactly a whole number of batches on the stream side.
+        Table left = tableLarge("b", 50, 10, 4) ;
+        Table right = tableLarge("c", 70, 10, 5) ;
+        Table expected = TableFactory.create(TableJoin.join(left.iterator(null), right, null, null)) ;
+        testJoin("a", left, right, expected) ;
+    }
+
+    @Test public void join_parallel_pool_01() {
+        assertSame(pool, QueryIterParallelHashJoin.pool(parallelExecCxt(pool))) ;
+        assertSame(ForkJoinPool.commonPool(), QueryIterParallelHashJoin.pool(execCxt("true"))) ;
+        int threads = ForkJoinPool.commonPool().getParallelism() ;
+        if ( threads > 1 )
+            assertSame(ForkJoinPool.commonPool(), QueryIterParallelHashJoin.pool(execCxt(Integer.toString(threads)))) ;
+        assertNull(QueryIterParallelHashJoin.pool(execCxt("false"))) ;
+        assertNull(QueryIterParallelHashJoin.pool(execCxt("1"))) ;
+    }
+
+    @Test(expected=ARQException.class)
+    public void join_parallel_pool_02() {
+        // Not the common pool : the caller must supply a pool.
+        int threads = ForkJoinPool.commonPool().getParallelism() + 1 ;
+        QueryIterParallelHashJoin.pool(execCxt(Integer.toString(threads))) ;
+    }
+
+    private static ExecutionContext execCxt(String value) {
+        Context context = new Context() ;
+        context.set(ARQ.parallelHashJoin, value) ;
+        return new ExecutionContext(context, (Graph)null, (DatasetGraph)null, (OpExecutorFactory)null) ;
+    }
+}
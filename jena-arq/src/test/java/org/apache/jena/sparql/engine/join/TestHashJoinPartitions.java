@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.sparql.engine.join;
+
+import static org.junit.Assert.assertEquals ;
+import static org.junit.Assert.assertTrue ;
+
+import java.util.Iterator ;
+
+import org.apache.jena.sparql.core.Var ;
+import org.apache.jena.sparql.engine.binding.Binding ;
+import org.apache.jena.sparql.engine.binding.BindingFactory ;
+import org.apache.jena.sparql.util.NodeFactoryExtra ;
+import org.junit.Test ;
+
+public class TestHashJoinPartitions {
+    private static Var varA = Var.alloc("a") ;
+    private static Var varB = Var.alloc("b") ;
+    private static JoinKey joinKey = JoinKey.create(varA) ;
+
+    private static Binding row(int a, int b) {
+        return BindingFactory.binding(BindingFactory.binding(varA, NodeFactoryExtra.intToNode(a)),
+                                      varB, NodeFactoryExtra.intToNode(b)) ;
+    }
+
+    // Partitions of the probe side are split until they are under the threshold.
+    @Test public void partitions_01() {
+        partitions(5000, 2000, 20) ;
+    }
+
+    @Test public void partitions_02() {
+        partitions(1000, 1000, 1) ;
+    }
+
+    // One key over the threshold can not be split.
+    @Test public void partitions_03() {
+        HashJoinPartitions partitions = new HashJoinPartitions(joinKey, 10) ;
+        try {
+            for ( int i = 0 ; i < 100 ; i++ )
+                partitions.addProbe(row(7, i)) ;
+            int n = 0 ;
+            long total = 0 ;
+            while ( partitions.nextPartition() ) {
+                HashProbeTable table = partitions.probeTable() ;
+                total += table.s_count ;
+                n++ ;
+            }
+            assertEquals(100, total) ;
+            assertEquals(HashJoinPartitions.NumPartitions, n) ;
+        } finally { partitions.close() ; }
+    }
+
+    private static void partitions(int numRows, int numKeys, long threshold) {
+        HashJoinPartitions partitions = new HashJoinPartitions(joinKey, threshold) ;
+        try {
+            for ( int i = 0 ; i < numRows ; i++ ) {
+                partitions.addProbe(row(i % numKeys, i)) ;
+                partitions.addStream(row(i % numKeys, -i)) ;
+            }
+            long totalProbe = 0 ;
+            long totalStream = 0 ;
+            while ( partitions.nextPartition() ) {
+                HashProbeTable table = partitions.probeTable() ;
+                assertTrue("Partition size "+table.s_count, table.s_count <= Math.max(threshold, numRows/numKeys)) ;
+                totalProbe += table.s_count ;
+                Iterator<Binding> iter = partitions.stream() ;
+                while ( iter.hasNext() ) {
+                    // Stream rows are with the probe rows for the same key.
+                    Binding row = iter.next() ;
+                    assertTrue(table.getCandidates(row).hasNext()) ;
+                    totalStream++ ;
+                }
+            }
+            assertTrue(partitions.isLastPartition()) ;
+            assertEquals(numRows, totalProbe) ;
+            assertEquals(numRows, totalStream) ;
+        } finally { partitions.close() ; }
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.sparql.engine.join;
+
+import org.apache.jena.sparql.algebra.Table ;
+import org.apache.jena.sparql.algebra.TableFactory ;
+import org.apache.jena.sparql.engine.QueryIterator ;
+import org.apache.jena.sparql.engine.ref.TableJoin ;
+import org.apache.jena.sparql.expr.ExprList ;
+import org.junit.Test ;
+
+/** Hash join, spilling to disk after the first row of the probe table */
+public class TestHashJoinSpill extends AbstractTestInnerJoin {
+    @Override
+    public QueryIterator join(JoinKey joinKey, Table left, Table right, ExprList conditions) {
+        return Join.hashJoin(joinKey, left.iterator(null), right.iterator(null), spillExecCxt(1)) ;
+    }
+
+    @Test public void join_spill_01() {
+        Table left = tableLarge("b", 300, 40, 25) ;
+        Table right = tableLarge("c", 200, 50, 30) ;
+        Table expected = TableFactory.create(TableJoin.join(left.iterator(null), right, null, null)) ;
+        testJoin("a", left, right, expected) ;
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.sparql.engine.join;
+
+import org.apache.jena.sparql.algebra.Table ;
+import org.apache.jena.sparql.algebra.TableFactory ;
+import org.apache.jena.sparql.engine.QueryIterator ;
+import org.apache.jena.sparql.engine.ref.TableJoin ;
+import org.apache.jena.sparql.expr.ExprList ;
+import org.apache.jena.sparql.sse.SSE ;
+import org.junit.Test ;
+
+/** Left outer join where the left hand side used to create the hash probe table, spilling to disk */
+public class TestHashLeftJoin_LeftSpill extends AbstractTestLeftJoin {
+    @Override
+    public QueryIterator join(JoinKey joinKey, Table left, Table right, ExprList conditions) {
+        return QueryIterHashLeftJoin_Left.create(joinKey, left.iterator(null), right.iterator(null), conditions, spillExecCxt(1)) ;
+    }
+
+    @Test public void leftjoin_spill_01() {
+        Table left = tableLarge("b", 300, 40, 25) ;
+        Table right = tableLarge("c", 200, 50, 30) ;
+        Table expected = TableFactory.create(TableJoin.leftJoin(left.iterator(null), right, null, null)) ;
+        testJoin("a", left, right, expected) ;
+    }
+
+    @Test public void leftjoin_spill_02() {
+        Table left = tableLarge("b", 300, 60, 25) ;
+        Table right = tableLarge("c", 200, 50, 30) ;
+        String conditions = "((< ?b ?c))" ;
+        Table expected = TableFactory.create(TableJoin.leftJoin(left.iterator(null), right, SSE.parseExprList(conditions), null)) ;
+        testJoin("a", left, right, conditions, expected) ;
+    }
+}
@@ -25,6 +25,7 @@ import org.junit.runners.Suite;
 @RunWith(Suite.class)
 @Suite.SuiteClasses( {
     TestReorder.class      // Reorder engine
+    , TestCharacteristicSets.class
 })
 
 public class TS_Solver
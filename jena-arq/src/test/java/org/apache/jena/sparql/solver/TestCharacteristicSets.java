@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.sparql.solver;
+
+import static org.apache.jena.sparql.solver.TestSolverLib.bgp ;
+import static org.apache.jena.sparql.solver.TestSolverLib.triple ;
+
+import java.util.Arrays ;
+import java.util.Collections ;
+
+import org.apache.jena.atlas.junit.BaseTest ;
+import org.apache.jena.graph.Graph ;
+import org.apache.jena.graph.Node ;
+import org.apache.jena.graph.NodeFactory ;
+import org.apache.jena.graph.Triple ;
+import org.apache.jena.mem.GraphMem ;
+import org.apache.jena.query.* ;
+import org.apache.jena.rdf.model.ModelFactory ;
+import org.apache.jena.sparql.core.BasicPattern ;
+import org.apache.jena.sparql.engine.optimizer.CharacteristicSets ;
+import org.apache.jena.sparql.engine.optimizer.reorder.* ;
+import org.apache.jena.sparql.util.NodeFactoryExtra ;
+import org.junit.Test ;
+
+public class TestCharacteristicSets extends BaseTest
+{
+    static Node name  = NodeFactory.createURI("http://example/name") ;
+    static Node age   = NodeFactory.createURI("http://example/age") ;
+    static Node email = NodeFactory.createURI("http://example/email") ;
+    static Node size  = NodeFactory.createURI("http://example/size") ;
+
+    // 90 people with a name and an age, 10 with an email as well,
+    // and 1000 documents with a name and a size.
+    private static void data(Graph graph) {
+        for ( int i = 0 ; i < 100 ; i++ ) {
+            Node s = NodeFactory.createURI("http://example/person"+i) ;
+            graph.add(Triple.create(s, name, NodeFactory.createLiteral("P"+i))) ;
+            graph.add(Triple.create(s, age, NodeFactoryExtra.intToNode(i))) ;
+            if ( i % 10 == 0 )
+                graph.add(Triple.create(s, email, NodeFactory.createURI("mailto:p"+i))) ;
+        }
+        for ( int i = 0 ; i < 1000 ; i++ ) {
+            Node s = NodeFactory.createURI("http://example/doc"+i) ;
+            graph.add(Triple.create(s, name, NodeFactory.createLiteral("D"+i))) ;
+            graph.add(Triple.create(s, size, NodeFactoryExtra.intToNode(i))) ;
+        }
+    }
+
+    private static CharacteristicSets sets() {
+        Graph graph = new GraphMem() ;
+        data(graph) ;
+        return CharacteristicSets.create(graph) ;
+    }
+
+    @Test public void cs_01() {
+        CharacteristicSets sets = sets() ;
+        assertEquals(3, sets.getSets().size()) ;
+        assertEquals(1100, sets.getSubjectCount()) ;
+        assertEquals(2210, sets.getTripleCount()) ;
+    }
+
+    @Test public void cs_02() {
+        CharacteristicSets sets = sets() ;
+        assertEquals(1100, sets.subjects(Collections.singleton(name))) ;
+        assertEquals(100, sets.subjects(Arrays.asList(name, age))) ;
+        assertEquals(10, sets.subjects(Arrays.asList(name, email))) ;
+        assertEquals(0, sets.subjects(Arrays.asList(size, email))) ;
+        assertEquals(100, sets.occurrences(Arrays.asList(name, age), name)) ;
+        assertEquals(10.0, sets.estimateStar(Arrays.asList(age, email)), 0.0001) ;
+        assertEquals(1100.0, sets.estimateStar(Collections.singleton(name)), 0.0001) ;
+    }
+
+    @Test public void cs_03() {
+        CharacteristicSets sets = CharacteristicSets.builder()
+            .addSubject(Collections.singletonMap(name, 3L))
+            .addSubject(Collections.singletonMap(name, 1L))
+            .build() ;
+        assertEquals(1, sets.getSets().size()) ;
+        assertEquals(2, sets.getSubjectCount()) ;
+        assertEquals(4.0, sets.estimateStar(Collections.singleton(name)), 0.0001) ;
+    }
+
+    @Test public void cs_reorder_01() {
+        ReorderTransformation reorder = new ReorderCharacteristicSets(sets()) ;
+        // The star on ?x is the more selective (10 subjects).
+        BasicPattern bgp = bgp("(bgp (?d :size ?s) (?d :name ?n2) (?x :name ?n) (?x :email ?e))") ;
+        BasicPattern bgp2 = reorder.reorder(bgp) ;
+        assertEquals(triple("(?x :name ?n)"), bgp2.get(0)) ;
+        assertEquals(triple("(?x :email ?e)"), bgp2.get(1)) ;
+    }
+
+    @Test public void cs_reorder_02() {
+        ReorderTransformation reorder = new ReorderCharacteristicSets(sets()) ;
+        // No subject has both size and email.
+        BasicPattern bgp = bgp("(bgp (?x :name ?n) (?y :size ?s) (?y :email ?e))") ;
+        BasicPattern bgp2 = reorder.reorder(bgp) ;
+        assertEquals(triple("(?y :size ?s)"), bgp2.get(0)) ;
+    }
+
+    @Test public void cs_reorder_03() {
+        ReorderTransformation reorder = new ReorderCharacteristicSets(sets()) ;
+        // Bound subject first, then the join from it.
+        BasicPattern bgp = bgp("(bgp (?x :name ?n) (:person1 :age ?a))") ;
+        BasicPattern bgp2 = reorder.reorder(bgp) ;
+        assertEquals(triple("(:person1 :age ?a)"), bgp2.get(0)) ;
+    }
+
+    static class GraphReorderable extends GraphMem implements Reorderable {
+        int calls = 0 ;
+        final ReorderTransformation reorder = new ReorderTransformation() {
+            ReorderTransformation cs = null ;
+            @Override
+            public ReorderProc reorderIndexes(BasicPattern pattern) {
+                calls++ ;
+                if ( cs == null )
+                    cs = ReorderLib.characteristicSets(GraphReorderable.this) ;
+                return cs.reorderIndexes(pattern) ;
+            }
+            @Override
+            public BasicPattern reorder(BasicPattern pattern) {
+                return reorderIndexes(pattern).reorder(pattern) ;
+            }
+        } ;
+        @Override
+        public ReorderTransformation getReorderTransform() {
+            return reorder ;
+        }
+    }
+
+    @Test public void cs_reorderable_01() {
+        GraphReorderable graph = new GraphReorderable() ;
+        data(graph) ;
+        String qs = "PREFIX : <http://example/> SELECT * { ?d :size ?s . ?x :email ?e . ?x :age ?a . ?d :name ?n }" ;
+        Query query = QueryFactory.create(qs) ;
+        try ( QueryExecution qExec = QueryExecutionFactory.create(query, ModelFactory.createModelForGraph(graph)) ) {
+            assertEquals(10*1000, ResultSetFormatter.consume(qExec.execSelect())) ;
+        }
+        assertTrue(graph.calls > 0) ;
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tdb.bulkloader2;
+
+import java.util.Arrays ;
+import java.util.List ;
+
+import jena.cmd.ArgDecl;
+import jena.cmd.CmdException;
+import jena.cmd.CmdGeneral;
+import org.apache.jena.atlas.lib.FileOps ;
+import org.apache.jena.atlas.logging.LogCtl ;
+import org.apache.jena.riot.Lang ;
+import org.apache.jena.riot.RDFLanguages ;
+import org.apache.jena.system.JenaSystem ;
+import org.apache.jena.tdb.base.file.Location ;
+import org.apache.jena.tdb.setup.DatasetBuilderStd ;
+import org.apache.jena.tdb.store.bulkloader2.ProcBulkLoad ;
+import tdb.cmdline.CmdTDB ;
+
+/** The complete tdbloader2 process, data and index phases, in one JVM with no external sort. */
+public class CmdBulkLoad extends CmdGeneral
+{
+    static {
+        LogCtl.setLog4j();
+        JenaSystem.init();
+    }
+
+    private static ArgDecl argLocation   = new ArgDecl(ArgDecl.HasValue, "loc", "location");
+    private static ArgDecl argParallel   = new ArgDecl(ArgDecl.HasValue, "parallel");
+    private static ArgDecl argNoStats    = new ArgDecl(ArgDecl.NoValue, "nostats");
+    private static ArgDecl argKeepWork   = new ArgDecl(ArgDecl.NoValue, "keep-work", "keep");
+
+    private List<String>   datafiles;
+    private Location       location;
+    private int            parallel      = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+    private boolean        collectStats  = true;
+    private boolean        keepWork      = false;
+
+    public static void main(String... argv) {
+        CmdTDB.init();
+        DatasetBuilderStd.setOptimizerWarningFlag(false);
+        new CmdBulkLoad(argv).mainRun();
+    }
+
+    public CmdBulkLoad(String... argv) {
+        super(argv);
+        super.add(argLocation, "--loc", "Location");
+        super.add(argParallel, "--parallel", "Number of threads used to sort (default: number of processors, at most 4)");
+        super.add(argNoStats, "--nostats", "Don't collect stats");
+        super.add(argKeepWork, "--keep-work", "Keep the work files");
+    }
+        
+    @Override
+    protected void processModulesAndArgs() {
+        if ( !super.contains(argLocation) ) throw new CmdException("Required: --loc DIR") ;
+        location = Location.create(super.getValue(argLocation)) ;
+
+        if ( super.contains(argParallel) ) {
+            String x = super.getValue(argParallel) ;
+            try { parallel = Integer.parseInt(x) ; }
+            catch (NumberFormatException ex) { cmdError("Not a number: --parallel "+x) ; }
+            if ( parallel <= 0 )
+                cmdError("--parallel must be a positive number: "+x) ;
+        }
+        
+        if ( super.contains(argNoStats) )
+            collectStats = false ;
+        if ( super.contains(argKeepWork) )
+            keepWork = true ;
+        
+        datafiles  = getPositional() ;
+        if ( datafiles.isEmpty() )
+            datafiles = Arrays.asList("-") ;
+        
+        // ---- Checking.
+        for ( String filename : datafiles ) {
+            Lang lang = RDFLanguages.filenameToLang(filename, RDFLanguages.NQUADS);
+            if ( lang == null )
+                               // Does not happen due to default above.
+                               cmdError("File suffix not recognized: " + filename);
+            if ( !filename.equals("-") && !FileOps.exists(filename) )
+                cmdError("File does not exist: " + filename);
+        }
+    }
+
+    @Override
+    protected void exec() {
+        ProcBulkLoad.exec(location, datafiles, collectStats, parallel, keepWork);
+    }
+
+    @Override
+    protected String getSummary() {
+        return getCommandName() + " --loc=DIR [--parallel=N] [--nostats] [--keep-work] FILE ...";
+    }
+
+    @Override
+    protected String getCommandName() {
+        return this.getClass().getName();
+    }
+}
@@ -19,6 +19,7 @@
 package tdb2;
 
 import arq.cmdline.ModLangOutput ;
+import jena.cmd.ArgDecl ;
 import org.apache.jena.tdb2.store.DatasetGraphSwitchable;
 import org.apache.jena.tdb2.sys.DatabaseOps;
 import tdb2.cmdline.CmdTDB;
@@ -26,6 +27,8 @@ import tdb2.cmdline.CmdTDB;
 public class tdbbackup extends CmdTDB
 {
     static ModLangOutput modLangOutput = new ModLangOutput() ;
+    private static final ArgDecl argFiles = new ArgDecl(ArgDecl.NoValue, "files") ;
+    private static final ArgDecl argIncremental = new ArgDecl(ArgDecl.NoValue, "incr", "incremental") ;
     
     static public void main(String... argv)
     { 
@@ -37,6 +40,8 @@ public class tdbbackup extends CmdTDB
     {
         super(argv) ;
         addModule(modLangOutput) ;
+        super.add(argFiles, "--files", "Binary backup: copy the database files") ;
+        super.add(argIncremental, "--incremental", "Binary backup of the changes since the latest binary backup") ;
     }
     
     @Override
@@ -49,6 +54,12 @@ public class tdbbackup extends CmdTDB
     protected void exec()
     {
         DatasetGraphSwitchable dsg = getDatabaseContainer();
+        boolean incremental = super.contains(argIncremental) ;
+        if ( super.contains(argFiles) || incremental ) {
+            String dir = DatabaseOps.backupFiles(dsg, incremental) ;
+            System.out.println("Backup written to "+dir) ;
+            return ;
+        }
         String fn = DatabaseOps.backup(dsg);
         System.out.println("Backup written to "+fn);
     }
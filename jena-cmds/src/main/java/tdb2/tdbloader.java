@@ -34,19 +34,24 @@ import org.apache.jena.riot.system.StreamRDF;
 import org.apache.jena.riot.system.StreamRDFLib;
 import org.apache.jena.sparql.core.DatasetGraph;
 import org.apache.jena.system.Txn;
+import org.apache.jena.tdb2.loader.LoaderParallel;
+import org.apache.jena.tdb2.loader.LoaderSorted;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import tdb2.cmdline.CmdTDB;
 import tdb2.cmdline.CmdTDBGraph;
 
 public class tdbloader extends CmdTDBGraph {
-    // private static final ArgDecl argParallel = new ArgDecl(ArgDecl.NoValue, "parallel");
+    private static final ArgDecl argParallel = new ArgDecl(ArgDecl.NoValue, "parallel");
+    private static final ArgDecl argSorted = new ArgDecl(ArgDecl.NoValue, "sorted");
     // private static final ArgDecl argIncremental = new ArgDecl(ArgDecl.NoValue, "incr", "incremental");
     private static final ArgDecl argNoStats = new ArgDecl(ArgDecl.NoValue, "nostats");
     private static final ArgDecl argStats = new ArgDecl(ArgDecl.HasValue,  "stats");
 
     private boolean showProgress  = true;
     private boolean generateStats  = true;
+    private boolean parallel       = false;
+    private boolean sorted         = false;
 
     static public void main(String... argv) {
         CmdTDB.init();
@@ -57,6 +62,8 @@ public class tdbloader extends CmdTDBGraph {
         super(argv);
         super.add(argNoStats, "--nostats", "Switch off statistics gathering");
         super.add(argStats);   // Hidden argument
+        super.add(argParallel, "--parallel", "Use the multi-threaded loader (parser, node and per-index threads)");
+        super.add(argSorted, "--sorted", "Build the indexes of an empty database by external sorting");
     }
 
     @Override
@@ -88,6 +95,11 @@ public class tdbloader extends CmdTDBGraph {
         if ( super.contains(argNoStats))
             generateStats = false;
         
+        parallel = super.contains(argParallel);
+        sorted = super.contains(argSorted);
+        if ( parallel && sorted )
+            throw new CmdException("Only one of --parallel and --sorted");
+        
         List<String> urls = getPositional();
         if ( urls.size() == 0 )
             urls.add("-");
@@ -113,12 +125,28 @@ public class tdbloader extends CmdTDBGraph {
     }
 
     private void loadOneGraph(List<String> urls) {
+        if ( sorted ) {
+            LoaderSorted.load(getDatasetGraph(), getGraphName(), urls, showProgress);
+            return;
+        }
+        if ( parallel ) {
+            LoaderParallel.load(getDatasetGraph(), getGraphName(), urls, showProgress);
+            return;
+        }
         Graph graph = getGraph();
         TDBLoader.load(graph, urls, showProgress);
         return;
     }
 
     private void loadQuads(List<String> urls) {
+        if ( sorted ) {
+            LoaderSorted.load(getDatasetGraph(), urls, showProgress);
+            return;
+        }
+        if ( parallel ) {
+            LoaderParallel.load(getDatasetGraph(), urls, showProgress);
+            return;
+        }
         TDBLoader.load(getDatasetGraph(), urls, showProgress, generateStats);
         return;
     }
@@ -135,6 +163,8 @@ public class tdbloader extends CmdTDBGraph {
     
     /**
      *  For now, this is a simple loader that parses the input and adds triples/quads via {@code .add}.
+     *  {@code --parallel} uses {@link LoaderParallel} instead;
+     *  {@code --sorted} uses {@link LoaderSorted} for an empty database.
      *  @see org.apache.jena.tdb.TDBLoader TDB1 Loader.
      */
     
@@ -18,17 +18,28 @@
 
 package org.apache.jena.dboe.base.block ;
 
+import java.lang.management.ManagementFactory ;
 import java.util.ArrayList ;
 import java.util.Iterator ;
 import java.util.List ;
+import java.util.concurrent.atomic.AtomicLong ;
+
+import javax.management.JMException ;
+import javax.management.MBeanServer ;
+import javax.management.ObjectName ;
 
 import org.apache.jena.atlas.lib.Cache ;
 import org.apache.jena.atlas.lib.CacheFactory ;
+import org.apache.jena.dboe.sys.SystemIndex ;
 import org.slf4j.Logger ;
 import org.slf4j.LoggerFactory ;
 
-/** Caching block manager - this is an LRU cache */
-public class BlockMgrCache extends BlockMgrSync {
+/**
+ * Caching block manager. The read cache is LRU or scan resistant
+ * (see {@link BlockCachePolicy}); the write cache is LRU.
+ * Cache statistics can be published through JMX (see {@link BlockMgrCacheMXBean}).
+ */
+public class BlockMgrCache extends BlockMgrSync implements BlockMgrCacheMXBean {
     // Actually, this is two cache one on the read blocks and one on the write
     // blocks.
     // The overridden public operations are sync'ed.
@@ -50,17 +61,33 @@ public class BlockMgrCache extends BlockMgrSync {
     long                             cacheMisses    = 0 ;
     long                             cacheWriteHits = 0 ;
 
+    private final BlockCachePolicy   policy ;
+    // ---- JMX
+    public static final String       JmxDomain      = "org.apache.jena.dboe" ;
+    private static final AtomicLong  jmxCounter     = new AtomicLong(0) ;
+    private ObjectName               jmxName        = null ;
+
     static BlockMgr create(int readSlots, int writeSlots, final BlockMgr blockMgr) {
+        return create(readSlots, writeSlots, null, blockMgr) ;
+    }
+
+    /** Create a caching BlockMgr; a null policy means the system default {@link SystemIndex#blockCachePolicy()}. */
+    static BlockMgr create(int readSlots, int writeSlots, BlockCachePolicy policy, final BlockMgr blockMgr) {
         if ( readSlots < 0 && writeSlots < 0 )
             return blockMgr ;
-        return new BlockMgrCache(readSlots, writeSlots, blockMgr) ;
+        if ( policy == null )
+            policy = SystemIndex.blockCachePolicy() ;
+        return new BlockMgrCache(readSlots, writeSlots, policy, blockMgr) ;
     }
 
-    private BlockMgrCache(int readSlots, int writeSlots, final BlockMgr blockMgr) {
+    private BlockMgrCache(int readSlots, int writeSlots, BlockCachePolicy policy, final BlockMgr blockMgr) {
         super(blockMgr) ;
+        this.policy = policy ;
         // Caches are related so we can't use a Getter for cache management.
         if ( readSlots < -1 )
             readCache = CacheFactory.createNullCache() ;
+        else if ( policy == BlockCachePolicy.twoQueue && readSlots > 0 )
+            readCache = new CacheTwoQueue<>(readSlots) ;
         else
             readCache = CacheFactory.createCache(readSlots) ;
         if ( writeSlots <= 0 )
@@ -234,9 +261,92 @@ public class BlockMgrCache extends BlockMgrSync {
         if ( writeCache != null )
             log("close (" + writeCache.size() + " blocks)") ;
         syncFlush() ;
+        unregisterMBean() ;
         super.close() ;
     }
 
+    // ---- Statistics
+
+    @Override
+    public String getPolicy() {
+        return policy.name() ;
+    }
+
+    @Override
+    synchronized public long getReadCacheSize() {
+        return readCache.size() ;
+    }
+
+    @Override
+    synchronized public long getWriteCacheSize() {
+        return writeCache == null ? 0 : writeCache.size() ;
+    }
+
+    @Override
+    synchronized public long getReadHits() {
+        return cacheReadHits ;
+    }
+
+    @Override
+    synchronized public long getWriteHits() {
+        return cacheWriteHits ;
+    }
+
+    @Override
+    synchronized public long getMisses() {
+        return cacheMisses ;
+    }
+
+    @Override
+    synchronized public double getHitRatio() {
+        long hits = cacheReadHits + cacheWriteHits ;
+        long total = hits + cacheMisses ;
+        return total == 0 ? 0 : (double)hits / total ;
+    }
+
+    @Override
+    synchronized public void resetStats() {
+        cacheReadHits = 0 ;
+        cacheMisses = 0 ;
+        cacheWriteHits = 0 ;
+    }
+
+    /** The JMX name, or null if not registered. */
+    public ObjectName getObjectName() {
+        return jmxName ;
+    }
+
+    /**
+     * Publish the statistics of this cache through the platform MBean server.
+     * The registration is removed when the BlockMgr is closed.
+     */
+    synchronized void registerMBean() {
+        if ( jmxName != null )
+            return ;
+        try {
+            // The same file can be opened more than once (e.g. after expel) so add a unique id.
+            String label = getLabel() == null ? "BlockMgr" : getLabel() ;
+            ObjectName name = new ObjectName(JmxDomain+":type=BlockMgrCache,name="+ObjectName.quote(label)+",id="+jmxCounter.incrementAndGet()) ;
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, name) ;
+            jmxName = name ;
+        } catch (JMException ex) {
+            log.warn("Failed to register block cache with JMX: "+getLabel(), ex) ;
+        }
+    }
+
+    private void unregisterMBean() {
+        if ( jmxName == null )
+            return ;
+        try {
+            MBeanServer mbs = ManagementFactory.getPlatformMBeanServer() ;
+            if ( mbs.isRegistered(jmxName) )
+                mbs.unregisterMBean(jmxName) ;
+        } catch (JMException ex) {
+            log.warn("Failed to unregister block cache with JMX: "+getLabel(), ex) ;
+        }
+        jmxName = null ;
+    }
+
     @Override
     public String toString() {
         return "Cache:" + super.blockMgr.toString() ;
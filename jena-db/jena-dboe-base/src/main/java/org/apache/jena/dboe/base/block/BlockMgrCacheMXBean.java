@@ -0,0 +1,50 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.dboe.base.block;
+
+/** JMX view of the statistics of a {@link BlockMgrCache}, one per file. */
+public interface BlockMgrCacheMXBean {
+    /** The label of the cached BlockMgr, usually the file name. */
+    public String getLabel() ;
+
+    /** Read cache replacement policy */
+    public String getPolicy() ;
+
+    /** Number of blocks currently in the read cache. */
+    public long getReadCacheSize() ;
+
+    /** Number of blocks currently in the write cache. */
+    public long getWriteCacheSize() ;
+
+    /** Requests satisfied by the read cache. */
+    public long getReadHits() ;
+
+    /** Requests satisfied by the write cache. */
+    public long getWriteHits() ;
+
+    /** Requests passed on to the underlying BlockMgr. */
+    public long getMisses() ;
+
+    /** Hits as a fraction of all requests; 0 if there have been no requests. */
+    public double getHitRatio() ;
+
+    /** Reset the counters. */
+    public void resetStats() ;
+}
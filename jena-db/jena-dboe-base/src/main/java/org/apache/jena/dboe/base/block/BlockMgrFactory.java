@@ -47,7 +47,8 @@ public class BlockMgrFactory {
                       params.getFileMode(),
                       params.getBlockSize(),
                       params.getBlockReadCacheSize(),
-                      params.getBlockWriteCacheSize()) ;
+                      params.getBlockWriteCacheSize(),
+                      params.getBlockCachePolicy()) ;
     }
     
     public static BlockMgr create(FileSet fileSet, String ext, int blockSize, int readBlockCacheSize, int writeBlockCacheSize) {
@@ -56,10 +57,14 @@ public class BlockMgrFactory {
 
     // XXX Deprecate?
     public static BlockMgr create(FileSet fileSet, String ext, FileMode fileMode, int blockSize, int readBlockCacheSize, int writeBlockCacheSize) {
+        return create(fileSet, ext, fileMode, blockSize, readBlockCacheSize, writeBlockCacheSize, null) ;
+    }
+
+    public static BlockMgr create(FileSet fileSet, String ext, FileMode fileMode, int blockSize, int readBlockCacheSize, int writeBlockCacheSize, BlockCachePolicy cachePolicy) {
         if ( fileSet.isMem() )
             return createMem(fileSet.filename(ext), blockSize) ;
         else
-            return createFile(fileSet.filename(ext), fileMode, blockSize, readBlockCacheSize, writeBlockCacheSize) ;
+            return createFile(fileSet.filename(ext), fileMode, blockSize, readBlockCacheSize, writeBlockCacheSize, cachePolicy) ;
     }
 
     /** Create an in-memory block manager */
@@ -76,18 +81,24 @@ public class BlockMgrFactory {
     public static BlockMgr createFile(String filename, BlockParams params) {
         return createFile(filename, 
                           params.getFileMode(), params.getBlockSize(),
-                          params.getBlockReadCacheSize(), params.getBlockWriteCacheSize()) ;
+                          params.getBlockReadCacheSize(), params.getBlockWriteCacheSize(),
+                          params.getBlockCachePolicy()) ;
     }
 
         /** Create a BlockMgr backed by a real file */
     public static BlockMgr createFile(String filename, FileMode fileMode, int blockSize, int readBlockCacheSize, int writeBlockCacheSize) {
+        return createFile(filename, fileMode, blockSize, readBlockCacheSize, writeBlockCacheSize, null) ;
+    }
+
+    /** Create a BlockMgr backed by a real file, with a given read cache policy (direct mode only). */
+    public static BlockMgr createFile(String filename, FileMode fileMode, int blockSize, int readBlockCacheSize, int writeBlockCacheSize, BlockCachePolicy cachePolicy) {
         if ( fileMode == null )
             fileMode = SystemIndex.fileMode() ;
         switch (fileMode) {
             case mapped :
                 return createMMapFile(filename, blockSize) ;
             case direct :
-                return createStdFile(filename, blockSize, readBlockCacheSize, writeBlockCacheSize) ;
+                return createStdFile(filename, blockSize, readBlockCacheSize, writeBlockCacheSize, cachePolicy) ;
         }
         throw new DBOpEnvException("Unknown file mode: " + fileMode) ;
     }
@@ -99,11 +110,29 @@ public class BlockMgrFactory {
         return track(blockMgr) ;
     }
 
+    /** Create a NIO Block Manager over an existing file, mapped read-only. */
+    public static BlockMgr createMMapFileReadonly(String filename, int blockSize) {
+        BlockAccess file = new BlockAccessMapped(filename, blockSize, true) ;
+        BlockMgr blockMgr = new BlockMgrFileAccess(file, blockSize) ;
+        blockMgr = new BlockMgrReadonly(blockMgr) ;
+        return track(blockMgr) ;
+    }
+
     /** Create a Block Manager using direct access (and a cache) */
     public static BlockMgr createStdFile(String filename, int blockSize, int readBlockCacheSize, int writeBlockCacheSize) {
+        return createStdFile(filename, blockSize, readBlockCacheSize, writeBlockCacheSize, null) ;
+    }
+
+    /**
+     * Create a Block Manager using direct access and a cache with the given read cache policy.
+     * The cache statistics are published through JMX.
+     */
+    public static BlockMgr createStdFile(String filename, int blockSize, int readBlockCacheSize, int writeBlockCacheSize, BlockCachePolicy cachePolicy) {
         BlockAccess file = new BlockAccessDirect(filename, blockSize) ;
         BlockMgr blockMgr = wrapFileAccess(file, blockSize) ;
-        blockMgr = addCache(blockMgr, readBlockCacheSize, writeBlockCacheSize) ;
+        blockMgr = addCache(blockMgr, readBlockCacheSize, writeBlockCacheSize, cachePolicy) ;
+        if ( blockMgr instanceof BlockMgrCache )
+            ((BlockMgrCache)blockMgr).registerMBean() ;
         return track(blockMgr) ;
     }
 
@@ -123,9 +152,17 @@ public class BlockMgrFactory {
      * @see #addCache(BlockMgr, FileSet, FileMode, int, int)
      */
     public static BlockMgr addCache(BlockMgr blockMgr, int readBlockCacheSize, int writeBlockCacheSize) {
+        return addCache(blockMgr, readBlockCacheSize, writeBlockCacheSize, null) ;
+    }
+
+    /**
+     * Add a caching layer to a BlockMgr, with the given read cache policy.
+     * A null policy means the system default.
+     */
+    public static BlockMgr addCache(BlockMgr blockMgr, int readBlockCacheSize, int writeBlockCacheSize, BlockCachePolicy cachePolicy) {
         if ( blockMgr instanceof BlockMgrCache )
             Log.warn(BlockMgrFactory.class, "BlockMgr already has a cache: " + blockMgr.getLabel()) ;
-        return BlockMgrCache.create(readBlockCacheSize, writeBlockCacheSize, blockMgr) ;
+        return BlockMgrCache.create(readBlockCacheSize, writeBlockCacheSize, cachePolicy, blockMgr) ;
     }
 
     /**
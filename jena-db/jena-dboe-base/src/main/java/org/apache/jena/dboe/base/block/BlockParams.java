@@ -23,5 +23,7 @@ public interface BlockParams {
     public Integer getBlockSize() ;
     public Integer getBlockReadCacheSize() ;
     public Integer getBlockWriteCacheSize() ;
+    /** Read block cache policy; null means the system default. */
+    public default BlockCachePolicy getBlockCachePolicy() { return null ; }
 }
 
@@ -0,0 +1,192 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.dboe.base.block;
+
+import java.util.ArrayList ;
+import java.util.Iterator ;
+import java.util.LinkedHashMap ;
+import java.util.LinkedHashSet ;
+import java.util.List ;
+import java.util.Map ;
+import java.util.concurrent.Callable ;
+import java.util.function.BiConsumer ;
+
+import org.apache.jena.atlas.lib.Cache ;
+import org.apache.jena.dboe.DBOpEnvException ;
+
+/**
+ * A scan resistant cache using the "2Q" replacement policy
+ * (Johnson and Shasha, VLDB 1994).
+ * <p>
+ * A new entry goes into a short FIFO queue ("A1in"). When it falls out of that
+ * queue, its key is remembered in a ghost queue ("A1out"). An entry that is
+ * put again while its key is in the ghost queue has been used more than once,
+ * and goes into the main LRU queue ("Am"). A read hit in "Am" refreshes the
+ * entry. Entries that are only ever used once, such as the blocks of a long
+ * scan, pass through "A1in" without disturbing "Am".
+ * <p>
+ * Not thread safe: {@link BlockMgrCache} synchronizes access.
+ */
+public class CacheTwoQueue<Key, Value> implements Cache<Key, Value> {
+    // Fractions of the capacity for the A1in queue and the (keys only) A1out queue.
+    private static final int A1inFraction   = 4 ;
+    private static final int A1outFraction  = 2 ;
+
+    private final int capacity ;
+    private final int kIn ;
+    private final int kOut ;
+
+    // Insertion order : FIFO
+    private final LinkedHashMap<Key, Value> a1in = new LinkedHashMap<>() ;
+    private final LinkedHashSet<Key> a1out = new LinkedHashSet<>() ;
+    // Access order : LRU
+    private final LinkedHashMap<Key, Value> am = new LinkedHashMap<>(16, 0.75f, true) ;
+
+    private BiConsumer<Key, Value> dropHandler = null ;
+
+    public CacheTwoQueue(int capacity) {
+        if ( capacity <= 0 )
+            throw new DBOpEnvException("CacheTwoQueue: capacity must be positive: "+capacity) ;
+        this.capacity = capacity ;
+        this.kIn = Math.max(1, capacity/A1inFraction) ;
+        this.kOut = Math.max(1, capacity/A1outFraction) ;
+    }
+
+    @Override
+    public boolean containsKey(Key key) {
+        return am.containsKey(key) || a1in.containsKey(key) ;
+    }
+
+    @Override
+    public Value getIfPresent(Key key) {
+        // Updates the LRU order of "am".
+        Value v = am.get(key) ;
+        if ( v != null )
+            return v ;
+        // Not moved: a second access within A1in is treated as correlated.
+        return a1in.get(key) ;
+    }
+
+    @Override
+    public Value getOrFill(Key key, Callable<Value> callable) {
+        Value v = getIfPresent(key) ;
+        if ( v != null )
+            return v ;
+        try {
+            v = callable.call() ;
+        } catch (Exception ex) {
+            throw new DBOpEnvException("Exception on cache fill", ex) ;
+        }
+        if ( v != null )
+            put(key, v) ;
+        return v ;
+    }
+
+    @Override
+    public void put(Key key, Value thing) {
+        if ( am.containsKey(key) ) {
+            am.put(key, thing) ;
+            return ;
+        }
+        if ( a1in.containsKey(key) ) {
+            // Update in place, keeping the FIFO position.
+            a1in.put(key, thing) ;
+            return ;
+        }
+        boolean seenBefore = a1out.remove(key) ;
+        reclaim() ;
+        if ( seenBefore )
+            am.put(key, thing) ;
+        else
+            a1in.put(key, thing) ;
+    }
+
+    /** Make space for one more entry. */
+    private void reclaim() {
+        if ( a1in.size() + am.size() < capacity )
+            return ;
+        if ( a1in.size() > kIn || am.isEmpty() ) {
+            Map.Entry<Key, Value> e = removeFirst(a1in) ;
+            a1out.add(e.getKey()) ;
+            if ( a1out.size() > kOut ) {
+                Iterator<Key> iter = a1out.iterator() ;
+                iter.next() ;
+                iter.remove() ;
+            }
+            drop(e) ;
+        } else
+            drop(removeFirst(am)) ;
+    }
+
+    private static <K, V> Map.Entry<K, V> removeFirst(LinkedHashMap<K, V> map) {
+        Iterator<Map.Entry<K, V>> iter = map.entrySet().iterator() ;
+        Map.Entry<K, V> e = iter.next() ;
+        iter.remove() ;
+        return e ;
+    }
+
+    private void drop(Map.Entry<Key, Value> e) {
+        if ( dropHandler != null )
+            dropHandler.accept(e.getKey(), e.getValue()) ;
+    }
+
+    @Override
+    public void remove(Key key) {
+        if ( am.remove(key) == null )
+            a1in.remove(key) ;
+        a1out.remove(key) ;
+    }
+
+    /** The keys of the cache entries. This is a copy; changes to the cache do not affect the iterator. */
+    @Override
+    public Iterator<Key> keys() {
+        List<Key> x = new ArrayList<>(a1in.size() + am.size()) ;
+        x.addAll(a1in.keySet()) ;
+        x.addAll(am.keySet()) ;
+        return x.iterator() ;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return a1in.isEmpty() && am.isEmpty() ;
+    }
+
+    @Override
+    public void clear() {
+        a1in.clear() ;
+        a1out.clear() ;
+        am.clear() ;
+    }
+
+    @Override
+    public long size() {
+        return a1in.size() + am.size() ;
+    }
+
+    @Override
+    public void setDropHandler(BiConsumer<Key, Value> dropHandler) {
+        this.dropHandler = dropHandler ;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CacheTwoQueue[%d: in=%d, out=%d, main=%d]", capacity, a1in.size(), a1out.size(), am.size()) ;
+    }
+}
@@ -39,9 +39,16 @@ public class BinaryDataFileRandomAccess implements BinaryDataFile {
     protected long readPosition ;
     protected long writePosition ;
     private final String filename ;
+    private final boolean readOnly ;
     
     public BinaryDataFileRandomAccess(String filename) {
+       this(filename, false) ;
+    }
+    
+    /** A {@code BinaryDataFile} that, if {@code readOnly}, opens the file in read-only mode.  */
+    public BinaryDataFileRandomAccess(String filename, boolean readOnly) {
        this.filename = filename ;
+       this.readOnly = readOnly ;
     }
     
     @Override
@@ -49,7 +56,7 @@ public class BinaryDataFileRandomAccess implements BinaryDataFile {
         if ( file != null )
             throw new RuntimeIOException("Already open") ;
         try { 
-            file = new RandomAccessFile(filename, "rw") ; 
+            file = new RandomAccessFile(filename, readOnly ? "r" : "rw") ; 
             writePosition = file.length() ;
             readPosition = 0 ;
             readMode = true ;
@@ -43,10 +43,17 @@ public abstract class BlockAccessBase implements BlockAccess {
     // Don't overload use of this!
     protected final AtomicLong seq ;
     protected long             numFileBlocks = -1 ; 
+    // Opened with the operating system file in read-only mode.
+    protected final boolean    readOnly ;
 
     public BlockAccessBase(String filename, int blockSize) {
+        this(filename, blockSize, false) ;
+    }
+
+    public BlockAccessBase(String filename, int blockSize, boolean readOnly) {
         this.filename = filename ;
-        this.file = FileLib.openManaged(filename) ;
+        this.readOnly = readOnly ;
+        this.file = FileLib.openManaged(filename, readOnly ? "r" : "rw") ;
         this.blockSize = blockSize ;
         this.label = label(filename) ;
         // This is not related to used file length in mapped mode.
@@ -27,11 +27,17 @@ import java.nio.channels.FileChannel.MapMode ;
 import java.util.Arrays ;
 
 import org.apache.jena.dboe.base.block.Block;
+import org.apache.jena.dboe.sys.FileLib;
 import org.apache.jena.dboe.sys.SystemIndex;
 import org.slf4j.Logger ;
 import org.slf4j.LoggerFactory ;
 
-/** FileAccess for a file, using memory mapped I/O */
+/** FileAccess for a file, using memory mapped I/O.
+ * <p>
+ * In read-only mode, the file is opened and mapped read-only; segments are mapped
+ * only as far as the end of the file and any attempt to allocate or write blocks
+ * is an error. 
+ */
 final
 public class BlockAccessMapped extends BlockAccessBase
 {
@@ -57,8 +63,16 @@ public class BlockAccessMapped extends BlockAccessBase
     private int segmentDirtyCount = 0 ;
     private boolean[] segmentDirty = new boolean[initialNumSegements] ; 
     
+    // Read-only mode: the file does not change length. 
+    private final long fileLength ;
+    
     public BlockAccessMapped(String filename, int blockSize) {
-        super(filename, blockSize) ;
+        this(filename, blockSize, false) ;
+    }
+    
+    public BlockAccessMapped(String filename, int blockSize, boolean readOnly) {
+        super(filename, blockSize, readOnly) ;
+        fileLength = FileLib.size(file) ;
         blocksPerSegment = SegmentSize/blockSize ;
         if ( SegmentSize%blockSize != 0 )
             getLog().warn(format("%s: Segment size(%d) not a multiple of blocksize (%d)", filename, SegmentSize, blockSize)) ;
@@ -75,6 +89,7 @@ public class BlockAccessMapped extends BlockAccessBase
     
     @Override
     public Block allocate(int blkSize) {
+        checkWritable() ;
         if ( blkSize > 0 && blkSize != this.blockSize )
             throw new FileException("Fixed blocksize only: request= "+blkSize+"fixed size="+this.blockSize) ;
         int id = allocateId() ;
@@ -106,6 +121,7 @@ public class BlockAccessMapped extends BlockAccessBase
     }
 
     private void write(Block block, CopyContents copyContents) {
+        checkWritable() ;
         check(block) ;
         checkIfClosed() ;
         int id = block.getId().intValue() ;
@@ -126,7 +142,13 @@ public class BlockAccessMapped extends BlockAccessBase
     @Override
     public void sync() {
         checkIfClosed() ;
-        force() ;
+        if ( ! readOnly )
+            force() ;
+    }
+
+    private void checkWritable() {
+        if ( readOnly )
+            throw new FileException("Read-only file: "+filename) ;
     }
 
     private ByteBuffer getByteBuffer(long _id) {
@@ -205,7 +227,13 @@ public class BlockAccessMapped extends BlockAccessBase
         MappedByteBuffer segBuffer = segments[seg] ;
         if ( segBuffer == null ) {
             try {
-                segBuffer = file.map(MapMode.READ_WRITE, offset, SegmentSize) ;
+                if ( readOnly ) {
+                    // Can't map beyond the end of a read-only file.
+                    if ( offset >= fileLength )
+                        throw new FileException("BlockMgrMapped.segmentAllocate: Segment = " + seg + " : beyond end of read-only file") ;
+                    segBuffer = file.map(MapMode.READ_ONLY, offset, Math.min(SegmentSize, fileLength-offset)) ;
+                } else
+                    segBuffer = file.map(MapMode.READ_WRITE, offset, SegmentSize) ;
                 if ( getLog().isDebugEnabled() )
                     getLog().debug(format("Segment: %d", seg)) ;
                 segments[seg] = segBuffer ;
@@ -242,7 +270,8 @@ public class BlockAccessMapped extends BlockAccessBase
 
     @Override
     protected void _close() {
-        force() ;
+        if ( ! readOnly )
+            force() ;
         // There is no unmap operation for MappedByteBuffers.
         // Sun Bug id bug_id=4724038
         // http://bugs.sun.com/bugdatabase/view_bug.do?bug_id=4724038
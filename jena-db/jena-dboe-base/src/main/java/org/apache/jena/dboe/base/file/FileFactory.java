@@ -31,6 +31,13 @@ public class FileFactory {
         }
     }
 
+    /** A {@link BinaryDataFile} for an existing file that is only read. */
+    public static BinaryDataFile createBinaryDataFileReadOnly(FileSet fileset, String ext) {
+        if ( fileset.isMem() )
+            throw new FileException("Read-only in-memory BinaryDataFile: "+fileset) ;
+        return new BinaryDataFileRandomAccess(fileset.filename(ext), true) ;
+    }
+
     public static BinaryDataFile createBinaryDataFile() {
         return new BinaryDataFileMem() ;
     }
@@ -43,6 +50,13 @@ public class FileFactory {
             return BufferChannelFile.create(x) ;
     }
 
+    /** A {@link BufferChannel} for an existing file that is only read. */
+    public static BufferChannel createBufferChannelReadOnly(FileSet fileset, String ext) {
+        if ( fileset.isMem() )
+            throw new FileException("Read-only in-memory BufferChannel: "+fileset) ;
+        return BufferChannelFile.create(fileset.filename(ext), "r") ;
+    }
+
     public static BufferChannel createBufferChannelMem() {
         return createBufferChannel(FileSet.mem(), null) ;
     }
@@ -18,14 +18,27 @@
 
 package org.apache.jena.dboe.base.recordbuffer;
 
+import java.nio.ByteBuffer;
+
 import org.apache.jena.dboe.base.block.Block;
+import org.apache.jena.dboe.base.buffer.RecordBuffer;
 import org.apache.jena.dboe.base.page.Page;
+import org.apache.jena.dboe.base.record.RecordException;
 import org.apache.jena.dboe.base.record.RecordFactory;
 import org.apache.jena.dboe.sys.Sys;
 
 /**
  * B+Tree records nodes and hash buckets.
  * Add link field to a RecordBufferPageBase
+ * <p>
+ * A page is either "plain", where the records are kept, fixed length, in the
+ * block, or "prefix compressed". A prefix compressed block holds the records in
+ * order, each as one byte giving the length of the prefix shared with the
+ * previous record, followed by the rest of the record. The page works on a
+ * decoded copy of the records and {@link #encode} writes them back into the
+ * block. A prefix compressed page can hold more records than fit in the block
+ * uncompressed; whether another record can be added depends on the encoded
+ * length ({@link #isFull}).
  */
 
 public final class RecordBufferPage extends RecordBufferPageBase
@@ -41,8 +54,22 @@ public final class RecordBufferPage extends RecordBufferPageBase
     // Adds this field over RecordBufferPageBase
     final public static int LINK            = 4 ;
     final private static int FIELD_LENGTH   = Sys.SizeOfInt ; // Length of the space needed here (not count)
+    // Records start after the header: count and link.
+    final private static int HEADER         = LINK + FIELD_LENGTH ;
+
+    /** Bytes for the shared prefix length of each record in a compressed block. */
+    final private static int PREFIX_LENGTH  = 1 ;
+
+    /**
+     * A compressed page holds up to this many times the records of an
+     * uncompressed page. This bounds the space for the decoded records.
+     */
+    public static int CompressedCapacityFactor = 4 ;
 
     private int link = Page.NO_ID ;
+    // Compressed pages only.
+    private final boolean prefixCompressed ;
+    private final byte[] records ;
     
     public final int getLink() { return link ; }
     
@@ -55,6 +82,9 @@ public final class RecordBufferPage extends RecordBufferPageBase
     @Override
     protected void _reset(Block block)
     { 
+        if ( prefixCompressed )
+            // The decoded records are unchanged; only the block moves.
+            return ;
         // TODO -- should this be format?
         // Print this 
         super.rebuild(block, this.getCount()) ;
@@ -68,6 +98,18 @@ public final class RecordBufferPage extends RecordBufferPageBase
     
     public static int calcBlockSize(RecordFactory factory, int maxRec)
     { return RecordBufferPageBase.calcBlockSize(factory, maxRec, FIELD_LENGTH) ; }
+
+    /** Maximum number of records in a prefix compressed page. */
+    public static int calcCompressedRecordSize(RecordFactory factory, int blkSize)
+    {
+        int space = blkSize - HEADER ;
+        // Every record, other than the first, takes at least two bytes.
+        return Math.min(CompressedCapacityFactor * calcRecordSize(factory, blkSize), space / 2) ;
+    }
+
+    /** Smallest block for a prefix compressed page (a split must leave space for an insert). */
+    public static int calcCompressedMinBlockSize(RecordFactory factory)
+    { return HEADER + 4 * (factory.recordLength() + PREFIX_LENGTH) ; }
     
     /** The construction methods */
     public static RecordBufferPage createBlank(Block block,RecordFactory factory)
@@ -84,10 +126,158 @@ public final class RecordBufferPage extends RecordBufferPageBase
         return new RecordBufferPage(block, factory, count, linkId) ;
     } 
     
+    /** Create an empty prefix compressed page */
+    public static RecordBufferPage createBlankCompressed(Block block, RecordFactory factory)
+    {
+        byte[] records = allocCompressed(block, factory) ;
+        return new RecordBufferPage(block, factory, records, 0, NO_ID) ;
+    }
+
+    /** Decode a prefix compressed page from a block */
+    public static RecordBufferPage formatCompressed(Block block, RecordFactory factory)
+    {
+        ByteBuffer bb = block.getByteBuffer() ;
+        int count = bb.getInt(COUNT) ;
+        int linkId = bb.getInt(LINK) ;
+        byte[] records = allocCompressed(block, factory) ;
+        int recLen = factory.recordLength() ;
+        if ( count < 0 || count*recLen > records.length )
+            throw new RecordException("Bad record count in compressed block "+block.getId()+": "+count) ;
+        ByteBuffer src = bb.duplicate() ;
+        src.clear() ;
+        src.position(HEADER) ;
+        for ( int i = 0, posn = 0 ; i < count ; i++, posn += recLen ) {
+            int prefix = src.get() & 0xFF ;
+            if ( prefix > 0 )
+                System.arraycopy(records, posn-recLen, records, posn, prefix) ;
+            src.get(records, posn+prefix, recLen-prefix) ;
+        }
+        return new RecordBufferPage(block, factory, records, count, linkId) ;
+    }
+
+    private static byte[] allocCompressed(Block block, RecordFactory factory)
+    {
+        int recLen = factory.recordLength() ;
+        if ( recLen > 0xFF )
+            throw new RecordException("Record too long for a prefix compressed page: "+recLen) ;
+        int blkSize = block.getByteBuffer().capacity() ;
+        if ( blkSize < calcCompressedMinBlockSize(factory) )
+            throw new RecordException("Block too small for a prefix compressed page: "+blkSize) ;
+        return new byte[calcCompressedRecordSize(factory, blkSize)*recLen] ;
+    }
+
     private RecordBufferPage(Block block, RecordFactory factory, int count, int linkId)  
     {
         super(block, FIELD_LENGTH, factory, count) ;
         this.link = linkId ;
+        this.prefixCompressed = false ;
+        this.records = null ;
+    }
+
+    private RecordBufferPage(Block block, RecordFactory factory, byte[] records, int count, int linkId)
+    {
+        super(block, FIELD_LENGTH, factory, new RecordBuffer(ByteBuffer.wrap(records), factory, count)) ;
+        this.link = linkId ;
+        this.prefixCompressed = true ;
+        this.records = records ;
+    }
+
+    public boolean isPrefixCompressed()
+    { return prefixCompressed ; }
+
+    /** Bytes of the block available for records. */
+    public int getSpace()
+    { return getBackingBlock().getByteBuffer().capacity() - headerLength ; }
+
+    /** Bytes needed to store the records of this page in the block. */
+    public int getEncodedLength()
+    {
+        int count = getCount() ;
+        if ( ! prefixCompressed )
+            return count*recBuff.slotLen() ;
+        int x = 0 ;
+        for ( int i = 0 ; i < count ; i++ )
+            x += getEncodedLength(i) ;
+        return x ;
+    }
+
+    /** Bytes needed to store record idx, which depends on the record before it. */
+    public int getEncodedLength(int idx)
+    {
+        int recLen = recBuff.slotLen() ;
+        if ( ! prefixCompressed )
+            return recLen ;
+        if ( idx == 0 )
+            return PREFIX_LENGTH + recLen ;
+        return PREFIX_LENGTH + recLen - prefix(idx) ;
+    }
+
+    /** Most bytes that a record can need in the block. */
+    public int getMaxEncodedRecordLength()
+    {
+        return prefixCompressed ? PREFIX_LENGTH + recBuff.slotLen() : recBuff.slotLen() ;
+    }
+
+    /**
+     * Whether another record may not fit into the page. For a compressed page,
+     * this allows for a record that shares no prefix with its neighbours.
+     */
+    public boolean isFull()
+    {
+        if ( recBuff.isFull() )
+            return true ;
+        if ( ! prefixCompressed )
+            return false ;
+        return getEncodedLength() + getMaxEncodedRecordLength() > getSpace() ;
+    }
+
+    /**
+     * The index of the last record to keep in this page when splitting it. A
+     * compressed page splits into two halves of similar encoded length.
+     */
+    public int getSplitIndex()
+    {
+        int count = getCount() ;
+        if ( ! prefixCompressed )
+            return count/2 - 1 ;
+        int half = getEncodedLength()/2 ;
+        int i = 0 ;
+        int x = getEncodedLength(0) ;
+        while ( x < half && i < count-2 ) {
+            i++ ;
+            x += getEncodedLength(i) ;
+        }
+        return i ;
+    }
+
+    /** Write the records into the block (compressed pages only). */
+    public void encode()
+    {
+        if ( ! prefixCompressed )
+            return ;
+        int recLen = recBuff.slotLen() ;
+        int count = getCount() ;
+        ByteBuffer dst = getBackingBlock().getByteBuffer().duplicate() ;
+        dst.clear() ;
+        dst.position(headerLength) ;
+        for ( int i = 0, posn = 0 ; i < count ; i++, posn += recLen ) {
+            int prefix = ( i == 0 ) ? 0 : prefix(i) ;
+            if ( dst.remaining() < PREFIX_LENGTH + recLen - prefix )
+                throw new RecordException("Compressed records do not fit in block "+getId()+" ("+count+" records)") ;
+            dst.put((byte)prefix) ;
+            dst.put(records, posn+prefix, recLen-prefix) ;
+        }
+    }
+
+    /** Length of the prefix record i shares with record i-1 */
+    private int prefix(int i)
+    {
+        int recLen = recBuff.slotLen() ;
+        int posn = i*recLen ;
+        int j = 0 ;
+        while ( j < recLen && records[posn+j] == records[posn-recLen+j] )
+            j++ ;
+        return j ;
     }
     
     @Override
@@ -70,6 +70,14 @@ public abstract class RecordBufferPageBase extends PageBase // implements Page
         rebuild(block, count) ;
     }
 
+    /** Use a record buffer that is not a view of the block (e.g. decoded from the block). */
+    protected RecordBufferPageBase(Block block, int offset, RecordFactory factory, RecordBuffer recBuff) {
+        super(block) ;
+        this.headerLength = FIELD_LENGTH + offset ;
+        this.factory = factory ;
+        this.recBuff = recBuff ;
+    }
+
     protected void rebuild(Block block, int count) {
         ByteBuffer bb = block.getByteBuffer() ;
         bb.clear() ;
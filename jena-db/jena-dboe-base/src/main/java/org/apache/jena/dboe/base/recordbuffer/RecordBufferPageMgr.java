@@ -38,23 +38,38 @@ final
 public class RecordBufferPageMgr extends PageBlockMgr<RecordBufferPage>
 {
     private final RecordFactory factory ;
+    private final boolean prefixCompressed ;
     
     public RecordBufferPageMgr(RecordFactory factory, BlockMgr blockMgr) {
-        super(new Block2RecordBufferPage(factory), blockMgr) ;
+        this(factory, blockMgr, false) ;
+    }
+
+    /** Manager for blocks that are plain or prefix compressed record pages. */ 
+    public RecordBufferPageMgr(RecordFactory factory, BlockMgr blockMgr, boolean prefixCompressed) {
+        super(new Block2RecordBufferPage(factory, prefixCompressed), blockMgr) ;
         this.factory = factory ;
+        this.prefixCompressed = prefixCompressed ;
     }
 
     public RecordFactory getRecordFactory() { return factory ; }
     
+    public boolean isPrefixCompressed()     { return prefixCompressed ; }
+    
     public RecordBufferPage create() {
         return super.create(BlockType.RECORD_BLOCK) ;
     }
     
     public static class Block2RecordBufferPage implements BlockConverter<RecordBufferPage> {
         private RecordFactory factory ;
+        private final boolean prefixCompressed ;
 
         public Block2RecordBufferPage(RecordFactory factory) {
+            this(factory, false) ;
+        }
+
+        public Block2RecordBufferPage(RecordFactory factory, boolean prefixCompressed) {
             this.factory = factory ;
+            this.prefixCompressed = prefixCompressed ;
         }
 
         @Override
@@ -62,6 +77,8 @@ public class RecordBufferPageMgr extends PageBlockMgr<RecordBufferPage>
             if ( blkType != BlockType.RECORD_BLOCK )
                 throw new RecordException("Not RECORD_BLOCK: " + blkType) ;
             // Initially empty
+            if ( prefixCompressed )
+                return RecordBufferPage.createBlankCompressed(block, factory) ;
             RecordBufferPage rb = RecordBufferPage.createBlank(block, factory) ;
             return rb ;
         }
@@ -70,6 +87,8 @@ public class RecordBufferPageMgr extends PageBlockMgr<RecordBufferPage>
         public RecordBufferPage fromBlock(Block block) {
             synchronized (block) // [[TxTDB:TODO] needed? Right place?
             {
+                if ( prefixCompressed )
+                    return RecordBufferPage.formatCompressed(block, factory) ;
                 RecordBufferPage rb = RecordBufferPage.format(block, factory) ;
                 // int count = block.getByteBuffer().getInt(COUNT) ;
                 // int linkId = block.getByteBuffer().getInt(LINK) ;
@@ -85,6 +104,7 @@ public class RecordBufferPageMgr extends PageBlockMgr<RecordBufferPage>
             ByteBuffer bb = rbp.getBackingBlock().getByteBuffer() ;
             bb.putInt(COUNT, rbp.getCount()) ;
             bb.putInt(LINK, rbp.getLink()) ;
+            rbp.encode() ;
             return rbp.getBackingBlock() ;
         }
     }
@@ -18,7 +18,10 @@
 
 package org.apache.jena.dboe.sys;
 
+import java.util.Objects;
+
 import org.apache.jena.dboe.DBOpEnvException;
+import org.apache.jena.dboe.base.block.BlockCachePolicy;
 import org.apache.jena.dboe.base.block.FileMode;
 
 public class SystemIndex
@@ -72,6 +75,16 @@ public class SystemIndex
     /** Size of read block cache (32 bit systems only).  Increase JVM size as necessary. Per file. */
     public static final int BlockReadCacheSize      = intValue("BlockReadCacheSize", 10*1000) ;
     
+    /** Default replacement policy of the read block cache (32 bit systems only). Per file. */
+    private static BlockCachePolicy blockCachePolicy = BlockCachePolicy.lru ;
+
+    public static BlockCachePolicy blockCachePolicy()
+    { return blockCachePolicy ; }
+
+    /** Set the default replacement policy for block caches created after this call. */
+    public static void setBlockCachePolicy(BlockCachePolicy policy)
+    { blockCachePolicy = Objects.requireNonNull(policy) ; }
+    
     private static int intValue(String name, int dft) { return dft ; }
     
     
@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.dboe.base.block;
+
+import java.lang.management.ManagementFactory ;
+
+import javax.management.MBeanServer ;
+import javax.management.ObjectName ;
+
+import org.apache.jena.atlas.lib.FileOps ;
+import org.apache.jena.dboe.ConfigTestDBOE ;
+import org.junit.AfterClass ;
+import org.junit.BeforeClass ;
+import org.junit.Test ;
+
+/** Direct file with a scan resistant cache. */
+public class TestBlockMgrCache extends AbstractTestBlockMgr
+{
+    static final String filename = ConfigTestDBOE.getTestingDir()+"/block-mgr-cache" ;
+    
+    @BeforeClass static public void remove1() { FileOps.delete(filename) ; } 
+    @AfterClass  static public void remove2() { FileOps.delete(filename) ; }
+    
+    @Override
+    protected BlockMgr make() {
+        FileOps.delete(filename) ;
+        return BlockMgrFactory.createStdFile(filename, BlkSize, 4, 4, BlockCachePolicy.twoQueue) ;
+    }
+
+    private static BlockMgrCache cache(BlockMgr blockMgr) {
+        return (BlockMgrCache)blockMgr ;
+    }
+
+    @Test public void cache_stats() {
+        BlockMgrCache cache = cache(blockMgr) ;
+        assertEquals("twoQueue", cache.getPolicy()) ;
+        Block block = blockMgr.allocate(BlkSize) ;
+        long id = block.getId() ;
+        blockMgr.write(block) ;
+        blockMgr.sync() ;
+        cache.resetStats() ;
+        assertEquals(0, cache.getHitRatio(), 0) ;
+        blockMgr.getRead(id) ;
+        blockMgr.getRead(id) ;
+        assertEquals(0, cache.getMisses()) ;
+        assertEquals(2, cache.getReadHits()+cache.getWriteHits()) ;
+        assertEquals(1.0, cache.getHitRatio(), 0) ;
+    }
+
+    @Test public void cache_jmx() throws Exception {
+        BlockMgrCache cache = cache(blockMgr) ;
+        ObjectName name = cache.getObjectName() ;
+        assertNotNull(name) ;
+        MBeanServer mbs = ManagementFactory.getPlatformMBeanServer() ;
+        assertTrue(mbs.isRegistered(name)) ;
+        assertEquals("twoQueue", mbs.getAttribute(name, "Policy")) ;
+        assertNotNull(mbs.getAttribute(name, "HitRatio")) ;
+        blockMgr.endUpdate() ;
+        blockMgr.close() ;
+        blockMgr = null ;
+        assertFalse(mbs.isRegistered(name)) ;
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.dboe.base.block;
+
+import static org.junit.Assert.assertEquals ;
+import static org.junit.Assert.assertFalse ;
+import static org.junit.Assert.assertNull ;
+import static org.junit.Assert.assertTrue ;
+
+import java.util.ArrayList ;
+import java.util.List ;
+
+import org.apache.jena.atlas.iterator.Iter ;
+import org.junit.Test ;
+
+public class TestCacheTwoQueue
+{
+    @Test public void cache2q_01() {
+        CacheTwoQueue<Integer, String> cache = new CacheTwoQueue<>(4) ;
+        assertTrue(cache.isEmpty()) ;
+        cache.put(1, "1") ;
+        assertEquals("1", cache.getIfPresent(1)) ;
+        assertTrue(cache.containsKey(1)) ;
+        assertFalse(cache.containsKey(2)) ;
+        assertNull(cache.getIfPresent(2)) ;
+        assertEquals(1, cache.size()) ;
+        cache.put(1, "one") ;
+        assertEquals("one", cache.getIfPresent(1)) ;
+        assertEquals(1, cache.size()) ;
+    }
+
+    @Test public void cache2q_02() {
+        // Never more than the capacity.
+        CacheTwoQueue<Integer, Integer> cache = new CacheTwoQueue<>(10) ;
+        List<Integer> dropped = new ArrayList<>() ;
+        cache.setDropHandler((k,v)->dropped.add(k)) ;
+        for ( int i = 0 ; i < 100 ; i++ ) {
+            cache.put(i, i) ;
+            assertTrue(cache.size() <= 10) ;
+        }
+        assertEquals(10, cache.size()) ;
+        assertEquals(90, dropped.size()) ;
+        assertEquals(10, Iter.count(cache.keys())) ;
+        for ( int i = 0 ; i < 90 ; i++ )
+            assertFalse(cache.containsKey(i)) ;
+    }
+
+    @Test public void cache2q_scan() {
+        // Hot entries, used more than once, survive a scan.
+        CacheTwoQueue<Integer, Integer> cache = new CacheTwoQueue<>(8) ;
+        int hot = 4 ;
+        // First use; then pushed out of the FIFO queue by fillers; then used again.
+        for ( int i = 0 ; i < hot ; i++ )
+            cache.put(i, i) ;
+        for ( int i = 100 ; i < 108 ; i++ )
+            cache.put(i, i) ;
+        for ( int i = 0 ; i < hot ; i++ ) {
+            assertNull(cache.getIfPresent(i)) ;
+            cache.put(i, i) ;
+        }
+        // Scan.
+        for ( int i = 1000 ; i < 2000 ; i++ ) {
+            if ( cache.getIfPresent(i) == null )
+                cache.put(i, i) ;
+        }
+        for ( int i = 0 ; i < hot ; i++ )
+            assertEquals(Integer.valueOf(i), cache.getIfPresent(i)) ;
+    }
+
+    @Test public void cache2q_remove() {
+        CacheTwoQueue<Integer, Integer> cache = new CacheTwoQueue<>(4) ;
+        for ( int i = 0 ; i < 8 ; i++ )
+            cache.put(i, i) ;
+        // Key 0 is now a ghost. Removing it means it is new when put again.
+        cache.remove(0) ;
+        cache.remove(7) ;
+        assertFalse(cache.containsKey(7)) ;
+        assertEquals(3, cache.size()) ;
+        cache.clear() ;
+        assertTrue(cache.isEmpty()) ;
+        assertFalse(cache.keys().hasNext()) ;
+    }
+
+    @Test public void cache2q_fill() {
+        CacheTwoQueue<Integer, String> cache = new CacheTwoQueue<>(4) ;
+        assertEquals("x", cache.getOrFill(1, ()->"x")) ;
+        assertEquals("x", cache.getOrFill(1, ()->"y")) ;
+    }
+}
@@ -18,11 +18,15 @@
 
 package org.apache.jena.dboe.base.file;
 
+import static org.apache.jena.dboe.test.BufferTestLib.sameValue;
+
 import org.apache.jena.atlas.lib.FileOps ;
 import org.apache.jena.dboe.ConfigTestDBOE;
+import org.apache.jena.dboe.base.block.Block;
 import org.apache.jena.dboe.base.file.BlockAccess;
 import org.apache.jena.dboe.base.file.BlockAccessMapped;
 import org.junit.AfterClass ;
+import org.junit.Test ;
 
 public class TestBlockAccessMapped extends AbstractTestBlockAccessFixedSize
 {
@@ -46,4 +50,37 @@ public class TestBlockAccessMapped extends AbstractTestBlockAccessFixedSize
         return new BlockAccessMapped(fn, BlockSize) ;
         
     }
+    
+    @Test public void fileaccess_readonly_01()
+    {
+        String fn = filename + "-"+(counter++) ;
+        FileOps.deleteSilent(fn) ;
+        BlockAccess file = new BlockAccessMapped(fn, BlockSize) ;
+        Block b1 = data(file, BlockSize) ;
+        file.write(b1) ;
+        file.sync() ;
+        file.close() ;
+        
+        BlockAccess fileRO = new BlockAccessMapped(fn, BlockSize, true) ;
+        try {
+            Block b9 = fileRO.read(b1.getId()) ;
+            assertTrue(sameValue(b1, b9)) ;
+            assertTrue(b9.getByteBuffer().isReadOnly()) ;
+        } finally { fileRO.close() ; }
+    }
+    
+    @Test(expected=FileException.class)
+    public void fileaccess_readonly_02()
+    {
+        String fn = filename + "-"+(counter++) ;
+        FileOps.deleteSilent(fn) ;
+        BlockAccess file = new BlockAccessMapped(fn, BlockSize) ;
+        file.write(data(file, BlockSize)) ;
+        file.close() ;
+        
+        BlockAccess fileRO = new BlockAccessMapped(fn, BlockSize, true) ;
+        try {
+            fileRO.allocate(BlockSize) ;
+        } finally { fileRO.close() ; }
+    }
 }
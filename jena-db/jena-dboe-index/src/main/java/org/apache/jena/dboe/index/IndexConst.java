@@ -18,6 +18,7 @@
 
 package org.apache.jena.dboe.index;
 
+import org.apache.jena.dboe.base.block.BlockCachePolicy;
 import org.apache.jena.dboe.base.block.FileMode;
 import org.apache.jena.dboe.sys.SystemIndex;
 
@@ -48,6 +49,11 @@ public class IndexConst {
             return SystemIndex.BlockWriteCacheSize ;
         }
 
+        @Override
+        public BlockCachePolicy getBlockCachePolicy() {
+            return SystemIndex.blockCachePolicy() ;
+        }
+
     }
 }
 
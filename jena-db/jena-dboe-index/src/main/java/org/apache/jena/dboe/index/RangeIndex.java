@@ -18,7 +18,9 @@
 
 package org.apache.jena.dboe.index;
 
+import java.util.Collections ;
 import java.util.Iterator ;
+import java.util.List ;
 
 import org.apache.jena.dboe.base.record.Record;
 import org.apache.jena.dboe.base.record.RecordMapper;
@@ -36,4 +38,15 @@ public interface RangeIndex extends Index
 
     /** Return the record containing the greatest key - may or may not have the associated value */
     public Record maxKey() ;
+
+    /**
+     * Return keys that split the range min (inclusive) to max (exclusive) into
+     * at most {@code n} sub-ranges of roughly the same number of records, in
+     * increasing order. A null min or max means the start or end of the index.
+     * The sub-ranges are {@code [min, k1)}, {@code [k1, k2)}, ... {@code [kN, max)}.
+     * An index that can not split a range returns an empty list.
+     */
+    public default List<Record> splitPoints(Record recordMin, Record recordMax, int n) {
+        return Collections.emptyList() ;
+    }
 }
@@ -245,5 +245,17 @@ public final class BPT {
         // Now a broken tree of one root block and no records.
         return bpt ;
     }
-}
 
+    /**
+     * Record the current root and the block allocation limits as the persistent
+     * state of a B+Tree that has been built directly on storage, without a
+     * transaction, so that it can be reopened as a transactional B+Tree.
+     */
+    public static void syncState(BPlusTree bpt) {
+        BPTStateMgr stateMgr = bpt.getStateManager() ;
+        stateMgr.setState(bpt.getRootId(),
+                          bpt.getNodeManager().getBlockMgr().allocLimit(),
+                          bpt.getRecordsMgr().getBlockMgr().allocLimit()) ;
+        stateMgr.sync() ;
+    }
+}
@@ -990,7 +990,8 @@ public final class BPTreeNode extends BPTreePage
                 // (it's already there, with its value).
                 // Size is N+N and max could be odd so N+N and N+N+1 are
                 // possible.
-                if ( left.getCount() + 1 != left.getMaxSize() && left.getCount() != left.getMaxSize() )
+                // Prefix compressed blocks merge when both are half full by bytes.
+                if ( !params.isPrefixCompressed() && left.getCount() + 1 != left.getMaxSize() && left.getCount() != left.getMaxSize() )
                     BPT.error("Inconsistent data node size: %d/%d", left.getCount(), left.getMaxSize()) ;
             } else if ( !left.isFull() ) {
                 // If not two data blocks, the left side should now be full
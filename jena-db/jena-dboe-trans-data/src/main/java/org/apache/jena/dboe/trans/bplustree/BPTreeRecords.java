@@ -92,7 +92,7 @@ public final class BPTreeRecords extends BPTreePage {
 
     @Override
     public boolean isFull() {
-        return (rBuff.size() >= rBuff.maxSize()) ;
+        return rBuffPage.isFull() ;
     }
 
     @Override
@@ -104,7 +104,10 @@ public final class BPTreeRecords extends BPTreePage {
     public boolean isMinSize() {
         // 50% packing minimum.
         // If of max length 5 (i.e. odd), min size is 2. Integer division works.
-        return (rBuff.size() <= rBuff.maxSize() / 2) ;
+        // A prefix compressed page must also be at most half full by bytes
+        // so that it can be merged or take a record from a sibling.
+        // This is always true of a plain page of minimum size.
+        return (rBuff.size() <= rBuff.maxSize() / 2) && rBuffPage.getEncodedLength() <= rBuffPage.getSpace() / 2 ;
     }
 
     @Override
@@ -193,7 +196,7 @@ public final class BPTreeRecords extends BPTreePage {
 
     @Override
     public Record getSplitKey() {
-        int splitIdx = rBuff.size() / 2 - 1 ;
+        int splitIdx = rBuffPage.getSplitIndex() ;
         Record r = rBuff.get(splitIdx) ;
         return r ;
     }
@@ -205,8 +208,8 @@ public final class BPTreeRecords extends BPTreePage {
      */
     @Override
     public BPTreePage split() {
+        int splitIdx = rBuffPage.getSplitIndex() ;
         BPTreeRecords other = insertNewPage() ;
-        int splitIdx = rBuff.size() / 2 - 1 ;
         Record r = rBuff.get(splitIdx) ; // Only need key for checking later.
         int moveLen = rBuff.size() - (splitIdx + 1) ; // Number to move.
         // Copy high end to new.
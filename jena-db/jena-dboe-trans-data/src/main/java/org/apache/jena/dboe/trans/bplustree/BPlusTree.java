@@ -19,7 +19,10 @@
 package org.apache.jena.dboe.trans.bplustree;
 
 import java.nio.ByteBuffer ;
+import java.util.ArrayList ;
+import java.util.Collections ;
 import java.util.Iterator ;
+import java.util.List ;
 
 import org.apache.commons.lang3.NotImplementedException ;
 import org.apache.jena.atlas.io.IndentedWriter ;
@@ -356,6 +359,71 @@ public class BPlusTree extends TransactionalComponentLifecycle<BptTxnState> impl
         return BPTreeRangeIteratorMapper.create(node, minRec, maxRec, keyLen, mapper) ;
     }
 
+    @Override
+    public List<Record> splitPoints(Record minRec, Record maxRec, int n) {
+        if ( n <= 1 || ( minRec != null && maxRec != null && Record.keyGE(minRec, maxRec) ) )
+            return Collections.emptyList() ;
+        startReadBlkMgr() ;
+        BPTreeNode root = getRootRead() ;
+        try {
+            return splitPoints(root, minRec, maxRec, n) ;
+        } finally {
+            releaseRootRead(root) ;
+            finishReadBlkMgr() ;
+        }
+    }
+
+    /**
+     * Collect the keys of the branch nodes inside the range, a level at a time,
+     * until there are enough to choose {@code n-1} split points or the next level
+     * is the records pages. Each key of a branch node is the highest key of a
+     * subtree, so the subtrees, and hence the sub-ranges, are of similar size.
+     */
+    private static List<Record> splitPoints(BPTreeNode root, Record minRec, Record maxRec, int n) {
+        List<BPTreeNode> level = Collections.singletonList(root) ;
+        List<Record> keys ;
+        for ( ;; ) {
+            keys = new ArrayList<>() ;
+            for ( BPTreeNode node : level ) {
+                for ( int i = 0 ; i < node.getCount() ; i++ ) {
+                    Record k = node.getRecordBuffer().get(i) ;
+                    if ( minRec != null && Record.keyLE(k, minRec) )
+                        continue ;
+                    if ( maxRec != null && Record.keyGE(k, maxRec) )
+                        continue ;
+                    keys.add(k) ;
+                }
+            }
+            if ( keys.size() >= n-1 || level.get(0).isLeaf() )
+                break ;
+            List<BPTreeNode> nextLevel = new ArrayList<>() ;
+            for ( BPTreeNode node : level ) {
+                Iterator<BPTreePage> iter = node.iterator(minRec, maxRec) ;
+                if ( iter != null )
+                    iter.forEachRemaining(p->nextLevel.add((BPTreeNode)p)) ;
+            }
+            releaseAll(level, root) ;
+            if ( nextLevel.isEmpty() )
+                return keys ;
+            level = nextLevel ;
+        }
+        releaseAll(level, root) ;
+        if ( keys.size() <= n-1 )
+            return keys ;
+        // Evenly spaced choice.
+        List<Record> points = new ArrayList<>(n-1) ;
+        for ( int i = 1 ; i < n ; i++ )
+            points.add(keys.get((int)((long)i*keys.size()/n))) ;
+        return points ;
+    }
+
+    private static void releaseAll(List<BPTreeNode> nodes, BPTreeNode root) {
+        for ( BPTreeNode node : nodes ) {
+            if ( node != root )
+                node.release() ;
+        }
+    }
+
     // Internal calls.
     void startReadBlkMgr() {
         nodeManager.startRead() ;
@@ -562,6 +630,9 @@ public class BPlusTree extends TransactionalComponentLifecycle<BptTxnState> impl
 
     @Override
     protected void _abort(TxnId txnId, BptTxnState state) {
+        // A reader has changed nothing, and a writer may have committed since the reader started.
+        if ( isReadTxn() )
+            return ;
         rootIdx = state.initialroot ;
         // Truncate - logically in block manager space.
         nodeManager.resetAlloc(state.boundaryBlocksNode) ;
@@ -19,6 +19,7 @@
 package org.apache.jena.dboe.trans.bplustree;
 
 import org.apache.jena.dboe.DBOpEnvException;
+import org.apache.jena.dboe.base.block.BlockCachePolicy;
 import org.apache.jena.dboe.base.block.BlockMgr;
 import org.apache.jena.dboe.base.block.BlockMgrFactory;
 import org.apache.jena.dboe.base.block.BlockMgrLogger;
@@ -90,6 +91,12 @@ public class BPlusTreeFactory {
 
     /** Create a B+Tree using defaults */
     public static BPlusTree createBPTree(ComponentId cid, FileSet fileset, RecordFactory factory)
+    {
+        return createBPTree(cid, fileset, factory, false) ;
+    }
+
+    /** Create a B+Tree using defaults, with plain or prefix compressed records blocks */
+    public static BPlusTree createBPTree(ComponentId cid, FileSet fileset, RecordFactory factory, boolean prefixCompressed)
     {
         int readCacheSize = SystemIndex.BlockReadCacheSize ;
         int writeCacheSize = SystemIndex.BlockWriteCacheSize ;
@@ -101,7 +108,27 @@ public class BPlusTreeFactory {
             blockSize = SystemIndex.BlockSizeTest ;
         }
         
-        return createBPTreeByBlockSize(cid, fileset, blockSize, readCacheSize, writeCacheSize, factory) ; 
+        int order = BPlusTreeParams.calcOrder(blockSize, factory.recordLength()) ;
+        BPlusTreeParams params = new BPlusTreeParams(order, factory, prefixCompressed) ;
+        return createBPTree(cid, fileset, params, blockSize, readCacheSize, writeCacheSize, null) ; 
+    }
+
+    /**
+     * Attach to an existing, on-disk B+Tree, created with default settings, that is
+     * only read. The node and records files are memory mapped read-only. There is no block
+     * cache: the operating system page cache is used.
+     */
+    public static BPlusTree createBPTreeReadOnly(ComponentId cid, FileSet fileset, RecordFactory factory, boolean prefixCompressed)
+    {
+        if ( fileset.isMem() )
+            throw new DBOpEnvException("Read-only B+Tree must be on disk: "+fileset) ;
+        int blockSize = SystemIndex.BlockSize ;
+        int order = BPlusTreeParams.calcOrder(blockSize, factory.recordLength()) ;
+        BPlusTreeParams params = new BPlusTreeParams(order, factory, prefixCompressed) ;
+        BufferChannel bptState = FileFactory.createBufferChannelReadOnly(fileset, Names.extBptState) ;
+        BlockMgr blkMgrNodes = BlockMgrFactory.createMMapFileReadonly(fileset.filename(Names.extBptTree), blockSize) ;
+        BlockMgr blkMgrRecords = BlockMgrFactory.createMMapFileReadonly(fileset.filename(Names.extBptRecords), blockSize) ;
+        return BPlusTreeFactory.create(cid, params, bptState, blkMgrNodes, blkMgrRecords) ;
     }
 
     /** Create a B+Tree by BlockSize */
@@ -134,6 +161,19 @@ public class BPlusTreeFactory {
     public static BPlusTree createBPTree(ComponentId cid, FileSet fileset, int order, int blockSize,
                                          int readCacheSize, int writeCacheSize,
                                          RecordFactory factory)
+    {
+        return createBPTree(cid, fileset, order, blockSize, readCacheSize, writeCacheSize, null, factory) ;
+    }
+
+    /**
+     * Knowing all the parameters, create a B+Tree, with a given block cache policy
+     * (null for the system default).
+     * The internal nodes and the records are in different files, each with its own block cache,
+     * so a scan of the records does not displace the upper levels of the tree.
+     */
+    public static BPlusTree createBPTree(ComponentId cid, FileSet fileset, int order, int blockSize,
+                                         int readCacheSize, int writeCacheSize, BlockCachePolicy cachePolicy,
+                                         RecordFactory factory)
     {
         // ---- Checking
         if (blockSize < 0 && order < 0) throw new IllegalArgumentException("Neither blocksize nor order specified") ;
@@ -152,9 +192,15 @@ public class BPlusTreeFactory {
         }
     
         BPlusTreeParams params = new BPlusTreeParams(order, factory) ;
+        return createBPTree(cid, fileset, params, blockSize, readCacheSize, writeCacheSize, cachePolicy) ;
+    }
+
+    private static BPlusTree createBPTree(ComponentId cid, FileSet fileset, BPlusTreeParams params, int blockSize,
+                                          int readCacheSize, int writeCacheSize, BlockCachePolicy cachePolicy)
+    {
         BufferChannel bptState = FileFactory.createBufferChannel(fileset, Names.extBptState) ;
-        BlockMgr blkMgrNodes = BlockMgrFactory.create(fileset, Names.extBptTree, blockSize, readCacheSize, writeCacheSize) ;
-        BlockMgr blkMgrRecords = BlockMgrFactory.create(fileset, Names.extBptRecords, blockSize, readCacheSize, writeCacheSize) ;
+        BlockMgr blkMgrNodes = BlockMgrFactory.create(fileset, Names.extBptTree, null, blockSize, readCacheSize, writeCacheSize, cachePolicy) ;
+        BlockMgr blkMgrRecords = BlockMgrFactory.create(fileset, Names.extBptRecords, null, blockSize, readCacheSize, writeCacheSize, cachePolicy) ;
         return BPlusTreeFactory.create(cid, params, bptState, blkMgrNodes, blkMgrRecords) ;
     }
 
@@ -181,7 +227,7 @@ public class BPlusTreeFactory {
         
         BPTreeNodeMgr nodeManager = new BPTreeNodeMgr(bpt, blkMgrNodes) ;
         
-        RecordBufferPageMgr recordPageMgr = new RecordBufferPageMgr(params.getRecordFactory(), blkMgrRecords) ;
+        RecordBufferPageMgr recordPageMgr = new RecordBufferPageMgr(params.getRecordFactory(), blkMgrRecords, params.isPrefixCompressed()) ;
         BPTreeRecordsMgr recordsMgr = new BPTreeRecordsMgr(bpt, params.getRecordFactory(), recordPageMgr) ;
         
         createIfAbsent(isReset, stateMgr, nodeManager, recordsMgr) ;
@@ -211,9 +257,16 @@ public class BPlusTreeFactory {
 
     /** (Testing mainly) Make an in-memory B+Tree, with copy-in, copy-out block managers */
     public static BPlusTree makeMem(String name, int order, int minDataRecords, int keyLength, int valueLength) {
+        return makeMem(name, order, minDataRecords, keyLength, valueLength, false) ;
+    }
+
+    /** (Testing mainly) Make an in-memory B+Tree, with copy-in, copy-out block managers,
+     * and plain or prefix compressed records blocks.
+     */
+    public static BPlusTree makeMem(String name, int order, int minDataRecords, int keyLength, int valueLength, boolean prefixCompressed) {
         if ( name == null )
             name = "Mem" ;
-        BPlusTreeParams params = new BPlusTreeParams(order, keyLength, valueLength) ;
+        BPlusTreeParams params = new BPlusTreeParams(order, new RecordFactory(keyLength, valueLength), prefixCompressed) ;
     
         int blkSize ;
         if ( minDataRecords > 0 ) {
@@ -222,6 +275,8 @@ public class BPlusTreeFactory {
             blkSize = RecordBufferPage.calcBlockSize(params.getRecordFactory(), maxDataRecords) ;
         } else
             blkSize = params.getCalcBlockSize() ;
+        if ( prefixCompressed )
+            blkSize = Math.max(blkSize, RecordBufferPage.calcCompressedMinBlockSize(params.getRecordFactory())) ;
     
         // By FileSet
         BufferChannel chan = BufferChannelMem.create(name+"(root)") ; 
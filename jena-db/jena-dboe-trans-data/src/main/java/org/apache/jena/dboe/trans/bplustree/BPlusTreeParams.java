@@ -60,6 +60,9 @@ final public class BPlusTreeParams
     /** Factory for key-only records */ 
     final RecordFactory keyFactory ;
     
+    /** Whether the records (leaf) blocks are prefix compressed */ 
+    final boolean prefixCompressed ;
+    
     // ---- Derived constants.
 
     /** Maximum number of keys per non-leaf block */
@@ -90,13 +93,14 @@ final public class BPlusTreeParams
     
     @Override
     public String toString() {
-        return String.format("Order=%d : Records [key=%d, value=%d] : records=[%d,%d] : pointers=[%d,%d] : split=%d",
+        return String.format("Order=%d : Records [key=%d, value=%d] : records=[%d,%d] : pointers=[%d,%d] : split=%d%s",
                              order,
                              keyFactory.keyLength() ,
                              recordFactory.valueLength() ,
                              MinRec, MaxRec, 
                              MinPtr, MaxPtr,
-                             SplitIndex
+                             SplitIndex,
+                             prefixCompressed ? " : prefix compressed" : ""
                              ) ;
     }
 
@@ -125,6 +129,15 @@ final public class BPlusTreeParams
     }
     
     public BPlusTreeParams(int order, RecordFactory factory) {
+        this(order, factory, false) ;
+    }
+    
+    /**
+     * B+Tree parameters, choosing whether records blocks are prefix compressed.
+     * This changes the on-disk format and must be the same every time the
+     * B+Tree is used.
+     */
+    public BPlusTreeParams(int order, RecordFactory factory, boolean prefixCompressed) {
         // BTrees of order one aren't strictly BTrees
         // Order 1 => Min size = 0 and max size = 2*N-1 = 1.
         // If there is a gap, then the code may be defensive enough
@@ -137,6 +150,7 @@ final public class BPlusTreeParams
         this.order = order ;
         recordFactory = factory ;
         keyFactory = factory.keyFactory() ;
+        this.prefixCompressed = prefixCompressed ;
 
         // Derived constants.
         MaxRec  = 2*order-1 + Gap ;
@@ -174,6 +188,10 @@ final public class BPlusTreeParams
         return keyFactory ;
     }
 
+    public boolean isPrefixCompressed() {
+        return prefixCompressed ;
+    }
+
     public int getCalcBlockSize() {
         return calcBlockSize(order, recordFactory) ;
     }
@@ -112,9 +112,9 @@ public class BPlusTreeRewriter {
         }
         fixupRoot(root, pair, bpt2) ;
         // ****** Finish the tree.
-        //bpt2.getStateManager().
         blkMgrNodes.sync() ;
         blkMgrRecords.sync() ;
+        BPT.syncState(bpt2) ;
         return bpt2 ;
     }
 
@@ -178,7 +178,8 @@ public class BPlusTreeRewriter {
             RecordBufferPage page2 = mgr.getWrite(id2) ;
 
             // Wrong calculatation.
-            for ( int i = page2.getCount() ; i < page1.getMaxSize() / 2 ; i++ ) {
+            // A prefix compressed page stops at half full by bytes.
+            for ( int i = page2.getCount() ; i < page1.getMaxSize() / 2 && page2.getEncodedLength() < page2.getSpace() / 2 ; i++ ) {
                 // shiftOneup(node1, node2) ;
                 Record r = page1.getRecordBuffer().getHigh() ;
                 page1.getRecordBuffer().removeTop() ;
@@ -63,9 +63,13 @@ class RecordBufferPagePacker implements Iterator<RecordBufferPage> {
             recordBufferPage = rbMgr.create() ;
 
             RecordBuffer rb = recordBufferPage.getRecordBuffer() ;
-            while (!rb.isFull() && records.hasNext()) {
+            // Track the encoded length: prefix compressed pages fill by bytes.
+            int length = 0 ;
+            int limit = recordBufferPage.getSpace() - recordBufferPage.getMaxEncodedRecordLength() ;
+            while (!rb.isFull() && length <= limit && records.hasNext()) {
                 Record r = records.next() ;
                 rb.add(r) ;
+                length += recordBufferPage.getEncodedLength(rb.size() - 1) ;
             }
             if ( !records.hasNext() )
                 records = null ;
@@ -29,6 +29,7 @@ import org.junit.runners.Suite ;
     TestBPTreeRecordsNonTxn.class,
     TestBPlusTreeIndexNonTxn.class,
     TestBPlusTreeNonTxn.class,
+    TestBPlusTreePrefixNonTxn.class,
     TestBPTreeModes.class,
     
     // Transactional tests
@@ -23,6 +23,7 @@ import static org.apache.jena.dboe.test.RecordLib.intToRecord;
 
 import java.util.List ;
 
+import org.apache.jena.atlas.iterator.Iter ;
 import org.apache.jena.atlas.logging.LogCtl ;
 import org.apache.jena.dboe.base.block.BlockMgr;
 import org.apache.jena.dboe.base.record.Record;
@@ -34,6 +35,7 @@ import org.apache.jena.dboe.trans.bplustree.BPlusTree;
 import org.apache.jena.dboe.trans.bplustree.BPlusTreeFactory;
 import org.junit.AfterClass ;
 import org.junit.BeforeClass ;
+import org.junit.Test ;
 
 /** Run the tests in default settings for a tree in "non-transactional" mode */ 
 public class TestBPlusTreeNonTxn extends AbstractTestRangeIndex {
@@ -77,6 +79,56 @@ public class TestBPlusTreeNonTxn extends AbstractTestRangeIndex {
         assertTrue(rIndex.isEmpty()) ;
     }
     
+    @Test public void split_points_01() {
+        BPlusTree rIndex = makeRangeIndex(3, 3) ;
+        assertTrue(rIndex.splitPoints(null, null, 4).isEmpty()) ;
+    }
+
+    @Test public void split_points_02() {
+        testSplitPoints(1000, null, null, 4) ;
+    }
+
+    @Test public void split_points_03() {
+        testSplitPoints(1000, RecordLib.r(100), RecordLib.r(900), 8) ;
+    }
+
+    @Test public void split_points_04() {
+        testSplitPoints(1000, RecordLib.r(100), RecordLib.r(110), 8) ;
+    }
+
+    @Test public void split_points_05() {
+        testSplitPoints(100, null, null, 1) ;
+    }
+
+    private void testSplitPoints(int N, Record minRec, Record maxRec, int n) {
+        int[] keys = new int[N] ;
+        for ( int i = 0 ; i < keys.length ; i++ )
+            keys[i] = i ;
+        BPlusTree rIndex = makeRangeIndex(3, 3) ;
+        add(rIndex, keys) ;
+        List<Record> points = rIndex.splitPoints(minRec, maxRec, n) ;
+        assertTrue(points.size() <= n-1 || (n <= 1 && points.isEmpty())) ;
+        // Ascending and strictly inside the range.
+        Record prev = minRec ;
+        for ( Record k : points ) {
+            if ( prev != null )
+                assertTrue(Record.keyLT(prev, k)) ;
+            prev = k ;
+        }
+        if ( prev != null && maxRec != null )
+            assertTrue(Record.keyLT(prev, maxRec)) ;
+        // The sub-ranges cover the range.
+        long total = Iter.count(rIndex.iterator(minRec, maxRec)) ;
+        long sum = 0 ;
+        Record lo = minRec ;
+        for ( Record k : points ) {
+            sum += Iter.count(rIndex.iterator(lo, k)) ;
+            lo = k ;
+        }
+        sum += Iter.count(rIndex.iterator(lo, maxRec)) ;
+        assertEquals(total, sum) ;
+    }
+
     @Override
     protected BPlusTree makeRangeIndex(int order, int minRecords) {
         BPlusTree bpt = BPlusTreeFactory.makeMem(order, minRecords, RecordLib.TestRecordLength, 0) ;
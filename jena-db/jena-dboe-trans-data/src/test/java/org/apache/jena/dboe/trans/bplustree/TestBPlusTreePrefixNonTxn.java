@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.dboe.trans.bplustree ;
+
+import static org.apache.jena.dboe.index.test.IndexTestLib.add;
+import static org.apache.jena.dboe.index.test.IndexTestLib.randTest;
+import static org.apache.jena.dboe.test.RecordLib.intToRecord;
+
+import java.nio.ByteBuffer;
+
+import org.apache.jena.atlas.lib.Bytes;
+import org.apache.jena.dboe.base.block.Block;
+import org.apache.jena.dboe.base.record.Record;
+import org.apache.jena.dboe.base.record.RecordFactory;
+import org.apache.jena.dboe.base.recordbuffer.RecordBufferPage;
+import org.apache.jena.dboe.index.test.AbstractTestRangeIndex;
+import org.apache.jena.dboe.sys.SystemIndex;
+import org.apache.jena.dboe.test.RecordLib;
+import org.junit.AfterClass ;
+import org.junit.BeforeClass ;
+import org.junit.Test ;
+
+/** Run the tests for a tree, in "non-transactional" mode, with prefix compressed records blocks */ 
+public class TestBPlusTreePrefixNonTxn extends AbstractTestRangeIndex {
+    static boolean originalNullOut ;
+    @BeforeClass
+    static public void beforeClass() {
+        BPT.CheckingNode = true ;
+        originalNullOut = SystemIndex.getNullOut() ;
+        SystemIndex.setNullOut(true) ;
+    }
+
+    @AfterClass
+    static public void afterClass() {
+        SystemIndex.setNullOut(originalNullOut) ;
+    }
+    
+    @Override
+    protected BPlusTree makeRangeIndex(int order, int minRecords) {
+        BPlusTree bpt = BPlusTreeFactory.makeMem(null, order, minRecords, RecordLib.TestRecordLength, 0, true) ;
+        bpt.nonTransactional() ;
+        return bpt ;
+    }
+    
+    @Test public void bpt_prefix_page_01() {
+        // Encode and decode a page.
+        RecordFactory factory = new RecordFactory(8, 0) ;
+        Block block = new Block(0, ByteBuffer.allocate(200)) ;
+        RecordBufferPage page = RecordBufferPage.createBlankCompressed(block, factory) ;
+        assertTrue(page.getMaxSize() > RecordBufferPage.calcRecordSize(factory, 200)) ;
+        int N = 0 ;
+        while ( ! page.isFull() ) {
+            Record r = factory.create() ;
+            Bytes.setLong(1000+N, r.getKey()) ;
+            page.getRecordBuffer().add(r) ;
+            N++ ;
+        }
+        // More records than would fit uncompressed.
+        assertTrue(N > RecordBufferPage.calcRecordSize(factory, 200)) ;
+        assertTrue(page.getEncodedLength() <= page.getSpace()) ;
+        page.encode() ;
+        block.getByteBuffer().putInt(RecordBufferPage.COUNT, page.getCount()) ;
+        RecordBufferPage page2 = RecordBufferPage.formatCompressed(block, factory) ;
+        assertEquals(N, page2.getCount()) ;
+        for ( int i = 0 ; i < N ; i++ )
+            assertEquals(page.getRecordBuffer().get(i), page2.getRecordBuffer().get(i)) ;
+    }
+
+    @Test public void bpt_prefix_blocks_01() {
+        // Sequential keys share prefixes: fewer records blocks than a plain B+Tree.
+        int N = 2000 ;
+        BPlusTree bpt1 = BPlusTreeFactory.makeMem(null, 5, 20, RecordLib.TestRecordLength, 0, false) ;
+        BPlusTree bpt2 = BPlusTreeFactory.makeMem(null, 5, 20, RecordLib.TestRecordLength, 0, true) ;
+        bpt1.nonTransactional() ;
+        bpt2.nonTransactional() ;
+        for ( int i = 0 ; i < N ; i++ ) {
+            bpt1.insert(intToRecord(i)) ;
+            bpt2.insert(intToRecord(i)) ;
+        }
+        bpt2.check() ;
+        assertEquals(N, bpt2.size()) ;
+        long blocks1 = bpt1.getRecordsMgr().getBlockMgr().allocLimit() ;
+        long blocks2 = bpt2.getRecordsMgr().getBlockMgr().allocLimit() ;
+        assertTrue("Blocks: "+blocks2+" / "+blocks1, blocks2 < blocks1) ;
+    }
+
+    @Test public void bpt_prefix_random_01() {
+        BPlusTree bpt = makeRangeIndex(3, 5) ;
+        randTest(bpt, 5000, 500) ;
+    }
+
+    @Test public void bpt_prefix_delete_01() {
+        int N = 1000 ;
+        BPlusTree bpt = makeRangeIndex(3, 5) ;
+        int[] keys = new int[N] ;
+        for ( int i = 0 ; i < N ; i++ )
+            keys[i] = i*37 ;
+        add(bpt, keys) ;
+        for ( int i = 0 ; i < N ; i += 2 )
+            bpt.delete(intToRecord(keys[i])) ;
+        bpt.check() ;
+        assertEquals(N/2, bpt.size()) ;
+        for ( int i = 0 ; i < N ; i++ )
+            assertEquals(i%2 == 1, bpt.contains(intToRecord(keys[i]))) ;
+    }
+}
@@ -20,6 +20,7 @@ package org.apache.jena.dboe.trans.bplustree;
 
 import org.apache.jena.dboe.base.file.Location;
 import org.apache.jena.dboe.index.test.IndexTestLib;
+import org.apache.jena.dboe.migrate.L;
 import org.apache.jena.system.Txn;
 import org.apache.jena.dboe.test.RecordLib;
 import org.apache.jena.dboe.trans.bplustree.BPlusTree;
@@ -204,5 +205,42 @@ public class TestBPlusTreeTxn extends Assert {
         } );
     }
     
+    // Abort of a reader does not undo a writer that committed while the reader was active.
+    @Test public void bptree_txn_read_abort_01() {
+        BPlusTree bpt = createBPTree() ;
+        Transactional thing = transactional(bpt) ;
+        Txn.executeWrite(thing, () -> IndexTestLib.add(bpt, 1, 2, 3)) ;
+        thing.begin(ReadWrite.READ);
+        L.syncOtherThread(()->Txn.executeWrite(thing, () -> IndexTestLib.add(bpt, 4, 5))) ;
+        IndexTestLib.testIndexContents(bpt, 1, 2, 3);
+        thing.abort() ;
+        thing.end() ;
+        Txn.executeRead(thing, ()->IndexTestLib.testIndexContents(bpt, 1, 2, 3, 4, 5));
+    }
     
+    // Prefix compressed records blocks: copy-on-write of blocks, abort and reads.
+    @Test public void bptree_txn_prefix_01() {
+        BPlusTree bpt = BPlusTreeFactory.makeMem(null, 3, 5, RecordLib.TestRecordLength, 0, true) ;
+        Transactional thing = transactional(bpt) ;
+        int N = 500 ;
+        int[] keys1 = new int[N] ;
+        int[] keys2 = new int[N] ;
+        for ( int i = 0 ; i < N ; i++ ) {
+            keys1[i] = 2*i ;
+            keys2[i] = 2*i+1 ;
+        }
+        Txn.executeWrite(thing, () -> IndexTestLib.add(bpt, keys1)) ;
+        // Abort
+        thing.begin(ReadWrite.WRITE);
+        IndexTestLib.add(bpt, keys2) ;
+        IndexTestLib.delete(bpt, keys1) ;
+        thing.abort() ;
+        Txn.executeRead(thing, ()->IndexTestLib.testIndexContents(bpt, keys1));
+        // Commit
+        Txn.executeWrite(thing, () -> {
+            IndexTestLib.add(bpt, keys2) ;
+            IndexTestLib.delete(bpt, keys1) ;
+        }) ;
+        Txn.executeRead(thing, ()->IndexTestLib.testIndexContents(bpt, keys2));
+    }
 }
@@ -30,6 +30,7 @@ import org.apache.jena.dboe.base.file.FileFactory;
 import org.apache.jena.dboe.base.file.FileSet;
 import org.apache.jena.dboe.base.record.Record;
 import org.apache.jena.dboe.base.record.RecordFactory;
+import org.apache.jena.dboe.base.recordbuffer.RecordBufferPage;
 import org.apache.jena.dboe.sys.Names;
 import org.apache.jena.dboe.trans.bplustree.BPTreeException;
 import org.apache.jena.dboe.trans.bplustree.BPlusTree;
@@ -68,12 +69,23 @@ public class TestBPlusTreeRewriterNonTxn extends Assert
     
     @Test public void bpt_rewrite_99()  { runTest(5, 1000) ; }
     
+    // Prefix compressed records blocks.
+    @Test public void bpt_rewrite_prefix_01()  { runTestPrefix(2, 0) ; }
+    @Test public void bpt_rewrite_prefix_02()  { runTestPrefix(2, 1) ; }
+    @Test public void bpt_rewrite_prefix_03()  { runTestPrefix(3, 100) ; }
+    @Test public void bpt_rewrite_prefix_04()  { runTestPrefix(5, 1000) ; }
+    
     static void runTest(int order, int N)
     { runOneTest(order, N , recordFactory, false) ; }
     
+    static void runTestPrefix(int order, int N)
+    { runOneTest(new BPlusTreeParams(order, recordFactory, true), N , recordFactory, false) ; }
+    
     public static void runOneTest(int order, int N, RecordFactory recordFactory, boolean debug)
+    { runOneTest(new BPlusTreeParams(order, recordFactory), N, recordFactory, debug) ; }
+    
+    public static void runOneTest(BPlusTreeParams bptParams, int N, RecordFactory recordFactory, boolean debug)
     {
-        BPlusTreeParams bptParams = new BPlusTreeParams(order, recordFactory) ;
         BPlusTreeRewriter.debug = debug ;
 
         // ---- Test data
@@ -85,9 +97,12 @@ public class TestBPlusTreeRewriterNonTxn extends Assert
         // ---- Rewrite
         BufferChannel rootState = FileFactory.createBufferChannel(destination, Names.extBptState) ;
         // Write leaves to ...
-        BlockMgr blkMgr1 = BlockMgrFactory.create(destination, Names.extBptTree, bptParams.getCalcBlockSize(), 10, 10) ;
+        int blockSize = bptParams.getCalcBlockSize() ;
+        if ( bptParams.isPrefixCompressed() )
+            blockSize = Math.max(blockSize, RecordBufferPage.calcCompressedMinBlockSize(recordFactory)) ;
+        BlockMgr blkMgr1 = BlockMgrFactory.create(destination, Names.extBptTree, blockSize, 10, 10) ;
         // Write nodes to ...
-        BlockMgr blkMgr2 = BlockMgrFactory.create(destination, Names.extBptTree, bptParams.getCalcBlockSize(), 10, 10) ;
+        BlockMgr blkMgr2 = BlockMgrFactory.create(destination, Names.extBptTree, blockSize, 10, 10) ;
         
         BPlusTree bpt2 = BPlusTreeRewriter.packIntoBPlusTree(originaldata.iterator(), bptParams, recordFactory,
                                                              rootState, blkMgr1, blkMgr2) ;
@@ -0,0 +1,221 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.dboe.transaction;
+
+import java.util.ArrayDeque ;
+import java.util.ArrayList ;
+import java.util.List ;
+import java.util.Objects ;
+import java.util.concurrent.atomic.LongAccumulator ;
+import java.util.concurrent.atomic.LongAdder ;
+
+import org.apache.jena.dboe.transaction.txn.TransactionException ;
+import org.apache.jena.sparql.core.Transactional ;
+import org.apache.jena.system.Txn ;
+
+/**
+ * Group commit for small write transactions.
+ * <p>
+ * The system has a single active writer, and each write transaction pays for
+ * its own journal write and sync on commit. When many threads each make a small
+ * update, {@code GroupCommit} queues the update actions and runs the actions
+ * waiting at the time in one write transaction, so they share one prepare/commit
+ * cycle and one journal sync.
+ * <p>
+ * {@link #execute} returns only when the transaction containing the action has
+ * committed, so the durability guarantee for the caller is the same as for
+ * {@link Txn#executeWrite}. Actions are applied, and become visible, in the order
+ * they were queued. An action that throws an exception causes the batch to be
+ * aborted; the actions of that batch are then run again, each in its own write
+ * transaction, so only the failing action reports the exception.
+ * <p>
+ * Actions are run by whichever calling thread is currently leading the batch, not
+ * necessarily the thread that submitted them. They must not start or end
+ * transactions themselves, and callers must not be in a transaction.
+ * <p>
+ * Group commit is opt-in: code that does not use this class is unaffected.
+ */
+public class GroupCommit {
+    private final Transactional transactional ;
+    private final int maxBatchSize ;
+
+    private final Object lock = new Object() ;
+    // Guarded by lock.
+    private final ArrayDeque<Request> queue = new ArrayDeque<>() ;
+    private boolean leaderActive = false ;
+
+    // Statistics
+    private final LongAdder counterRequests         = new LongAdder() ;
+    private final LongAdder counterBatches          = new LongAdder() ;
+    private final LongAdder counterFailedBatches    = new LongAdder() ;
+    private final LongAccumulator maxBatch          = new LongAccumulator(Math::max, 0) ;
+    private final LongAccumulator maxQueueDepth     = new LongAccumulator(Math::max, 0) ;
+
+    private static class Request {
+        final Runnable action ;
+        boolean done = false ;
+        boolean lead = false ;
+        RuntimeException exception = null ;
+        Request(Runnable action) { this.action = action ; }
+    }
+
+    /** Group commit with no limit on the number of actions in a transaction. */
+    public GroupCommit(Transactional transactional) {
+        this(transactional, Integer.MAX_VALUE) ;
+    }
+
+    /** Group commit with at most {@code maxBatchSize} actions in a transaction. */
+    public GroupCommit(Transactional transactional, int maxBatchSize) {
+        if ( maxBatchSize < 1 )
+            throw new IllegalArgumentException("GroupCommit: maxBatchSize must be positive: "+maxBatchSize) ;
+        this.transactional = Objects.requireNonNull(transactional) ;
+        this.maxBatchSize = maxBatchSize ;
+    }
+
+    /**
+     * Run the action in a write transaction, possibly shared with other actions,
+     * and return when that transaction has committed.
+     * Any exception thrown by the action is rethrown in the calling thread.
+     */
+    public void execute(Runnable action) {
+        Request request = new Request(Objects.requireNonNull(action)) ;
+        counterRequests.increment() ;
+        boolean lead ;
+        synchronized(lock) {
+            queue.add(request) ;
+            maxQueueDepth.accumulate(queue.size()) ;
+            lead = ! leaderActive ;
+            if ( lead )
+                leaderActive = true ;
+            else
+                lead = await(request) ;
+        }
+        if ( lead )
+            lead(request) ;
+        if ( request.exception != null )
+            throw request.exception ;
+    }
+
+    // Wait until the request is done or this thread is asked to lead the next batch.
+    // Inside synchronized(lock).
+    private boolean await(Request request) {
+        boolean interrupted = false ;
+        try {
+            while ( ! request.done && ! request.lead ) {
+                try { lock.wait() ; }
+                catch (InterruptedException ex) { interrupted = true ; }
+            }
+        } finally {
+            if ( interrupted )
+                Thread.currentThread().interrupt() ;
+        }
+        return request.lead ;
+    }
+
+    // Run the batches until the batch containing the request is done,
+    // then hand over to a waiting thread.
+    private void lead(Request request) {
+        try {
+            while ( ! request.done ) {
+                List<Request> batch = new ArrayList<>() ;
+                synchronized(lock) {
+                    while ( batch.size() < maxBatchSize && ! queue.isEmpty() )
+                        batch.add(queue.poll()) ;
+                }
+                try { runBatch(batch) ; }
+                catch (Error err) {
+                    batch.forEach(r->r.exception = new TransactionException("GroupCommit: batch failed", err)) ;
+                    throw err ;
+                }
+                finally {
+                    synchronized(lock) {
+                        batch.forEach(r->r.done = true) ;
+                        lock.notifyAll() ;
+                    }
+                }
+            }
+        } finally {
+            synchronized(lock) {
+                Request next = queue.peek() ;
+                if ( next != null )
+                    next.lead = true ;
+                else
+                    leaderActive = false ;
+                lock.notifyAll() ;
+            }
+        }
+    }
+
+    private void runBatch(List<Request> batch) {
+        counterBatches.increment() ;
+        maxBatch.accumulate(batch.size()) ;
+        try {
+            Txn.executeWrite(transactional, ()->batch.forEach(r->r.action.run())) ;
+            return ;
+        } catch (RuntimeException ex) {
+            if ( batch.size() == 1 ) {
+                batch.get(0).exception = ex ;
+                return ;
+            }
+        }
+        // Batch aborted. Run each action separately so the failure is reported
+        // to the caller whose action failed.
+        counterFailedBatches.increment() ;
+        for ( Request r : batch ) {
+            try { Txn.executeWrite(transactional, r.action) ; }
+            catch (RuntimeException ex) { r.exception = ex ; }
+        }
+    }
+
+    /** Number of actions submitted. */
+    public long getCountRequests()          { return counterRequests.sum() ; }
+
+    /** Number of batches, each normally one write transaction. */
+    public long getCountBatches()           { return counterBatches.sum() ; }
+
+    /** Number of batches that were aborted and rerun one action per transaction. */
+    public long getCountFailedBatches()     { return counterFailedBatches.sum() ; }
+
+    /** Largest number of actions in one batch. */
+    public long getMaxBatchSize()           { return maxBatch.get() ; }
+
+    /** Average number of actions in a batch. */
+    public double getAverageBatchSize() {
+        long batches = getCountBatches() ;
+        return batches == 0 ? 0 : (double)getCountRequests() / batches ;
+    }
+
+    /** Number of actions currently waiting to be run. */
+    public int getQueueDepth() {
+        synchronized(lock) { return queue.size() ; }
+    }
+
+    /** Largest number of actions that have been waiting at one time. */
+    public long getMaxQueueDepth()          { return maxQueueDepth.get() ; }
+
+    /** Reset the statistics. */
+    public void resetStats() {
+        counterRequests.reset() ;
+        counterBatches.reset() ;
+        counterFailedBatches.reset() ;
+        maxBatch.reset() ;
+        maxQueueDepth.reset() ;
+    }
+}
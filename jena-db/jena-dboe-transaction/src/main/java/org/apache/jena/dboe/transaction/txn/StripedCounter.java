@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.dboe.transaction.txn;
+
+import java.util.concurrent.atomic.AtomicLongArray ;
+
+/**
+ * A counter spread over several cache lines so that threads incrementing and
+ * decrementing it do not contend on one memory location.
+ * <p>
+ * A caller chooses a stripe with {@link #stripe(long)} and must decrement the
+ * same stripe it incremented, so each stripe is never negative and
+ * "all stripes zero" means there is nothing counted.
+ * <p>
+ * Each operation has volatile semantics: a thread that increments a stripe
+ * then reads a volatile flag, and a thread that writes that flag then checks
+ * {@link #isZero()}, can not both miss the other.
+ */
+/*package*/ final class StripedCounter {
+    // Longs per 64 byte cache line.
+    private static final int PAD = 8 ;
+    
+    private final AtomicLongArray cells ;
+    private final int mask ;
+
+    /*package*/ StripedCounter() {
+        this(Math.min(64, 2 * Runtime.getRuntime().availableProcessors())) ;
+    }
+
+    /*package*/ StripedCounter(int stripes) {
+        int n = ( stripes <= 1 ) ? 1 : Integer.highestOneBit(stripes - 1) << 1 ;
+        this.mask = n - 1 ;
+        this.cells = new AtomicLongArray(n * PAD) ;
+    }
+
+    /** Choose the stripe for a hint such as a thread id. */
+    /*package*/ int stripe(long hint) {
+        long h = hint * 0x9E3779B97F4A7C15L ;
+        return (int)(h >>> 32) & mask ;
+    }
+
+    /*package*/ void increment(int stripe) {
+        cells.incrementAndGet(stripe * PAD) ;
+    }
+
+    /*package*/ void decrement(int stripe) {
+        cells.decrementAndGet(stripe * PAD) ;
+    }
+
+    /** True if every stripe is zero. */
+    /*package*/ boolean isZero() {
+        for ( int i = 0 ; i <= mask ; i++ ) {
+            if ( cells.get(i * PAD) != 0 )
+                return false ;
+        }
+        return true ;
+    }
+
+    /** The total count; not an atomic snapshot if there are concurrent updates. */
+    /*package*/ long sum() {
+        long x = 0 ;
+        for ( int i = 0 ; i <= mask ; i++ )
+            x += cells.get(i * PAD) ;
+        return x ;
+    }
+}
@@ -25,7 +25,7 @@ import java.util.*;
 import java.util.concurrent.ConcurrentHashMap ;
 import java.util.concurrent.Semaphore ;
 import java.util.concurrent.atomic.AtomicLong ;
-import java.util.concurrent.locks.ReadWriteLock ;
+import java.util.concurrent.atomic.LongAdder ;
 import java.util.concurrent.locks.ReentrantReadWriteLock ;
 
 import org.apache.jena.atlas.logging.Log ;
@@ -56,6 +56,17 @@ import org.slf4j.Logger ;
  * Exclusive mode is when the current thread is the only active code : no readers, no writers.
  * <p>
  * See {@link #startExclusiveMode()}/{@link #tryExclusiveMode()} {@link #finishExclusiveMode()}, {@link #execExclusive(Runnable)}
+ * <h3>Readers</h3>
+ * Starting and finishing a read transaction takes no global lock.
+ * Active readers are counted in a striped counter which exclusive mode waits on to reach zero.
+ * A reader sets up its view of the data without the coordinator lock unless a commit
+ * is in progress; a commit waits for readers part way through setting up before it changes
+ * the committed state, so each reader sees the state of one data version.
+ * <h3>Read-only</h3>
+ * A read-only coordinator, from {@link #createReadOnly()}, is for storage that does not change,
+ * such as an immutable snapshot of a database. It has no journal on disk and does no recovery.
+ * Write transactions are rejected, and as nothing can commit, read transactions
+ * start and finish without taking any locks. There is no exclusive mode.
  *
  * @see Transaction
  * @see TransactionalComponent
@@ -66,6 +77,7 @@ public class TransactionCoordinator {
     private static Logger log = Sys.syslog ;
     
     private final Journal journal ;
+    private final boolean readOnly ;
     private boolean coordinatorStarted = false ;
 
     private final ComponentGroup components = new ComponentGroup() ;
@@ -81,11 +93,24 @@ public class TransactionCoordinator {
     // This is not reentrant.
     private Semaphore writersWaiting = new Semaphore(1, true) ;
     
-    // All transaction need a "read" lock through out their lifetime. 
+    // Write transactions need a "read" lock through out their lifetime. 
     // Do not confuse with read/write transactions.  We need a 
     // "one exclusive, or many other" lock which happens to be called ReadWriteLock
     // See also {@code lock} which protects the datastructures during transaction management.  
-    private ReadWriteLock exclusivitylock = new ReentrantReadWriteLock() ;
+    private ReentrantReadWriteLock exclusivitylock = new ReentrantReadWriteLock() ;
+
+    // Read transactions do not take the exclusivity lock. They are counted,
+    // by stripe, for their lifetime and check for exclusive mode when they start.
+    // Exclusive mode sets exclusiveOwner then waits for the count to reach zero.
+    private final StripedCounter activeReaders = new StripedCounter() ;
+    private volatile Thread exclusiveOwner = null ;
+    // Notified when a reader finishes while exclusive mode is being entered.
+    private final Object readersExit = new Object() ;
+
+    // Readers part way through setting up their transaction, and the flag a
+    // commit sets while it changes the committed state.
+    private final StripedCounter readersStarting = new StripedCounter() ;
+    private volatile boolean committing = false ;
 
     // Coordinator wide lock object.
     private Object coordinatorLock = new Object() ;
@@ -113,8 +138,18 @@ public class TransactionCoordinator {
 //        this(Journal.create(journalLocation), new ArrayList<>() , new ArrayList<>()) ;
 //    }
 
-    private TransactionCoordinator(Journal journal, List<TransactionalComponent> txnComp, List<ShutdownHook> shutdownHooks) { 
+    /** Create a read-only TransactionCoordinator, initially with no associated {@link TransactionalComponent}s */ 
+    public static TransactionCoordinator createReadOnly() {
+        return new TransactionCoordinator(Journal.create(Location.mem()), null, new ArrayList<>(), true) ;
+    }
+
+    private TransactionCoordinator(Journal journal, List<TransactionalComponent> txnComp, List<ShutdownHook> shutdownHooks) {
+        this(journal, txnComp, shutdownHooks, false) ;
+    }
+
+    private TransactionCoordinator(Journal journal, List<TransactionalComponent> txnComp, List<ShutdownHook> shutdownHooks, boolean readOnly) { 
         this.journal = journal ;
+        this.readOnly = readOnly ;
         this.shutdownHooks = new ArrayList<>(shutdownHooks) ;
         if ( txnComp != null ) {
             //txnComp.forEach(x-> System.out.println(x.getComponentId().label()+" :: "+Bytes.asHex(x.getComponentId().bytes()) ) ) ;
@@ -175,10 +210,19 @@ public class TransactionCoordinator {
 
     public void start() {
         checkSetup() ;
-        recovery() ;
+        if ( readOnly )
+            // Nothing to recover from.
+            components.forEachComponent(c -> c.cleanStart()) ;
+        else
+            recovery() ;
         coordinatorStarted = true ;
     }
 
+    /** Whether this coordinator only allows read transactions. */
+    public boolean isReadOnly() {
+        return readOnly ;
+    }
+
     private /*public*/ void recovery() {
         
         Iterator<JournalEntry> iter = journal.entries() ;
@@ -259,6 +303,46 @@ public class TransactionCoordinator {
         });
     }
 
+    /** Share the transaction of the current thread with other threads, which
+     * {@link #join(TransactionCoordinatorState) join} it to perform read
+     * operations. The transaction must be a read transaction and each thread
+     * that joins must {@link #leave(TransactionCoordinatorState) leave} before
+     * the transaction ends.
+     * @see TransactionalComponent#share()
+     */
+    public TransactionCoordinatorState share(Transaction txn) {
+        if ( ! txn.isReadTxn() )
+            throw new TransactionException("Not a read transaction") ;
+        TransactionCoordinatorState coordinatorState = new TransactionCoordinatorState(txn) ;
+        coordinatorState.owner = Thread.currentThread() ;
+        components.forEach((id, c) -> {
+            SysTransState s = c.share() ;
+            if ( s != null )
+                coordinatorState.componentStates.put(id, s) ;
+        } ) ;
+        return coordinatorState ;
+    }
+
+    /** Join the current thread to a shared transaction.
+     * This is a no-op in the thread that shared the transaction. */
+    public void join(TransactionCoordinatorState coordinatorState) {
+        if ( coordinatorState.owner == Thread.currentThread() )
+            return ;
+        coordinatorState.componentStates.forEach((id, obj) -> {
+            components.findComponent(id).join(obj);
+        });
+    }
+
+    /** Remove the current thread from a shared transaction.
+     * This is a no-op in the thread that shared the transaction. */
+    public void leave(TransactionCoordinatorState coordinatorState) {
+        if ( coordinatorState.owner == Thread.currentThread() )
+            return ;
+        coordinatorState.componentStates.forEach((id, obj) -> {
+            components.findComponent(id).leave();
+        });
+    }
+
     public void shutdown() {
         if ( coordinatorLock == null )
             return ;
@@ -340,17 +424,49 @@ public class TransactionCoordinator {
     }
 
     private boolean startExclusiveMode(boolean canBlock) {
-        if ( canBlock ) {
+        if ( readOnly )
+            // Readers do not take the exclusivity lock.
+            throw new TransactionException("TransactionCoordinator is read-only: no exclusive mode") ;
+        // Writers hold the read side of the exclusivity lock.
+        if ( canBlock )
             exclusivitylock.writeLock().lock() ;
-            return true ;
+        else if ( ! exclusivitylock.writeLock().tryLock() )
+            return false ;
+        // New readers are now held up in 'begin'. Wait for the active ones to finish.
+        exclusiveOwner = Thread.currentThread() ;
+        boolean noReaders = false ;
+        try {
+            noReaders = awaitNoActiveReaders(canBlock) ;
+        } finally {
+            if ( ! noReaders )
+                releaseExclusiveMode() ;
         }
-        return exclusivitylock.writeLock().tryLock() ;
+        return noReaders ;
+    }
+
+    private boolean awaitNoActiveReaders(boolean canBlock) {
+        synchronized(readersExit) {
+            while ( ! activeReaders.isZero() ) {
+                if ( ! canBlock )
+                    return false ;
+                try { readersExit.wait() ; }
+                catch (InterruptedException e) { throw new TransactionException(e) ; }
+            }
+        }
+        return true ;
     }
 
     /** Return to normal (release waiting transactions, allow new transactions).
      * Must be paired with an earlier {@link #startExclusiveMode}. 
      */
     public void finishExclusiveMode() {
+        releaseExclusiveMode() ;
+    }
+
+    private void releaseExclusiveMode() {
+        // Exclusive mode is reentrant, like the lock.
+        if ( exclusivitylock.getWriteHoldCount() == 1 )
+            exclusiveOwner = null ;
         exclusivitylock.writeLock().unlock() ;
     }
 
@@ -448,13 +564,16 @@ public class TransactionCoordinator {
     /** 
      * Start a transaction.  
      * Returns null if this operation would block.
-     * Readers can start at any time.
+     * Readers can start at any time except in exclusive mode.
      * A single writer policy is currently imposed so a "begin(WRITE)" may block.  
      */
     public Transaction begin(TxnType txnType, boolean canBlock) {
         Objects.nonNull(txnType) ;
         checkActive() ;
         
+        if ( readOnly )
+            return beginReadOnly(txnType) ;
+        
         // XXX Flag to bounce writers for long term "block writers"
         if ( false /* bounceWritersAtTheMoment */) {
             // Is this stil needed?
@@ -465,6 +584,10 @@ public class TransactionCoordinator {
             }
         }
         
+        // Readers only block for exclusive mode.
+        if ( txnType != TxnType.WRITE )
+            return beginReader(txnType, canBlock) ;
+
         if ( canBlock )
             exclusivitylock.readLock().lock() ;
         else {
@@ -472,23 +595,65 @@ public class TransactionCoordinator {
                 return null ;
         }
         
-        // Readers never block.
-        if ( txnType == TxnType.WRITE ) {
-            // Writers take a WRITE permit from the semaphore to ensure there
-            // is at most one active writer, else the attempt to start the
-            // transaction blocks.
-            // Released by in notifyCommitFinish/notifyAbortFinish
-            boolean b = acquireWriterLock(canBlock) ;
-            if ( !b ) {
-                exclusivitylock.readLock().unlock() ;
-                return null ;
-            }
+        // Writers take a WRITE permit from the semaphore to ensure there
+        // is at most one active writer, else the attempt to start the
+        // transaction blocks.
+        // Released by in notifyCommitFinish/notifyAbortFinish
+        boolean b = acquireWriterLock(canBlock) ;
+        if ( !b ) {
+            exclusivitylock.readLock().unlock() ;
+            return null ;
         }
         Transaction transaction = begin$(txnType) ;
-        startActiveTransaction(transaction) ;
+        startActiveTransaction(transaction, WriterAdmission) ;
+        transaction.begin();
+        return transaction;
+    }
+
+    // Marks a transaction holding the exclusivity lock, not counted in activeReaders.
+    private static final int WriterAdmission = -1 ;
+
+    private Transaction beginReader(TxnType txnType, boolean canBlock) {
+        int stripe = activeReaders.stripe(Thread.currentThread().getId()) ;
+        if ( ! admitReader(stripe, canBlock) )
+            return null ;
+        Transaction transaction ;
+        try {
+            transaction = beginRead$(txnType) ;
+        } catch (Throwable th) {
+            releaseReader(stripe) ;
+            throw th ;
+        }
+        startActiveTransaction(transaction, stripe) ;
         transaction.begin();
         return transaction;
     }
+
+    // Count the reader in, unless exclusive mode is on (or being entered)
+    // in another thread, in which case wait for it to finish.
+    private boolean admitReader(int stripe, boolean canBlock) {
+        for(;;) {
+            activeReaders.increment(stripe) ;
+            Thread owner = exclusiveOwner ;
+            if ( owner == null || owner == Thread.currentThread() )
+                return true ;
+            releaseReader(stripe) ;
+            if ( ! canBlock )
+                return false ;
+            // Held while the other thread is in exclusive mode.
+            exclusivitylock.readLock().lock() ;
+            exclusivitylock.readLock().unlock() ;
+        }
+    }
+
+    private void releaseReader(int stripe) {
+        activeReaders.decrement(stripe) ;
+        if ( exclusiveOwner != null ) {
+            synchronized(readersExit) {
+                readersExit.notifyAll() ;
+            }
+        }
+    }
     
     // The version is the serialization point for a transaction.
     // All transactions on the same view of the data get the same serialization point.
@@ -509,31 +674,60 @@ public class TransactionCoordinator {
     private Transaction begin$(TxnType txnType) {
         synchronized(coordinatorLock) {
             // Thread safe part of 'begin'
-            // Allocate the transaction serialization point.
-            TxnId txnId = txnIdGenerator.generate() ;
-            List<SysTrans> sysTransList = new ArrayList<>() ;
-            Transaction transaction = new Transaction(this, txnType, initialMode(txnType), txnId, dataVersion.get(), sysTransList) ;
-            
-            ComponentGroup txnComponents = chooseComponents(this.components, txnType) ;
-            
-            try {
-                txnComponents.forEachComponent(elt -> {
-                    SysTrans sysTrans = new SysTrans(elt, transaction, txnId) ;
-                    sysTransList.add(sysTrans) ; }) ;
-                // Calling each component must be inside the lock
-                // so that a transaction does not commit overlapping with setup.
-                // If it did, different components might end up starting from
-                // different start states of the overall system.
-                txnComponents.forEachComponent(elt -> elt.begin(transaction)) ;
-            } catch(Throwable ex) {
-                // Careful about incomplete.
-                //abort() ;
-                //complete() ;
-                throw ex ;
-            }
-            return transaction ;
+            return createTransaction(txnType) ;
         }
     }
+
+    // A reader only needs the coordinator lock if a commit is in progress.
+    // Otherwise, any commit that starts waits until the reader has set up.
+    private Transaction beginRead$(TxnType txnType) {
+        int stripe = readersStarting.stripe(Thread.currentThread().getId()) ;
+        readersStarting.increment(stripe) ;
+        try {
+            if ( ! committing )
+                return createTransaction(txnType) ;
+        } finally {
+            readersStarting.decrement(stripe) ;
+        }
+        return begin$(txnType) ;
+    }
+
+    // Read-only : no writers so no commits, and no exclusive mode.
+    // There is no need to lock to get a consistent start state.
+    private Transaction beginReadOnly(TxnType txnType) {
+        if ( txnType == TxnType.WRITE )
+            throw new TransactionException("TransactionCoordinator is read-only: can't begin a write transaction") ;
+        Transaction transaction = createTransaction(txnType) ;
+        startActiveTransaction(transaction, 0) ;
+        transaction.begin();
+        return transaction;
+    }
+
+    private Transaction createTransaction(TxnType txnType) {
+        // Allocate the transaction serialization point.
+        TxnId txnId = txnIdGenerator.generate() ;
+        List<SysTrans> sysTransList = new ArrayList<>() ;
+        Transaction transaction = new Transaction(this, txnType, initialMode(txnType), txnId, dataVersion.get(), sysTransList) ;
+
+        ComponentGroup txnComponents = chooseComponents(this.components, txnType) ;
+
+        try {
+            txnComponents.forEachComponent(elt -> {
+                SysTrans sysTrans = new SysTrans(elt, transaction, txnId) ;
+                sysTransList.add(sysTrans) ; }) ;
+            // Calling each component must be inside the lock
+            // so that a transaction does not commit overlapping with setup.
+            // If it did, different components might end up starting from
+            // different start states of the overall system.
+            txnComponents.forEachComponent(elt -> elt.begin(transaction)) ;
+        } catch(Throwable ex) {
+            // Careful about incomplete.
+            //abort() ;
+            //complete() ;
+            throw ex ;
+        }
+        return transaction ;
+    }
     
     // Detemine ReadWrite for the transaction start from initial TxnType.
     private static ReadWrite initialMode(TxnType txnType) {
@@ -567,6 +761,8 @@ public class TransactionCoordinator {
         // by the transaction system around it. e.g. TransactionalBase.
         if ( transaction.getTxnType() == TxnType.READ )
             throw new TransactionException("promote: can't promote a READ transaction") ;
+        if ( readOnly )
+            return false ;
         return promoteTxn$(transaction, readCommittedPromotion);
     }
     
@@ -656,7 +852,9 @@ public class TransactionCoordinator {
     /** Signal that the transaction has finished. */  
     /*package*/ void completed(Transaction transaction) {
         finishActiveTransaction(transaction);
-        journal.reset() ;
+        // Only a writer uses the journal. 
+        if ( ! readOnly && transaction.getMode() == ReadWrite.WRITE )
+            journal.reset() ;
     }
 
     /*package*/ void executePrepare(Transaction transaction) {
@@ -682,19 +880,33 @@ public class TransactionCoordinator {
         
         // This is the commit for a write transaction  
         synchronized(coordinatorLock) {
-            // *** COMMIT POINT
-            journal.sync() ;
-            // *** COMMIT POINT
-            // Now run the Transactions commit actions. 
-            commit.run() ;
-            journal.truncate(0) ;
-            // and tell the Transaction it's finished. 
-            finish.run() ;
-            // Bump global serialization point
-            advanceDataVersion() ;
+            // Readers starting from now on take the coordinator lock.
+            // Wait for any part way through setting up without it.
+            committing = true ;
+            try {
+                awaitReadersStarting() ;
+                // *** COMMIT POINT
+                journal.sync() ;
+                // *** COMMIT POINT
+                // Now run the Transactions commit actions. 
+                commit.run() ;
+                journal.truncate(0) ;
+                // and tell the Transaction it's finished. 
+                finish.run() ;
+                // Bump global serialization point
+                advanceDataVersion() ;
+            } finally {
+                committing = false ;
+            }
             notifyCommitFinish(transaction) ;
         }
     }
+
+    // Setting up a transaction is short so spin.
+    private void awaitReadersStarting() {
+        while ( ! readersStarting.isZero() )
+            Thread.yield() ;
+    }
     
     // Inside the global transaction start/commit lock.
     private void advanceDataVersion() {
@@ -707,52 +919,55 @@ public class TransactionCoordinator {
         notifyAbortFinish(transaction) ;
     }
     
-    // Active transactions.
-    private Set<Transaction> activeTransactions = ConcurrentHashMap.newKeySet();
-    private AtomicLong activeTransactionCount = new AtomicLong(0) ;
-    private AtomicLong activeReadersCount = new AtomicLong(0) ;
-    private AtomicLong activeWritersCount = new AtomicLong(0) ;
-    
-    private void startActiveTransaction(Transaction transaction) {
-        synchronized(coordinatorLock) {
-            // Use lock to ensure all the counters move together.
-            // Thread safe - we have not let the Transaction object out yet.
-            countBegin.incrementAndGet() ;
-            switch(transaction.getMode()) {
-                case READ:  countBeginRead.incrementAndGet() ;  activeReadersCount.incrementAndGet() ; break ;
-                case WRITE: countBeginWrite.incrementAndGet() ; activeWritersCount.incrementAndGet() ; break ;
-            }
-            activeTransactionCount.incrementAndGet() ;
-            activeTransactions.add(transaction) ;
+    // Active transactions, and how each was admitted: WriterAdmission
+    // or the activeReaders stripe.
+    private Map<Transaction, Integer> activeTransactions = new ConcurrentHashMap<>();
+    // Counters are only loosely consistent with each other.
+    private LongAdder activeTransactionCount = new LongAdder() ;
+    private LongAdder activeReadersCount = new LongAdder() ;
+    private LongAdder activeWritersCount = new LongAdder() ;
+    
+    private void startActiveTransaction(Transaction transaction, int admission) {
+        // Thread safe - we have not let the Transaction object out yet.
+        countBegin.increment() ;
+        switch(transaction.getMode()) {
+            case READ:  countBeginRead.increment() ;  activeReadersCount.increment() ; break ;
+            case WRITE: countBeginWrite.increment() ; activeWritersCount.increment() ; break ;
         }
+        activeTransactionCount.increment() ;
+        activeTransactions.put(transaction, admission) ;
     }
     
     
     private void promoteActiveTransaction(Transaction transaction) {
         // Called for a real promote as READ-> WRITE
-        activeReadersCount.decrementAndGet();
-        activeWritersCount.incrementAndGet();
+        // The transaction keeps its admission as a reader.
+        activeReadersCount.decrement();
+        activeWritersCount.increment();
     }
     
     private void finishActiveTransaction(Transaction transaction) {
-        synchronized(coordinatorLock) {
-            // Idempotent.
-            Object x = activeTransactions.remove(transaction) ;
-            if ( x == null )
-                return ;
-            countFinished.incrementAndGet() ;
-            activeTransactionCount.decrementAndGet() ;
-            switch(transaction.getMode()) {
-                case READ:  activeReadersCount.decrementAndGet() ; break ;
-                case WRITE: activeWritersCount.decrementAndGet() ; break ;
-            }
+        // Idempotent.
+        Integer admission = activeTransactions.remove(transaction) ;
+        if ( admission == null )
+            return ;
+        countFinished.increment() ;
+        activeTransactionCount.decrement() ;
+        switch(transaction.getMode()) {
+            case READ:  activeReadersCount.decrement() ; break ;
+            case WRITE: activeWritersCount.decrement() ; break ;
         }
-        exclusivitylock.readLock().unlock() ; 
+        if ( readOnly )
+            return ;
+        if ( admission == WriterAdmission )
+            exclusivitylock.readLock().unlock() ;
+        else
+            releaseReader(admission) ;
     }
     
-    public long countActiveReaders()    { return activeReadersCount.get() ; } 
-    public long countActiveWriter()     { return activeWritersCount.get() ; } 
-    public long countActive()           { return activeTransactionCount.get(); }
+    public long countActiveReaders()    { return activeReadersCount.sum() ; } 
+    public long countActiveWriter()     { return activeWritersCount.sum() ; } 
+    public long countActive()           { return activeTransactionCount.sum(); }
     
     // notify*Start/Finish called round each transaction lifecycle step
     // Called in cooperation between Transaction and TransactionCoordinator
@@ -789,20 +1004,20 @@ public class TransactionCoordinator {
     /*package*/ void notifyCompleteFinish(Transaction transaction) { }
 
     // Coordinator state.
-    private final AtomicLong countBegin         = new AtomicLong(0) ;
+    private final LongAdder countBegin          = new LongAdder() ;
 
-    private final AtomicLong countBeginRead     = new AtomicLong(0) ;
+    private final LongAdder countBeginRead      = new LongAdder() ;
 
-    private final AtomicLong countBeginWrite    = new AtomicLong(0) ;
+    private final LongAdder countBeginWrite     = new LongAdder() ;
 
-    private final AtomicLong countFinished      = new AtomicLong(0) ;
+    private final LongAdder countFinished       = new LongAdder() ;
 
     // Access counters
-    public long countBegin()        { return countBegin.get() ; }
+    public long countBegin()        { return countBegin.sum() ; }
 
-    public long countBeginRead()    { return countBeginRead.get() ; }
+    public long countBeginRead()    { return countBeginRead.sum() ; }
 
-    public long countBeginWrite()   { return countBeginWrite.get() ; }
+    public long countBeginWrite()   { return countBeginWrite.sum() ; }
 
-    public long countFinished()     { return countFinished.get() ; }
+    public long countFinished()     { return countFinished.sum() ; }
 }
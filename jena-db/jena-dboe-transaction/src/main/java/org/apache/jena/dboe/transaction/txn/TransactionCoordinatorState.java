@@ -24,6 +24,8 @@ import java.util.Map ;
 public class TransactionCoordinatorState {
     /*package*/final Transaction transaction ;
     /*package*/Map<ComponentId, SysTransState> componentStates = new HashMap<>();
+    // Set when shared, not detached: the thread that remains in the transaction. 
+    /*package*/Thread owner = null ;
     /*package*/ TransactionCoordinatorState(Transaction transaction) {
         this.transaction = transaction ;
     }
@@ -168,6 +168,27 @@ public interface TransactionalComponent
      */
     public void attach(SysTransState systemState) ;
     
+    /** Return the internal state for the transaction of the current thread, as
+     * {@link #detach()} does, but leave the current thread in the transaction.
+     * Other threads can then {@link #join(SysTransState)} the transaction to
+     * perform read operations, for example to work on a task in parallel.
+     * <p>
+     * Returns {@code null} if the current thread not in a transaction, or the
+     * component has no per-thread state, which is the default.
+     */
+    public default SysTransState share() { return null ; }
+    
+    /** Set the current thread to be in a shared transaction. The {@code systemState}
+     * must be obtained from a call of {@link #share()} and the thread must
+     * {@link #leave()} before the owning thread ends the transaction.
+     */
+    public default void join(SysTransState systemState) { }
+    
+    /** Remove the current thread from the transaction it joined.
+     * The transaction itself is not affected.
+     */
+    public default void leave() { }
+    
     /** Shutdown component, aborting any in-progress transactions.
      * This operation is not guaranteed to be called.
      */
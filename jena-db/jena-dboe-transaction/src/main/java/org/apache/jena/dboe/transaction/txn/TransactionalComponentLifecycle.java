@@ -195,6 +195,29 @@ public abstract class TransactionalComponentLifecycle<X> implements Transactiona
         setTrackTxn(ACTIVE) ;
     }
     
+    @Override
+    public SysTransState share() {
+        TxnState txnState = getTxnState() ;
+        if ( txnState == null )
+            return null ;
+        checkState(ACTIVE) ;
+        return new SysTransState(this, getTransaction(), getDataState()) ;
+    }
+    
+    @Override
+    public void join(SysTransState state) {
+        @SuppressWarnings("unchecked")
+        X x = (X)state.getState() ;
+        setTransaction(state.getTransaction());
+        setDataState(x);
+        setTrackTxn(ACTIVE) ;
+    }
+    
+    @Override
+    public void leave() {
+        releaseThreadState() ;
+    }
+    
     // -- Access object members.
 
     public static class ComponentState<X> {
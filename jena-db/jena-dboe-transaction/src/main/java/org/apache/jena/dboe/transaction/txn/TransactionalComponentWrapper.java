@@ -97,6 +97,21 @@ public class TransactionalComponentWrapper implements TransactionalComponent {
         other.attach(systemState) ;
     }
 
+    @Override
+    public SysTransState share() {
+        return other.share() ;
+    }
+
+    @Override
+    public void join(SysTransState systemState) {
+        other.join(systemState) ;
+    }
+
+    @Override
+    public void leave() {
+        other.leave() ;
+    }
+
     @Override
     public void shutdown() {
         other.shutdown() ;
@@ -0,0 +1,172 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.dboe.transaction;
+
+import static org.junit.Assert.assertEquals ;
+import static org.junit.Assert.assertNull ;
+import static org.junit.Assert.assertTrue ;
+import static org.junit.Assert.fail ;
+
+import java.util.ArrayList ;
+import java.util.List ;
+import java.util.concurrent.* ;
+
+import org.apache.jena.dboe.base.file.Location ;
+import org.apache.jena.dboe.transaction.txn.TransactionCoordinator ;
+import org.junit.After ;
+import org.junit.Before ;
+import org.junit.Test ;
+
+public class TestGroupCommit {
+    static final long InitValue = 3 ;
+    private TransactionalInteger transInt ;
+    private TransactionCoordinator coord ;
+    private ExecutorService executor ;
+
+    @Before public void init() {
+        coord = new TransactionCoordinator(Location.mem()) ;
+        transInt = new TransactionalInteger(coord, InitValue) ;
+        coord.start() ;
+        executor = Executors.newCachedThreadPool() ;
+    }
+
+    @After public void after() {
+        executor.shutdownNow() ;
+        coord.shutdown() ;
+    }
+
+    // Submit an action that holds the leader until the latch is released.
+    private Future<?> blockLeader(GroupCommit groupCommit, CountDownLatch latch) {
+        Future<?> f = executor.submit(()->groupCommit.execute(()->{
+            try { latch.await() ; } catch (InterruptedException ex) {}
+            transInt.inc() ;
+        })) ;
+        waitForQueueDepth(groupCommit, 0) ;
+        return f ;
+    }
+
+    private static void waitForQueueDepth(GroupCommit groupCommit, int depth) {
+        long finish = System.currentTimeMillis()+10_000 ;
+        // Depth 0 : wait for the leader to take its own request. 
+        while ( (depth == 0 ? groupCommit.getCountRequests() == 0 || groupCommit.getQueueDepth() != 0 
+                            : groupCommit.getQueueDepth() != depth) ) {
+            if ( System.currentTimeMillis() > finish )
+                fail("Timeout waiting for queue depth "+depth) ;
+            try { Thread.sleep(5) ; } catch (InterruptedException ex) {}
+        }
+    }
+
+    @Test public void groupCommit_01() {
+        GroupCommit groupCommit = new GroupCommit(transInt) ;
+        groupCommit.execute(transInt::inc) ;
+        groupCommit.execute(transInt::inc) ;
+        assertEquals(InitValue+2, transInt.value()) ;
+        assertEquals(2, groupCommit.getCountRequests()) ;
+        assertEquals(2, groupCommit.getCountBatches()) ;
+        assertEquals(1, groupCommit.getMaxBatchSize()) ;
+        assertEquals(0, groupCommit.getQueueDepth()) ;
+    }
+
+    @Test public void groupCommit_02() throws Exception {
+        // Waiting actions share one transaction.
+        GroupCommit groupCommit = new GroupCommit(transInt) ;
+        CountDownLatch latch = new CountDownLatch(1) ;
+        Future<?> first = blockLeader(groupCommit, latch) ;
+        int N = 10 ;
+        List<Future<?>> futures = new ArrayList<>() ;
+        for ( int i = 0 ; i < N ; i++ )
+            futures.add(executor.submit(()->groupCommit.execute(transInt::inc))) ;
+        waitForQueueDepth(groupCommit, N) ;
+        assertEquals(N, groupCommit.getMaxQueueDepth()) ;
+        long writers = coord.countBeginWrite() ;
+        latch.countDown() ;
+        first.get(10, TimeUnit.SECONDS) ;
+        for ( Future<?> f : futures )
+            f.get(10, TimeUnit.SECONDS) ;
+        assertEquals(InitValue+N+1, transInt.value()) ;
+        assertEquals(2, groupCommit.getCountBatches()) ;
+        assertEquals(N, groupCommit.getMaxBatchSize()) ;
+        // One more write transaction for all N actions.
+        assertEquals(writers+1, coord.countBeginWrite()) ;
+    }
+
+    @Test public void groupCommit_03() throws Exception {
+        // Batch size limit
+        GroupCommit groupCommit = new GroupCommit(transInt, 3) ;
+        CountDownLatch latch = new CountDownLatch(1) ;
+        Future<?> first = blockLeader(groupCommit, latch) ;
+        int N = 7 ;
+        List<Future<?>> futures = new ArrayList<>() ;
+        for ( int i = 0 ; i < N ; i++ )
+            futures.add(executor.submit(()->groupCommit.execute(transInt::inc))) ;
+        waitForQueueDepth(groupCommit, N) ;
+        latch.countDown() ;
+        first.get(10, TimeUnit.SECONDS) ;
+        for ( Future<?> f : futures )
+            f.get(10, TimeUnit.SECONDS) ;
+        assertEquals(InitValue+N+1, transInt.value()) ;
+        assertEquals(3, groupCommit.getMaxBatchSize()) ;
+        assertEquals(1+3, groupCommit.getCountBatches()) ;
+    }
+
+    @Test public void groupCommit_04() throws Exception {
+        // A failing action does not affect the others in its batch.
+        GroupCommit groupCommit = new GroupCommit(transInt) ;
+        CountDownLatch latch = new CountDownLatch(1) ;
+        Future<?> first = blockLeader(groupCommit, latch) ;
+        Future<?> f1 = executor.submit(()->groupCommit.execute(transInt::inc)) ;
+        waitForQueueDepth(groupCommit, 1) ;
+        Future<?> f2 = executor.submit(()->groupCommit.execute(()->{ transInt.inc() ; throw new IllegalStateException() ; })) ;
+        waitForQueueDepth(groupCommit, 2) ;
+        Future<?> f3 = executor.submit(()->groupCommit.execute(transInt::inc)) ;
+        waitForQueueDepth(groupCommit, 3) ;
+        latch.countDown() ;
+        first.get(10, TimeUnit.SECONDS) ;
+        assertNull(f1.get(10, TimeUnit.SECONDS)) ;
+        assertNull(f3.get(10, TimeUnit.SECONDS)) ;
+        try {
+            f2.get(10, TimeUnit.SECONDS) ;
+            fail("Expected an exception") ;
+        } catch (ExecutionException ex) {
+            assertTrue(ex.getCause() instanceof IllegalStateException) ;
+        }
+        assertEquals(InitValue+3, transInt.value()) ;
+        assertEquals(1, groupCommit.getCountFailedBatches()) ;
+    }
+
+    @Test public void groupCommit_05() throws Exception {
+        // Many threads.
+        GroupCommit groupCommit = new GroupCommit(transInt) ;
+        int T = 8 ;
+        int N = 100 ;
+        List<Future<?>> futures = new ArrayList<>() ;
+        for ( int i = 0 ; i < T ; i++ )
+            futures.add(executor.submit(()->{
+                for ( int j = 0 ; j < N ; j++ )
+                    groupCommit.execute(transInt::inc) ;
+            })) ;
+        for ( Future<?> f : futures )
+            f.get(60, TimeUnit.SECONDS) ;
+        assertEquals(InitValue+T*N, transInt.value()) ;
+        assertEquals(T*N, groupCommit.getCountRequests()) ;
+        assertTrue(groupCommit.getCountBatches() <= T*N) ;
+        assertEquals(0, groupCommit.getQueueDepth()) ;
+    }
+}
@@ -20,8 +20,13 @@ package org.apache.jena.dboe.transaction;
 
 import static org.junit.Assert.*;
 
+import java.util.ArrayList ;
+import java.util.List ;
+import java.util.concurrent.CountDownLatch ;
 import java.util.concurrent.Semaphore ;
+import java.util.concurrent.TimeUnit ;
 import java.util.concurrent.atomic.AtomicInteger ;
+import java.util.concurrent.atomic.AtomicLong ;
 
 import org.apache.jena.dboe.base.file.Location;
 import org.apache.jena.system.Txn;
@@ -135,6 +140,132 @@ public class TestTransactionCoordinatorControl {
         assertTrue(b) ;
     }
     
+    @Test public void txn_coord_exclusive_3() {
+        // An active reader stops exclusive mode starting.
+        ThreadAction ttxn = ThreadTxn.threadTxnRead(unit, ()->{}) ;
+        boolean b = txnMgr.tryExclusiveMode(false);
+        assertFalse(b) ;
+        // Failing to get exclusive mode does not hold up readers.
+        Transaction txn1 = L.syncCallThread(()->txnMgr.begin(TxnType.READ, false)) ;
+        assertNotNull(txn1) ;
+        txn1.end();
+        ttxn.run();
+        b = txnMgr.tryExclusiveMode(false);
+        assertTrue(b) ;
+        Transaction txn2 = L.syncCallThread(()->txnMgr.begin(TxnType.READ, false)) ;
+        assertNull(txn2) ;
+        txnMgr.finishExclusiveMode();
+        Transaction txn3 = L.syncCallThread(()->txnMgr.begin(TxnType.READ, false)) ;
+        assertNotNull(txn3) ;
+        txn3.end();
+    }
+
+    @Test public void txn_coord_exclusive_4() throws InterruptedException {
+        // startExclusiveMode waits for an active reader to finish.
+        ThreadAction ttxn = ThreadTxn.threadTxnRead(unit, ()->{}) ;
+        CountDownLatch entered = new CountDownLatch(1) ;
+        Thread thread = new Thread(()->{
+            txnMgr.startExclusiveMode();
+            entered.countDown();
+            txnMgr.finishExclusiveMode();
+        }) ;
+        thread.start();
+        assertFalse(entered.await(100, TimeUnit.MILLISECONDS)) ;
+        ttxn.run();
+        assertTrue(entered.await(10, TimeUnit.SECONDS)) ;
+        thread.join();
+        assertEquals(0, txnMgr.countActive()) ;
+    }
+
+    @Test public void txn_coord_readers_1() throws InterruptedException {
+        // Readers starting while writers commit see the state of one commit
+        // across all the components.
+        TransInteger integer1 = new TransInteger(0) ;
+        TransInteger integer2 = new TransInteger(0) ;
+        TransactionCoordinator coord = new TransactionCoordinator(Location.mem()) ;
+        coord.add(integer1) ;
+        coord.add(integer2) ;
+        Transactional trans = new TransactionalBase(coord) ;
+        coord.start() ;
+
+        final int N = 500 ;
+        AtomicLong mismatches = new AtomicLong(0) ;
+        AtomicInteger finished = new AtomicInteger(0) ;
+        List<Thread> readers = new ArrayList<>() ;
+        for ( int i = 0 ; i < 4 ; i++ ) {
+            Thread thread = new Thread(()->{
+                while ( finished.get() == 0 ) {
+                    Txn.executeRead(trans, ()->{
+                        if ( integer1.read() != integer2.read() )
+                            mismatches.incrementAndGet() ;
+                    }) ;
+                }
+            }) ;
+            readers.add(thread) ;
+            thread.start() ;
+        }
+        for ( int i = 0 ; i < N ; i++ ) {
+            Txn.executeWrite(trans, ()->{ integer1.inc() ; integer2.inc() ; }) ;
+        }
+        finished.set(1) ;
+        for ( Thread thread : readers )
+            thread.join() ;
+        assertEquals(0, mismatches.get()) ;
+        assertEquals(N, integer1.value()) ;
+        assertEquals(0, coord.countActive()) ;
+        assertEquals(0, coord.countActiveReaders()) ;
+        coord.shutdown() ;
+    }
+
+    // Read-only coordinator.
+    private static Transactional readOnly(TransInteger integer) {
+        TransactionCoordinator coord = TransactionCoordinator.createReadOnly() ;
+        coord.add(integer) ;
+        Transactional trans = new TransactionalBase(coord) ;
+        coord.start() ;
+        return trans ;
+    }
     
+    @Test public void txn_coord_readonly_1() {
+        TransInteger integer = new TransInteger(InitValue) ;
+        Transactional trans = readOnly(integer) ;
+        long x = Txn.calculateRead(trans, ()->integer.get()) ;
+        assertEquals(InitValue, x) ;
+    }
+
+    @Test public void txn_coord_readonly_2() {
+        TransInteger integer = new TransInteger(InitValue) ;
+        Transactional trans = readOnly(integer) ;
+        // Readers do not take any locks: one thread can start a reader
+        // while another thread has a reader in progress.
+        Txn.executeRead(trans, ()->{
+            long x = L.syncCallThread(()->Txn.calculateRead(trans, ()->integer.get())) ;
+            assertEquals(InitValue, x) ;
+        }) ;
+    }
+
+    @Test(expected=TransactionException.class)
+    public void txn_coord_readonly_3() {
+        TransInteger integer = new TransInteger(InitValue) ;
+        Transactional trans = readOnly(integer) ;
+        trans.begin(TxnType.WRITE) ;
+    }
+
+    @Test public void txn_coord_readonly_4() {
+        TransInteger integer = new TransInteger(InitValue) ;
+        Transactional trans = readOnly(integer) ;
+        trans.begin(TxnType.READ_PROMOTE) ;
+        try {
+            boolean b = trans.promote() ;
+            assertFalse(b) ;
+        } finally { trans.end() ; }
+    }
+
+    @Test(expected=TransactionException.class)
+    public void txn_coord_readonly_5() {
+        TransactionCoordinator coord = TransactionCoordinator.createReadOnly() ;
+        coord.start() ;
+        coord.startExclusiveMode() ;
+    }
 }
 
@@ -177,6 +177,38 @@ public class TestTxnSwitching {
         transactional.end() ;
     }
     
+    // Share a read transaction with another thread.
+    @Test public void txnShare_01() throws Exception {
+        long z = integer.value() ;
+        transactional.begin(ReadWrite.READ);
+        TransactionCoordinatorState txnState = txnMgr.share(transactional.getThreadTransaction()) ;
+        // A write commits meanwhile.
+        ThreadTxn.threadTxnWrite(transactional, ()->integer.inc()).run() ;
+        long[] x = new long[2] ;
+        Thread thread = new Thread(()-> {
+            txnMgr.join(txnState) ;
+            x[0] = integer.get() ;
+            txnMgr.leave(txnState) ;
+            try { integer.read() ; x[1] = -1 ; } catch (TransactionException ex) { x[1] = 1 ; }
+        }) ;
+        thread.start() ;
+        thread.join() ;
+        assertEquals(z, x[0]) ;
+        assertEquals(1, x[1]) ;
+        // Join and leave in the sharing thread do not affect it.
+        txnMgr.join(txnState) ;
+        txnMgr.leave(txnState) ;
+        assertEquals(z, integer.get()) ;
+        transactional.end() ;
+    }
+
+    @Test(expected=TransactionException.class)
+    public void txnShare_02() {
+        transactional.begin(ReadWrite.WRITE);
+        try { txnMgr.share(transactional.getThreadTransaction()) ; }
+        finally { transactional.abort() ; transactional.end() ; }
+    }
+
     // Some error cases.
     @Test(expected=TransactionException.class)
     public void txnSwitch_10() {
@@ -18,6 +18,8 @@
 
 package org.apache.jena.tdb2;
 
+import java.nio.file.Paths;
+
 import org.apache.jena.dboe.base.file.Location;
 import org.apache.jena.query.Dataset ;
 import org.apache.jena.sparql.core.DatasetGraph ;
@@ -50,6 +52,15 @@ public class DatabaseMgr {
     public static DatasetGraph connectDatasetGraph(String location) {
         return connectDatasetGraph(Location.create(location)) ;
     }
+
+    /**
+     * Connect read-only to an existing TDB2-backed dataset, such as an immutable snapshot.
+     * The database must not be updated while it is connected read-only.
+     * @see DatabaseConnection#connectReadOnly
+     */
+    public static DatasetGraph connectDatasetGraphReadOnly(String location) {
+        return DatabaseConnection.connectReadOnly(Location.create(location)).getDatasetGraph() ;
+    }
     
     /**
      * Compact a datasets which must be a switchable TDB database.
@@ -79,6 +90,33 @@ public class DatabaseMgr {
         return DatabaseOps.backup(dsg);
     }
 
+    /**
+     * Create a binary backup, a copy of the database files, for a switchable TDB database.
+     * <p>
+     * The backup is created in the databases folder, under "Backups".
+     * <p>
+     * Writers are blocked while the files are copied; readers are not. An incremental
+     * backup only copies what has been added to the database files since the latest
+     * binary backup of the same database directory. Restore with {@link #restore}.
+     *
+     * @param container
+     * @param incremental
+     * @return Directory name of the backup.
+     */
+    public static String backupFiles(DatasetGraph container, boolean incremental) {
+        DatasetGraphSwitchable dsg = requireSwitchable(container);
+        return DatabaseOps.backupFiles(dsg, incremental);
+    }
+
+    /**
+     * Restore a binary backup (see {@link #backupFiles}) to a location that does not
+     * have a database. The location can then be opened, for example with
+     * {@link #connectDatasetGraph(String)}.
+     */
+    public static void restore(String backupDirectory, String location) {
+        DatabaseOps.restore(Paths.get(backupDirectory), Location.create(location));
+    }
+
 
     /** Create an in-memory TDB2-backed dataset (for testing) */
     public static DatasetGraph createDatasetGraph() {
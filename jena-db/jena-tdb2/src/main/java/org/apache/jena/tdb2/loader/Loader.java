@@ -18,6 +18,8 @@
 
 package org.apache.jena.tdb2.loader;
 
+import java.util.Arrays ;
+
 import org.apache.jena.atlas.lib.ProgressMonitor ;
 import org.apache.jena.atlas.logging.FmtLog ;
 import org.apache.jena.system.Txn;
@@ -34,7 +36,6 @@ public class Loader {
     
     private static final int BATCH_SIZE = 100 ;
     
-    // XXX StreamRDFBatchSplit and parallel index update.
     private static Logger LOG = LoggerFactory.getLogger("Loader") ;
     
     public static void bulkLoad(Dataset ds, String ... files) {
@@ -56,6 +57,13 @@ public class Loader {
         plog.finishMessage();
     }
     
+    /** Load with a parser thread, batched node allocation and one thread per index.
+     * @see LoaderParallel
+     */
+    public static void bulkLoadParallel(Dataset ds, String ... files) {
+        LoaderParallel.load(ds.asDatasetGraph(), Arrays.asList(files), true) ;
+    }
+
     public static void bulkLoadBatching(Dataset ds, String ... files) {
         DatasetGraphTDB dsg = (DatasetGraphTDB)ds.asDatasetGraph() ;
 
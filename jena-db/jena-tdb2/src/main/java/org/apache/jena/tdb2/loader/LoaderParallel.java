@@ -0,0 +1,433 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.loader;
+
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import org.apache.jena.atlas.lib.ProgressMonitor;
+import org.apache.jena.atlas.lib.tuple.Tuple;
+import org.apache.jena.atlas.lib.tuple.TupleFactory;
+import org.apache.jena.atlas.logging.FmtLog;
+import org.apache.jena.dboe.index.RangeIndex;
+import org.apache.jena.dboe.transaction.txn.SysTransState;
+import org.apache.jena.dboe.transaction.txn.TransactionalComponent;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.shared.JenaException;
+import org.apache.jena.shared.PrefixMapping;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.system.Txn;
+import org.apache.jena.tdb2.TDBException;
+import org.apache.jena.tdb2.solver.stats.TransStats;
+import org.apache.jena.tdb2.store.DatasetGraphTDB;
+import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.nodetable.NodeTable;
+import org.apache.jena.tdb2.store.tupletable.TupleIndex;
+import org.apache.jena.tdb2.store.tupletable.TupleIndexRecord;
+import org.apache.jena.tdb2.store.tupletable.TupleTable;
+import org.apache.jena.tdb2.sys.TDBInternal;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A multi-threaded, phased loader.
+ * <p>
+ * The load is a pipeline of:
+ * <ul>
+ * <li>A parser thread, producing batches of triples and quads.
+ * <li>The node stage, run on the calling thread, which allocates {@link NodeId NodeIds}
+ * for a whole batch and converts it to tuples of {@code NodeId}s.
+ * <li>One index thread per {@link TupleIndex}, each inserting the tuples into its own index.
+ * </ul>
+ * The whole load is one write transaction. The index threads take over the
+ * transaction state of their index from the calling thread for the duration of
+ * the load ({@link TransactionalComponent#detach()}/{@link TransactionalComponent#attach(SysTransState)})
+ * and hand it back before the commit.
+ * <p>
+ * Each phase reports its own throughput via a {@link ProgressMonitor}.
+ */
+public class LoaderParallel {
+    private static Logger LOG = LoggerFactory.getLogger("Loader");
+
+    /** Number of triples and quads in a unit of work passed between stages. */
+    public static int DataBatchSize     = 10_000;
+    /** Number of batches that can be waiting for a stage. */
+    public static int QueueSize         = 10;
+
+    /** Tick point for messages during parsing and node allocation */
+    public static int DataTickPoint     = 100 * 1000;
+    /** Tick point for messages from each index */
+    public static int IndexTickPoint    = 1000 * 1000;
+    /** Number of ticks per super tick */
+    public static int SuperTick         = 10;
+
+    private final DatasetGraph dsg;
+    private final Node graphName;
+    private final boolean showProgress;
+
+    /** Load the files into the dataset. */
+    public static void load(DatasetGraph dsg, List<String> urls, boolean showProgress) {
+        new LoaderParallel(dsg, null, showProgress).load(urls);
+    }
+
+    /**
+     * Load the files into a named graph of the dataset.
+     * Only the default graph of any quad formats is loaded.
+     */
+    public static void load(DatasetGraph dsg, Node graphName, List<String> urls, boolean showProgress) {
+        new LoaderParallel(dsg, graphName, showProgress).load(urls);
+    }
+
+    private LoaderParallel(DatasetGraph dsg, Node graphName, boolean showProgress) {
+        this.dsg = dsg;
+        this.graphName = graphName;
+        this.showProgress = showProgress;
+    }
+
+    /** Unit of work from the parser. */
+    private static class DataBatch {
+        final List<Triple> triples = new ArrayList<>(DataBatchSize);
+        final List<Quad> quads = new ArrayList<>();
+        final List<String[]> prefixes = new ArrayList<>();
+        int size() { return triples.size()+quads.size(); }
+    }
+
+    // End of stream markers. Compared by identity.
+    private static final DataBatch END_DATA = new DataBatch();
+    private static final List<Tuple<NodeId>> END_TUPLES = Collections.emptyList();
+
+    private void load(List<String> urls) {
+        Txn.executeWrite(dsg, ()->{
+            DatasetGraphTDB dsgtdb = TDBInternal.getDatasetGraphTDB(dsg);
+            if ( dsgtdb == null )
+                throw new TDBException("Not a TDB2 dataset");
+            execLoad(dsgtdb, urls);
+        });
+    }
+
+    private void execLoad(DatasetGraphTDB dsgtdb, List<String> urls) {
+        NodeTable nodeTable = dsgtdb.getTripleTable().getNodeTupleTable().getNodeTable();
+        TupleIndex[] tripleIndexes = dsgtdb.getTripleTable().getNodeTupleTable().getTupleTable().getIndexes();
+        TupleIndex[] quadIndexes = dsgtdb.getQuadTable().getNodeTupleTable().getTupleTable().getIndexes();
+
+        ProgressMonitor monitor = monitor("Parse", DataTickPoint);
+        BlockingQueue<DataBatch> dataQueue = new ArrayBlockingQueue<>(QueueSize);
+        List<IndexWorker> tripleWorkers = createWorkers(tripleIndexes);
+        List<IndexWorker> quadWorkers = createWorkers(quadIndexes);
+        List<IndexWorker> allWorkers = new ArrayList<>(tripleWorkers);
+        allWorkers.addAll(quadWorkers);
+
+        Parser parser = new Parser(urls, dataQueue, monitor);
+        Thread parserThread = new Thread(parser, "Loader-Parser");
+
+        // Hand over each index to its worker.
+        allWorkers.forEach(IndexWorker::detachFrom);
+        List<Thread> threads = new ArrayList<>();
+        allWorkers.forEach(w->threads.add(new Thread(w, "Loader-"+w.index.getName())));
+
+        long startTime = System.currentTimeMillis();
+        threads.forEach(Thread::start);
+        parserThread.start();
+        RuntimeException nodeStageEx = null;
+        try {
+            nodeStage(dsgtdb, nodeTable, dataQueue, tripleWorkers, quadWorkers, parser);
+        } catch (RuntimeException ex) {
+            nodeStageEx = ex;
+            // Make sure the parser can finish.
+            parser.cancelled = true;
+            dataQueue.clear();
+        }
+        // Always terminate the index workers.
+        allWorkers.forEach(w->w.send(END_TUPLES));
+        join(parserThread);
+        threads.forEach(LoaderParallel::join);
+        // Return the index states to this thread for the commit or abort.
+        allWorkers.forEach(IndexWorker::attachTo);
+        long elapsed = System.currentTimeMillis()-startTime;
+
+        if ( nodeStageEx != null )
+            throw nodeStageEx;
+        if ( parser.exception != null )
+            throw parser.exception;
+        for ( IndexWorker w : allWorkers ) {
+            if ( w.exception != null )
+                throw new TDBException("Exception in index "+w.index.getName(), w.exception);
+        }
+        if ( showProgress )
+            FmtLog.info(LOG, "Load: %,d triples/quads in %,.2fs", parser.count, elapsed/1000.0);
+        // The index workers bypass the tuple tables so any statistics are recalculated.
+        TupleTable tripleTable = dsgtdb.getTripleTable().getNodeTupleTable().getTupleTable();
+        TupleTable quadTable = dsgtdb.getQuadTable().getNodeTupleTable().getTupleTable();
+        if ( tripleTable.getMonitor() instanceof TransStats )
+            ((TransStats)tripleTable.getMonitor()).rebuild(tripleTable, quadTable);
+    }
+
+    /** Node stage : allocate {@code NodeId}s and pass on tuples to the index workers. */
+    private void nodeStage(DatasetGraphTDB dsgtdb, NodeTable nodeTable, BlockingQueue<DataBatch> dataQueue,
+                           List<IndexWorker> tripleWorkers, List<IndexWorker> quadWorkers, Parser parser) {
+        ProgressMonitor monitor = monitor("Nodes", DataTickPoint);
+        PrefixMapping prefixMapping = (graphName == null)
+            ? dsgtdb.getDefaultGraph().getPrefixMapping()
+            : dsgtdb.getGraph(graphName).getPrefixMapping();
+        Map<Node, NodeId> mapping = new HashMap<>();
+        boolean warningIssued = false;
+
+        for ( ;; ) {
+            DataBatch batch = take(dataQueue);
+            if ( batch == END_DATA )
+                break;
+            for ( String[] pair : batch.prefixes ) {
+                try { prefixMapping.setNsPrefix(pair[0], pair[1]); }
+                catch (JenaException ex) {}
+            }
+            // Allocate all the nodes of the batch in one pass.
+            List<Tuple<NodeId>> triples = new ArrayList<>(batch.triples.size());
+            List<Tuple<NodeId>> quads = new ArrayList<>(batch.quads.size());
+            for ( Triple t : batch.triples ) {
+                if ( graphName == null )
+                    triples.add(tuple(nodeTable, mapping, t.getSubject(), t.getPredicate(), t.getObject()));
+                else
+                    quads.add(tuple(nodeTable, mapping, graphName, t.getSubject(), t.getPredicate(), t.getObject()));
+                tick(monitor);
+            }
+            for ( Quad q : batch.quads ) {
+                if ( q.isTriple() || q.isDefaultGraph() ) {
+                    if ( graphName == null )
+                        triples.add(tuple(nodeTable, mapping, q.getSubject(), q.getPredicate(), q.getObject()));
+                    else
+                        quads.add(tuple(nodeTable, mapping, graphName, q.getSubject(), q.getPredicate(), q.getObject()));
+                } else if ( graphName == null ) {
+                    quads.add(tuple(nodeTable, mapping, q.getGraph(), q.getSubject(), q.getPredicate(), q.getObject()));
+                } else if ( ! warningIssued ) {
+                    FmtLog.warn(LOG, "Only triples or default graph data expected : named graph data ignored");
+                    warningIssued = true;
+                }
+                tick(monitor);
+            }
+            mapping.clear();
+            if ( ! triples.isEmpty() )
+                tripleWorkers.forEach(w->w.send(triples));
+            if ( ! quads.isEmpty() )
+                quadWorkers.forEach(w->w.send(quads));
+        }
+        finishMonitor(monitor);
+    }
+
+    private static Tuple<NodeId> tuple(NodeTable nodeTable, Map<Node, NodeId> mapping, Node... nodes) {
+        NodeId[] n = new NodeId[nodes.length];
+        for ( int i = 0 ; i < nodes.length ; i++ )
+            n[i] = mapping.computeIfAbsent(nodes[i], nodeTable::getAllocateNodeId);
+        return TupleFactory.create(n);
+    }
+
+    private List<IndexWorker> createWorkers(TupleIndex[] indexes) {
+        List<IndexWorker> workers = new ArrayList<>(indexes.length);
+        for ( TupleIndex index : indexes ) {
+            if ( index != null )
+                workers.add(new IndexWorker(index, monitor("Index "+index.getName(), IndexTickPoint)));
+        }
+        return workers;
+    }
+
+    /** Parser stage : runs on its own thread. */
+    private class Parser implements Runnable, StreamRDF {
+        private final List<String> urls;
+        private final BlockingQueue<DataBatch> output;
+        private final ProgressMonitor monitor;
+        private DataBatch batch = new DataBatch();
+        volatile boolean cancelled = false;
+        volatile RuntimeException exception = null;
+        volatile long count = 0;
+
+        Parser(List<String> urls, BlockingQueue<DataBatch> output, ProgressMonitor monitor) {
+            this.urls = urls;
+            this.output = output;
+            this.monitor = monitor;
+        }
+
+        @Override
+        public void run() {
+            startMonitor(monitor);
+            try {
+                for ( String url : urls ) {
+                    if ( cancelled )
+                        break;
+                    if ( showProgress && urls.size() > 1 )
+                        FmtLog.info(LOG, "File: %s", url);
+                    RDFDataMgr.parse(this, url);
+                }
+                dispatch();
+            } catch (RuntimeException ex) {
+                exception = ex;
+            } finally {
+                put(output, END_DATA);
+                finishMonitor(monitor);
+            }
+        }
+
+        @Override public void start() {}
+
+        @Override
+        public void triple(Triple triple) {
+            batch.triples.add(triple);
+            item();
+        }
+
+        @Override
+        public void quad(Quad quad) {
+            batch.quads.add(quad);
+            item();
+        }
+
+        @Override public void base(String base) {}
+
+        @Override
+        public void prefix(String prefix, String iri) {
+            batch.prefixes.add(new String[] {prefix, iri});
+        }
+
+        @Override public void finish() {}
+
+        private void item() {
+            count++;
+            tick(monitor);
+            if ( batch.size() >= DataBatchSize )
+                dispatch();
+        }
+
+        private void dispatch() {
+            if ( cancelled )
+                throw new TDBException("Load cancelled");
+            if ( batch.size() == 0 && batch.prefixes.isEmpty() )
+                return;
+            put(output, batch);
+            batch = new DataBatch();
+        }
+    }
+
+    /** Index stage : one per index, each running on its own thread. */
+    private static class IndexWorker implements Runnable {
+        final TupleIndex index;
+        private final TransactionalComponent component;
+        private final ProgressMonitor monitor;
+        private final BlockingQueue<List<Tuple<NodeId>>> input = new ArrayBlockingQueue<>(QueueSize);
+        private SysTransState txnState = null;
+        volatile Throwable exception = null;
+
+        IndexWorker(TupleIndex index, ProgressMonitor monitor) {
+            this.index = index;
+            this.component = component(index);
+            this.monitor = monitor;
+        }
+
+        private static TransactionalComponent component(TupleIndex index) {
+            TupleIndex base = index.baseTupleIndex();
+            if ( base instanceof TupleIndexRecord ) {
+                RangeIndex rIndex = ((TupleIndexRecord)base).getRangeIndex();
+                if ( rIndex instanceof TransactionalComponent )
+                    return (TransactionalComponent)rIndex;
+            }
+            throw new TDBException("Index is not a transactional component: "+index.getName());
+        }
+
+        /** Called on the transaction thread */
+        void detachFrom() {
+            txnState = component.detach();
+        }
+
+        /** Called on the transaction thread */
+        void attachTo() {
+            component.attach(txnState);
+        }
+
+        void send(List<Tuple<NodeId>> tuples) {
+            put(input, tuples);
+        }
+
+        @Override
+        public void run() {
+            component.attach(txnState);
+            startMonitor(monitor);
+            try {
+                for ( ;; ) {
+                    List<Tuple<NodeId>> tuples = take(input);
+                    if ( tuples == END_TUPLES )
+                        break;
+                    // After an error, keep draining the queue so the pipeline does not block.
+                    if ( exception != null )
+                        continue;
+                    try {
+                        for ( Tuple<NodeId> t : tuples ) {
+                            index.add(t);
+                            tick(monitor);
+                        }
+                    } catch (Throwable th) {
+                        exception = th;
+                    }
+                }
+            } finally {
+                finishMonitor(monitor);
+                txnState = component.detach();
+            }
+        }
+    }
+
+    private ProgressMonitor monitor(String label, long tickPoint) {
+        if ( ! showProgress )
+            return null;
+        return ProgressMonitor.create(LOG, label, tickPoint, SuperTick);
+    }
+
+    private static void startMonitor(ProgressMonitor monitor) {
+        if ( monitor != null )
+            monitor.start();
+    }
+
+    private static void tick(ProgressMonitor monitor) {
+        if ( monitor != null )
+            monitor.tick();
+    }
+
+    private static void finishMonitor(ProgressMonitor monitor) {
+        if ( monitor != null ) {
+            monitor.finish();
+            monitor.finishMessage();
+        }
+    }
+
+    private static <X> X take(BlockingQueue<X> queue) {
+        try { return queue.take(); }
+        catch (InterruptedException ex) { throw new TDBException("Interrupted", ex); }
+    }
+
+    private static <X> void put(BlockingQueue<X> queue, X item) {
+        try { queue.put(item); }
+        catch (InterruptedException ex) { throw new TDBException("Interrupted", ex); }
+    }
+
+    private static void join(Thread thread) {
+        try { thread.join(); }
+        catch (InterruptedException ex) { throw new TDBException("Interrupted", ex); }
+    }
+}
@@ -0,0 +1,385 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.loader;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import org.apache.jena.atlas.iterator.Iter;
+import org.apache.jena.atlas.lib.Bytes;
+import org.apache.jena.atlas.lib.ProgressMonitor;
+import org.apache.jena.atlas.lib.tuple.TupleMap;
+import org.apache.jena.atlas.logging.FmtLog;
+import org.apache.jena.dboe.base.file.Location;
+import org.apache.jena.dboe.base.record.Record;
+import org.apache.jena.dboe.base.record.RecordFactory;
+import org.apache.jena.dboe.sys.SystemIndex;
+import org.apache.jena.dboe.trans.bplustree.BPlusTreeParams;
+import org.apache.jena.dboe.trans.bplustree.rewriter.BPlusTreeRewriter;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.shared.JenaException;
+import org.apache.jena.shared.PrefixMapping;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.system.Txn;
+import org.apache.jena.tdb2.TDBException;
+import org.apache.jena.tdb2.setup.StoreParams;
+import org.apache.jena.tdb2.solver.stats.TransStats;
+import org.apache.jena.tdb2.store.DatasetGraphSwitchable;
+import org.apache.jena.tdb2.store.DatasetGraphTDB;
+import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.NodeIdFactory;
+import org.apache.jena.tdb2.store.nodetable.NodeTable;
+import org.apache.jena.tdb2.sys.CopyStorage;
+import org.apache.jena.tdb2.sys.IOX;
+import org.apache.jena.tdb2.sys.StoreConnection;
+import org.apache.jena.tdb2.sys.SystemTDB;
+import org.apache.jena.tdb2.sys.TDBInternal;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A loader for an empty database that builds the indexes by sorting.
+ * <p>
+ * The load has three phases:
+ * <ul>
+ * <li>Parse the data and allocate {@link NodeId NodeIds}, writing tuples of
+ * {@code NodeId}s, in primary index order, to compressed temporary files. This
+ * is a normal write transaction so the node table is updated transactionally.
+ * <li>With the database released, sort the tuples for each index (an external
+ * merge sort, see {@link TupleSorter}) and write the index directly as packed
+ * B+Tree blocks with {@link BPlusTreeRewriter}. The indexes are built in
+ * parallel.
+ * <li>Reopen the database and switch it in.
+ * </ul>
+ * This avoids the random access of inserting into the B+Trees one tuple at a
+ * time, and the indexes are written with full blocks.
+ * <p>
+ * The database must be an empty, disk-based database; the dataset must be the
+ * database container ({@link DatasetGraphSwitchable}), and no other
+ * transactions may be active during the load.
+ */
+public class LoaderSorted {
+    private static Logger LOG = LoggerFactory.getLogger("Loader");
+
+    /** Number of tuples sorted in memory before writing a run to disk. */
+    public static int SortRunSize       = 500_000;
+    /** Maximum number of indexes built at the same time. */
+    public static int IndexThreads      = Runtime.getRuntime().availableProcessors();
+
+    /** Tick point for messages during parsing and node allocation */
+    public static int DataTickPoint     = 100 * 1000;
+    /** Tick point for messages from each index */
+    public static int IndexTickPoint    = 1000 * 1000;
+    /** Number of ticks per super tick */
+    public static int SuperTick         = 10;
+
+    private static final String tmpDirName = "tmp-loader";
+
+    private final DatasetGraph dsg;
+    private final Node graphName;
+    private final boolean showProgress;
+
+    /** Load the files into an empty database. */
+    public static void load(DatasetGraph dsg, List<String> urls, boolean showProgress) {
+        new LoaderSorted(dsg, null, showProgress).load(urls);
+    }
+
+    /**
+     * Load the files into a named graph of an empty database.
+     * Only the default graph of any quad formats is loaded.
+     */
+    public static void load(DatasetGraph dsg, Node graphName, List<String> urls, boolean showProgress) {
+        new LoaderSorted(dsg, graphName, showProgress).load(urls);
+    }
+
+    private LoaderSorted(DatasetGraph dsg, Node graphName, boolean showProgress) {
+        this.dsg = dsg;
+        this.graphName = graphName;
+        this.showProgress = showProgress;
+    }
+
+    private void load(List<String> urls) {
+        DatasetGraphSwitchable container = TDBInternal.getDatabaseContainer(dsg);
+        if ( container == null )
+            throw new TDBException("Not a TDB2 database container");
+        DatasetGraphTDB dsgtdb = TDBInternal.requireStorage(container);
+        Location location = dsgtdb.getLocation();
+        if ( location.isMem() )
+            throw new TDBException("Sorted loader requires a disk database: "+location);
+        if ( ! Txn.calculateRead(container, container::isEmpty) )
+            throw new TDBException("Sorted loader requires an empty database: "+location);
+
+        StoreParams params = dsgtdb.getStoreParams();
+        Path tmpDir = IOX.asPath(location).resolve(tmpDirName);
+        // Left over from an earlier failed load.
+        deleteAll(tmpDir);
+        IOX.createDirectory(tmpDir);
+        Path triplesFile = tmpDir.resolve("triples.tmp");
+        Path quadsFile = tmpDir.resolve("quads.tmp");
+        long startTime = System.currentTimeMillis();
+        try {
+            // Phase 1 : Nodes.
+            Parser parser = new Parser(triplesFile, quadsFile);
+            Txn.executeWrite(container, ()->parser.parse(dsgtdb, urls));
+
+            // Phase 2 : Indexes. The database is not in use.
+            StoreConnection.release(location);
+            List<IndexTask> tasks = new ArrayList<>();
+            if ( parser.tripleCount > 0 ) {
+                for ( String idx : params.getTripleIndexes() )
+                    tasks.add(new IndexTask(location, idx, params.getPrimaryIndexTriples(), params.isPrefixCompression(), triplesFile, tmpDir));
+            }
+            if ( parser.quadCount > 0 ) {
+                for ( String idx : params.getQuadIndexes() )
+                    tasks.add(new IndexTask(location, idx, params.getPrimaryIndexQuads(), params.isPrefixCompression(), quadsFile, tmpDir));
+            }
+            buildIndexes(tasks);
+
+            // Phase 3 : Switch in the rebuilt database.
+            // Any statistics are out of date and are recalculated when the database is opened.
+            Path statsFile = IOX.asPath(location).resolve(TransStats.statsBaseName+"."+TransStats.extStats);
+            if ( Files.exists(statsFile) )
+                IOX.delete(statsFile);
+            DatasetGraphTDB dsgtdb2 = StoreConnection.connectCreate(location).getDatasetGraphTDB();
+            container.set(dsgtdb2);
+            long elapsed = System.currentTimeMillis()-startTime;
+            if ( showProgress )
+                FmtLog.info(LOG, "Load: %,d triples/quads in %,.2fs", parser.tripleCount+parser.quadCount, elapsed/1000.0);
+        } finally {
+            deleteAll(tmpDir);
+        }
+    }
+
+    private void buildIndexes(List<IndexTask> tasks) {
+        if ( tasks.isEmpty() )
+            return;
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(IndexThreads, tasks.size())));
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            tasks.forEach(t->futures.add(executor.submit(t)));
+            for ( int i = 0 ; i < futures.size() ; i++ ) {
+                try { futures.get(i).get(); }
+                catch (ExecutionException ex) {
+                    throw new TDBException("Exception building index "+tasks.get(i).indexName, ex.getCause());
+                }
+                catch (InterruptedException ex) {
+                    throw new TDBException("Interrupted building index "+tasks.get(i).indexName, ex);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /** Sort the tuples for one index and write the index. */
+    private class IndexTask implements Runnable {
+        final Location location;
+        final String indexName;
+        final String primary;
+        final boolean prefixCompression;
+        final Path dataFile;
+        final Path tmpDir;
+
+        IndexTask(Location location, String indexName, String primary, boolean prefixCompression, Path dataFile, Path tmpDir) {
+            this.location = location;
+            this.indexName = indexName;
+            this.primary = primary;
+            this.prefixCompression = prefixCompression;
+            this.dataFile = dataFile;
+            this.tmpDir = tmpDir;
+        }
+
+        @Override
+        public void run() {
+            int N = primary.length();
+            TupleMap tMap = TupleMap.create(primary, indexName);
+            ProgressMonitor monitor = monitor("Index "+indexName, IndexTickPoint);
+            startMonitor(monitor);
+            try ( TupleSorter sorter = new TupleSorter(N, SortRunSize, tmpDir);
+                  TupleSorter.TupleReader reader = new TupleSorter.TupleReader(dataFile, N) ) {
+                reader.forEachRemaining(tuple->{
+                    long[] t = new long[N];
+                    for ( int i = 0 ; i < N ; i++ )
+                        t[i] = tuple[tMap.getSlotIdx(i)];
+                    sorter.add(t);
+                });
+                Iterator<long[]> iter = sorter.sorted();
+                if ( monitor != null )
+                    iter = Iter.operate(iter, t->monitor.tick());
+                packIndex(location, indexName, N, prefixCompression, iter);
+            } finally {
+                finishMonitor(monitor);
+            }
+        }
+    }
+
+    /**
+     * Write a tuple index, replacing any existing index files, from a stream of
+     * tuples that is sorted in index order (see {@link TupleSorter#comparator})
+     * and has no duplicates. Each tuple slot is the on-disk form of a
+     * {@link NodeId} ({@link NodeIdFactory#encode}). The index must not be in
+     * use. {@code prefixCompression} must match the database's
+     * {@link StoreParams}.
+     */
+    public static void packIndex(Location location, String indexName, int tupleLength, boolean prefixCompression, Iterator<long[]> sortedTuples) {
+        int blockSize = SystemIndex.BlockSize;
+        RecordFactory recordFactory = new RecordFactory(SystemTDB.SizeOfNodeId*tupleLength, 0);
+        BPlusTreeParams bptParams = new BPlusTreeParams(BPlusTreeParams.calcOrder(blockSize, recordFactory.recordLength()), recordFactory, prefixCompression);
+        Iterator<Record> records = Iter.map(sortedTuples, t->{
+            byte[] b = new byte[recordFactory.keyLength()];
+            for ( int i = 0 ; i < t.length ; i++ )
+                Bytes.setLong(t[i], b, i*NodeId.SIZE);
+            return recordFactory.create(b);
+        });
+        CopyStorage.packIndex(location, indexName, bptParams, records);
+    }
+
+    /** Parse, allocate nodes and write the tuples to the data files. */
+    private class Parser implements StreamRDF {
+        private final Path triplesFile;
+        private final Path quadsFile;
+        private NodeTable nodeTable;
+        private PrefixMapping prefixMapping;
+        private TupleSorter.TupleWriter triples;
+        private TupleSorter.TupleWriter quads;
+        private ProgressMonitor monitor;
+        private boolean warningIssued = false;
+        long tripleCount = 0;
+        long quadCount = 0;
+
+        Parser(Path triplesFile, Path quadsFile) {
+            this.triplesFile = triplesFile;
+            this.quadsFile = quadsFile;
+        }
+
+        void parse(DatasetGraphTDB dsgtdb, List<String> urls) {
+            nodeTable = dsgtdb.getTripleTable().getNodeTupleTable().getNodeTable();
+            prefixMapping = (graphName == null)
+                ? dsgtdb.getDefaultGraph().getPrefixMapping()
+                : dsgtdb.getGraph(graphName).getPrefixMapping();
+            monitor = monitor("Parse", DataTickPoint);
+            startMonitor(monitor);
+            try ( TupleSorter.TupleWriter w1 = new TupleSorter.TupleWriter(triplesFile);
+                  TupleSorter.TupleWriter w2 = new TupleSorter.TupleWriter(quadsFile) ) {
+                triples = w1;
+                quads = w2;
+                for ( String url : urls ) {
+                    if ( showProgress && urls.size() > 1 )
+                        FmtLog.info(LOG, "File: %s", url);
+                    RDFDataMgr.parse(this, url);
+                }
+            } finally {
+                finishMonitor(monitor);
+            }
+        }
+
+        @Override public void start() {}
+
+        @Override
+        public void triple(Triple t) {
+            if ( graphName == null )
+                addTriple(t.getSubject(), t.getPredicate(), t.getObject());
+            else
+                addQuad(graphName, t.getSubject(), t.getPredicate(), t.getObject());
+        }
+
+        @Override
+        public void quad(Quad q) {
+            if ( q.isTriple() || q.isDefaultGraph() )
+                triple(q.asTriple());
+            else if ( graphName == null )
+                addQuad(q.getGraph(), q.getSubject(), q.getPredicate(), q.getObject());
+            else if ( ! warningIssued ) {
+                FmtLog.warn(LOG, "Only triples or default graph data expected : named graph data ignored");
+                warningIssued = true;
+            }
+        }
+
+        @Override public void base(String base) {}
+
+        @Override
+        public void prefix(String prefix, String iri) {
+            try { prefixMapping.setNsPrefix(prefix, iri); }
+            catch (JenaException ex) {}
+        }
+
+        @Override public void finish() {}
+
+        private void addTriple(Node s, Node p, Node o) {
+            triples.write(new long[] {nodeId(s), nodeId(p), nodeId(o)});
+            tripleCount++;
+            tick(monitor);
+        }
+
+        private void addQuad(Node g, Node s, Node p, Node o) {
+            quads.write(new long[] {nodeId(g), nodeId(s), nodeId(p), nodeId(o)});
+            quadCount++;
+            tick(monitor);
+        }
+
+        private long nodeId(Node node) {
+            return NodeIdFactory.encode(nodeTable.getAllocateNodeId(node));
+        }
+    }
+
+    private static void deleteAll(Path dir) {
+        if ( ! Files.exists(dir) )
+            return;
+        try ( Stream<Path> files = Files.list(dir) ) {
+            files.forEach(IOX::delete);
+        } catch (IOException ex) { throw IOX.exception(ex); }
+        IOX.delete(dir);
+    }
+
+    private ProgressMonitor monitor(String label, long tickPoint) {
+        if ( ! showProgress )
+            return null;
+        return ProgressMonitor.create(LOG, label, tickPoint, SuperTick);
+    }
+
+    private static void startMonitor(ProgressMonitor monitor) {
+        if ( monitor != null )
+            monitor.start();
+    }
+
+    private static void tick(ProgressMonitor monitor) {
+        if ( monitor != null )
+            monitor.tick();
+    }
+
+    private static void finishMonitor(ProgressMonitor monitor) {
+        if ( monitor != null ) {
+            monitor.finish();
+            monitor.finishMessage();
+        }
+    }
+}
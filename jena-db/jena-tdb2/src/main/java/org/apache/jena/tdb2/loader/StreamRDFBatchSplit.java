@@ -195,8 +195,9 @@ public class StreamRDFBatchSplit implements StreamRDF {
         if ( mapping.containsKey(node)) 
             return ;
         
-        if ( NodeId.hasInlineDatatype(node) ) {
-            NodeId nodeId = NodeId.inline(node) ;
+        if ( node.isLiteral() ) {
+            // The inline node table decides, e.g. whether strings are inlined.
+            NodeId nodeId = ( details.ntInline != null ) ? details.ntInline.inline(node) : NodeId.inline(node) ;
             if ( nodeId != null )
                 return ;
         }
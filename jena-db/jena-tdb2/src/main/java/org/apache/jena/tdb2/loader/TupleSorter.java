@@ -0,0 +1,256 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.loader;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.jena.atlas.iterator.Iter;
+import org.apache.jena.tdb2.sys.IOX;
+
+/**
+ * External merge sort of fixed length tuples of {@code long}s.
+ * <p>
+ * Tuples are collected in memory, sorted and written to compressed temporary
+ * "run" files when {@code runSize} tuples have been added. {@link #sorted()}
+ * merges the runs and returns the distinct tuples in order. Tuples are compared
+ * slot by slot as unsigned values, which is the same order as comparing the
+ * big-endian bytes of the tuples, so the output can go directly into B+Tree records.
+ * <p>
+ * If there is only one run, it is kept in memory and never written out.
+ */
+public class TupleSorter implements AutoCloseable {
+    /** Compare as unsigned longs, slot by slot */
+    public static final Comparator<long[]> comparator = (t1, t2) -> {
+        for ( int i = 0 ; i < t1.length ; i++ ) {
+            int x = Long.compareUnsigned(t1[i], t2[i]);
+            if ( x != 0 )
+                return x;
+        }
+        return 0;
+    };
+
+    private final int tupleLength;
+    private final int runSize;
+    private final Path tmpDir;
+    private long[][] run;
+    private int runCount = 0;
+    private final List<Path> runFiles = new ArrayList<>();
+    private final List<TupleReader> readers = new ArrayList<>();
+    private boolean finished = false;
+
+    public TupleSorter(int tupleLength, int runSize, Path tmpDir) {
+        this.tupleLength = tupleLength;
+        this.runSize = runSize;
+        this.tmpDir = tmpDir;
+        this.run = new long[runSize][];
+    }
+
+    /** Add a tuple. The array is kept, not copied. */
+    public void add(long[] tuple) {
+        if ( finished )
+            throw new IllegalStateException("TupleSorter: add after sorted()");
+        if ( tuple.length != tupleLength )
+            throw new IllegalArgumentException("Tuple length: expected "+tupleLength+", got "+tuple.length);
+        run[runCount++] = tuple;
+        if ( runCount == runSize )
+            spill();
+    }
+
+    /** Sort the current run and write it to a temporary file. */
+    private void spill() {
+        Arrays.sort(run, 0, runCount, comparator);
+        Path file = IOX.createTempFile(tmpDir, "run", ".tmp");
+        try ( TupleWriter writer = new TupleWriter(file) ) {
+            for ( int i = 0 ; i < runCount ; i++ ) {
+                writer.write(run[i]);
+                run[i] = null;
+            }
+        }
+        runFiles.add(file);
+        runCount = 0;
+    }
+
+    /** Finish adding tuples and return the distinct tuples, sorted. */
+    public Iterator<long[]> sorted() {
+        if ( finished )
+            throw new IllegalStateException("TupleSorter: sorted() already called");
+        finished = true;
+        if ( runFiles.isEmpty() ) {
+            Arrays.sort(run, 0, runCount, comparator);
+            Iterator<long[]> iter = Arrays.asList(run).subList(0, runCount).iterator();
+            return distinct(iter);
+        }
+        if ( runCount > 0 )
+            spill();
+        run = null;
+        List<Iterator<long[]>> iters = new ArrayList<>(runFiles.size());
+        for ( Path p : runFiles ) {
+            TupleReader r = new TupleReader(p, tupleLength);
+            readers.add(r);
+            iters.add(r);
+        }
+        return distinct(merge(iters));
+    }
+
+    /** Delete any temporary files. */
+    @Override
+    public void close() {
+        readers.forEach(TupleReader::close);
+        readers.clear();
+        runFiles.forEach(IOX::delete);
+        runFiles.clear();
+        run = null;
+    }
+
+    /** k-way merge of sorted iterators */
+    private static Iterator<long[]> merge(List<Iterator<long[]>> iters) {
+        PriorityQueue<PeekIterator> queue = new PriorityQueue<>(Math.max(1, iters.size()),
+            (p1, p2) -> comparator.compare(p1.current, p2.current));
+        for ( Iterator<long[]> iter : iters ) {
+            if ( iter.hasNext() )
+                queue.add(new PeekIterator(iter));
+        }
+        return new Iterator<long[]>() {
+            @Override
+            public boolean hasNext() {
+                return ! queue.isEmpty();
+            }
+
+            @Override
+            public long[] next() {
+                PeekIterator p = queue.poll();
+                if ( p == null )
+                    throw new NoSuchElementException();
+                long[] x = p.current;
+                if ( p.advance() )
+                    queue.add(p);
+                return x;
+            }
+        };
+    }
+
+    private static class PeekIterator {
+        private final Iterator<long[]> iter;
+        long[] current;
+        PeekIterator(Iterator<long[]> iter) { this.iter = iter; this.current = iter.next(); }
+        boolean advance() {
+            if ( ! iter.hasNext() )
+                return false;
+            current = iter.next();
+            return true;
+        }
+    }
+
+    /** Remove adjacent duplicates */
+    private static Iterator<long[]> distinct(Iterator<long[]> iter) {
+        long[][] last = { null };
+        return Iter.filter(iter, t -> {
+            boolean dup = last[0] != null && Arrays.equals(last[0], t);
+            last[0] = t;
+            return ! dup;
+        });
+    }
+
+    /** Write tuples to a compressed file. */
+    public static class TupleWriter implements AutoCloseable {
+        private final DataOutputStream out;
+
+        public TupleWriter(Path file) {
+            try {
+                OutputStream out0 = Files.newOutputStream(file);
+                // Favour speed over compression ratio.
+                OutputStream out1 = new GZIPOutputStream(out0, 128*1024) {{ def.setLevel(Deflater.BEST_SPEED); }};
+                this.out = new DataOutputStream(new BufferedOutputStream(out1, 128*1024));
+            } catch (IOException ex) { throw IOX.exception(ex); }
+        }
+
+        public void write(long[] tuple) {
+            try {
+                for ( long x : tuple )
+                    out.writeLong(x);
+            } catch (IOException ex) { throw IOX.exception(ex); }
+        }
+
+        @Override
+        public void close() {
+            try { out.close(); }
+            catch (IOException ex) { throw IOX.exception(ex); }
+        }
+    }
+
+    /** Read tuples from a file written by {@link TupleWriter}. */
+    public static class TupleReader implements Iterator<long[]>, AutoCloseable {
+        private final DataInputStream in;
+        private final int tupleLength;
+        private long[] slot = null;
+        private boolean finished = false;
+
+        public TupleReader(Path file, int tupleLength) {
+            this.tupleLength = tupleLength;
+            try {
+                InputStream in0 = Files.newInputStream(file);
+                InputStream in1 = new GZIPInputStream(in0, 128*1024);
+                this.in = new DataInputStream(new BufferedInputStream(in1, 128*1024));
+            } catch (IOException ex) { throw IOX.exception(ex); }
+        }
+
+        @Override
+        public boolean hasNext() {
+            if ( finished )
+                return false;
+            if ( slot != null )
+                return true;
+            long[] tuple = new long[tupleLength];
+            try {
+                try {
+                    tuple[0] = in.readLong();
+                } catch (EOFException ex) {
+                    finished = true;
+                    close();
+                    return false;
+                }
+                for ( int i = 1 ; i < tupleLength ; i++ )
+                    tuple[i] = in.readLong();
+            } catch (IOException ex) { throw IOX.exception(ex); }
+            slot = tuple;
+            return true;
+        }
+
+        @Override
+        public long[] next() {
+            if ( ! hasNext() )
+                throw new NoSuchElementException();
+            long[] x = slot;
+            slot = null;
+            return x;
+        }
+
+        @Override
+        public void close() {
+            try { in.close(); }
+            catch (IOException ex) { throw IOX.exception(ex); }
+        }
+    }
+}
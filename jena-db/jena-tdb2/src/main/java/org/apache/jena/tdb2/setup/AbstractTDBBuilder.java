@@ -35,8 +35,12 @@ import org.apache.jena.dboe.transaction.txn.TransactionalSystem;
 import org.apache.jena.dboe.transaction.txn.journal.Journal;
 import org.apache.jena.sparql.engine.main.QC;
 import org.apache.jena.sparql.engine.optimizer.reorder.ReorderLib;
+import org.apache.jena.sparql.engine.optimizer.reorder.ReorderTransformation;
+import org.apache.jena.system.Txn;
 import org.apache.jena.tdb2.TDBException;
 import org.apache.jena.tdb2.solver.OpExecutorTDB2;
+import org.apache.jena.tdb2.solver.stats.ReorderTransformationStats;
+import org.apache.jena.tdb2.solver.stats.TransStats;
 import org.apache.jena.tdb2.store.*;
 import org.apache.jena.tdb2.store.nodetable.NodeTable;
 import org.apache.jena.tdb2.store.nodetable.NodeTableCache;
@@ -44,6 +48,7 @@ import org.apache.jena.tdb2.store.nodetable.NodeTableInline;
 import org.apache.jena.tdb2.store.nodetupletable.NodeTupleTable;
 import org.apache.jena.tdb2.store.nodetupletable.NodeTupleTableConcrete;
 import org.apache.jena.tdb2.store.tupletable.TupleIndex;
+import org.apache.jena.tdb2.store.tupletable.TupleIndexBloom;
 import org.apache.jena.tdb2.store.tupletable.TupleIndexRecord;
 import org.apache.jena.tdb2.sys.SystemTDB;
 import org.slf4j.Logger;
@@ -62,6 +67,14 @@ public abstract class AbstractTDBBuilder {
         return txnCoord;
     }
 
+    /** A {@link TransactionCoordinator} for a database that is only read. The journal is not used. */
+    public static TransactionCoordinator buildTransactionCoordinatorReadOnly(Location location) {
+        File journal = new File(location.getPath(Names.journalFile));
+        if ( journal.length() > 0 )
+            SystemTDB.errlog.warn("Journal not empty: opening read-only without recovery: "+location.getDirectoryPath());
+        return TransactionCoordinator.createReadOnly();
+    }
+
     public static String choosePrimaryForIndex(StoreParams params, String index) {
         String primary3 = params.getPrimaryIndexTriples();
         String primary4 = params.getPrimaryIndexQuads();
@@ -86,6 +99,11 @@ public abstract class AbstractTDBBuilder {
         this.componentIdMgr = componentIdMgr;
     }
 
+    /** Whether the database is being built for read-only access. */
+    protected boolean isReadOnly() {
+        return txnCoord.isReadOnly();
+    }
+
     // Supply these two operations at least.
     public abstract NodeTable buildBaseNodeTable(String name);
     public abstract RangeIndex buildRangeIndex(RecordFactory recordFactory, String name);
@@ -99,15 +117,50 @@ public abstract class AbstractTDBBuilder {
         NodeTable nodeTablePrefixes = buildNodeTable(params.getPrefixTableBaseName());
         DatasetPrefixesTDB prefixes = buildPrefixTable(nodeTablePrefixes);
         
+        TransStats stats = null;
+        ReorderTransformation reorder = ReorderLib.fixed();
+        if ( params.isMaintainStats() ) {
+            stats = buildStats(nodeTable);
+        }
+        if ( stats != null && ! stats.isReady() && isReadOnly() ) {
+            // Statistics can't be built and kept.
+            log().debug("No statistics (read-only)");
+            stats = null;
+        }
+        if ( stats != null ) {
+            tripleTable.getNodeTupleTable().getTupleTable().setMonitor(stats);
+            quadTable.getNodeTupleTable().getTupleTable().setMonitor(stats);
+            reorder = new ReorderTransformationStats(stats);
+        }
+        
         TransactionalSystem trans = new TransactionalBase(txnCoord);
         DatasetGraphTxn dsg = new DatasetGraphTDB(trans, 
                                                   tripleTable, quadTable, prefixes, 
-                                                  ReorderLib.fixed(), location, params);
+                                                  reorder, location, params);
         QC.setFactory(dsg.getContext(), OpExecutorTDB2.OpExecFactoryTDB);
         txnCoord.start();
+        if ( stats != null && ! stats.isReady() ) {
+            log().debug("Build statistics");
+            TransStats stats$ = stats;
+            Txn.executeWrite(dsg, ()->stats$.rebuild(tripleTable.getNodeTupleTable().getTupleTable(),
+                                                     quadTable.getNodeTupleTable().getTupleTable()));
+        }
+        rebuildFilters(dsg, tripleTable.getNodeTupleTable().getTupleTable().getIndexes());
+        rebuildFilters(dsg, quadTable.getNodeTupleTable().getTupleTable().getIndexes());
+        rebuildFilters(dsg, prefixes.getNodeTupleTable().getTupleTable().getIndexes());
         return dsg;
     }
 
+    /** Build any Bloom filters that were not read from disk. */
+    private void rebuildFilters(DatasetGraphTxn dsg, TupleIndex[] indexes) {
+        for ( TupleIndex index : indexes ) {
+            if ( index instanceof TupleIndexBloom && ! ((TupleIndexBloom)index).isReady() ) {
+                log().debug("Build Bloom filter: "+index.getName());
+                Txn.executeRead(dsg, ((TupleIndexBloom)index)::rebuild);
+            }
+        }
+    }
+
     public Location getLocation()               { return location; }
     public StoreParams getParams()              { return params; }
     public TransactionCoordinator getTxnCoord() { return txnCoord; }
@@ -146,8 +199,9 @@ public abstract class AbstractTDBBuilder {
         String primary = params.getPrimaryIndexTriples();
         String[] indexes = params.getTripleIndexes();
 
-        // Validation checks - common index forms.  
-        if ( indexes.length != 3 && indexes.length != 2 )
+        // Validation checks - common index forms, or additional orders (e.g. PSO for merge joins)
+        // up to all the permutations of SPO.
+        if ( indexes.length < 2 || indexes.length > 6 )
             error(log(), "Wrong number of triple table indexes: "+String.join(",", indexes));
         log().debug("Triple table: "+primary+" :: "+String.join(",", indexes));
 
@@ -212,26 +266,48 @@ public abstract class AbstractTDBBuilder {
         RecordFactory rf = new RecordFactory(SystemTDB.SizeOfNodeId * cmap.length(), 0);
         RangeIndex rIdx = buildRangeIndex(rf, index);
         TupleIndex tIdx = new TupleIndexRecord(primary.length(), cmap, index, rf, rIdx);
+        if ( params.getBloomBitsPerKey() > 0 )
+            tIdx = new TupleIndexBloom(tIdx, params.getBloomBitsPerKey(), location, isReadOnly());
         return tIdx;
     }
     
     public NodeTable buildNodeTable(String name) {
         NodeTable nodeTable = buildBaseNodeTable(name);
         nodeTable = NodeTableCache.create(nodeTable, params);
-        nodeTable = NodeTableInline.create(nodeTable);
+        nodeTable = NodeTableInline.create(nodeTable, params.isInlineStrings(), params.isInlineOrderedDecimals());
         return nodeTable;
     }
 
     public TransBinaryDataFile buildBinaryDataFile(String name) {
         ComponentId cid = componentIdMgr.getComponentId(name);
         FileSet fs = new FileSet(location, name); 
-        BinaryDataFile binFile = FileFactory.createBinaryDataFile(fs, Names.extObjNodeData);
-        BufferChannel pState = FileFactory.createBufferChannel(fs, Names.extBdfState);
+        BinaryDataFile binFile = isReadOnly()
+            ? FileFactory.createBinaryDataFileReadOnly(fs, Names.extObjNodeData)
+            : FileFactory.createBinaryDataFile(fs, Names.extObjNodeData);
+        BufferChannel pState = isReadOnly()
+            ? FileFactory.createBufferChannelReadOnly(fs, Names.extBdfState)
+            : FileFactory.createBufferChannel(fs, Names.extBdfState);
         // ComponentId mgt.
         TransBinaryDataFile transBinFile = new TransBinaryDataFile(binFile, cid, pState);
         return transBinFile;
     }
     
+    public TransStats buildStats(NodeTable nodeTable) {
+        ComponentId cid = componentIdMgr.getComponentId(TransStats.statsBaseName);
+        FileSet fs = new FileSet(location, TransStats.statsBaseName);
+        BufferChannel file;
+        if ( ! isReadOnly() )
+            file = FileFactory.createBufferChannel(fs, TransStats.extStats);
+        else if ( new File(fs.filename(TransStats.extStats)).exists() )
+            file = FileFactory.createBufferChannelReadOnly(fs, TransStats.extStats);
+        else
+            // No statistics file : empty, unready statistics. 
+            file = FileFactory.createBufferChannelMem();
+        TransStats stats = new TransStats(cid, file, nodeTable);
+        txnCoord.add(stats);
+        return stats;
+    }
+    
     private void error(Logger log, String msg)
     {
         if ( log != null )
@@ -53,9 +53,13 @@ public class ComponentIdMgr {
         
         setup(40, "prefixes") ;
         setup(41, "prefixes-data") ;
+        setup(42, "prefixes-ns") ;
         
         setup(50, "nodes") ;
         setup(51, "nodes-data") ;
+        setup(52, "nodes-ns") ;
+        
+        setup(60, "stats") ;
     }
     
     static void setup(int idx, String unitName) {
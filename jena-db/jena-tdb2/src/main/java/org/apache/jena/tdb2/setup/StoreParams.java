@@ -22,6 +22,7 @@ import java.util.Objects ;
 
 import org.apache.jena.dboe.base.block.FileMode;
 import org.apache.jena.dboe.index.IndexParams;
+import org.apache.jena.tdb2.store.nodetable.NodeCacheType;
 import org.apache.jena.tdb2.setup.StoreParamsBuilder.Item;
 
 /** System parameters for a TDB database instance. 
@@ -49,7 +50,9 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
     /*package*/ final Item<Integer>            blockWriteCacheSize ;
     /*package*/ final Item<Integer>            Node2NodeIdCacheSize ;
     /*package*/ final Item<Integer>            NodeId2NodeCacheSize ;
+    /*package*/ final Item<NodeCacheType>      NodeId2NodeCacheType ;
     /*package*/ final Item<Integer>            NodeMissCacheSize ;
+    /*package*/ final Item<Integer>            BloomBitsPerKey ;
 
     /* These are items affect database layout and
      * only can be applied when a database is created.
@@ -58,6 +61,12 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
      * you'll need to use the index tools.  
      */
     
+    /*package*/ final Item<Boolean>            prefixCompression ;
+    /*package*/ final Item<Boolean>            namespaceCompression ;
+    /*package*/ final Item<Boolean>            inlineStrings ;
+    /*package*/ final Item<Boolean>            inlineOrderedDecimals ;
+    /*package*/ final Item<Boolean>            maintainStats ;
+    
     /*package*/ final Item<String>             nodeTableBaseName ;
     
     /*package*/ final Item<String>             primaryIndexTriples ;
@@ -85,8 +94,14 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
     /*package*/ StoreParams(Item<FileMode> fileMode, Item<Integer> blockSize,
                             Item<Integer> blockReadCacheSize, Item<Integer> blockWriteCacheSize,
                             Item<Integer> node2NodeIdCacheSize, Item<Integer> nodeId2NodeCacheSize,
-                            Item<Integer> nodeMissCacheSize,
+                            Item<NodeCacheType> nodeId2NodeCacheType, Item<Integer> nodeMissCacheSize,
+                            Item<Integer> bloomBitsPerKey,
                             
+                            Item<Boolean> prefixCompression,
+                            Item<Boolean> namespaceCompression,
+                            Item<Boolean> inlineStrings,
+                            Item<Boolean> inlineOrderedDecimals,
+                            Item<Boolean> maintainStats,
                             Item<String> nodeTableBaseName, 
                             Item<String> primaryIndexTriples, Item<String[]> tripleIndexes,
                             Item<String> primaryIndexQuads, Item<String[]> quadIndexes,
@@ -99,8 +114,15 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
         this.blockWriteCacheSize    = blockWriteCacheSize ;
         this.Node2NodeIdCacheSize   = node2NodeIdCacheSize ;
         this.NodeId2NodeCacheSize   = nodeId2NodeCacheSize ;
+        this.NodeId2NodeCacheType   = nodeId2NodeCacheType ;
         this.NodeMissCacheSize      = nodeMissCacheSize ;
+        this.BloomBitsPerKey        = bloomBitsPerKey ;
 
+        this.prefixCompression      = prefixCompression ;
+        this.namespaceCompression   = namespaceCompression ;
+        this.inlineStrings          = inlineStrings ;
+        this.inlineOrderedDecimals  = inlineOrderedDecimals ;
+        this.maintainStats          = maintainStats ;
         this.nodeTableBaseName      = nodeTableBaseName ;
         
         this.primaryIndexTriples    = primaryIndexTriples ;
@@ -188,6 +210,16 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
         return NodeId2NodeCacheSize.value ;
     }
 
+    @Override
+    public NodeCacheType getNodeId2NodeCacheType() {
+        return NodeId2NodeCacheType.value ;
+    }
+
+    @Override
+    public boolean isSetNodeId2NodeCacheType() {
+        return NodeId2NodeCacheType.isSet ;
+    }
+
     @Override
     public Integer getNodeMissCacheSize() {
         return NodeMissCacheSize.value ;
@@ -198,6 +230,61 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
         return NodeMissCacheSize.isSet ;
     }
 
+    @Override
+    public Integer getBloomBitsPerKey() {
+        return BloomBitsPerKey.value ;
+    }
+
+    @Override
+    public boolean isSetBloomBitsPerKey() {
+        return BloomBitsPerKey.isSet ;
+    }
+
+    /** Whether the B+Tree records blocks are prefix compressed. */
+    public boolean isPrefixCompression() {
+        return prefixCompression.value ;
+    }
+    
+    public boolean isSetPrefixCompression() {
+        return prefixCompression.isSet ;
+    }
+
+    /** Whether the node table stores each IRI namespace once, with IRIs as a reference to the namespace and the local part. */
+    public boolean isNamespaceCompression() {
+        return namespaceCompression.value ;
+    }
+    
+    public boolean isSetNamespaceCompression() {
+        return namespaceCompression.isSet ;
+    }
+
+    /** Whether short strings and short language-tagged strings are inlined in NodeIds */
+    public boolean isInlineStrings() {
+        return inlineStrings.value ;
+    }
+    
+    public boolean isSetInlineStrings() {
+        return inlineStrings.isSet ;
+    }
+
+    /** Whether xsd:decimals are inlined in NodeIds with an encoding in the order of their values. */
+    public boolean isInlineOrderedDecimals() {
+        return inlineOrderedDecimals.value ;
+    }
+    
+    public boolean isSetInlineOrderedDecimals() {
+        return inlineOrderedDecimals.isSet ;
+    }
+
+    /** Whether statistics for the query optimizer are maintained by each write transaction. */
+    public boolean isMaintainStats() {
+        return maintainStats.value ;
+    }
+    
+    public boolean isSetMaintainStats() {
+        return maintainStats.isSet ;
+    }
+
     public String getNodeTableBaseName() {
         return nodeTableBaseName.value ;
     }
@@ -249,8 +336,15 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
         fmt(buff, "writeCacheSize", getBlockWriteCacheSize(), blockWriteCacheSize.isSet) ;
         fmt(buff, "Node2NodeIdCacheSize", getNode2NodeIdCacheSize(), Node2NodeIdCacheSize.isSet) ;
         fmt(buff, "NodeId2NodeCacheSize", getNodeId2NodeCacheSize(), NodeId2NodeCacheSize.isSet) ;
+        fmt(buff, "NodeId2NodeCacheType", getNodeId2NodeCacheType().toString(), NodeId2NodeCacheType.isSet) ;
         fmt(buff, "NodeMissCacheSize", getNodeMissCacheSize(), NodeMissCacheSize.isSet) ;
+        fmt(buff, "BloomBitsPerKey", getBloomBitsPerKey(), BloomBitsPerKey.isSet) ;
 
+        fmt(buff, "prefixCompression", Boolean.toString(isPrefixCompression()), prefixCompression.isSet) ;
+        fmt(buff, "namespaceCompression", Boolean.toString(isNamespaceCompression()), namespaceCompression.isSet) ;
+        fmt(buff, "inlineStrings", Boolean.toString(isInlineStrings()), inlineStrings.isSet) ;
+        fmt(buff, "inlineOrderedDecimals", Boolean.toString(isInlineOrderedDecimals()), inlineOrderedDecimals.isSet) ;
+        fmt(buff, "maintainStats", Boolean.toString(isMaintainStats()), maintainStats.isSet) ;
         fmt(buff, "nodeTableBaseName", getNodeTableBaseName(), nodeTableBaseName.isSet) ;
         fmt(buff, "primaryIndexTriples", getPrimaryIndexTriples(), primaryIndexTriples.isSet) ;
         fmt(buff, "tripleIndexes", getTripleIndexes(), tripleIndexes.isSet) ;
@@ -305,8 +399,22 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
             return false ;
         if ( !sameValues(params1.NodeId2NodeCacheSize, params2.NodeId2NodeCacheSize) )
             return false ;
+        if ( !sameValues(params1.NodeId2NodeCacheType, params2.NodeId2NodeCacheType) )
+            return false ;
         if ( !sameValues(params1.NodeMissCacheSize, params2.NodeMissCacheSize) )
             return false ;
+        if ( !sameValues(params1.BloomBitsPerKey, params2.BloomBitsPerKey) )
+            return false ;
+        if ( !sameValues(params1.prefixCompression, params2.prefixCompression) )
+            return false ;
+        if ( !sameValues(params1.namespaceCompression, params2.namespaceCompression) )
+            return false ;
+        if ( !sameValues(params1.inlineStrings, params2.inlineStrings) )
+            return false ;
+        if ( !sameValues(params1.inlineOrderedDecimals, params2.inlineOrderedDecimals) )
+            return false ;
+        if ( !sameValues(params1.maintainStats, params2.maintainStats) )
+            return false ;
         if ( !sameValues(params1.nodeTableBaseName, params2.nodeTableBaseName) )
             return false ;
         if ( !sameValues(params1.primaryIndexTriples, params2.primaryIndexTriples) )
@@ -336,11 +444,18 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
         int result = 1 ;
         result = prime * result + ((Node2NodeIdCacheSize == null) ? 0 : Node2NodeIdCacheSize.hashCode()) ;
         result = prime * result + ((NodeId2NodeCacheSize == null) ? 0 : NodeId2NodeCacheSize.hashCode()) ;
+        result = prime * result + ((NodeId2NodeCacheType == null) ? 0 : NodeId2NodeCacheType.hashCode()) ;
         result = prime * result + ((NodeMissCacheSize == null) ? 0 : NodeMissCacheSize.hashCode()) ;
+        result = prime * result + ((BloomBitsPerKey == null) ? 0 : BloomBitsPerKey.hashCode()) ;
         result = prime * result + ((blockReadCacheSize == null) ? 0 : blockReadCacheSize.hashCode()) ;
         result = prime * result + ((blockSize == null) ? 0 : blockSize.hashCode()) ;
         result = prime * result + ((blockWriteCacheSize == null) ? 0 : blockWriteCacheSize.hashCode()) ;
         result = prime * result + ((fileMode == null) ? 0 : fileMode.hashCode()) ;
+        result = prime * result + ((prefixCompression == null) ? 0 : prefixCompression.hashCode()) ;
+        result = prime * result + ((namespaceCompression == null) ? 0 : namespaceCompression.hashCode()) ;
+        result = prime * result + ((inlineStrings == null) ? 0 : inlineStrings.hashCode()) ;
+        result = prime * result + ((inlineOrderedDecimals == null) ? 0 : inlineOrderedDecimals.hashCode()) ;
+        result = prime * result + ((maintainStats == null) ? 0 : maintainStats.hashCode()) ;
         result = prime * result + ((nodeTableBaseName == null) ? 0 : nodeTableBaseName.hashCode()) ;
         result = prime * result + ((prefixTableBaseName == null) ? 0 : prefixTableBaseName.hashCode()) ;
         result = prime * result + ((prefixIndexes == null) ? 0 : prefixIndexes.hashCode()) ;
@@ -371,11 +486,21 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
                 return false ;
         } else if ( !NodeId2NodeCacheSize.equals(other.NodeId2NodeCacheSize) )
             return false ;
+        if ( NodeId2NodeCacheType == null ) {
+            if ( other.NodeId2NodeCacheType != null )
+                return false ;
+        } else if ( !NodeId2NodeCacheType.equals(other.NodeId2NodeCacheType) )
+            return false ;
         if ( NodeMissCacheSize == null ) {
             if ( other.NodeMissCacheSize != null )
                 return false ;
         } else if ( !NodeMissCacheSize.equals(other.NodeMissCacheSize) )
             return false ;
+        if ( BloomBitsPerKey == null ) {
+            if ( other.BloomBitsPerKey != null )
+                return false ;
+        } else if ( !BloomBitsPerKey.equals(other.BloomBitsPerKey) )
+            return false ;
         if ( blockReadCacheSize == null ) {
             if ( other.blockReadCacheSize != null )
                 return false ;
@@ -396,6 +521,31 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
                 return false ;
         } else if ( !fileMode.equals(other.fileMode) )
             return false ;
+        if ( prefixCompression == null ) {
+            if ( other.prefixCompression != null )
+                return false ;
+        } else if ( !prefixCompression.equals(other.prefixCompression) )
+            return false ;
+        if ( namespaceCompression == null ) {
+            if ( other.namespaceCompression != null )
+                return false ;
+        } else if ( !namespaceCompression.equals(other.namespaceCompression) )
+            return false ;
+        if ( inlineStrings == null ) {
+            if ( other.inlineStrings != null )
+                return false ;
+        } else if ( !inlineStrings.equals(other.inlineStrings) )
+            return false ;
+        if ( inlineOrderedDecimals == null ) {
+            if ( other.inlineOrderedDecimals != null )
+                return false ;
+        } else if ( !inlineOrderedDecimals.equals(other.inlineOrderedDecimals) )
+            return false ;
+        if ( maintainStats == null ) {
+            if ( other.maintainStats != null )
+                return false ;
+        } else if ( !maintainStats.equals(other.maintainStats) )
+            return false ;
         if ( nodeTableBaseName == null ) {
             if ( other.nodeTableBaseName != null )
                 return false ;
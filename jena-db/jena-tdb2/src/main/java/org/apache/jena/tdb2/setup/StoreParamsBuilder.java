@@ -19,6 +19,7 @@
 package org.apache.jena.tdb2.setup;
 
 import org.apache.jena.dboe.base.block.FileMode;
+import org.apache.jena.tdb2.store.nodetable.NodeCacheType;
 
 public class StoreParamsBuilder {
     // Immutable.
@@ -72,12 +73,22 @@ public class StoreParamsBuilder {
 
     private Item<Integer>            NodeId2NodeCacheSize  = new Item<>(StoreParamsConst.NodeId2NodeCacheSize, false) ;
 
+    private Item<NodeCacheType>      NodeId2NodeCacheType  = new Item<>(StoreParamsConst.NodeId2NodeCacheType, false) ;
+
     private Item<Integer>            NodeMissCacheSize     = new Item<>(StoreParamsConst.NodeMissCacheSize, false) ;
 
+    private Item<Integer>            BloomBitsPerKey       = new Item<>(StoreParamsConst.BloomBitsPerKey, false) ;
+
     /** Database layout - ignored after a database is created */
 
     private Item<Integer>            blockSize             = new Item<>(StoreParamsConst.blockSize, false) ;
 
+    private Item<Boolean>            prefixCompression     = new Item<>(StoreParamsConst.prefixCompression, false) ;
+    private Item<Boolean>            namespaceCompression  = new Item<>(StoreParamsConst.namespaceCompression, false) ;
+    private Item<Boolean>            inlineStrings         = new Item<>(StoreParamsConst.inlineStrings, false) ;
+    private Item<Boolean>            inlineOrderedDecimals = new Item<>(StoreParamsConst.inlineOrderedDecimals, false) ;
+    private Item<Boolean>            maintainStats         = new Item<>(StoreParamsConst.maintainStats, false) ;
+
     private Item<String>             nodeTableBaseName     = new Item<>(StoreParamsConst.nodeTableBaseName, false) ;
     
     private Item<String>             primaryIndexTriples   = new Item<>(StoreParamsConst.primaryIndexTriples, false) ;
@@ -127,9 +138,15 @@ public class StoreParamsBuilder {
         if ( additionalParams.isSetNodeId2NodeCacheSize() )            
             b.nodeId2NodeCacheSize(additionalParams.getNodeId2NodeCacheSize()) ;
         
+        if ( additionalParams.isSetNodeId2NodeCacheType() )
+            b.nodeId2NodeCacheType(additionalParams.getNodeId2NodeCacheType()) ;
+        
         if ( additionalParams.isSetNodeMissCacheSize() )
             b.nodeMissCacheSize(additionalParams.getNodeMissCacheSize()) ;
 
+        if ( additionalParams.isSetBloomBitsPerKey() )
+            b.bloomBitsPerKey(additionalParams.getBloomBitsPerKey()) ;
+
         return b.build();
     }
     
@@ -144,8 +161,15 @@ public class StoreParamsBuilder {
         this.blockWriteCacheSize    = other.blockWriteCacheSize ; 
         this.Node2NodeIdCacheSize   = other.Node2NodeIdCacheSize ; 
         this.NodeId2NodeCacheSize   = other.NodeId2NodeCacheSize ; 
+        this.NodeId2NodeCacheType   = other.NodeId2NodeCacheType ; 
         this.NodeMissCacheSize      = other.NodeMissCacheSize ; 
+        this.BloomBitsPerKey        = other.BloomBitsPerKey ; 
 
+        this.prefixCompression      = other.prefixCompression ; 
+        this.namespaceCompression   = other.namespaceCompression ; 
+        this.inlineStrings          = other.inlineStrings ; 
+        this.inlineOrderedDecimals  = other.inlineOrderedDecimals ; 
+        this.maintainStats          = other.maintainStats ; 
         this.nodeTableBaseName      = other.nodeTableBaseName ; 
         
         this.primaryIndexTriples    = other.primaryIndexTriples ; 
@@ -162,7 +186,13 @@ public class StoreParamsBuilder {
     public StoreParams build() {
         return new StoreParams(
                  fileMode, blockSize, blockReadCacheSize, blockWriteCacheSize, 
-                 Node2NodeIdCacheSize, NodeId2NodeCacheSize, NodeMissCacheSize,
+                 Node2NodeIdCacheSize, NodeId2NodeCacheSize, NodeId2NodeCacheType, NodeMissCacheSize,
+                 BloomBitsPerKey,
+                 prefixCompression,
+                 namespaceCompression,
+                 inlineStrings,
+                 inlineOrderedDecimals,
+                 maintainStats,
                  nodeTableBaseName,
                  primaryIndexTriples, tripleIndexes,
                  primaryIndexQuads, quadIndexes, 
@@ -188,6 +218,51 @@ public class StoreParamsBuilder {
         return this ;
     }
 
+    public boolean isPrefixCompression() {
+        return prefixCompression.value ;
+    }
+
+    public StoreParamsBuilder prefixCompression(boolean prefixCompression) {
+        this.prefixCompression = new Item<>(prefixCompression, true) ;
+        return this ;
+    }
+
+    public boolean isNamespaceCompression() {
+        return namespaceCompression.value ;
+    }
+
+    public StoreParamsBuilder namespaceCompression(boolean namespaceCompression) {
+        this.namespaceCompression = new Item<>(namespaceCompression, true) ;
+        return this ;
+    }
+
+    public boolean isInlineStrings() {
+        return inlineStrings.value ;
+    }
+
+    public StoreParamsBuilder inlineStrings(boolean inlineStrings) {
+        this.inlineStrings = new Item<>(inlineStrings, true) ;
+        return this ;
+    }
+
+    public boolean isInlineOrderedDecimals() {
+        return inlineOrderedDecimals.value ;
+    }
+
+    public StoreParamsBuilder inlineOrderedDecimals(boolean inlineOrderedDecimals) {
+        this.inlineOrderedDecimals = new Item<>(inlineOrderedDecimals, true) ;
+        return this ;
+    }
+
+    public boolean isMaintainStats() {
+        return maintainStats.value ;
+    }
+
+    public StoreParamsBuilder maintainStats(boolean maintainStats) {
+        this.maintainStats = new Item<>(maintainStats, true) ;
+        return this ;
+    }
+
     public int getBlockReadCacheSize() {
         return blockReadCacheSize.value ;
     }
@@ -224,6 +299,15 @@ public class StoreParamsBuilder {
        return this ;
    }
 
+    public NodeCacheType getNodeId2NodeCacheType() {
+        return NodeId2NodeCacheType.value ;
+    }
+
+   public StoreParamsBuilder nodeId2NodeCacheType(NodeCacheType nodeId2NodeCacheType) {
+       NodeId2NodeCacheType = new Item<>(nodeId2NodeCacheType, true) ;
+       return this ;
+   }
+
     public int getNodeMissCacheSize() {
         return NodeMissCacheSize.value ;
     }
@@ -233,6 +317,15 @@ public class StoreParamsBuilder {
        return this ;
    }
 
+    public int getBloomBitsPerKey() {
+        return BloomBitsPerKey.value ;
+    }
+
+    public StoreParamsBuilder bloomBitsPerKey(int bloomBitsPerKey) {
+        BloomBitsPerKey = new Item<>(bloomBitsPerKey, true) ;
+        return this ;
+    }
+
    public String getNodeTableBaseName() {
        return nodeTableBaseName.value ;
    }
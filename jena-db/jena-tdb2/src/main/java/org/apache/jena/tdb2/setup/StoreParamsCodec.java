@@ -33,6 +33,7 @@ import org.apache.jena.dboe.base.block.FileMode;
 import org.apache.jena.dboe.base.file.Location;
 import org.apache.jena.dboe.sys.Names;
 import org.apache.jena.tdb2.TDBException;
+import org.apache.jena.tdb2.store.nodetable.NodeCacheType;
 
 /** Encode and decode {@link StoreParams} */ 
 public class StoreParamsCodec {
@@ -78,7 +79,14 @@ public class StoreParamsCodec {
         encode(builder, key(fBlockWriteCacheSize),      params.getBlockWriteCacheSize()) ;
         encode(builder, key(fNode2NodeIdCacheSize),     params.getNode2NodeIdCacheSize()) ;
         encode(builder, key(fNodeId2NodeCacheSize),     params.getNodeId2NodeCacheSize()) ;
+        encode(builder, key(fNodeId2NodeCacheType),     params.getNodeId2NodeCacheType().name()) ;
         encode(builder, key(fNodeMissCacheSize),        params.getNodeMissCacheSize()) ;
+        encode(builder, key(fBloomBitsPerKey),          params.getBloomBitsPerKey()) ;
+        encode(builder, key(fPrefixCompression),        params.isPrefixCompression()) ;
+        encode(builder, key(fNamespaceCompression),     params.isNamespaceCompression()) ;
+        encode(builder, key(fInlineStrings),            params.isInlineStrings()) ;
+        encode(builder, key(fInlineOrderedDecimals),    params.isInlineOrderedDecimals()) ;
+        encode(builder, key(fMaintainStats),            params.isMaintainStats()) ;
         encode(builder, key(fNodeTableBaseName),        params.getNodeTableBaseName()) ;
         encode(builder, key(fPrimaryIndexTriples),      params.getPrimaryIndexTriples()) ;
         encode(builder, key(fTripleIndexes),            params.getTripleIndexes()) ;
@@ -118,8 +126,15 @@ public class StoreParamsCodec {
                 case fBlockWriteCacheSize:     builder.blockWriteCacheSize(getInt(json, key)) ;             break ;
                 case fNode2NodeIdCacheSize:    builder.node2NodeIdCacheSize(getInt(json, key)) ;            break ;
                 case fNodeId2NodeCacheSize:    builder.nodeId2NodeCacheSize(getInt(json, key)) ;            break ;
+                case fNodeId2NodeCacheType:    builder.nodeId2NodeCacheType(NodeCacheType.valueOf(getString(json, key))) ; break ;
                 case fNodeMissCacheSize:       builder.nodeMissCacheSize(getInt(json, key)) ;               break ;
+                case fBloomBitsPerKey:         builder.bloomBitsPerKey(getInt(json, key)) ; break ;
                 
+                case fPrefixCompression:       builder.prefixCompression(getBoolean(json, key)) ;           break ;
+                case fNamespaceCompression:    builder.namespaceCompression(getBoolean(json, key)) ; break ;
+                case fInlineStrings:           builder.inlineStrings(getBoolean(json, key)) ; break ;
+                case fInlineOrderedDecimals:   builder.inlineOrderedDecimals(getBoolean(json, key)) ; break ;
+                case fMaintainStats:           builder.maintainStats(getBoolean(json, key)) ; break ;
                 case fNodeTableBaseName:       builder.nodeTableBaseName(getString(json, key)) ;            break ;
                 case fPrimaryIndexTriples:     builder.primaryIndexTriples(getString(json, key)) ;          break ;
                 case fTripleIndexes:           builder.tripleIndexes(getStringArray(json, key)) ;           break ;
@@ -153,6 +168,12 @@ public class StoreParamsCodec {
         return x ;
     }
     
+    private static boolean getBoolean(JsonObject json, String key) {
+        if ( ! json.hasKey(key) )
+            throw new TDBException("StoreParamsCodec.getBoolean: no such key: "+key) ;
+        return json.get(key).getAsBoolean().value() ;
+    }
+    
     private static String[] getStringArray(JsonObject json, String key) {
         if ( ! json.hasKey(key) )
             throw new TDBException("StoreParamsCodec.getStringArray: no such key: "+key) ;
@@ -171,6 +192,10 @@ public class StoreParamsCodec {
             builder.key(name).value(x) ;
             return ;
         }
+        if ( value instanceof Boolean ) {
+            builder.key(name).value(((Boolean)value).booleanValue()) ;
+            return ;
+        }
         if ( value instanceof String ) {
             builder.key(name).value(value.toString()) ;
             return ;
@@ -20,6 +20,7 @@ package org.apache.jena.tdb2.setup;
 
 import org.apache.jena.dboe.base.block.FileMode;
 import org.apache.jena.dboe.sys.Names;
+import org.apache.jena.tdb2.store.nodetable.NodeCacheType;
 import org.apache.jena.tdb2.sys.SystemTDB;
 
 public class StoreParamsConst {
@@ -44,13 +45,34 @@ public class StoreParamsConst {
     public static final String   fNodeId2NodeCacheSize = "nodeid2node_cache_size" ;
     public static final int      NodeId2NodeCacheSize  = SystemTDB.NodeId2NodeCacheSize ;
     
+    public static final String   fNodeId2NodeCacheType = "nodeid2node_cache_type" ;
+    public static final NodeCacheType NodeId2NodeCacheType = NodeCacheType.LRU ;
+    
     public static final String   fNodeMissCacheSize    = "node_miss_cache_size" ;
     public static final int      NodeMissCacheSize     = SystemTDB.NodeMissCacheSize ;
     
+    public static final String   fBloomBitsPerKey      = "bloom_bits_per_key" ;
+    public static final int      BloomBitsPerKey       = 0 ;
+    
     /** Database layout - ignored after a database is created */
     public static final String   fBlockSize            = "block_size" ;
     public static final int      blockSize             = SystemTDB.BlockSize ;
     
+    public static final String   fPrefixCompression    = "prefix_compression" ;
+    public static final boolean  prefixCompression     = false ;
+    
+    public static final String   fNamespaceCompression = "namespace_compression" ;
+    public static final boolean  namespaceCompression  = false ;
+    
+    public static final String   fInlineStrings        = "inline_strings" ;
+    public static final boolean  inlineStrings         = false ;
+    
+    public static final String   fInlineOrderedDecimals = "inline_ordered_decimals" ;
+    public static final boolean  inlineOrderedDecimals = false ;
+    
+    public static final String   fMaintainStats        = "maintain_stats" ;
+    public static final boolean  maintainStats         = false ;
+    
     public static final String   fNodeTableBaseName    = "nodetable" ;
     public static final String   nodeTableBaseName     = Names.nodeTableBaseName ;
     
@@ -19,6 +19,7 @@
 package org.apache.jena.tdb2.setup;
 
 import org.apache.jena.dboe.base.block.FileMode;
+import org.apache.jena.tdb2.store.nodetable.NodeCacheType;
 
 /** Store parameters that can be adjusted after a store has been created,
  *  and given different values when the JVM attaches to a store area. 
@@ -47,8 +48,16 @@ public interface StoreParamsDynamic {
     public Integer getNodeId2NodeCacheSize() ;
     public boolean isSetNodeId2NodeCacheSize() ;
 
+    /** Implementation of the NodeId->Node cache. */
+    public NodeCacheType getNodeId2NodeCacheType() ;
+    public boolean isSetNodeId2NodeCacheType() ;
+
     /** Node cache for recording known misses */
     public Integer getNodeMissCacheSize() ;
     public boolean isSetNodeMissCacheSize() ;
+
+    /** Bits per key of the Bloom filter of each tuple index; 0 for no filters. */
+    public Integer getBloomBitsPerKey() ;
+    public boolean isSetBloomBitsPerKey() ;
 }
 
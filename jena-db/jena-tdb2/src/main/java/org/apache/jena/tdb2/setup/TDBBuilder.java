@@ -30,8 +30,11 @@ import org.apache.jena.dboe.trans.bplustree.BPlusTreeFactory;
 import org.apache.jena.dboe.trans.data.TransBinaryDataFile;
 import org.apache.jena.dboe.transaction.txn.ComponentId;
 import org.apache.jena.dboe.transaction.txn.TransactionCoordinator;
+import org.apache.jena.tdb2.TDBException;
 import org.apache.jena.tdb2.store.DatasetGraphTxn;
+import org.apache.jena.tdb2.store.nodetable.NamespaceDictionary;
 import org.apache.jena.tdb2.store.nodetable.NodeTable;
+import org.apache.jena.tdb2.store.nodetable.NodeTableNamespaces;
 import org.apache.jena.tdb2.store.nodetable.NodeTableTRDF;
 import org.apache.jena.tdb2.sys.SystemTDB;
 import org.slf4j.Logger;
@@ -65,6 +68,21 @@ public class TDBBuilder extends AbstractTDBBuilder {
         return create(location, params).build$(); 
     }
 
+    /**
+     * Build a database over existing storage that is only read, such as an immutable snapshot.
+     * The index files are memory mapped read-only, there is no journal recovery
+     * and write transactions are rejected.
+     */
+    public static DatasetGraphTxn buildReadOnly(Location location, StoreParams appParams) {
+        if ( isNewDatabaseArea(location) )
+            throw new TDBException("No database for read-only access: "+location);
+        StoreParams locParams = StoreParamsCodec.read(location);
+        StoreParams dftParams = StoreParams.getDftStoreParams();
+        StoreParams params = StoreParamsFactory.decideStoreParams(location, false, appParams, locParams, dftParams);
+        TransactionCoordinator txnCoord = buildTransactionCoordinatorReadOnly(location);
+        return create(txnCoord, location, params).build$(); 
+    }
+
     public static TDBBuilder create(Location location) {
         return create(location, StoreParams.getDftStoreParams()); 
     }
@@ -86,7 +104,9 @@ public class TDBBuilder extends AbstractTDBBuilder {
     public RangeIndex buildRangeIndex(RecordFactory recordFactory, String name) {
         ComponentId cid = componentIdMgr.getComponentId(name);
         FileSet fs = new FileSet(location, name);
-        BPlusTree bpt = BPlusTreeFactory.createBPTree(cid, fs, recordFactory);
+        BPlusTree bpt = isReadOnly()
+            ? BPlusTreeFactory.createBPTreeReadOnly(cid, fs, recordFactory, params.isPrefixCompression())
+            : BPlusTreeFactory.createBPTree(cid, fs, recordFactory, params.isPrefixCompression());
         txnCoord.add(bpt);
         return bpt;
     }
@@ -99,6 +119,11 @@ public class TDBBuilder extends AbstractTDBBuilder {
         String dataname = name+"-data"; 
         TransBinaryDataFile transBinFile = buildBinaryDataFile(dataname);
         txnCoord.add(transBinFile);
+        if ( params.isNamespaceCompression() ) {
+            NamespaceDictionary dictionary = new NamespaceDictionary(componentIdMgr.getComponentId(name+"-ns"));
+            txnCoord.add(dictionary);
+            return new NodeTableNamespaces(index, transBinFile, dictionary);
+        }
         return new NodeTableTRDF(index, transBinFile);
     }
 }
@@ -39,14 +39,21 @@ public class BindingTDB extends BindingBase
     
     private static final boolean caching = false ;
     // Whether the cache is worthwhile is unclear - the NodeTable keeps a cache. 
-    private final Map<Var,Node> cache = ( caching ? new HashMap<>() : null ) ;
+    private final Map<Var,Node> cache ;
 
     public BindingTDB(BindingNodeId idBinding, NodeTable nodeTable)
+    {
+        this(idBinding, nodeTable, ( caching ? new HashMap<>() : null )) ;
+    }
+
+    /** Create with some or all of the nodes already retrieved, keyed by variable. */
+    public BindingTDB(BindingNodeId idBinding, NodeTable nodeTable, Map<Var,Node> nodes)
     {
         // BindingNodeId contains the bindings actually used  copied down when created. 
         super(idBinding.getParentBinding()) ;
         this.idBinding = idBinding ;
         this.nodeTable = nodeTable ;
+        this.cache = nodes ;
     }
 
     @Override
@@ -110,6 +117,32 @@ public class BindingTDB extends BindingBase
         return null ;
     }
     
+    /**
+     * The NodeId for a variable of a binding if the value comes from a {@code BindingTDB},
+     * directly or as the parent of the binding, else null. No node is retrieved.
+     */
+    public static NodeId getNodeId(Binding binding, Var var)
+    {
+        Binding b = binding ;
+        while ( b != null )
+        {
+            if ( b instanceof BindingTDB )
+            {
+                NodeId id = ((BindingTDB)b).idBinding.get(var) ;
+                if ( id != null && ! NodeId.isDoesNotExist(id) )
+                    return id ;
+            }
+            if ( ! ( b instanceof BindingBase ) )
+                return null ;
+            Binding parent = ((BindingBase)b).getParent() ;
+            if ( parent == null || ! parent.contains(var) )
+                // Not bound, or bound in this binding.
+                return null ;
+            b = parent ;
+        }
+        return null ;
+    }
+    
     @Override
     public Node get1(Var var)
     {
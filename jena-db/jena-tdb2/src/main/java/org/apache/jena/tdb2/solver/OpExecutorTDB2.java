@@ -18,14 +18,19 @@
 
 package org.apache.jena.tdb2.solver;
 
+import java.util.ArrayList ;
+import java.util.List ;
+import java.util.Map ;
 import java.util.function.Predicate;
 
 import org.apache.jena.atlas.lib.tuple.Tuple ;
 import org.apache.jena.atlas.logging.Log ;
 import org.apache.jena.graph.Graph ;
 import org.apache.jena.graph.Node ;
+import org.apache.jena.query.ARQ ;
 import org.apache.jena.sparql.ARQInternalErrorException ;
 import org.apache.jena.sparql.algebra.Op ;
+import org.apache.jena.sparql.algebra.OpVars ;
 import org.apache.jena.sparql.algebra.op.* ;
 import org.apache.jena.sparql.algebra.optimize.TransformFilterPlacement ;
 import org.apache.jena.sparql.core.BasicPattern ;
@@ -34,18 +39,24 @@ import org.apache.jena.sparql.core.Substitute ;
 import org.apache.jena.sparql.core.Var ;
 import org.apache.jena.sparql.engine.ExecutionContext ;
 import org.apache.jena.sparql.engine.QueryIterator ;
+import org.apache.jena.sparql.engine.iterator.QueryIterFilterExpr ;
 import org.apache.jena.sparql.engine.iterator.QueryIterPeek ;
+import org.apache.jena.sparql.engine.iterator.QueryIterProject ;
+import org.apache.jena.sparql.engine.iterator.QueryIterRoot ;
 import org.apache.jena.sparql.engine.main.OpExecutor ;
 import org.apache.jena.sparql.engine.main.OpExecutorFactory ;
 import org.apache.jena.sparql.engine.main.QC ;
 import org.apache.jena.sparql.engine.main.iterator.QueryIterGraph ;
 import org.apache.jena.sparql.engine.optimizer.reorder.ReorderProc ;
 import org.apache.jena.sparql.engine.optimizer.reorder.ReorderTransformation ;
+import org.apache.jena.sparql.expr.Expr ;
 import org.apache.jena.sparql.expr.ExprList ;
 import org.apache.jena.sparql.mgt.Explain ;
 import org.apache.jena.tdb2.store.DatasetGraphTDB;
 import org.apache.jena.tdb2.store.GraphTDB;
 import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.nodetable.NodeTable;
+import org.apache.jena.tdb2.sys.SystemTDB;
 import org.slf4j.Logger ;
 import org.slf4j.LoggerFactory ;
 
@@ -89,18 +100,58 @@ public class OpExecutorTDB2 extends OpExecutor
     
     // Retrieving nodes isn't so bad because they will be needed anyway.
     // And if their duplicates, likely to be cached.
-    // Need to work with SolverLib which wraps the NodeId bindgins with a converter. 
+    // DISTINCT and REDUCED compare NodeIds instead, so that rows removed
+    // as duplicates do not cause nodes to be retrieved.
     
     @Override
     protected QueryIterator execute(OpDistinct opDistinct, QueryIterator input)
     {
-        return super.execute(opDistinct, input) ;
+        QueryIterator qIter = null ;
+        if ( compareNodeIds() )
+            qIter = executeDistinctReduced(opDistinct.getSubOp(), false, input) ;
+        return ( qIter != null ) ? qIter : super.execute(opDistinct, input) ;
     }
     
     @Override
     protected QueryIterator execute(OpReduced opReduced, QueryIterator input)
     {
-        return super.execute(opReduced, input) ;
+        QueryIterator qIter = null ;
+        if ( compareNodeIds() )
+            qIter = executeDistinctReduced(opReduced.getSubOp(), true, input) ;
+        return ( qIter != null ) ? qIter : super.execute(opReduced, input) ;
+    }
+    
+    private boolean compareNodeIds()
+    {
+        return isForTDB && execCxt.getContext().isTrueOrUndef(SystemTDB.symCompareNodeIds)
+            // Only the general implementation can spill to disk.
+            && ! execCxt.getContext().isDefined(ARQ.spillToDiskThreshold) ;
+    }
+    
+    private NodeTable getNodeTable()
+    {
+        GraphTDB graph = (GraphTDB)execCxt.getActiveGraph() ;
+        return graph.getDSG().getTripleTable().getNodeTupleTable().getNodeTable() ;
+    }
+    
+    /** DISTINCT or REDUCED comparing NodeIds, or null if not applicable */ 
+    private QueryIterator executeDistinctReduced(Op subOp, boolean reduced, QueryIterator input)
+    {
+        // (distinct (project vars op)) is (project vars (distinct-of-vars op)),
+        // where the distinct still sees the NodeIds of the bindings.
+        if ( subOp instanceof OpProject && input instanceof QueryIterRoot )
+        {
+            OpProject opProject = (OpProject)subOp ;
+            QueryIterator qIter = exec(opProject.getSubOp(), input) ;
+            qIter = new QueryIterDistinctNodeId(qIter, opProject.getVars(), reduced, getNodeTable(), execCxt) ;
+            return new QueryIterProject(qIter, opProject.getVars(), execCxt) ;
+        }
+        // The input bindings may have variables in addition to the visible ones.
+        if ( ! input.isJoinIdentity() )
+            return null ;
+        List<Var> vars = new ArrayList<>(OpVars.visibleVars(subOp)) ;
+        QueryIterator qIter = exec(subOp, input) ;
+        return new QueryIterDistinctNodeId(qIter, vars, reduced, getNodeTable(), execCxt) ;
     }
     
     @Override
@@ -132,7 +183,22 @@ public class OpExecutorTDB2 extends OpExecutor
         }
     
         // (filter (anything else))
-        return super.execute(opFilter, input) ;
+        if ( ! compareNodeIds() )
+            return super.execute(opFilter, input) ;
+        // Term equality tests are decided on NodeIds, before any other expression.
+        QueryIterator qIter = exec(opFilter.getSubOp(), input) ;
+        NodeTable nodeTable = getNodeTable() ;
+        for ( Expr expr : opFilter.getExprs() )
+        {
+            if ( QueryIterFilterNodeId.isNodeIdTest(expr) )
+                qIter = new QueryIterFilterNodeId(qIter, expr, nodeTable, execCxt) ;
+        }
+        for ( Expr expr : opFilter.getExprs() )
+        {
+            if ( ! QueryIterFilterNodeId.isNodeIdTest(expr) )
+                qIter = new QueryIterFilterExpr(qIter, expr, execCxt) ;
+        }
+        return qIter ;
         }
 
     // ---- Triple patterns
@@ -164,6 +230,17 @@ public class OpExecutorTDB2 extends OpExecutor
         return optimizeExecuteQuads(ds, input, gn, bgp, null, execCxt) ;
     }
 
+    @Override
+    protected QueryIterator execute(OpGroup opGroup, QueryIterator input)
+    {
+        if ( isForTDB && execCxt.getContext().isTrueOrUndef(SystemTDB.symIndexCount) ) {
+            QueryIterator qIter = SolverCount.execute(opGroup, input, execCxt) ;
+            if ( qIter != null )
+                return qIter ;
+        }
+        return super.execute(opGroup, input) ;
+    }
+
     @Override
     protected QueryIterator execute(OpGraph opGraph, QueryIterator input)
     {
@@ -216,7 +293,7 @@ public class OpExecutorTDB2 extends OpExecutor
         else
             op = new OpBGP(pattern) ;
         
-        return plainExecute(op, input, execCxt) ;
+        return plainExecute(op, input, rangeScans(graph.getDSG(), exprs, execCxt), execCxt) ;
     }
 
     /** Execute, with optimization, a quad pattern */
@@ -253,11 +330,26 @@ public class OpExecutorTDB2 extends OpExecutor
         else
             op = new OpQuadPattern(gn, bgp) ;
 
-        return plainExecute(op, input, execCxt) ;
+        return plainExecute(op, input, rangeScans(ds, exprs, execCxt), execCxt) ;
+    }
+
+    /** Ranges of NodeIds for variables compared with constants in the filter, if any. */
+    private static Map<Var, List<long[]>> rangeScans(DatasetGraphTDB ds, ExprList exprs, ExecutionContext execCxt)
+    {
+        if ( exprs == null || ! execCxt.getContext().isTrueOrUndef(SystemTDB.symRangeScan) )
+            return null ;
+        return RangeScan.ranges(exprs, ds.getStoreParams().isInlineOrderedDecimals()) ;
     }
 
     /** Execute without modification of the op - does <b>not</b> apply special graph name translations */ 
     private static QueryIterator plainExecute(Op op, QueryIterator input, ExecutionContext execCxt)
+    {
+        return plainExecute(op, input, null, execCxt) ;
+    }
+
+    /** Execute without modification of the op, with ranges of NodeIds for the variables
+     * of a filter over the patterns of the op (see {@link RangeScan}). */ 
+    private static QueryIterator plainExecute(Op op, QueryIterator input, Map<Var, List<long[]>> ranges, ExecutionContext execCxt)
     {
         // -- Execute
         // Switch to a non-reordering executor
@@ -265,7 +357,7 @@ public class OpExecutorTDB2 extends OpExecutor
         // so we need to do a full execution step, not go straight to the SolverLib.
         
         ExecutionContext ec2 = new ExecutionContext(execCxt) ;
-        ec2.setExecutor(plainFactory) ;
+        ec2.setExecutor(( ranges == null || ranges.isEmpty() ) ? plainFactory : new OpExecutorPlainFactoryTDB(ranges)) ;
 
         // Solve without going through this executor again.
         // There would be issues of nested patterns but this is only a
@@ -359,10 +451,16 @@ public class OpExecutorTDB2 extends OpExecutor
     private static OpExecutorFactory plainFactory = new OpExecutorPlainFactoryTDB() ;
     private static class OpExecutorPlainFactoryTDB implements OpExecutorFactory
     {
+        private final Map<Var, List<long[]>> ranges ;
+
+        OpExecutorPlainFactoryTDB() { this(null) ; }
+
+        OpExecutorPlainFactoryTDB(Map<Var, List<long[]>> ranges) { this.ranges = ranges ; }
+
         @Override
         public OpExecutor create(ExecutionContext execCxt)
         {
-            return new OpExecutorPlainTDB(execCxt) ;
+            return new OpExecutorPlainTDB(execCxt, ranges) ;
         }
     }
 
@@ -370,11 +468,13 @@ public class OpExecutorTDB2 extends OpExecutor
     private static class OpExecutorPlainTDB extends OpExecutor
     {
         Predicate<Tuple<NodeId>> filter = null ;
+        Map<Var, List<long[]>> ranges = null ;
         
-        public OpExecutorPlainTDB(ExecutionContext execCxt)
+        public OpExecutorPlainTDB(ExecutionContext execCxt, Map<Var, List<long[]>> ranges)
         {
             super(execCxt) ;
             filter = QC2.getFilter(execCxt.getContext()) ;
+            this.ranges = ranges ;
         }
         
         @Override
@@ -390,7 +490,7 @@ public class OpExecutorTDB2 extends OpExecutor
                 //return SolverLib.execute((GraphTDB)g, bgp, input, filter, execCxt) ;
                 GraphTDB gtdb = (GraphTDB)g ;
                 Node gn = decideGraphNode(gtdb.getGraphName(), execCxt) ;
-                return SolverLib.execute(gtdb.getDSG(), gn, bgp, input, filter, execCxt) ;
+                return SolverLib.execute(gtdb.getDSG(), gn, bgp, input, filter, ranges, execCxt) ;
             }
             Log.warn(this, "Non-GraphTDB passed to OpExecutorPlainTDB") ;
             return super.execute(opBGP, input) ;
@@ -407,7 +507,7 @@ public class OpExecutorTDB2 extends OpExecutor
                 DatasetGraphTDB ds = (DatasetGraphTDB)execCxt.getDataset() ;
                 Explain.explain("Execute", opQuadPattern.getPattern(), execCxt.getContext()) ;
                 BasicPattern bgp = opQuadPattern.getBasicPattern() ;
-                return SolverLib.execute(ds, gn, bgp, input, filter, execCxt) ;
+                return SolverLib.execute(ds, gn, bgp, input, filter, ranges, execCxt) ;
             }
             // Maybe a TDB named graph inside a non-TDB dataset.
             Graph g = execCxt.getActiveGraph() ;
@@ -418,7 +518,7 @@ public class OpExecutorTDB2 extends OpExecutor
                 BasicPattern bgp = opQuadPattern.getBasicPattern() ;
                 Explain.explain("Execute", bgp, execCxt.getContext()) ;
                 // Don't pass in G -- gn may be different.
-                return SolverLib.execute(((GraphTDB)g).getDSG(), gn, bgp, input, filter, execCxt) ;
+                return SolverLib.execute(((GraphTDB)g).getDSG(), gn, bgp, input, filter, ranges, execCxt) ;
             }
             Log.warn(this, "Non-DatasetGraphTDB passed to OpExecutorPlainTDB") ;
             return super.execute(opQuadPattern, input) ;
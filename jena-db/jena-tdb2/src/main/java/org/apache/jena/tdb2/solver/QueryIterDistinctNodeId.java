@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.tdb2.solver;
+
+import java.util.Arrays ;
+import java.util.HashSet ;
+import java.util.List ;
+import java.util.Set ;
+
+import org.apache.jena.graph.Node ;
+import org.apache.jena.sparql.core.Var ;
+import org.apache.jena.sparql.engine.ExecutionContext ;
+import org.apache.jena.sparql.engine.QueryIterator ;
+import org.apache.jena.sparql.engine.binding.Binding ;
+import org.apache.jena.sparql.engine.iterator.QueryIter1 ;
+import org.apache.jena.sparql.engine.iterator.QueryIterDistinct ;
+import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.nodetable.NodeTable;
+
+/**
+ * DISTINCT or REDUCED over a fixed list of variables, comparing the NodeIds of values
+ * from the database rather than the nodes, so the nodes are not retrieved from the
+ * node table for the comparison. Values that did not come from the database are
+ * looked up in the node table; ones not in the database are compared as nodes.
+ * <p>
+ * REDUCED only removes adjacent duplicates.
+ * All the seen keys are kept in memory; {@link QueryIterDistinct} is the
+ * implementation that can spill to disk.
+ */
+public class QueryIterDistinctNodeId extends QueryIter1
+{
+    private final Var[] vars ;
+    private final NodeTable nodeTable ;
+    private final boolean reduced ;
+    private final Set<List<Object>> seen = new HashSet<>() ;
+    private List<Object> lastKey = null ;
+    private Binding slot = null ;
+
+    public QueryIterDistinctNodeId(QueryIterator input, List<Var> vars, boolean reduced,
+                                   NodeTable nodeTable, ExecutionContext execCxt)
+    {
+        super(input, execCxt) ;
+        this.vars = vars.toArray(new Var[vars.size()]) ;
+        this.nodeTable = nodeTable ;
+        this.reduced = reduced ;
+    }
+
+    @Override
+    protected boolean hasNextBinding()
+    {
+        if ( slot != null )
+            return true ;
+        while ( getInput().hasNext() )
+        {
+            Binding b = getInput().nextBinding() ;
+            List<Object> key = key(b) ;
+            if ( reduced )
+            {
+                if ( key.equals(lastKey) )
+                    continue ;
+                lastKey = key ;
+            }
+            else if ( ! seen.add(key) )
+                continue ;
+            slot = b ;
+            return true ;
+        }
+        return false ;
+    }
+
+    @Override
+    protected Binding moveToNextBinding()
+    {
+        Binding b = slot ;
+        slot = null ;
+        return b ;
+    }
+
+    private List<Object> key(Binding binding)
+    {
+        Object[] key = new Object[vars.length] ;
+        for ( int i = 0 ; i < vars.length ; i++ )
+            key[i] = value(binding, vars[i]) ;
+        return Arrays.asList(key) ;
+    }
+
+    /** NodeId where possible, otherwise the node, or null for unbound. */
+    private Object value(Binding binding, Var var)
+    {
+        NodeId id = BindingTDB.getNodeId(binding, var) ;
+        if ( id != null )
+            return id ;
+        Node n = binding.get(var) ;
+        if ( n == null )
+            return null ;
+        id = nodeTable.getNodeIdForNode(n) ;
+        if ( NodeId.isDoesNotExist(id) )
+            return n ;
+        // An inline value may not be the same term (e.g. "01"^^xsd:integer).
+        if ( id.isInline() && ! n.equals(NodeId.extract(id)) )
+            return n ;
+        return id ;
+    }
+
+    @Override
+    protected void requestSubCancel() {}
+
+    @Override
+    protected void closeSubIterator()
+    {
+        seen.clear() ;
+    }
+}
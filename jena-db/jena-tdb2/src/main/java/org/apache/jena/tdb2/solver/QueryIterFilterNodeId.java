@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.tdb2.solver;
+
+import org.apache.jena.graph.Node ;
+import org.apache.jena.sparql.core.Var ;
+import org.apache.jena.sparql.engine.ExecutionContext ;
+import org.apache.jena.sparql.engine.QueryIterator ;
+import org.apache.jena.sparql.engine.binding.Binding ;
+import org.apache.jena.sparql.engine.iterator.QueryIterFilterExpr ;
+import org.apache.jena.sparql.expr.E_Equals ;
+import org.apache.jena.sparql.expr.E_SameTerm ;
+import org.apache.jena.sparql.expr.Expr ;
+import org.apache.jena.sparql.expr.ExprFunction2 ;
+import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.nodetable.NodeTable;
+
+/**
+ * Filter by a test of term equality, deciding it on the NodeIds when the values come
+ * from the database, so the nodes are not retrieved from the node table.
+ * Otherwise, the expression is evaluated as usual.
+ * <p>
+ * The expressions covered (see {@link #isNodeIdTest}) are {@code sameTerm} of two
+ * variables or of a variable and a constant, and {@code =} of a variable and an IRI
+ * or blank node, where value equality and term equality are the same.
+ */
+public class QueryIterFilterNodeId extends QueryIterFilterExpr
+{
+    private final Var var1 ;
+    // Either var2 or the NodeId of the constant.
+    private final Var var2 ;
+    private final NodeId constant ;
+
+    public QueryIterFilterNodeId(QueryIterator input, Expr expr, NodeTable nodeTable, ExecutionContext context)
+    {
+        super(input, expr, context) ;
+        if ( ! isNodeIdTest(expr) )
+            throw new IllegalArgumentException("Not a test of term equality: "+expr) ;
+        ExprFunction2 func = (ExprFunction2)expr ;
+        Expr arg1 = func.getArg1() ;
+        Expr arg2 = func.getArg2() ;
+        if ( ! arg1.isVariable() )
+        {
+            Expr x = arg1 ;
+            arg1 = arg2 ;
+            arg2 = x ;
+        }
+        var1 = arg1.asVar() ;
+        if ( arg2.isVariable() )
+        {
+            var2 = arg2.asVar() ;
+            constant = null ;
+        }
+        else
+        {
+            var2 = null ;
+            constant = nodeIdFor(nodeTable, arg2.getConstant().asNode()) ;
+        }
+    }
+
+    /** NodeId of a constant, or NodeDoesNotExist if no value from the database is that term. */
+    private static NodeId nodeIdFor(NodeTable nodeTable, Node node)
+    {
+        NodeId id = nodeTable.getNodeIdForNode(node) ;
+        // An inline value may not be the same term (e.g. "01"^^xsd:integer).
+        if ( ! NodeId.isDoesNotExist(id) && id.isInline() && ! node.equals(NodeId.extract(id)) )
+            return NodeId.NodeDoesNotExist ;
+        return id ;
+    }
+
+    /** Whether the expression is a term equality test this filter can decide with NodeIds. */
+    public static boolean isNodeIdTest(Expr expr)
+    {
+        if ( expr instanceof E_SameTerm )
+        {
+            ExprFunction2 func = (ExprFunction2)expr ;
+            Expr arg1 = func.getArg1() ;
+            Expr arg2 = func.getArg2() ;
+            return ( arg1.isVariable() && ( arg2.isVariable() || arg2.isConstant() ) )
+                || ( arg2.isVariable() && arg1.isConstant() ) ;
+        }
+        if ( expr instanceof E_Equals )
+        {
+            ExprFunction2 func = (ExprFunction2)expr ;
+            Expr arg1 = func.getArg1() ;
+            Expr arg2 = func.getArg2() ;
+            return ( arg1.isVariable() && isTerm(arg2) ) || ( arg2.isVariable() && isTerm(arg1) ) ;
+        }
+        return false ;
+    }
+
+    private static boolean isTerm(Expr expr)
+    {
+        if ( ! expr.isConstant() )
+            return false ;
+        Node n = expr.getConstant().asNode() ;
+        return n.isURI() || n.isBlank() ;
+    }
+
+    @Override
+    public Binding accept(Binding binding)
+    {
+        NodeId id1 = BindingTDB.getNodeId(binding, var1) ;
+        if ( id1 != null )
+        {
+            NodeId id2 = ( var2 == null ) ? constant : BindingTDB.getNodeId(binding, var2) ;
+            if ( id2 != null )
+                return id1.equals(id2) ? binding : null ;
+        }
+        // A value not from the database.
+        return super.accept(binding) ;
+    }
+}
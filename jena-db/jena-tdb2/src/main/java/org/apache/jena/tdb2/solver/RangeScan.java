@@ -0,0 +1,286 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.tdb2.solver;
+
+import java.math.BigDecimal ;
+import java.math.BigInteger ;
+import java.math.RoundingMode ;
+import java.util.ArrayList ;
+import java.util.Collections ;
+import java.util.EnumSet ;
+import java.util.HashMap ;
+import java.util.List ;
+import java.util.Map ;
+import java.util.Set ;
+
+import org.apache.jena.sparql.core.Var ;
+import org.apache.jena.sparql.expr.* ;
+import org.apache.jena.tdb2.store.NodeIdFactory;
+import org.apache.jena.tdb2.store.NodeIdType;
+import org.apache.jena.tdb2.store.value.DateTimeNode;
+import org.apache.jena.tdb2.store.value.DecimalNodeOrdered;
+import org.apache.jena.tdb2.store.value.IntegerNode;
+
+/**
+ * Ranges of NodeIds, in their on-disk form, that can satisfy the FILTER comparisons
+ * ({@code <}, {@code <=}, {@code >}, {@code >=}) of a variable with a numeric or
+ * {@code xsd:dateTime} constant.
+ * <p>
+ * Inline integers are stored as a 56 bit two's complement number under the type
+ * so, for each integer type, non-negative values sort in numeric order followed by
+ * negative values in numeric order. Inline dateTimes with timezone "Z" sort in time order.
+ * If the database has the {@code inline_ordered_decimals} layout, inline decimals sort in
+ * numeric order (see {@link DecimalNodeOrdered}).
+ * Values of these types outside the bounds are excluded. Everything else (nodes in the
+ * node table, doubles, decimals otherwise, other inline types, other timezones) is kept,
+ * so the ranges are a superset of the matches and the FILTER must still be applied.
+ */
+public class RangeScan
+{
+    private static final long MASK56 = (1L<<IntegerNode.LEN)-1 ;
+
+    private static final Set<NodeIdType> integerTypes = EnumSet.of(
+        NodeIdType.XSD_INTEGER,
+        NodeIdType.XSD_POSITIVE_INTEGER, NodeIdType.XSD_NEGATIVE_INTEGER,
+        NodeIdType.XSD_NON_NEGATIVE_INTEGER, NodeIdType.XSD_NON_POSITIVE_INTEGER,
+        NodeIdType.XSD_LONG, NodeIdType.XSD_INT, NodeIdType.XSD_SHORT, NodeIdType.XSD_BYTE,
+        NodeIdType.XSD_UNSIGNEDLONG, NodeIdType.XSD_UNSIGNEDINT,
+        NodeIdType.XSD_UNSIGNEDSHORT, NodeIdType.XSD_UNSIGNEDBYTE) ;
+
+    private static final Set<NodeIdType> dateTimeTypes = EnumSet.of(
+        NodeIdType.XSD_DATETIME, NodeIdType.XSD_DATETIMESTAMP) ;
+
+    // Doubles compare exactly with integers below this.
+    private static final double maxExactDouble = 0x1p53 ;
+
+    /**
+     * For each variable with a bound, the ranges, in order, of on-disk NodeIds
+     * ({@code [lo, hi]} inclusive, as unsigned 64 bit numbers) that can satisfy the expressions.
+     * Variables without a bound are not included. The expressions are a conjunction.
+     */
+    public static Map<Var, List<long[]>> ranges(ExprList exprs) {
+        return ranges(exprs, false) ;
+    }
+
+    /**
+     * As {@link #ranges(ExprList)}, for a database where inline decimals are
+     * in the order-preserving encoding if {@code orderedDecimals} is true.
+     */
+    public static Map<Var, List<long[]>> ranges(ExprList exprs, boolean orderedDecimals) {
+        Map<Var, Bounds> bounds = new HashMap<>() ;
+        for ( Expr expr : exprs )
+            collect(expr, bounds) ;
+        if ( bounds.isEmpty() )
+            return Collections.emptyMap() ;
+        Map<Var, List<long[]>> ranges = new HashMap<>() ;
+        bounds.forEach((v, b) -> {
+            List<long[]> x = b.ranges(orderedDecimals) ;
+            if ( x != null )
+                ranges.put(v, x) ;
+        }) ;
+        return ranges ;
+    }
+
+    private static final int LT = 0, LE = 1, GT = 2, GE = 3 ;
+
+    private static void collect(Expr expr, Map<Var, Bounds> bounds) {
+        if ( expr instanceof E_LogicalAnd ) {
+            collect(((E_LogicalAnd)expr).getArg1(), bounds) ;
+            collect(((E_LogicalAnd)expr).getArg2(), bounds) ;
+            return ;
+        }
+        int op ;
+        if ( expr instanceof E_LessThan )                   op = LT ;
+        else if ( expr instanceof E_LessThanOrEqual )       op = LE ;
+        else if ( expr instanceof E_GreaterThan )           op = GT ;
+        else if ( expr instanceof E_GreaterThanOrEqual )    op = GE ;
+        else
+            return ;
+        Expr arg1 = ((ExprFunction2)expr).getArg1() ;
+        Expr arg2 = ((ExprFunction2)expr).getArg2() ;
+        Var var ;
+        NodeValue nv ;
+        if ( arg1.isVariable() && arg2.isConstant() ) {
+            var = arg1.asVar() ;
+            nv = arg2.getConstant() ;
+        } else if ( arg2.isVariable() && arg1.isConstant() ) {
+            // constant op ?var => ?var reversed-op constant
+            var = arg2.asVar() ;
+            nv = arg1.getConstant() ;
+            op = ( op + 2 ) % 4 ;
+        } else
+            return ;
+        if ( nv.isNumber() ) {
+            BigDecimal d = decimal(nv) ;
+            if ( d != null )
+                bounds.computeIfAbsent(var, v->new Bounds()).number(op, d) ;
+        } else if ( nv.isDateTime() ) {
+            long packed = DateTimeNode.packDateTime(nv.asNode().getLiteralLexicalForm()) ;
+            if ( packed != -1 && DateTimeNode.isTimezoneZ(packed) )
+                bounds.computeIfAbsent(var, v->new Bounds()).dateTime(op, packed) ;
+        }
+    }
+
+    /** The exact value of a number, or null if it is not usable as a bound. */
+    private static BigDecimal decimal(NodeValue nv) {
+        if ( nv.isInteger() )
+            return new BigDecimal(nv.getInteger()) ;
+        if ( nv.isDecimal() )
+            return nv.getDecimal() ;
+        if ( nv.isDouble() || nv.isFloat() ) {
+            // Integers are compared as doubles, which is only exact for smaller values.
+            double d = nv.getDouble() ;
+            if ( Double.isNaN(d) || Math.abs(d) >= maxExactDouble )
+                return null ;
+            return new BigDecimal(d) ;
+        }
+        return null ;
+    }
+
+    /** Bounds of one variable: inclusive, for integers as numbers, for dateTimes as packed values. */
+    private static class Bounds {
+        boolean hasInteger = false ;
+        long intLo = IntegerNode.MIN ;
+        long intHi = IntegerNode.MAX ;
+
+        // null for no bound.
+        BigDecimal decLo = null ;
+        BigDecimal decHi = null ;
+
+        boolean hasDateTime = false ;
+        long dtLo = DateTimeNode.minTimezoneZ() ;
+        long dtHi = DateTimeNode.maxTimezoneZ() ;
+
+        void number(int op, BigDecimal d) {
+            hasInteger = true ;
+            switch (op) {
+                case GT: intLo = Math.max(intLo, lower(d.setScale(0, RoundingMode.FLOOR).toBigInteger().add(BigInteger.ONE))) ; break ;
+                case GE: intLo = Math.max(intLo, lower(d.setScale(0, RoundingMode.CEILING).toBigInteger())) ; break ;
+                case LT: intHi = Math.min(intHi, upper(d.setScale(0, RoundingMode.CEILING).toBigInteger().subtract(BigInteger.ONE))) ; break ;
+                case LE: intHi = Math.min(intHi, upper(d.setScale(0, RoundingMode.FLOOR).toBigInteger())) ; break ;
+            }
+            // Inclusive, even for < and >, so the ranges are a superset.
+            if ( op == GT || op == GE )
+                decLo = ( decLo == null ) ? d : decLo.max(d) ;
+            else
+                decHi = ( decHi == null ) ? d : decHi.min(d) ;
+        }
+
+        // Clamp to the inline integer range, with one beyond each end meaning "none".
+        private static long lower(BigInteger x) {
+            if ( x.compareTo(BigInteger.valueOf(IntegerNode.MIN)) < 0 )
+                return IntegerNode.MIN ;
+            if ( x.compareTo(BigInteger.valueOf(IntegerNode.MAX)) > 0 )
+                return IntegerNode.MAX+1 ;
+            return x.longValue() ;
+        }
+
+        private static long upper(BigInteger x) {
+            if ( x.compareTo(BigInteger.valueOf(IntegerNode.MAX)) > 0 )
+                return IntegerNode.MAX ;
+            if ( x.compareTo(BigInteger.valueOf(IntegerNode.MIN)) < 0 )
+                return IntegerNode.MIN-1 ;
+            return x.longValue() ;
+        }
+
+        void dateTime(int op, long packed) {
+            hasDateTime = true ;
+            // Inclusive, even for < and >, so the ranges are a superset.
+            if ( op == GT || op == GE )
+                dtLo = Math.max(dtLo, packed) ;
+            else
+                dtHi = Math.min(dtHi, packed) ;
+        }
+
+        /** Ranges to scan, or null for everything. */
+        List<long[]> ranges(boolean orderedDecimals) {
+            List<long[]> excluded = new ArrayList<>() ;
+            if ( hasInteger ) {
+                for ( NodeIdType type : integerTypes ) {
+                    long segLo = encode(type, 0) ;
+                    long segHi = encode(type, MASK56) ;
+                    if ( intLo > intHi ) {
+                        excluded.add(new long[] {segLo, segHi}) ;
+                        continue ;
+                    }
+                    long lo = encode(type, intLo) ;
+                    long hi = encode(type, intHi) ;
+                    if ( intLo >= 0 || intHi < 0 ) {
+                        // One part of the segment, in order.
+                        exclude(excluded, segLo, lo-1) ;
+                        exclude(excluded, hi+1, segHi) ;
+                    } else
+                        // Non-negatives from zero to hi, then negatives from lo.
+                        exclude(excluded, hi+1, lo-1) ;
+                }
+            }
+            if ( hasInteger && orderedDecimals ) {
+                NodeIdType type = NodeIdType.XSD_DECIMAL_ORDERED ;
+                long segLo = encode(type, DecimalNodeOrdered.MIN) ;
+                long segHi = encode(type, DecimalNodeOrdered.MAX) ;
+                // From MIN-1 to MAX+1, with the ends meaning "none".
+                long lo = ( decLo == null ) ? DecimalNodeOrdered.MIN : DecimalNodeOrdered.packBound(decLo, false) ;
+                long hi = ( decHi == null ) ? DecimalNodeOrdered.MAX : DecimalNodeOrdered.packBound(decHi, true) ;
+                if ( lo > hi )
+                    excluded.add(new long[] {segLo, segHi}) ;
+                else {
+                    exclude(excluded, segLo, encode(type, lo)-1) ;
+                    exclude(excluded, encode(type, hi)+1, segHi) ;
+                }
+            }
+            if ( hasDateTime ) {
+                for ( NodeIdType type : dateTimeTypes ) {
+                    long segLo = encode(type, DateTimeNode.minTimezoneZ()) ;
+                    long segHi = encode(type, DateTimeNode.maxTimezoneZ()) ;
+                    if ( dtLo > dtHi ) {
+                        excluded.add(new long[] {segLo, segHi}) ;
+                        continue ;
+                    }
+                    exclude(excluded, segLo, encode(type, dtLo)-1) ;
+                    exclude(excluded, encode(type, dtHi)+1, segHi) ;
+                }
+            }
+            if ( excluded.isEmpty() )
+                return null ;
+            // Complement, over all unsigned 64 bit numbers.
+            excluded.sort((r1, r2) -> Long.compareUnsigned(r1[0], r2[0])) ;
+            List<long[]> ranges = new ArrayList<>() ;
+            long start = 0 ;
+            for ( long[] r : excluded ) {
+                if ( Long.compareUnsigned(start, r[0]) < 0 )
+                    ranges.add(new long[] {start, r[0]-1}) ;
+                start = r[1]+1 ;
+            }
+            if ( start != 0 )
+                ranges.add(new long[] {start, -1L}) ;
+            return ranges ;
+        }
+
+        // Segments never include 0 or the top of the unsigned range so there is no wrap around.
+        private static void exclude(List<long[]> excluded, long lo, long hi) {
+            if ( Long.compareUnsigned(lo, hi) <= 0 )
+                excluded.add(new long[] {lo, hi}) ;
+        }
+
+        private static long encode(NodeIdType type, long value) {
+            return NodeIdFactory.encode(NodeIdFactory.createValue(type, value & MASK56)) ;
+        }
+    }
+}
@@ -0,0 +1,343 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.solver;
+
+import java.util.* ;
+import java.util.function.Predicate ;
+import java.util.stream.Collectors ;
+import java.util.stream.Stream ;
+
+import org.apache.jena.atlas.iterator.Iter ;
+import org.apache.jena.atlas.lib.tuple.Tuple ;
+import org.apache.jena.atlas.lib.tuple.TupleFactory ;
+import org.apache.jena.graph.Node ;
+import org.apache.jena.graph.Triple ;
+import org.apache.jena.sparql.algebra.Op ;
+import org.apache.jena.sparql.algebra.op.OpBGP ;
+import org.apache.jena.sparql.algebra.op.OpGroup ;
+import org.apache.jena.sparql.algebra.op.OpQuadPattern ;
+import org.apache.jena.sparql.core.Var ;
+import org.apache.jena.sparql.core.VarExprList ;
+import org.apache.jena.sparql.engine.ExecutionContext ;
+import org.apache.jena.sparql.engine.QueryIterator ;
+import org.apache.jena.sparql.engine.binding.Binding ;
+import org.apache.jena.sparql.engine.binding.BindingFactory ;
+import org.apache.jena.sparql.engine.binding.BindingMap ;
+import org.apache.jena.sparql.engine.iterator.QueryIterPlainWrapper ;
+import org.apache.jena.sparql.engine.iterator.QueryIterSingleton ;
+import org.apache.jena.sparql.expr.Expr ;
+import org.apache.jena.sparql.expr.ExprAggregator ;
+import org.apache.jena.sparql.expr.NodeValue ;
+import org.apache.jena.sparql.expr.aggregate.AggCount ;
+import org.apache.jena.sparql.expr.aggregate.AggCountVar ;
+import org.apache.jena.sparql.expr.aggregate.Aggregator ;
+import org.apache.jena.tdb2.store.DatasetGraphTDB;
+import org.apache.jena.tdb2.store.GraphTDB;
+import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.nodetable.NodeTable;
+import org.apache.jena.tdb2.store.nodetupletable.NodeTupleTable;
+import org.apache.jena.tdb2.store.tupletable.TupleIndex;
+import org.apache.jena.tdb2.store.tupletable.TupleTable;
+import org.apache.jena.tdb2.sys.SystemTDB;
+
+/**
+ * COUNT of the matches of a single triple or quad pattern, optionally grouped by
+ * variables of the pattern, calculated from the NodeIds of a scan of an index.
+ * <p>
+ * Without grouping, the scan can be a parallel scan of the key ranges of the index
+ * (see {@link TupleTable#stream}) if {@link SystemTDB#symParallelScan} is set. No node
+ * is retrieved from the node table, so the threads of the scan do not need to be in
+ * the transaction.
+ * <p>
+ * With grouping, if there is an index with the constants and then the group
+ * variables as the leading part of its key, the groups are adjacent in the scan
+ * and are counted as they pass; otherwise, the counts are kept in a hash table
+ * keyed by the NodeIds of the group variables. Only the nodes for the group keys
+ * are retrieved from the node table.
+ * <p>
+ * The tuple filter of the execution context ({@link SystemTDB#symTupleFilter}), if any,
+ * is applied to the tuples counted, as in the general execution. With a parallel scan,
+ * it is called from the threads of the scan.
+ * <p>
+ * Covers {@code COUNT(*)} and {@code COUNT(?v)}, where {@code ?v} is a variable of
+ * the pattern, so always bound, and {@code GROUP BY} of variables of the pattern.
+ * Other cases, including DISTINCT, group expressions, the union graph and a pattern
+ * with a GRAPH variable, are left to the general execution.
+ */
+public class SolverCount
+{
+    /** Return a {@link QueryIterator} for the rows of the counts, or null if not applicable. */
+    public static QueryIterator execute(OpGroup opGroup, QueryIterator input, ExecutionContext execCxt) {
+        if ( ! input.isJoinIdentity() )
+            return null ;
+
+        // The graph: null for the default graph storage.
+        Node gn ;
+        Triple triple ;
+        DatasetGraphTDB dsg ;
+        Op sub = opGroup.getSubOp() ;
+        if ( sub instanceof OpQuadPattern ) {
+            OpQuadPattern opQuadPattern = (OpQuadPattern)sub ;
+            if ( opQuadPattern.getBasicPattern().size() != 1 )
+                return null ;
+            if ( ! ( execCxt.getDataset() instanceof DatasetGraphTDB ) )
+                return null ;
+            dsg = (DatasetGraphTDB)execCxt.getDataset() ;
+            gn = OpExecutorTDB2.decideGraphNode(opQuadPattern.getGraphNode(), execCxt) ;
+            triple = opQuadPattern.getBasicPattern().get(0) ;
+        } else if ( sub instanceof OpBGP ) {
+            OpBGP opBGP = (OpBGP)sub ;
+            if ( opBGP.getPattern().size() != 1 || ! ( execCxt.getActiveGraph() instanceof GraphTDB ) )
+                return null ;
+            GraphTDB graph = (GraphTDB)execCxt.getActiveGraph() ;
+            dsg = graph.getDSG() ;
+            gn = OpExecutorTDB2.decideGraphNode(graph.getGraphName(), execCxt) ;
+            triple = opBGP.getPattern().get(0) ;
+        } else
+            return null ;
+        if ( gn != null && ! gn.isConcrete() )
+            // Union graph (Node.ANY) or a GRAPH variable.
+            return null ;
+
+        Node[] nodes = ( gn == null )
+            ? new Node[] {triple.getSubject(), triple.getPredicate(), triple.getObject()}
+            : new Node[] {gn, triple.getSubject(), triple.getPredicate(), triple.getObject()} ;
+
+        // Group variables, which must be variables of the pattern.
+        VarExprList groupVars = opGroup.getGroupVars() ;
+        int[] groupSlots = new int[groupVars.size()] ;
+        for ( int i = 0 ; i < groupSlots.length ; i++ ) {
+            Var v = groupVars.getVars().get(i) ;
+            if ( groupVars.getExpr(v) != null )
+                return null ;
+            groupSlots[i] = slotOf(v, nodes) ;
+            if ( groupSlots[i] < 0 )
+                return null ;
+        }
+
+        List<Var> aggVars = new ArrayList<>() ;
+        for ( ExprAggregator agg : opGroup.getAggregators() ) {
+            if ( ! isCountOfMatches(agg.getAggregator(), nodes) )
+                return null ;
+            aggVars.add(agg.getVar()) ;
+        }
+
+        NodeTupleTable ntt = ( gn == null )
+            ? dsg.getTripleTable().getNodeTupleTable()
+            : dsg.getQuadTable().getNodeTupleTable() ;
+        boolean parallel = execCxt.getContext().isTrue(SystemTDB.symParallelScan) ;
+        Predicate<Tuple<NodeId>> filter = and(repeatedVars(nodes), QC2.getFilter(execCxt.getContext())) ;
+        // The input is the join identity and is replaced.
+        input.close() ;
+
+        if ( groupSlots.length == 0 ) {
+            long count = count(ntt, nodes, filter, parallel) ;
+            return QueryIterSingleton.create(row(aggVars, count), execCxt) ;
+        }
+
+        List<Binding> rows = new ArrayList<>() ;
+        NodeTable nodeTable = ntt.getNodeTable() ;
+        countGroups(ntt, nodes, filter, groupSlots, parallel, (key, count) -> {
+            BindingMap b = row(aggVars, count) ;
+            for ( int i = 0 ; i < groupSlots.length ; i++ )
+                b.add(groupVars.getVars().get(i), nodeTable.getNodeForNodeId(key.get(i))) ;
+            rows.add(b) ;
+        }) ;
+        if ( rows.isEmpty() && ! aggVars.isEmpty() )
+            // As the general execution: no groups, one row of the counts of nothing.
+            rows.add(row(aggVars, 0)) ;
+        return new QueryIterPlainWrapper(rows.iterator(), execCxt) ;
+    }
+
+    private static BindingMap row(List<Var> aggVars, long count) {
+        BindingMap binding = BindingFactory.create() ;
+        Node x = NodeValue.makeInteger(count).asNode() ;
+        for ( Var v : aggVars )
+            binding.add(v, x) ;
+        return binding ;
+    }
+
+    private static boolean isCountOfMatches(Aggregator agg, Node[] nodes) {
+        if ( agg instanceof AggCount )
+            return true ;
+        if ( agg instanceof AggCountVar ) {
+            Expr expr = agg.getExprList().get(0) ;
+            if ( ! expr.isVariable() )
+                return false ;
+            return slotOf(expr.asVar(), nodes) >= 0 ;
+        }
+        return false ;
+    }
+
+    /** Slot of the first occurrence of a variable in the pattern, or -1. */
+    private static int slotOf(Var v, Node[] nodes) {
+        for ( int i = 0 ; i < nodes.length ; i++ ) {
+            if ( v.equals(nodes[i]) )
+                return i ;
+        }
+        return -1 ;
+    }
+
+    /** Count the matches of a pattern of constants and variables, that pass the filter, if any. */
+    private static long count(NodeTupleTable ntt, Node[] nodes, Predicate<Tuple<NodeId>> filter, boolean parallel) {
+        Tuple<NodeId> pattern = pattern(ntt.getNodeTable(), nodes) ;
+        if ( pattern == null )
+            return 0 ;
+        try ( Stream<Tuple<NodeId>> stream = ntt.getTupleTable().stream(pattern, parallel) ) {
+            if ( filter == null )
+                return stream.count() ;
+            return stream.filter(filter).count() ;
+        }
+    }
+
+    /** Count the matches of a pattern that pass the filter, if any, grouped by the NodeIds of the group slots. */
+    private static void countGroups(NodeTupleTable ntt, Node[] nodes, Predicate<Tuple<NodeId>> filter,
+                                    int[] groupSlots, boolean parallel, GroupHandler handler) {
+        Tuple<NodeId> pattern = pattern(ntt.getNodeTable(), nodes) ;
+        if ( pattern == null )
+            return ;
+        TupleIndex index = parallel ? null : chooseGroupIndex(ntt.getTupleTable(), pattern, groupSlots) ;
+        if ( index != null ) {
+            // Prefix grouping : groups are adjacent in the scan.
+            Iterator<Tuple<NodeId>> iter = index.find(pattern) ;
+            if ( filter != null )
+                iter = Iter.filter(iter, filter) ;
+            List<NodeId> key = null ;
+            long count = 0 ;
+            while ( iter.hasNext() ) {
+                Tuple<NodeId> tuple = iter.next() ;
+                if ( key == null || ! sameKey(key, tuple, groupSlots) ) {
+                    if ( key != null )
+                        handler.group(key, count) ;
+                    key = groupKey(tuple, groupSlots) ;
+                    count = 0 ;
+                }
+                count++ ;
+            }
+            if ( key != null )
+                handler.group(key, count) ;
+            return ;
+        }
+
+        Map<List<NodeId>, Long> counts ;
+        try ( Stream<Tuple<NodeId>> stream = ntt.getTupleTable().stream(pattern, parallel) ) {
+            Stream<Tuple<NodeId>> s = ( filter == null ) ? stream : stream.filter(filter) ;
+            counts = s.collect(Collectors.groupingByConcurrent(tuple -> groupKey(tuple, groupSlots), Collectors.counting())) ;
+        }
+        counts.forEach(handler::group) ;
+    }
+
+    @FunctionalInterface
+    private interface GroupHandler { void group(List<NodeId> key, long count) ; }
+
+    /**
+     * Find an index where the leading part of the key is the fixed slots of the
+     * pattern and the group slots, in any order, so that each group is a run of
+     * adjacent tuples in a scan.
+     */
+    private static TupleIndex chooseGroupIndex(TupleTable tupleTable, Tuple<NodeId> pattern, int[] groupSlots) {
+        NodeId[] ids = new NodeId[pattern.len()] ;
+        pattern.copyInto(ids) ;
+        int fixed = 0 ;
+        for ( int i = 0 ; i < ids.length ; i++ ) {
+            if ( ! NodeId.isAny(ids[i]) )
+                fixed++ ;
+        }
+        // Placeholders for the group slots.
+        int prefix = fixed ;
+        for ( int slot : groupSlots ) {
+            if ( NodeId.isAny(ids[slot]) ) {
+                ids[slot] = NodeId.NodeIdDefined ;
+                prefix++ ;
+            }
+        }
+        Tuple<NodeId> withGroups = TupleFactory.create(ids) ;
+        for ( TupleIndex index : tupleTable.getIndexes() ) {
+            if ( index != null && index.weight(withGroups) == prefix && index.weight(pattern) == fixed )
+                return index ;
+        }
+        return null ;
+    }
+
+    private static List<NodeId> groupKey(Tuple<NodeId> tuple, int[] groupSlots) {
+        NodeId[] key = new NodeId[groupSlots.length] ;
+        for ( int i = 0 ; i < groupSlots.length ; i++ )
+            key[i] = tuple.get(groupSlots[i]) ;
+        return Arrays.asList(key) ;
+    }
+
+    private static boolean sameKey(List<NodeId> key, Tuple<NodeId> tuple, int[] groupSlots) {
+        for ( int i = 0 ; i < groupSlots.length ; i++ ) {
+            if ( ! key.get(i).equals(tuple.get(groupSlots[i])) )
+                return false ;
+        }
+        return true ;
+    }
+
+    /** The pattern as NodeIds, or null if a constant is not in the node table. */
+    private static Tuple<NodeId> pattern(NodeTable nodeTable, Node[] nodes) {
+        NodeId[] ids = new NodeId[nodes.length] ;
+        for ( int i = 0 ; i < nodes.length ; i++ ) {
+            Node n = nodes[i] ;
+            if ( Var.isVar(n) ) {
+                ids[i] = NodeId.NodeIdAny ;
+                continue ;
+            }
+            ids[i] = nodeTable.getNodeIdForNode(n) ;
+            if ( NodeId.isDoesNotExist(ids[i]) )
+                return null ;
+        }
+        return TupleFactory.create(ids) ;
+    }
+
+    /** Both filters, either of which may be null for none. */
+    private static Predicate<Tuple<NodeId>> and(Predicate<Tuple<NodeId>> filter1, Predicate<Tuple<NodeId>> filter2) {
+        if ( filter1 == null )
+            return filter2 ;
+        if ( filter2 == null )
+            return filter1 ;
+        return filter1.and(filter2) ;
+    }
+
+    /** A filter for tuples that match a pattern with a repeated variable, or null if none is needed. */
+    private static Predicate<Tuple<NodeId>> repeatedVars(Node[] nodes) {
+        // Slot of the first occurrence of each variable, to check repeated variables.
+        int[] sameAs = new int[nodes.length] ;
+        boolean repeatedVars = false ;
+        for ( int i = 0 ; i < nodes.length ; i++ ) {
+            sameAs[i] = -1 ;
+            if ( ! Var.isVar(nodes[i]) )
+                continue ;
+            int j = slotOf(Var.alloc(nodes[i]), nodes) ;
+            if ( j < i ) {
+                sameAs[i] = j ;
+                repeatedVars = true ;
+            }
+        }
+        if ( ! repeatedVars )
+            return null ;
+        return tuple -> {
+            for ( int i = 0 ; i < sameAs.length ; i++ ) {
+                if ( sameAs[i] >= 0 && ! tuple.get(i).equals(tuple.get(sameAs[i])) )
+                    return false ;
+            }
+            return true ;
+        } ;
+    }
+}
@@ -45,6 +45,7 @@ import org.apache.jena.tdb2.store.GraphTDB;
 import org.apache.jena.tdb2.store.NodeId;
 import org.apache.jena.tdb2.store.nodetable.NodeTable;
 import org.apache.jena.tdb2.store.nodetupletable.NodeTupleTable;
+import org.apache.jena.tdb2.sys.SystemTDB;
 import org.apache.jena.tdb2.sys.TDBInternal;
 import org.slf4j.Logger ;
 import org.slf4j.LoggerFactory ;
@@ -61,7 +62,7 @@ public class SolverLib
     {
         // Maybe default graph or named graph.
         NodeTupleTable ntt = graph.getNodeTupleTable() ;
-        return execute(ntt, graph.getGraphName(), pattern, input, filter, execCxt) ;
+        return execute(ntt, graph.getGraphName(), pattern, input, filter, null, execCxt) ;
     }
     
     /** Non-reordering execution of a quad pattern, given a iterator of bindings as input.
@@ -71,9 +72,20 @@ public class SolverLib
     public static QueryIterator execute(DatasetGraphTDB ds, Node graphNode, BasicPattern pattern,
                                         QueryIterator input, Predicate<Tuple<NodeId>> filter,
                                         ExecutionContext execCxt)
+    {
+        return execute(ds, graphNode, pattern, input, filter, null, execCxt) ;
+    }
+    
+    /** Non-reordering execution of a quad pattern, given a iterator of bindings as input,
+     *  with ranges of NodeIds for some variables (see {@link RangeScan}).
+     */ 
+    public static QueryIterator execute(DatasetGraphTDB ds, Node graphNode, BasicPattern pattern,
+                                        QueryIterator input, Predicate<Tuple<NodeId>> filter,
+                                        Map<Var, List<long[]>> ranges,
+                                        ExecutionContext execCxt)
     {
         NodeTupleTable ntt = ds.chooseNodeTupleTable(graphNode) ;
-        return execute(ntt, graphNode, pattern, input, filter, execCxt) ;
+        return execute(ntt, graphNode, pattern, input, filter, ranges, execCxt) ;
     }
     
     public static Iterator<BindingNodeId> convertToIds(Iterator<Binding> iterBindings, NodeTable nodeTable)
@@ -84,6 +96,17 @@ public class SolverLib
      */
     public static Iterator<Binding> convertToNodes(Iterator<BindingNodeId> iterBindingIds, NodeTable nodeTable)
     { return Iter.map(iterBindingIds, bindingNodeIds -> convToBinding(bindingNodeIds, nodeTable)) ; }
+
+    /** Convert from Iterator<BindingNodeId> to Iterator<Binding>, retrieving the nodes
+     * a block at a time (see {@link StageMaterialize}). 
+     * A block size of zero or less means conversion "on demand". 
+     */
+    public static Iterator<Binding> convertToNodes(Iterator<BindingNodeId> iterBindingIds, NodeTable nodeTable, int blockSize)
+    {
+        if ( blockSize <= 0 )
+            return convertToNodes(iterBindingIds, nodeTable) ;
+        return new StageMaterialize(iterBindingIds, nodeTable, blockSize) ;
+    }
     
     // The worker.  Callers choose the NodeTupleTable.  
     //     graphNode may be Node.ANY, meaning we should make triples unique.
@@ -91,6 +114,7 @@ public class SolverLib
 
     private static QueryIterator execute(NodeTupleTable nodeTupleTable, Node graphNode, BasicPattern pattern, 
                                          QueryIterator input, Predicate<Tuple<NodeId>> filter,
+                                         Map<Var, List<long[]>> ranges,
                                          ExecutionContext execCxt)
     {
         if ( Quad.isUnionGraph(graphNode) )
@@ -116,16 +140,24 @@ public class SolverLib
         Iterator<BindingNodeId> chain = Iter.map(input, SolverLib.convFromBinding(nodeTable)) ;
         List<Abortable> killList = new ArrayList<>() ;
         
-        for ( Triple triple : triples )
+        int start = 0 ;
+        if ( ! anyGraph && triples.size() >= 2 && execCxt.getContext().isTrue(SystemTDB.symMergeJoin) ) {
+            // The first two patterns can be solved by a merge join of two index scans
+            // if there is a shared variable that both scans are sorted by.
+            Tuple<Node> tuple1 = toTuple(graphNode, triples.get(0)) ;
+            Tuple<Node> tuple2 = toTuple(graphNode, triples.get(1)) ;
+            Var joinVar = chooseMergeJoinVar(nodeTupleTable, tuple1, tuple2) ;
+            if ( joinVar != null ) {
+                chain = new StageMergeJoin(nodeTupleTable, chain, tuple1, tuple2, joinVar, filter, execCxt) ;
+                chain = makeAbortable(chain, killList) ;
+                start = 2 ;
+            }
+        }
+        
+        for ( Triple triple : triples.subList(start, triples.size()) )
         {
-            Tuple<Node> tuple = null ;
-            if ( graphNode == null )
-                // 3-tuples
-                tuple = TupleFactory.tuple(triple.getSubject(), triple.getPredicate(), triple.getObject()) ;
-            else
-                // 4-tuples.
-                tuple = TupleFactory.tuple(graphNode, triple.getSubject(), triple.getPredicate(), triple.getObject()) ;
-            chain = solve(nodeTupleTable, tuple, anyGraph, chain, filter, execCxt) ;
+            Tuple<Node> tuple = toTuple(graphNode, triple) ;
+            chain = new StageMatchTuple(nodeTupleTable, chain, tuple, anyGraph, filter, ranges, execCxt) ;
             chain = makeAbortable(chain, killList) ; 
         }
         
@@ -146,13 +178,38 @@ public class SolverLib
         
         
         // Need to make sure the bindings here point to parent.
-        Iterator<Binding> iterBinding = convertToNodes(chain, nodeTable) ;
+        int blockSize = execCxt.getContext().getInt(SystemTDB.symMaterializeBlockSize, 0) ;
+        Iterator<Binding> iterBinding = convertToNodes(chain, nodeTable, blockSize) ;
         
         // "input" will be closed by QueryIterTDB but is otherwise unused.
         // "killList" will be aborted on timeout.
         return new QueryIterTDB(iterBinding, killList, input, execCxt) ;
     }
     
+    private static Tuple<Node> toTuple(Node graphNode, Triple triple)
+    {
+        if ( graphNode == null )
+            // 3-tuples
+            return TupleFactory.tuple(triple.getSubject(), triple.getPredicate(), triple.getObject()) ;
+        // 4-tuples.
+        return TupleFactory.tuple(graphNode, triple.getSubject(), triple.getPredicate(), triple.getObject()) ;
+    }
+    
+    /** A variable of both patterns on which index scans of both can be merged, or null. */
+    private static Var chooseMergeJoinVar(NodeTupleTable nodeTupleTable, Tuple<Node> tuple1, Tuple<Node> tuple2)
+    {
+        // Variables of the input are only known at execution time. 
+        Set<Var> bound = Collections.emptySet() ;
+        for ( Node n : tuple1 ) {
+            if ( ! Var.isVar(n) || ! tuple2.asList().contains(n) )
+                continue ;
+            Var v = Var.alloc(n) ;
+            if ( StageMergeJoin.canMergeJoin(nodeTupleTable.getTupleTable(), tuple1, tuple2, v, bound) )
+                return v ;
+        }
+        return null ;
+    }
+    
     /** Create an abortable iterator, storing it in the killList.
      *  Just return the input iterator if kilList is null. 
      */
@@ -20,6 +20,7 @@ package org.apache.jena.tdb2.solver;
 
 import java.util.Iterator ;
 import java.util.List ;
+import java.util.Map ;
 import java.util.function.Function ;
 import java.util.function.Predicate ;
 
@@ -42,11 +43,25 @@ public class StageMatchTuple extends RepeatApplyIterator<BindingNodeId>
     private final ExecutionContext execCxt ;
     private boolean anyGraphs ;
     private Predicate<Tuple<NodeId>> filter ;
+    private final Map<Var, List<long[]>> ranges ;
 
     public StageMatchTuple(NodeTupleTable nodeTupleTable, Iterator<BindingNodeId> input, 
                             Tuple<Node> tuple, boolean anyGraphs, 
                             Predicate<Tuple<NodeId>> filter, 
                             ExecutionContext execCxt)
+    {
+        this(nodeTupleTable, input, tuple, anyGraphs, filter, null, execCxt) ;
+    }
+
+    /** As above, with, for some variables, the ranges of NodeIds that need to be
+     * considered. The first unbound variable of the pattern with ranges is matched
+     * by range scans of an index, if there is a suitable index (see {@link RangeScan}).
+     */
+    public StageMatchTuple(NodeTupleTable nodeTupleTable, Iterator<BindingNodeId> input, 
+                            Tuple<Node> tuple, boolean anyGraphs, 
+                            Predicate<Tuple<NodeId>> filter, 
+                            Map<Var, List<long[]>> ranges,
+                            ExecutionContext execCxt)
     {
         super(input) ;
         this.filter = filter ;
@@ -54,6 +69,7 @@ public class StageMatchTuple extends RepeatApplyIterator<BindingNodeId>
         this.patternTuple = tuple ;
         this.execCxt = execCxt ;
         this.anyGraphs = anyGraphs ; 
+        this.ranges = ( ranges == null || ranges.isEmpty() ) ? null : ranges ;
     }
 
     /** Prepare a pattern (tuple of nodes), and an existing binding of NodeId, into NodeIds and Variables. 
@@ -93,7 +109,12 @@ public class StageMatchTuple extends RepeatApplyIterator<BindingNodeId>
             // Short cut - known unknown NodeId
             return Iter.nullIterator(); 
         
-        Iterator<Tuple<NodeId>> iterMatches = nodeTupleTable.find(TupleFactory.create(ids)) ;  
+        Iterator<Tuple<NodeId>> iterMatches = null ;
+        // Not for union graph matching which relies on the index choice.
+        if ( ranges != null && ! anyGraphs )
+            iterMatches = findRanges(ids, var) ;
+        if ( iterMatches == null )
+            iterMatches = nodeTupleTable.find(TupleFactory.create(ids)) ;  
         
         // ** Allow a triple or quad filter here.
         if ( filter != null )
@@ -144,6 +165,23 @@ public class StageMatchTuple extends RepeatApplyIterator<BindingNodeId>
         return Iter.iter(iterMatches).map(binder).removeNulls() ;
     }
     
+    /** Range scans for the first variable with ranges that an index can provide, or null. */
+    private Iterator<Tuple<NodeId>> findRanges(NodeId[] ids, Var[] var)
+    {
+        Tuple<NodeId> pattern = null ;
+        for ( int i = 0 ; i < var.length ; i++ )
+        {
+            if ( var[i] == null || ! ranges.containsKey(var[i]) )
+                continue ;
+            if ( pattern == null )
+                pattern = TupleFactory.create(ids) ;
+            Iterator<Tuple<NodeId>> iter = nodeTupleTable.getTupleTable().findRanges(pattern, i, ranges.get(var[i])) ;
+            if ( iter != null )
+                return iter ;
+        }
+        return null ;
+    }
+    
     private static Iterator<Tuple<NodeId>> print(Iterator<Tuple<NodeId>> iter)
     {
         if ( ! iter.hasNext() )
@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.tdb2.solver;
+
+import java.util.* ;
+
+import org.apache.jena.graph.Node ;
+import org.apache.jena.sparql.core.Var ;
+import org.apache.jena.sparql.engine.binding.Binding ;
+import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.nodetable.NodeTable;
+
+/**
+ * Convert {@link BindingNodeId}s to {@link Binding}s a block at a time.
+ * <p>
+ * The distinct NodeIds of a block are resolved with one call of
+ * {@link NodeTable#bulkNodeIdToNode}, which reads nodes that are not cached in
+ * node file order. For large results, this replaces random reads of the node
+ * file by mostly sequential ones. The bindings are {@link BindingTDB}s, so later
+ * TDB stages can still use the NodeIds.
+ * <p>
+ * A block is read ahead of the bindings returned, so this is not used for
+ * small results, where lazy conversion may be cheaper (e.g. a projection).  
+ */
+public class StageMaterialize implements Iterator<Binding>
+{
+    private final Iterator<BindingNodeId> input ;
+    private final NodeTable nodeTable ;
+    private final int blockSize ;
+    private Iterator<Binding> current = Collections.emptyIterator() ;
+
+    public StageMaterialize(Iterator<BindingNodeId> input, NodeTable nodeTable, int blockSize)
+    {
+        if ( blockSize <= 0 )
+            throw new IllegalArgumentException("Block size must be positive: "+blockSize) ;
+        this.input = input ;
+        this.nodeTable = nodeTable ;
+        this.blockSize = blockSize ;
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+        if ( current.hasNext() )
+            return true ;
+        if ( ! input.hasNext() )
+            return false ;
+        current = nextBlock() ;
+        return current.hasNext() ;
+    }
+
+    @Override
+    public Binding next()
+    {
+        if ( ! hasNext() )
+            throw new NoSuchElementException() ;
+        return current.next() ;
+    }
+
+    private Iterator<Binding> nextBlock()
+    {
+        List<BindingNodeId> block = new ArrayList<>(blockSize) ;
+        Map<NodeId, Node> ids = new LinkedHashMap<>() ;
+        while ( block.size() < blockSize && input.hasNext() ) {
+            BindingNodeId b = input.next() ;
+            block.add(b) ;
+            for ( Var v : b ) {
+                NodeId id = b.get(v) ;
+                if ( id != null && ! NodeId.isDoesNotExist(id) && ! NodeId.isAny(id) )
+                    ids.put(id, null) ;
+            }
+        }
+
+        List<NodeId> idList = new ArrayList<>(ids.keySet()) ;
+        List<Node> nodes = nodeTable.bulkNodeIdToNode(idList) ;
+        for ( int i = 0 ; i < idList.size() ; i++ )
+            ids.put(idList.get(i), nodes.get(i)) ;
+
+        List<Binding> bindings = new ArrayList<>(block.size()) ;
+        for ( BindingNodeId b : block ) {
+            Map<Var, Node> map = new HashMap<>() ;
+            for ( Var v : b ) {
+                Node n = ids.get(b.get(v)) ;
+                if ( n != null )
+                    map.put(v, n) ;
+            }
+            bindings.add(new BindingTDB(b, nodeTable, map)) ;
+        }
+        return bindings.iterator() ;
+    }
+}
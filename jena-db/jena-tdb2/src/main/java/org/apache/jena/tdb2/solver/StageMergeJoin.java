@@ -0,0 +1,243 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.tdb2.solver;
+
+import java.util.ArrayList ;
+import java.util.Iterator ;
+import java.util.List ;
+import java.util.NoSuchElementException ;
+import java.util.Set ;
+import java.util.function.Predicate ;
+
+import org.apache.jena.atlas.iterator.Iter ;
+import org.apache.jena.atlas.iterator.PeekIterator ;
+import org.apache.jena.atlas.iterator.RepeatApplyIterator ;
+import org.apache.jena.atlas.lib.tuple.Tuple ;
+import org.apache.jena.atlas.lib.tuple.TupleFactory ;
+import org.apache.jena.graph.Node ;
+import org.apache.jena.sparql.core.Var ;
+import org.apache.jena.sparql.engine.ExecutionContext ;
+import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.NodeIdFactory;
+import org.apache.jena.tdb2.store.nodetupletable.NodeTupleTable;
+import org.apache.jena.tdb2.store.tupletable.TupleTable;
+
+/**
+ * Solve two patterns that share a variable by a merge join of two index scans,
+ * each of which returns the matches in the order of the NodeId for the join variable.
+ * <p>
+ * For each input binding, the two patterns are substituted and, if the tuple table has
+ * suitable indexes (see {@link TupleTable#chooseIndexOrdered}), the two scans are
+ * merged on the NodeId of the join variable. Otherwise, the two patterns are solved
+ * with {@link StageMatchTuple} (index nested loop join).
+ */
+public class StageMergeJoin extends RepeatApplyIterator<BindingNodeId>
+{
+    private final NodeTupleTable nodeTupleTable ;
+    private final Tuple<Node> patternLeft ;
+    private final Tuple<Node> patternRight ;
+    private final Var joinVar ;
+    private final Predicate<Tuple<NodeId>> filter ;
+    private final ExecutionContext execCxt ;
+
+    public StageMergeJoin(NodeTupleTable nodeTupleTable, Iterator<BindingNodeId> input,
+                          Tuple<Node> patternLeft, Tuple<Node> patternRight, Var joinVar,
+                          Predicate<Tuple<NodeId>> filter,
+                          ExecutionContext execCxt)
+    {
+        super(input) ;
+        this.nodeTupleTable = nodeTupleTable ;
+        this.patternLeft = patternLeft ;
+        this.patternRight = patternRight ;
+        this.joinVar = joinVar ;
+        this.filter = filter ;
+        this.execCxt = execCxt ;
+    }
+
+    /**
+     * Test whether the two patterns can be solved by a merge join on variable
+     * {@code joinVar}, assuming the variables in {@code bound} have values.
+     */
+    public static boolean canMergeJoin(TupleTable tupleTable, Tuple<Node> patternLeft, Tuple<Node> patternRight, Var joinVar, 
+                                       Set<Var> bound)
+    {
+        return isOrdered(tupleTable, patternLeft, joinVar, bound) && isOrdered(tupleTable, patternRight, joinVar, bound) ;
+    }
+
+    private static boolean isOrdered(TupleTable tupleTable, Tuple<Node> pattern, Var joinVar, Set<Var> bound) {
+        int slot = slotOf(pattern, joinVar) ;
+        if ( slot < 0 )
+            return false ;
+        NodeId[] ids = new NodeId[pattern.len()] ;
+        for ( int i = 0 ; i < pattern.len() ; i++ ) {
+            Node n = pattern.get(i) ;
+            boolean isFixed = ! Var.isVar(n) || ( ! joinVar.equals(n) && bound.contains(Var.alloc(n)) ) ;
+            ids[i] = isFixed ? NodeId.NodeIdDefined : NodeId.NodeIdAny ;
+        }
+        return tupleTable.chooseIndexOrdered(TupleFactory.create(ids), slot) != null ;
+    }
+
+    /** Slot of the first occurrence of the variable in the pattern, or -1 */
+    private static int slotOf(Tuple<Node> pattern, Var var) {
+        for ( int i = 0 ; i < pattern.len() ; i++ ) {
+            if ( var.equals(pattern.get(i)) )
+                return i ;
+        }
+        return -1 ;
+    }
+
+    @Override
+    protected Iterator<BindingNodeId> makeNextStage(BindingNodeId input)
+    {
+        int len = patternLeft.len() ;
+        NodeId idsLeft[] = new NodeId[len] ;
+        Var varLeft[] = new Var[len] ;
+        NodeId idsRight[] = new NodeId[len] ;
+        Var varRight[] = new Var[len] ;
+        if ( ! StageMatchTuple.prepare(nodeTupleTable.getNodeTable(), patternLeft, input, idsLeft, varLeft) )
+            return Iter.nullIterator() ;
+        if ( ! StageMatchTuple.prepare(nodeTupleTable.getNodeTable(), patternRight, input, idsRight, varRight) )
+            return Iter.nullIterator() ;
+
+        int slotLeft = slotOf(patternLeft, joinVar) ;
+        int slotRight = slotOf(patternRight, joinVar) ;
+        TupleTable tupleTable = nodeTupleTable.getTupleTable() ;
+        Iterator<Tuple<NodeId>> iterLeft = tupleTable.findOrdered(TupleFactory.create(idsLeft), slotLeft) ;
+        Iterator<Tuple<NodeId>> iterRight = iterLeft == null ? null : tupleTable.findOrdered(TupleFactory.create(idsRight), slotRight) ;
+        if ( iterRight == null ) {
+            Iter.close(iterLeft) ;
+            // No suitable indexes for this input binding.
+            Iterator<BindingNodeId> iter = Iter.singleton(input) ;
+            iter = new StageMatchTuple(nodeTupleTable, iter, patternLeft, false, filter, execCxt) ;
+            return new StageMatchTuple(nodeTupleTable, iter, patternRight, false, filter, execCxt) ;
+        }
+        if ( filter != null ) {
+            iterLeft = Iter.filter(iterLeft, filter) ;
+            iterRight = Iter.filter(iterRight, filter) ;
+        }
+        return new MergeIterator(input, iterLeft, slotLeft, varLeft, iterRight, slotRight, varRight) ;
+    }
+
+    /** Merge two iterators of tuples, each sorted on the join slot. */
+    private static class MergeIterator implements Iterator<BindingNodeId>
+    {
+        private final BindingNodeId input ;
+        private final PeekIterator<Tuple<NodeId>> left ;
+        private final PeekIterator<Tuple<NodeId>> right ;
+        private final int slotLeft ;
+        private final int slotRight ;
+        private final Var[] varLeft ;
+        private final Var[] varRight ;
+        // Matches of the right pattern for the current key.
+        private final List<Tuple<NodeId>> rightGroup = new ArrayList<>() ;
+        private long groupKey ;
+        private Iterator<Tuple<NodeId>> rightGroupIter = null ;
+        private BindingNodeId currentLeft = null ;
+        private BindingNodeId slot = null ;
+
+        MergeIterator(BindingNodeId input,
+                      Iterator<Tuple<NodeId>> left, int slotLeft, Var[] varLeft,
+                      Iterator<Tuple<NodeId>> right, int slotRight, Var[] varRight) {
+            this.input = input ;
+            this.left = PeekIterator.create(left) ;
+            this.right = PeekIterator.create(right) ;
+            this.slotLeft = slotLeft ;
+            this.slotRight = slotRight ;
+            this.varLeft = varLeft ;
+            this.varRight = varRight ;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if ( slot != null )
+                return true ;
+            for (;;) {
+                // Pair the current left binding with the right group.
+                while ( currentLeft != null && rightGroupIter.hasNext() ) {
+                    BindingNodeId b = bind(currentLeft, rightGroupIter.next(), varRight) ;
+                    if ( b != null ) {
+                        slot = b ;
+                        return true ;
+                    }
+                }
+                currentLeft = null ;
+                if ( ! left.hasNext() )
+                    return false ;
+                Tuple<NodeId> t = left.next() ;
+                long key = key(t, slotLeft) ;
+                if ( rightGroup.isEmpty() || key != groupKey ) {
+                    if ( ! nextGroup(key) ) {
+                        if ( ! right.hasNext() )
+                            // Nothing more can match.
+                            return false ;
+                        continue ;
+                    }
+                }
+                currentLeft = bind(input, t, varLeft) ;
+                rightGroupIter = rightGroup.iterator() ;
+            }
+        }
+
+        /** Make the right group the matches for the key; return false if there are none. */
+        private boolean nextGroup(long key) {
+            rightGroup.clear() ;
+            while ( right.hasNext() && Long.compareUnsigned(key(right.peek(), slotRight), key) < 0 )
+                right.next() ;
+            while ( right.hasNext() && key(right.peek(), slotRight) == key )
+                rightGroup.add(right.next()) ;
+            groupKey = key ;
+            return ! rightGroup.isEmpty() ;
+        }
+
+        @Override
+        public BindingNodeId next() {
+            if ( ! hasNext() )
+                throw new NoSuchElementException() ;
+            BindingNodeId b = slot ;
+            slot = null ;
+            return b ;
+        }
+
+        private static long key(Tuple<NodeId> tuple, int idx) {
+            return NodeIdFactory.encode(tuple.get(idx)) ;
+        }
+
+        /** Extend a binding with a tuple; return null if it is not compatible. */
+        private static BindingNodeId bind(BindingNodeId binding, Tuple<NodeId> tuple, Var[] vars) {
+            if ( binding == null )
+                return null ;
+            BindingNodeId output = new BindingNodeId(binding) ;
+            for ( int i = 0 ; i < vars.length ; i++ ) {
+                Var v = vars[i] ;
+                if ( v == null )
+                    continue ;
+                NodeId id = tuple.get(i) ;
+                NodeId current = output.get(v) ;
+                if ( current != null ) {
+                    if ( ! current.equals(id) )
+                        return null ;
+                    continue ;
+                }
+                output.put(v, id) ;
+            }
+            return output ;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.tdb2.solver.stats;
+
+import java.util.HashMap ;
+import java.util.Iterator ;
+import java.util.Map ;
+
+import org.apache.jena.atlas.iterator.Iter ;
+import org.apache.jena.atlas.lib.tuple.Tuple ;
+import org.apache.jena.graph.Node ;
+import org.apache.jena.sparql.engine.optimizer.CharacteristicSets ;
+import org.apache.jena.sparql.engine.optimizer.reorder.ReorderCharacteristicSets ;
+import org.apache.jena.system.Txn ;
+import org.apache.jena.tdb2.store.DatasetGraphTDB ;
+import org.apache.jena.tdb2.store.NodeId ;
+import org.apache.jena.tdb2.store.nodetable.NodeTable ;
+import org.apache.jena.tdb2.store.tupletable.TupleIndex ;
+import org.apache.jena.tdb2.store.tupletable.TupleTable ;
+
+/**
+ * Calculate the {@link CharacteristicSets} of a TDB2 database.
+ * <p>
+ * The triples and quads are read in subject order from an index starting with
+ * the subject so only the predicates of one subject are held at a time; the
+ * work is done with {@link NodeId}s and only predicates are turned into nodes.
+ * Quads are included with a subject's predicates over all graphs, making the
+ * sets an estimate for the union graph as well as the default graph.
+ */
+public class CharacteristicSetsTDB
+{
+    /** Calculate the characteristic sets. Call inside a transaction. */
+    public static CharacteristicSets build(DatasetGraphTDB dsg) {
+        CharacteristicSets.Builder builder = CharacteristicSets.builder() ;
+        NodeTable nodeTable = dsg.getTripleTable().getNodeTupleTable().getNodeTable() ;
+        Map<NodeId, Node> predicates = new HashMap<>() ;
+        add(builder, dsg.getTripleTable().getNodeTupleTable().getTupleTable(), nodeTable, predicates) ;
+        add(builder, dsg.getQuadTable().getNodeTupleTable().getTupleTable(), nodeTable, predicates) ;
+        return builder.build() ;
+    }
+
+    /**
+     * Calculate the characteristic sets and use them to reorder basic graph
+     * patterns for this dataset. The sets are not updated as the data changes;
+     * call again to recalculate them.
+     */
+    public static ReorderCharacteristicSets enable(DatasetGraphTDB dsg) {
+        CharacteristicSets sets = Txn.calculateRead(dsg, ()->build(dsg)) ;
+        ReorderCharacteristicSets reorder = new ReorderCharacteristicSets(sets) ;
+        dsg.setReorderTransform(reorder) ;
+        return reorder ;
+    }
+
+    private static void add(CharacteristicSets.Builder builder, TupleTable table, NodeTable nodeTable, Map<NodeId, Node> predicates) {
+        int len = table.getTupleLen() ;
+        int sSlot = len-3 ;
+        int pSlot = len-2 ;
+        TupleIndex index = subjectIndex(table, sSlot) ;
+        if ( index == null ) {
+            addUnordered(builder, table, nodeTable, predicates) ;
+            return ;
+        }
+        Iterator<Tuple<NodeId>> iter = index.all() ;
+        NodeId current = null ;
+        Map<Node, Long> counts = new HashMap<>() ;
+        try {
+            while(iter.hasNext()) {
+                Tuple<NodeId> t = iter.next() ;
+                NodeId s = t.get(sSlot) ;
+                if ( ! s.equals(current) ) {
+                    builder.addSubject(counts) ;
+                    counts.clear() ;
+                    current = s ;
+                }
+                Node p = predicates.computeIfAbsent(t.get(pSlot), nodeTable::getNodeForNodeId) ;
+                counts.merge(p, 1L, Long::sum) ;
+            }
+        } finally { Iter.close(iter) ; }
+        builder.addSubject(counts) ;
+    }
+
+    /** No index with the subject first : hold all subjects. */
+    private static void addUnordered(CharacteristicSets.Builder builder, TupleTable table, NodeTable nodeTable, Map<NodeId, Node> predicates) {
+        int len = table.getTupleLen() ;
+        Map<NodeId, Map<Node, Long>> subjects = new HashMap<>() ;
+        Iterator<Tuple<NodeId>> iter = table.getIndex(0).all() ;
+        try {
+            while(iter.hasNext()) {
+                Tuple<NodeId> t = iter.next() ;
+                Node p = predicates.computeIfAbsent(t.get(len-2), nodeTable::getNodeForNodeId) ;
+                subjects.computeIfAbsent(t.get(len-3), s->new HashMap<>()).merge(p, 1L, Long::sum) ;
+            }
+        } finally { Iter.close(iter) ; }
+        subjects.values().forEach(builder::addSubject) ;
+    }
+
+    private static TupleIndex subjectIndex(TupleTable table, int sSlot) {
+        for ( TupleIndex index : table.getIndexes() ) {
+            if ( index != null && index.getMapping().mapIdx(0) == sSlot )
+                return index ;
+        }
+        return null ;
+    }
+}
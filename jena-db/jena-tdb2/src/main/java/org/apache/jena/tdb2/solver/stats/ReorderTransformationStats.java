@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.tdb2.solver.stats;
+
+import org.apache.jena.atlas.lib.Cache ;
+import org.apache.jena.atlas.lib.CacheFactory ;
+import org.apache.jena.sparql.core.BasicPattern ;
+import org.apache.jena.sparql.engine.optimizer.StatsMatcher ;
+import org.apache.jena.sparql.engine.optimizer.reorder.ReorderLib ;
+import org.apache.jena.sparql.engine.optimizer.reorder.ReorderProc ;
+import org.apache.jena.sparql.engine.optimizer.reorder.ReorderTransformation ;
+import org.apache.jena.sparql.engine.optimizer.reorder.ReorderWeighted ;
+
+/**
+ * Reorder basic graph patterns using the statistics maintained by
+ * {@link TransStats}. The weighted reorder is built from the statistics as seen by
+ * the transaction, which are those committed when it started, and is kept for each
+ * committed version of the statistics; while the database is empty, the fixed
+ * reorder is used.
+ * <p>
+ * The statistics are turned into nodes on first use of a version so this must
+ * be called inside a transaction, as it is during query execution.
+ */
+public class ReorderTransformationStats implements ReorderTransformation
+{
+    // Readers may still be using an earlier version.
+    private static final int CacheSize = 4 ;
+
+    private final TransStats stats ;
+    private final Cache<TransStats.Counts, ReorderTransformation> cache = CacheFactory.createCache(CacheSize) ;
+
+    public ReorderTransformationStats(TransStats stats) {
+        this.stats = stats ;
+    }
+
+    @Override
+    public ReorderProc reorderIndexes(BasicPattern pattern) {
+        return get().reorderIndexes(pattern) ;
+    }
+
+    @Override
+    public BasicPattern reorder(BasicPattern pattern) {
+        return get().reorder(pattern) ;
+    }
+
+    /** The reorder transformation for the statistics visible to the current transaction. */
+    public ReorderTransformation get() {
+        TransStats.Counts counts = stats.snapshot() ;
+        return cache.getOrFill(counts, ()->create(counts)) ;
+    }
+
+    private ReorderTransformation create(TransStats.Counts counts) {
+        StatsResults results = stats.results(counts) ;
+        if ( results.getCount() <= 0 )
+            return ReorderLib.fixed() ;
+        return new ReorderWeighted(new StatsMatcher(Stats.format(results))) ;
+    }
+
+    @Override
+    public String toString() {
+        return "ReorderTransformationStats["+stats.getVersion()+"]" ;
+    }
+}
@@ -25,6 +25,7 @@ import java.io.BufferedOutputStream ;
 import java.io.FileOutputStream ;
 import java.io.IOException ;
 import java.io.OutputStream ;
+import java.util.Collections ;
 import java.util.Iterator ;
 import java.util.Map ;
 import java.util.Map.Entry ;
@@ -35,6 +36,7 @@ import org.apache.jena.graph.Graph ;
 import org.apache.jena.graph.Node ;
 import org.apache.jena.graph.Triple ;
 import org.apache.jena.sparql.engine.optimizer.StatsMatcher ;
+import org.apache.jena.sparql.engine.optimizer.reorder.PatternElements ;
 import org.apache.jena.sparql.graph.NodeConst ;
 import org.apache.jena.sparql.sse.Item ;
 import org.apache.jena.sparql.sse.ItemList ;
@@ -90,10 +92,17 @@ public class Stats
 
     public static Item format(StatsResults stats)
     {
-        return format(stats.getPredicates(), stats.getTypes(), stats.getCount()) ;
+        return format(stats.getPredicates(), stats.getDistinctSubjects(), stats.getDistinctObjects(),
+                      stats.getTypes(), stats.getCount()) ;
     }
     
     private static Item format(Map<Node, Integer> predicates, Map<Node, Integer> types, long count)
+    {
+        return format(predicates, Collections.emptyMap(), Collections.emptyMap(), types, count) ;
+    }
+
+    private static Item format(Map<Node, Integer> predicates, Map<Node, Integer> subjects, Map<Node, Integer> objects,
+                               Map<Node, Integer> types, long count)
     {
         Item stats = Item.createList() ;
         ItemList statsList = stats.getList() ;
@@ -118,7 +127,13 @@ public class Stats
             // Skip these - they just clog things up!
             if ( node.getURI().startsWith("http://www.w3.org/1999/02/22-rdf-syntax-ns#_") )
                 continue ;
-            addPair(statsList, node, NodeFactoryExtra.intToNode(entry.getValue())) ;
+            Integer distinctS = subjects.get(node) ;
+            Integer distinctO = objects.get(node) ;
+            if ( distinctS != null && distinctS > 0 && distinctO != null && distinctO > 0 )
+                // Average matches for a given subject, a given object, and the total.
+                addPredicateTriples(statsList, node, entry.getValue(), distinctS, distinctO) ;
+            else
+                addPair(statsList, node, NodeFactoryExtra.intToNode(entry.getValue())) ;
         }
         
         // Add a default rule.
@@ -127,6 +142,27 @@ public class Stats
         return stats ;
     }
 
+    private static void addPredicateTriples(ItemList statsList, Node predicate, int count, int distinctS, int distinctO)
+    {
+        addPattern(statsList, PatternElements.TERM, predicate, PatternElements.ANY, ceilDiv(count, distinctS)) ;
+        addPattern(statsList, PatternElements.ANY, predicate, PatternElements.TERM, ceilDiv(count, distinctO)) ;
+        addPattern(statsList, PatternElements.ANY, predicate, PatternElements.ANY, count) ;
+    }
+
+    private static int ceilDiv(int x, int y)
+    {
+        return (x + y - 1) / y ;
+    }
+
+    private static void addPattern(ItemList statsList, Item subject, Node predicate, Item object, int weight)
+    {
+        ItemList triple = new ItemList() ;
+        triple.add(subject) ;
+        triple.add(predicate) ;
+        triple.add(object) ;
+        addPair(statsList, Item.createList(triple), Item.createNode(NodeFactoryExtra.intToNode(weight))) ;
+    }
+
     private static void addTypeTriple(ItemList statsList, Node type, Node intCount)
     {
         ItemList triple = new ItemList() ;
@@ -18,6 +18,7 @@
 
 package org.apache.jena.tdb2.solver.stats;
 
+import java.util.Collections ;
 import java.util.Map ;
 
 import org.apache.jena.graph.Node ;
@@ -26,13 +27,23 @@ import org.apache.jena.graph.Node ;
 public class StatsResults 
 {
     private final Map<Node, Integer> predicates ;
+    private final Map<Node, Integer> subjects ;
+    private final Map<Node, Integer> objects ;
     private final Map<Node, Integer> types ;
     private final long count ;
 
     StatsResults(Map<Node, Integer> predicates, Map<Node, Integer> types, long count)
+    {
+        this(predicates, Collections.emptyMap(), Collections.emptyMap(), types, count) ;
+    }
+
+    StatsResults(Map<Node, Integer> predicates, Map<Node, Integer> subjects, Map<Node, Integer> objects,
+                 Map<Node, Integer> types, long count)
     {
         this.count = count ;
         this.predicates = predicates ;
+        this.subjects = subjects ;
+        this.objects = objects ;
         this.types = types ;
     }
 
@@ -41,6 +52,18 @@ public class StatsResults
         return predicates ;
     }
 
+    /** Number of distinct subjects for each predicate; empty if not known. */
+    public Map<Node, Integer> getDistinctSubjects()
+    {
+        return subjects ;
+    }
+
+    /** Number of distinct objects for each predicate; empty if not known. */
+    public Map<Node, Integer> getDistinctObjects()
+    {
+        return objects ;
+    }
+
     public Map<Node, Integer> getTypes()
     {
         return types ;
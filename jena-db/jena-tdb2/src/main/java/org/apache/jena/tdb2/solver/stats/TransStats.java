@@ -0,0 +1,470 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.tdb2.solver.stats;
+
+import java.nio.ByteBuffer ;
+import java.util.HashMap ;
+import java.util.HashSet ;
+import java.util.Iterator ;
+import java.util.Map ;
+import java.util.Objects ;
+import java.util.Set ;
+import java.util.concurrent.atomic.AtomicLong ;
+import java.util.concurrent.atomic.AtomicReference ;
+
+import org.apache.jena.atlas.RuntimeIOException ;
+import org.apache.jena.atlas.iterator.Iter ;
+import org.apache.jena.atlas.lib.tuple.Tuple ;
+import org.apache.jena.atlas.lib.tuple.TupleFactory ;
+import org.apache.jena.dboe.base.file.BufferChannel ;
+import org.apache.jena.dboe.transaction.txn.ComponentId ;
+import org.apache.jena.dboe.transaction.txn.TransactionalComponentLifecycle ;
+import org.apache.jena.dboe.transaction.txn.TxnId ;
+import org.apache.jena.graph.Node ;
+import org.apache.jena.query.ReadWrite ;
+import org.apache.jena.sparql.graph.NodeConst ;
+import org.apache.jena.tdb2.store.NodeId ;
+import org.apache.jena.tdb2.store.NodeIdFactory ;
+import org.apache.jena.tdb2.store.nodetable.NodeTable ;
+import org.apache.jena.tdb2.store.tupletable.TupleIndex ;
+import org.apache.jena.tdb2.store.tupletable.TupleTable ;
+import org.apache.jena.tdb2.store.tupletable.TupleTableMonitor ;
+
+/**
+ * Statistics for the query optimizer, maintained by each write transaction.
+ * <p>
+ * For each predicate, the number of triples/quads and the number of distinct
+ * subjects and objects used with it are kept, together with the count for each
+ * {@code rdf:type} class and the total number of triples/quads.
+ * <p>
+ * Counts are recorded as a {@link TupleTableMonitor} on the triple and quad
+ * tables and are transactional: a write transaction works on its own copy,
+ * which is written to the journal on prepare and replaces the committed
+ * statistics on commit. Distinct subject and object counts for quads are over
+ * all graphs.
+ */
+public class TransStats extends TransactionalComponentLifecycle<TransStats.StatsState>
+                        implements TupleTableMonitor
+{
+    /** Base name of the statistics file and the name of the component */
+    public static final String statsBaseName = "stats" ;
+    public static final String extStats      = "dat" ;
+
+    /** Slot of the counts array for a predicate */
+    private static final int COUNT = 0 ;
+    private static final int DISTINCT_S = 1 ;
+    private static final int DISTINCT_O = 2 ;
+
+    /** The statistics - the committed version is not modified */
+    static class Counts {
+        final Map<NodeId, long[]> predicates ;
+        final Map<NodeId, long[]> types ;
+        long total ;
+
+        Counts() {
+            this(new HashMap<>(), new HashMap<>(), 0) ;
+        }
+
+        private Counts(Map<NodeId, long[]> predicates, Map<NodeId, long[]> types, long total) {
+            this.predicates = predicates ;
+            this.types = types ;
+            this.total = total ;
+        }
+
+        Counts copy() {
+            return new Counts(copy(predicates), copy(types), total) ;
+        }
+
+        private static Map<NodeId, long[]> copy(Map<NodeId, long[]> map) {
+            Map<NodeId, long[]> map2 = new HashMap<>(map.size()*2) ;
+            map.forEach((k,v)->map2.put(k, v.clone())) ;
+            return map2 ;
+        }
+    }
+
+    static class StatsState {
+        final Counts base ;
+        Counts $txnCounts = null ;
+
+        StatsState(Counts base) {
+            this.base = base ;
+        }
+
+        /** Counts visible to this transaction */
+        Counts get() {
+            return $txnCounts != null ? $txnCounts : base ;
+        }
+
+        /** Counts to update - copied from the committed state on first use */
+        Counts getForUpdate() {
+            if ( $txnCounts == null )
+                $txnCounts = base.copy() ;
+            return $txnCounts ;
+        }
+
+        boolean hasChanged() {
+            return $txnCounts != null ;
+        }
+    }
+
+    private final AtomicReference<Counts> countsRef = new AtomicReference<>(new Counts()) ;
+    private final AtomicLong version = new AtomicLong(0) ;
+    private final BufferChannel file ;
+    private final NodeTable nodeTable ;
+    // Whether the file held statistics when opened.
+    private boolean ready ;
+
+    public TransStats(ComponentId cid, BufferChannel file, NodeTable nodeTable) {
+        super(cid) ;
+        this.file = file ;
+        this.nodeTable = nodeTable ;
+        read() ;
+    }
+
+    /**
+     * Whether the statistics were read from disk. If not, they need to be built
+     * with {@link #rebuild}.
+     */
+    public boolean isReady() {
+        return ready ;
+    }
+
+    /** Incremented on every commit that changes the statistics. */
+    public long getVersion() {
+        return version.get() ;
+    }
+
+    /** The total number of triples and quads. */
+    public long getCount() {
+        return counts().total ;
+    }
+
+    /**
+     * The statistics, with nodes. This uses the node table so it must be
+     * called inside a transaction.
+     */
+    public StatsResults results() {
+        return results(counts()) ;
+    }
+
+    /**
+     * The committed statistics as seen by the current transaction: those at the
+     * start of the transaction, without its own changes. The object is the same
+     * for all transactions that see the same commit.
+     */
+    Counts snapshot() {
+        if ( isActiveTxn() )
+            return getDataState().base ;
+        return countsRef.get() ;
+    }
+
+    /** The statistics, with nodes. This uses the node table so it must be called inside a transaction. */
+    StatsResults results(Counts counts) {
+        Map<Node, Integer> predicates = new HashMap<>() ;
+        Map<Node, Integer> subjects = new HashMap<>() ;
+        Map<Node, Integer> objects = new HashMap<>() ;
+        Map<Node, Integer> types = new HashMap<>() ;
+        counts.predicates.forEach((p, x) -> {
+            Node n = nodeTable.getNodeForNodeId(p) ;
+            predicates.put(n, toInt(x[COUNT])) ;
+            subjects.put(n, toInt(x[DISTINCT_S])) ;
+            objects.put(n, toInt(x[DISTINCT_O])) ;
+        }) ;
+        counts.types.forEach((t, x) -> types.put(nodeTable.getNodeForNodeId(t), toInt(x[COUNT]))) ;
+        return new StatsResults(predicates, subjects, objects, types, counts.total) ;
+    }
+
+    private static int toInt(long x) {
+        return (int)Math.min(x, Integer.MAX_VALUE) ;
+    }
+
+    private Counts counts() {
+        if ( isActiveTxn() )
+            return getDataState().get() ;
+        return countsRef.get() ;
+    }
+
+    // ---- Monitor
+
+    @Override
+    public void beforeAdd(TupleTable table, Tuple<NodeId> tuple) {
+        checkWriteTxn() ;
+        Counts counts = getDataState().getForUpdate() ;
+        int len = tuple.len() ;
+        NodeId s = tuple.get(len-3) ;
+        NodeId p = tuple.get(len-2) ;
+        NodeId o = tuple.get(len-1) ;
+        long[] x = counts.predicates.computeIfAbsent(p, k->new long[3]) ;
+        x[COUNT]++ ;
+        if ( ! table.contains(probe(len, s, p, NodeId.NodeIdAny)) )
+            x[DISTINCT_S]++ ;
+        if ( ! table.contains(probe(len, NodeId.NodeIdAny, p, o)) )
+            x[DISTINCT_O]++ ;
+        if ( isType(p) )
+            counts.types.computeIfAbsent(o, k->new long[1])[COUNT]++ ;
+        counts.total++ ;
+    }
+
+    @Override
+    public void afterDelete(TupleTable table, Tuple<NodeId> tuple) {
+        checkWriteTxn() ;
+        Counts counts = getDataState().getForUpdate() ;
+        int len = tuple.len() ;
+        NodeId s = tuple.get(len-3) ;
+        NodeId p = tuple.get(len-2) ;
+        NodeId o = tuple.get(len-1) ;
+        long[] x = counts.predicates.get(p) ;
+        if ( x != null ) {
+            x[COUNT]-- ;
+            if ( ! table.contains(probe(len, s, p, NodeId.NodeIdAny)) )
+                x[DISTINCT_S]-- ;
+            if ( ! table.contains(probe(len, NodeId.NodeIdAny, p, o)) )
+                x[DISTINCT_O]-- ;
+            if ( x[COUNT] <= 0 )
+                counts.predicates.remove(p) ;
+        }
+        if ( isType(p) ) {
+            long[] t = counts.types.get(o) ;
+            if ( t != null && --t[COUNT] <= 0 )
+                counts.types.remove(o) ;
+        }
+        counts.total-- ;
+    }
+
+    private static Tuple<NodeId> probe(int len, NodeId s, NodeId p, NodeId o) {
+        if ( len == 3 )
+            return TupleFactory.tuple(s, p, o) ;
+        return TupleFactory.tuple(NodeId.NodeIdAny, s, p, o) ;
+    }
+
+    private boolean isType(NodeId p) {
+        if ( p.isInline() )
+            return false ;
+        return NodeConst.nodeRDFType.equals(nodeTable.getNodeForNodeId(p)) ;
+    }
+
+    // ---- Rebuild
+
+    /**
+     * Recalculate the statistics by scanning the tables.
+     * This must be called inside a write transaction.
+     */
+    public void rebuild(TupleTable... tables) {
+        checkWriteTxn() ;
+        StatsState state = getDataState() ;
+        state.$txnCounts = new Counts() ;
+        Counts counts = state.$txnCounts ;
+        NodeId typeId = nodeTable.getNodeIdForNode(NodeConst.nodeRDFType) ;
+        for ( TupleTable table : tables ) {
+            int len = table.getTupleLen() ;
+            // Totals and types.
+            Iterator<Tuple<NodeId>> iter = table.getIndex(0).all() ;
+            try {
+                while(iter.hasNext()) {
+                    Tuple<NodeId> t = iter.next() ;
+                    NodeId p = t.get(len-2) ;
+                    counts.predicates.computeIfAbsent(p, k->new long[3])[COUNT]++ ;
+                    if ( Objects.equals(typeId, p) )
+                        counts.types.computeIfAbsent(t.get(len-1), k->new long[1])[COUNT]++ ;
+                    counts.total++ ;
+                }
+            } finally { Iter.close(iter) ; }
+            countDistinct(table, len-3, len-2, DISTINCT_S, counts) ;
+            countDistinct(table, len-1, len-2, DISTINCT_O, counts) ;
+        }
+        ready = true ;
+    }
+
+    /**
+     * Count the distinct (term, predicate) pairs. If there is an index starting
+     * with the two slots, pairs are adjacent in its order and no set is needed.
+     */
+    private static void countDistinct(TupleTable table, int slot, int pSlot, int idx, Counts counts) {
+        TupleIndex index = findIndex(table, slot, pSlot) ;
+        Iterator<Tuple<NodeId>> iter = ( index != null ) ? index.all() : table.getIndex(0).all() ;
+        Set<Tuple<NodeId>> seen = ( index != null ) ? null : new HashSet<>() ;
+        NodeId prevTerm = null ;
+        NodeId prevP = null ;
+        try {
+            while(iter.hasNext()) {
+                Tuple<NodeId> t = iter.next() ;
+                NodeId term = t.get(slot) ;
+                NodeId p = t.get(pSlot) ;
+                if ( seen == null ) {
+                    if ( term.equals(prevTerm) && p.equals(prevP) )
+                        continue ;
+                    prevTerm = term ;
+                    prevP = p ;
+                } else if ( ! seen.add(TupleFactory.tuple(term, p)) )
+                    continue ;
+                counts.predicates.get(p)[idx]++ ;
+            }
+        } finally { Iter.close(iter) ; }
+    }
+
+    private static TupleIndex findIndex(TupleTable table, int slot, int pSlot) {
+        for ( TupleIndex index : table.getIndexes() ) {
+            if ( index == null )
+                continue ;
+            int first = index.getMapping().mapIdx(0) ;
+            int second = index.getMapping().mapIdx(1) ;
+            if ( ( first == slot && second == pSlot ) || ( first == pSlot && second == slot ) )
+                return index ;
+        }
+        return null ;
+    }
+
+    // ---- Persistence
+
+    private void read() {
+        long x = file.size() ;
+        ready = ( x > 0 ) ;
+        if ( ! ready )
+            return ;
+        ByteBuffer bb = ByteBuffer.allocate((int)x) ;
+        int len = file.read(bb, 0) ;
+        if ( len != x )
+            throw new RuntimeIOException("Short read: "+len+" of "+x) ;
+        bb.rewind() ;
+        countsRef.set(decode(bb)) ;
+    }
+
+    private void write() {
+        ByteBuffer bb = encode(countsRef.get()) ;
+        int x = bb.remaining() ;
+        file.truncate(0) ;
+        int len = file.write(bb, 0) ;
+        if ( len != x )
+            throw new RuntimeIOException("Short write: "+len+" of "+x) ;
+        file.sync() ;
+    }
+
+    // Format: total, then the predicate entries (id, count, distinct subjects, distinct objects)
+    // and the type entries (id, count), each preceded by the number of entries.
+
+    private static ByteBuffer encode(Counts counts) {
+        int size = Long.BYTES + 2*Integer.BYTES
+                   + counts.predicates.size()*4*Long.BYTES
+                   + counts.types.size()*2*Long.BYTES ;
+        ByteBuffer bb = ByteBuffer.allocate(size) ;
+        bb.putLong(counts.total) ;
+        bb.putInt(counts.predicates.size()) ;
+        counts.predicates.forEach((p, x) -> {
+            bb.putLong(NodeIdFactory.encode(p)) ;
+            bb.putLong(x[COUNT]) ;
+            bb.putLong(x[DISTINCT_S]) ;
+            bb.putLong(x[DISTINCT_O]) ;
+        }) ;
+        bb.putInt(counts.types.size()) ;
+        counts.types.forEach((t, x) -> {
+            bb.putLong(NodeIdFactory.encode(t)) ;
+            bb.putLong(x[COUNT]) ;
+        }) ;
+        bb.flip() ;
+        return bb ;
+    }
+
+    private static Counts decode(ByteBuffer bb) {
+        Counts counts = new Counts() ;
+        counts.total = bb.getLong() ;
+        int n = bb.getInt() ;
+        for ( int i = 0 ; i < n ; i++ ) {
+            NodeId p = NodeIdFactory.decode(bb.getLong()) ;
+            long[] x = new long[3] ;
+            x[COUNT] = bb.getLong() ;
+            x[DISTINCT_S] = bb.getLong() ;
+            x[DISTINCT_O] = bb.getLong() ;
+            counts.predicates.put(p, x) ;
+        }
+        n = bb.getInt() ;
+        for ( int i = 0 ; i < n ; i++ ) {
+            NodeId t = NodeIdFactory.decode(bb.getLong()) ;
+            counts.types.put(t, new long[] {bb.getLong()}) ;
+        }
+        return counts ;
+    }
+
+    // ---- Transaction lifecycle
+
+    private boolean recoveryChange = false ;
+
+    @Override
+    public void startRecovery() {
+        recoveryChange = false ;
+    }
+
+    @Override
+    public void recover(ByteBuffer ref) {
+        countsRef.set(decode(ref)) ;
+        recoveryChange = true ;
+    }
+
+    @Override
+    public void finishRecovery() {
+        if ( recoveryChange ) {
+            write() ;
+            ready = true ;
+        }
+    }
+
+    @Override
+    public void cleanStart() { }
+
+    @Override
+    protected StatsState _begin(ReadWrite readWrite, TxnId txnId) {
+        return new StatsState(countsRef.get()) ;
+    }
+
+    @Override
+    protected StatsState _promote(TxnId txnId, StatsState state) {
+        return new StatsState(countsRef.get()) ;
+    }
+
+    @Override
+    protected ByteBuffer _commitPrepare(TxnId txnId, StatsState state) {
+        if ( ! state.hasChanged() )
+            return null ;
+        return encode(state.$txnCounts) ;
+    }
+
+    @Override
+    protected void _commit(TxnId txnId, StatsState state) {
+        if ( ! state.hasChanged() )
+            return ;
+        countsRef.set(state.$txnCounts) ;
+        write() ;
+        version.incrementAndGet() ;
+    }
+
+    @Override
+    protected void _commitEnd(TxnId txnId, StatsState state) {}
+
+    @Override
+    protected void _abort(TxnId txnId, StatsState state) {}
+
+    @Override
+    protected void _complete(TxnId txnId, StatsState state) {}
+
+    @Override
+    protected void _shutdown() {}
+
+    @Override
+    public String toString()    { return getComponentId().label() ; }
+}
@@ -41,6 +41,7 @@ import org.apache.jena.query.ReadWrite ;
 import org.apache.jena.query.TxnType;
 import org.apache.jena.sparql.core.* ;
 import org.apache.jena.sparql.engine.optimizer.reorder.ReorderTransformation ;
+import org.apache.jena.sparql.engine.optimizer.reorder.Reorderable ;
 import org.apache.jena.tdb2.TDBException;
 import org.apache.jena.tdb2.lib.NodeLib;
 import org.apache.jena.tdb2.setup.StoreParams;
@@ -53,7 +54,7 @@ import org.apache.jena.tdb2.sys.StoreConnection;
  */
 final
 public class DatasetGraphTDB extends DatasetGraphTriplesQuads
-                             implements DatasetGraphTxn, Sync, Closeable
+                             implements DatasetGraphTxn, Sync, Closeable, Reorderable
 {
     private StorageTDB storage; 
 //    // SWITCHING.
@@ -64,7 +65,7 @@ public class DatasetGraphTDB extends DatasetGraphTriplesQuads
 //    private StoreParams storeParams ;
 //    // SWITCHING.
     private TransactionalSystem txnSystem ;
-    private final ReorderTransformation transform ;
+    private volatile ReorderTransformation transform ;
     
     private GraphTDB defaultGraphTDB ;
     private final boolean checkForChange = false ;
@@ -292,11 +293,18 @@ public class DatasetGraphTDB extends DatasetGraphTriplesQuads
         return storage.storeParams;
     }
 
+    @Override
     public ReorderTransformation getReorderTransform() {
         checkNotClosed();
         return transform;
     }
 
+    /** Set the reordering of basic graph patterns used for queries on this dataset. */
+    public void setReorderTransform(ReorderTransformation transform) {
+        checkNotClosed();
+        this.transform = transform;
+    }
+
     public DatasetPrefixStorage getPrefixes() {
         checkNotClosed();
         return storage.prefixes;
@@ -19,13 +19,19 @@
 package org.apache.jena.tdb2.store ;
 
 import java.util.Iterator ;
+import java.util.List ;
 import java.util.function.Function;
+import java.util.stream.Stream ;
 
 import org.apache.jena.atlas.iterator.Iter ;
 import org.apache.jena.atlas.lib.Closeable ;
 import org.apache.jena.atlas.lib.Sync ;
 import org.apache.jena.atlas.lib.tuple.Tuple ;
 import org.apache.jena.atlas.lib.tuple.TupleFactory ;
+import org.apache.jena.dboe.transaction.txn.Transaction;
+import org.apache.jena.dboe.transaction.txn.TransactionCoordinator;
+import org.apache.jena.dboe.transaction.txn.TransactionCoordinatorState;
+import org.apache.jena.dboe.transaction.txn.TransactionalSystem;
 import org.apache.jena.graph.GraphEvents;
 import org.apache.jena.graph.Node;
 import org.apache.jena.graph.Triple;
@@ -34,7 +40,10 @@ import org.apache.jena.shared.PrefixMapping ;
 import org.apache.jena.sparql.core.GraphView ;
 import org.apache.jena.sparql.core.Quad ;
 import org.apache.jena.tdb2.TDBException;
+import org.apache.jena.tdb2.store.nodetable.NodeTable;
 import org.apache.jena.tdb2.store.nodetupletable.NodeTupleTable;
+import org.apache.jena.tdb2.store.tupletable.TupleSpliterator;
+import org.apache.jena.tdb2.store.tupletable.TupleTable;
 import org.apache.jena.util.iterator.ExtendedIterator ;
 import org.apache.jena.util.iterator.WrappedIterator ;
 
@@ -119,6 +128,44 @@ public class GraphTDB extends GraphView implements Closeable, Sync {
         return WrappedIterator.createNoRemove(iter) ;
     }
 
+    /**
+     * A parallel stream of the triples matching the pattern ({@code null} or
+     * {@code Node.ANY} for "any"). The range of the index chosen for the pattern is
+     * split into key ranges (see {@link TupleTable#findPartitioned}) that are handled,
+     * including decoding the nodes, by threads that join the read transaction of
+     * the calling thread.
+     * <p>
+     * The stream must be consumed, and should be closed, before the transaction ends.
+     * Outside a read transaction, and for the union graph, this is a sequential stream
+     * of {@link #find(Node, Node, Node)}.
+     */
+    public Stream<Triple> parallelStream(Node s, Node p, Node o) {
+        TransactionalSystem txnSystem = getDSG().getTxnSystem() ;
+        Transaction txn = txnSystem.getThreadTransaction() ;
+        if ( isUnionGraph() || txn == null || ! txn.isReadTxn() )
+            return Iter.asStream(find(s, p, o)) ;
+
+        NodeTupleTable ntt = getNodeTupleTable() ;
+        NodeTable nodeTable = ntt.getNodeTable() ;
+        Node[] nodes = isDefaultGraph() ? new Node[] {s, p, o} : new Node[] {getGraphName(), s, p, o} ;
+        NodeId[] ids = new NodeId[nodes.length] ;
+        for ( int i = 0 ; i < nodes.length ; i++ ) {
+            Node n = nodes[i] ;
+            ids[i] = ( n == null || n == Node.ANY ) ? NodeId.NodeIdAny : nodeTable.getNodeIdForNode(n) ;
+            if ( NodeId.isDoesNotExist(ids[i]) )
+                return Stream.empty() ;
+        }
+        int offset = nodes.length - 3 ;
+        TransactionCoordinator txnMgr = txnSystem.getTxnMgr() ;
+        TransactionCoordinatorState shared = txnMgr.share(txn) ;
+        List<Iterator<Tuple<NodeId>>> ranges =
+            ntt.getTupleTable().findPartitioned(TupleFactory.create(ids), TupleSpliterator.defaultPartitions()) ;
+        return TupleSpliterator.stream(ranges, true, ()->txnMgr.join(shared), ()->txnMgr.leave(shared))
+            .map(t -> Triple.create(nodeTable.getNodeForNodeId(t.get(offset)),
+                                    nodeTable.getNodeForNodeId(t.get(offset+1)),
+                                    nodeTable.getNodeForNodeId(t.get(offset+2)))) ;
+    }
+
     @Override
     protected final int graphBaseSize() {
         if ( isDefaultGraph() )
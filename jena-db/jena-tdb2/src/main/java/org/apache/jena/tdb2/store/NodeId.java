@@ -124,6 +124,8 @@ public class NodeId implements Comparable<NodeId>
 
     // Migration
     public static NodeId inline(Node node) { return NodeIdInline.inline(node); }
+    public static NodeId inline(Node node, boolean inlineStrings) { return NodeIdInline.inline(node, inlineStrings); }
+    public static NodeId inline(Node node, boolean inlineStrings, boolean orderedDecimals) { return NodeIdInline.inline(node, inlineStrings, orderedDecimals); }
     public static boolean hasInlineDatatype(Node node) { return NodeIdInline.hasInlineDatatype(node); }
     public static Node extract(NodeId nodeId) { return NodeIdInline.extract(nodeId); }
     
@@ -157,7 +159,7 @@ public class NodeId implements Comparable<NodeId>
     @Override
     public int hashCode() {
         // Ensure all parts have an effect on the 32 bit hash value.
-        return value1 ^ ((int)value2) ^ ((int)(value2 >> 32));
+        return type.type() ^ value1 ^ ((int)value2) ^ ((int)(value2 >> 32));
     }
 
     @Override
@@ -166,13 +168,14 @@ public class NodeId implements Comparable<NodeId>
         if ( other == null ) return false;
         if ( !(other instanceof NodeId) ) return false;
         NodeId nOther = ((NodeId)other);
-        return equals(nOther, value1, value2);  
+        return equals(nOther);  
     }
     
     public boolean equals(NodeId nodeIdOther) {
         if ( nodeIdOther == null ) return false;
         if ( this == nodeIdOther ) return true;
-        return equals(nodeIdOther, value1, value2);  
+        // The type is needed: an inline value and a pointer can have the same value2.
+        return type == nodeIdOther.type && equals(nodeIdOther, value1, value2);  
     }
     
     /*package*/ static boolean equals(NodeId nodeId, int v1, long v2) {
@@ -128,8 +128,8 @@ public class NodeIdFactory
         return decode(value2);
     }
 
-    // 64 bit version
-    private static NodeId decode(long value2) {
+    /** The {@link NodeId} for the 64 bit on-disk form, as read by {@code get}. */
+    public static NodeId decode(long value2) {
         return NodeIdFactory.create(value2);
     }
 
@@ -139,7 +139,8 @@ public class NodeIdFactory
         Bytes.setLong(v2, b, 0);
     }
 
-    private static long encode(NodeId nodeId) {
+    /** The 64 bit on-disk form of a {@link NodeId}, as written by {@code set}. */
+    public static long encode(NodeId nodeId) {
         long x = nodeId.value2;
         switch(nodeId.type()) {
             case PTR:
@@ -53,16 +53,22 @@ import org.apache.jena.tdb2.store.value.*;
  * <ul>
  * <li>Integer format: signed 56 bit number, the type filed has the XSD type.
  * <li>Decimal format: 8 bits scale, 48bits of signed valued. See {@link DecimalNode56}.
+ *     Or, only if asked for (see {@link #inline(Node, boolean, boolean)}), 14 significant
+ *     digits packed so that the order of NodeIds is the numeric order. See {@link DecimalNodeOrdered}.
  * <li>Date and DateTime
  * <li>Boolean
  * <li>Float
+ * <li>Short strings and short language-tagged strings, only if asked for
+ *     (see {@link #inline(Node, boolean)}). See {@link StringNode}.
  * </ul>
  *  
  * @see IntegerNode
  * @see DecimalNode56
+ * @see DecimalNodeOrdered
  * @see DoubleNode62
  * @see DateTimeNode DateTimeNode for xsd:date and xsd:DateTime  
  * @see FloatNode
+ * @see StringNode
  */
 public class NodeIdInline {
     /** Datatypes that are candidates for inlining */ 
@@ -114,6 +120,28 @@ public class NodeIdInline {
     
     /** Encode a node as an inline literal.  Return null if it can't be done */
     public static NodeId inline(Node node) {
+        return inline(node, false);
+    }
+
+    /** Encode a node as an inline literal, including short strings and short
+     * language-tagged strings if {@code inlineStrings} is true.
+     * Return null if it can't be done.
+     * <p>
+     * Whether strings are inlined is a property of the database (it changes the
+     * NodeId of a string) so it must be the same whenever the database is used.
+     */
+    public static NodeId inline(Node node, boolean inlineStrings) {
+        return inline(node, inlineStrings, false);
+    }
+
+    /** Encode a node as an inline literal, as {@link #inline(Node, boolean)}, and
+     * with decimals in the order-preserving encoding of {@link DecimalNodeOrdered}
+     * if {@code orderedDecimals} is true.
+     * Return null if it can't be done.
+     * <p>
+     * Like inlining strings, this is a property of the database.
+     */
+    public static NodeId inline(Node node, boolean inlineStrings, boolean orderedDecimals) {
         if ( node == null ) {
             Log.warn(NodeId.class, "Null node: " + node);
             return null;
@@ -125,10 +153,13 @@ public class NodeIdInline {
         if ( !node.isLiteral() )
             return null;
     
-        if ( NodeUtils.isSimpleString(node) || NodeUtils.isLangString(node) )
-            return null;
+        if ( NodeUtils.isSimpleString(node) || NodeUtils.isLangString(node) ) {
+            if ( ! inlineStrings )
+                return null;
+            return inlineString(node);
+        }
         
-        try { return inline$(node); }
+        try { return inline$(node, orderedDecimals); }
         catch (Throwable th) {
             Log.warn(NodeId.class, "Failed to process "+node);
             return null; 
@@ -146,7 +177,7 @@ public class NodeIdInline {
         return datatypes.contains(dtn);
     }
 
-    private static NodeId inline$(Node node) {
+    private static NodeId inline$(Node node, boolean orderedDecimals) {
         if ( ! hasInlineDatatype(node) )
             return null;
         LiteralLabel lit = node.getLiteral();
@@ -164,6 +195,9 @@ public class NodeIdInline {
             // chopping by .trim is safe.
             BigDecimal decimal = new BigDecimal(lit.getLexicalForm().trim());
             
+            if ( orderedDecimals )
+                return inlineOrderedDecimal(node, decimal);
+
             // Does range checking.
             DecimalNode56 dn = DecimalNode56.valueOf(decimal);
             // null is "does not fit"
@@ -249,6 +283,38 @@ public class NodeIdInline {
         return null;
     }
 
+    private static NodeId inlineOrderedDecimal(Node node, BigDecimal decimal) {
+        long v = DecimalNodeOrdered.pack(decimal);
+        if ( v == -1 )
+            return null;
+        NodeId nodeId = NodeId.createRaw(XSD_DECIMAL_ORDERED, v);
+        // Only the value is kept so only the canonical lexical form is inlined.
+        if ( ! node.equals(extract(nodeId)) )
+            return null;
+        return nodeId;
+    }
+
+    private static NodeId inlineString(Node node) {
+        String lex = node.getLiteralLexicalForm();
+        String lang = node.getLiteralLanguage();
+        NodeId nodeId;
+        if ( lang == null || lang.isEmpty() ) {
+            long v = StringNode.packString(lex);
+            if ( v == -1 )
+                return null;
+            nodeId = NodeId.createRaw(XSD_SHORTSTRING, v);
+        } else {
+            long v = StringNode.packLangString(lex, lang);
+            if ( v == -1 )
+                return null;
+            nodeId = NodeId.createRaw(RDF_LANGSTRING, v);
+        }
+        // Only if the term comes back exactly (e.g. RDF 1.0 "abc" and "abc"^^xsd:string are different terms).
+        if ( ! node.equals(extract(nodeId)) )
+            return null;
+        return nodeId;
+    }
+
     /** Decode an inline nodeID, return null if not an inline node */
     public static Node extract(NodeId nodeId) {
         if ( nodeId == NodeId.NodeDoesNotExist )
@@ -285,6 +351,13 @@ public class NodeIdInline {
                 String x = d.toPlainString();
                 return NodeFactory.createLiteral(x, XSDDatatype.XSDdecimal);
             }
+            case XSD_DECIMAL_ORDERED : {
+                BigDecimal d = DecimalNodeOrdered.unpack(nodeId.value2);
+                if ( d.scale() <= 0 )
+                    d = d.setScale(1);
+                String x = d.toPlainString();
+                return NodeFactory.createLiteral(x, XSDDatatype.XSDdecimal);
+            }
             case XSD_DOUBLE: {
                 double d = DoubleNode62.unpack(nodeId.value2);
                 String xsdStr = Utils.stringForm(d);
@@ -317,6 +390,17 @@ public class NodeIdInline {
                     return NodeConst.nodeTrue;
                 throw new TDBException("Unrecognized boolean node id : " + val);
             }
+            case XSD_SHORTSTRING : {
+                String lex = StringNode.unpackString(nodeId.getValue2());
+                return NodeFactory.createLiteral(lex);
+            }
+            case RDF_LANGSTRING : {
+                long val = nodeId.getValue2();
+                String lang = StringNode.unpackLang(val);
+                if ( lang == null )
+                    throw new TDBException("Unrecognized language tag in node id : " + val);
+                return NodeFactory.createLiteral(StringNode.unpackLangString(val), lang);
+            }
             default :
                 throw new TDBException("Unrecognized node id type: " + type);
         }
@@ -40,6 +40,9 @@ public enum NodeIdType {
     XSD_DATE(T_DATE, "Date"),
     XSD_BOOLEAN(T_BOOLEAN, "Boolean"),
     XSD_SHORTSTRING(T_SHORTSTRING, "ShortString"),
+    RDF_LANGSTRING(T_LANGSTRING, "LangString"),
+    // Decimal, in an encoding with the order of the values.
+    XSD_DECIMAL_ORDERED(T_DECIMAL_ORDERED, "Decimal (ordered)"),
     // 1 and greater
     XSD_POSITIVE_INTEGER(T_POSITIVE_INTEGER, "Positive Integer"),
     // -1 and down
@@ -106,6 +109,8 @@ public enum NodeIdType {
         public static final int T_UNSIGNEDSHORT = enc(20);
         public static final int T_UNSIGNEDBYTE = enc(21); 
         // 21 is 00010101
+        public static final int T_LANGSTRING = enc(22);
+        public static final int T_DECIMAL_ORDERED = enc(23);
         
         // Never stored : bits 1011 0000 so as not to look like a double.
         public static final int T_SPECIAL = enc(0x30);
@@ -148,7 +153,7 @@ public enum NodeIdType {
     }
     
     static boolean isDecimal(NodeIdType type) {
-        return type == XSD_DECIMAL;
+        return type == XSD_DECIMAL || type == XSD_DECIMAL_ORDERED;
     }
     
     static boolean isDouble(NodeIdType type) {
@@ -179,6 +184,8 @@ public enum NodeIdType {
             case XSD_DATE:
             case XSD_BOOLEAN:
             case XSD_SHORTSTRING:
+            case RDF_LANGSTRING:
+            case XSD_DECIMAL_ORDERED:
                 
             case XSD_POSITIVE_INTEGER:
             case XSD_NEGATIVE_INTEGER:
@@ -240,6 +247,8 @@ public enum NodeIdType {
 
         if (x == XSD_BOOLEAN.value )                return XSD_BOOLEAN ;
         if (x == XSD_SHORTSTRING.value )            return XSD_SHORTSTRING ;
+        if (x == RDF_LANGSTRING.value )             return RDF_LANGSTRING ;
+        if (x == XSD_DECIMAL_ORDERED.value )        return XSD_DECIMAL_ORDERED ;
         
         if (x == XSD_POSITIVE_INTEGER.value )       return XSD_POSITIVE_INTEGER;
         if (x == XSD_NEGATIVE_INTEGER.value )       return XSD_NEGATIVE_INTEGER ;
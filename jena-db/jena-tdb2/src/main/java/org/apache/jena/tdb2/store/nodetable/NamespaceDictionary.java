@@ -0,0 +1,158 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.tdb2.store.nodetable;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.jena.dboe.transaction.txn.ComponentId;
+import org.apache.jena.dboe.transaction.txn.Transaction;
+import org.apache.jena.dboe.transaction.txn.TransactionalComponentLifecycle;
+import org.apache.jena.dboe.transaction.txn.TxnId;
+import org.apache.jena.query.ReadWrite;
+
+/**
+ * The in-memory dictionary of namespaces for a {@link NodeTableNamespaces}: namespace
+ * IRI to the location of the namespace node in the node data file, and back.
+ * <p>
+ * The dictionary is only a cache - the namespaces themselves are nodes in the node
+ * table - but a location found or allocated by a write transaction is not valid
+ * if the transaction aborts, when the data file is truncated and the space
+ * reused. Entries learnt in a write transaction are kept with the transaction and
+ * added to the shared dictionary when it commits. Anything a read transaction
+ * sees has been committed. Nothing is written to the journal.
+ */
+public class NamespaceDictionary extends TransactionalComponentLifecycle<NamespaceDictionary.Pending> {
+
+    /** Entries learnt in a write transaction. */
+    static class Pending {
+        final Map<String, Long> namespaceToPtr = new HashMap<>();
+        final Map<Long, String> ptrToNamespace = new HashMap<>();
+    }
+
+    private final Map<String, Long> namespaceToPtr = new ConcurrentHashMap<>();
+    private final Map<Long, String> ptrToNamespace = new ConcurrentHashMap<>();
+
+    public NamespaceDictionary(ComponentId componentId) {
+        super(componentId);
+    }
+
+    /** The location of a namespace, or null if not known. */
+    public Long getPtr(String namespace) {
+        Long x = namespaceToPtr.get(namespace);
+        if ( x != null )
+            return x;
+        Pending pending = pending();
+        return pending == null ? null : pending.namespaceToPtr.get(namespace);
+    }
+
+    /** The namespace at a location, or null if not known. */
+    public String getNamespace(long ptr) {
+        String x = ptrToNamespace.get(ptr);
+        if ( x != null )
+            return x;
+        Pending pending = pending();
+        return pending == null ? null : pending.ptrToNamespace.get(ptr);
+    }
+
+    /** Record a namespace found or written at a location by the current transaction. */
+    public void add(String namespace, long ptr) {
+        Transaction txn = getTransaction();
+        if ( txn == null )
+            // Not a transaction of this thread: the state of the data is not known.
+            return;
+        if ( txn.isWriteTxn() ) {
+            Pending pending = pending();
+            if ( pending != null ) {
+                pending.namespaceToPtr.put(namespace, ptr);
+                pending.ptrToNamespace.put(ptr, namespace);
+            }
+            return;
+        }
+        namespaceToPtr.put(namespace, ptr);
+        ptrToNamespace.put(ptr, namespace);
+    }
+
+    /** Number of committed entries. */
+    public int size() {
+        return namespaceToPtr.size();
+    }
+
+    private Pending pending() {
+        return getTransaction() == null ? null : getDataState();
+    }
+
+    // ---- Transaction lifecycle
+
+    @Override
+    public void startRecovery() {}
+
+    @Override
+    public void recover(ByteBuffer ref) {}
+
+    @Override
+    public void finishRecovery() {}
+
+    @Override
+    public void cleanStart() {}
+
+    @Override
+    protected Pending _begin(ReadWrite readWrite, TxnId txnId) {
+        return readWrite == ReadWrite.WRITE ? new Pending() : null;
+    }
+
+    @Override
+    protected Pending _promote(TxnId txnId, Pending state) {
+        return new Pending();
+    }
+
+    @Override
+    protected ByteBuffer _commitPrepare(TxnId txnId, Pending state) {
+        return null;
+    }
+
+    @Override
+    protected void _commit(TxnId txnId, Pending state) {}
+
+    @Override
+    protected void _commitEnd(TxnId txnId, Pending state) {
+        if ( state == null )
+            return;
+        namespaceToPtr.putAll(state.namespaceToPtr);
+        ptrToNamespace.putAll(state.ptrToNamespace);
+    }
+
+    @Override
+    protected void _abort(TxnId txnId, Pending state) {}
+
+    @Override
+    protected void _complete(TxnId txnId, Pending state) {}
+
+    @Override
+    protected void _shutdown() {
+        namespaceToPtr.clear();
+        ptrToNamespace.clear();
+    }
+
+    @Override
+    public String toString()    { return getComponentId().label(); }
+}
@@ -0,0 +1,256 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.store.nodetable;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+import org.apache.jena.atlas.lib.Cache;
+import org.apache.jena.graph.Node;
+import org.apache.jena.tdb2.TDBException;
+import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.NodeIdFactory;
+
+/**
+ * A NodeId to Node cache for heavily concurrent readers.
+ * <p>
+ * The cache is an open-addressed table, keyed by the 64 bit on-disk form of the
+ * {@link NodeId} ({@link NodeIdFactory#encode}), so no {@code NodeId} objects are
+ * created or hashed for lookup. The table is divided into buckets of
+ * {@value #BucketSize} slots; a key can only be in its bucket.
+ * <p>
+ * Reads do not lock: each slot holds an immutable entry, so a reader sees either
+ * the old entry or the new one. Writes lock the bucket's stripe. When a bucket is
+ * full, an entry is chosen for eviction with the CLOCK policy: a hit marks the
+ * entry as referenced, and the bucket's clock hand skips (and clears) referenced
+ * entries.
+ * <p>
+ * The cache counts hits, misses and evictions.
+ */
+public class NodeCacheClock implements Cache<NodeId, Node> {
+    /** Slots per bucket. */
+    public static final int BucketSize = 8;
+    private static final int LockStripes = 64;
+
+    private static final class Entry {
+        final long key;
+        final Node node;
+        // Benign races : only a hint for eviction.
+        volatile boolean referenced = false;
+        Entry(long key, Node node) { this.key = key; this.node = node; }
+    }
+
+    private final AtomicReferenceArray<Entry> slots;
+    private final int bucketMask;
+    private final byte[] hands;
+    private final Object[] locks = new Object[LockStripes];
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder size = new LongAdder();
+    private BiConsumer<NodeId, Node> dropHandler = null;
+
+    /** Create a cache for at least {@code capacity} entries. */
+    public NodeCacheClock(int capacity) {
+        if ( capacity <= 0 )
+            throw new TDBException("NodeCacheClock: capacity must be positive: "+capacity);
+        int buckets = Integer.highestOneBit(Math.max(1, (capacity+BucketSize-1)/BucketSize)-1)<<1;
+        if ( buckets <= 0 )
+            buckets = 1;
+        this.bucketMask = buckets-1;
+        this.slots = new AtomicReferenceArray<>(buckets*BucketSize);
+        this.hands = new byte[buckets];
+        for ( int i = 0 ; i < LockStripes ; i++ )
+            locks[i] = new Object();
+    }
+
+    /** Number of slots, the maximum number of entries. */
+    public int capacity() {
+        return slots.length();
+    }
+
+    public long getHits()           { return hits.sum(); }
+    public long getMisses()         { return misses.sum(); }
+    public long getEvictions()      { return evictions.sum(); }
+
+    /** Reset the hit, miss and eviction counters. */
+    public void resetCounters() {
+        hits.reset();
+        misses.reset();
+        evictions.reset();
+    }
+
+    private int bucket(long key) {
+        // Mix : pointer NodeIds are file offsets and close together.
+        long h = key * 0x9E3779B97F4A7C15L;
+        h ^= (h >>> 32);
+        return (int)h & bucketMask;
+    }
+
+    private Entry find(long key) {
+        int start = bucket(key)*BucketSize;
+        for ( int i = 0 ; i < BucketSize ; i++ ) {
+            Entry e = slots.get(start+i);
+            if ( e != null && e.key == key )
+                return e;
+        }
+        return null;
+    }
+
+    @Override
+    public boolean containsKey(NodeId id) {
+        return find(NodeIdFactory.encode(id)) != null;
+    }
+
+    @Override
+    public Node getIfPresent(NodeId id) {
+        Entry e = find(NodeIdFactory.encode(id));
+        if ( e == null ) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        if ( ! e.referenced )
+            e.referenced = true;
+        return e.node;
+    }
+
+    @Override
+    public Node getOrFill(NodeId id, Callable<Node> callable) {
+        Node n = getIfPresent(id);
+        if ( n != null )
+            return n;
+        try { n = callable.call(); }
+        catch (Exception ex) { throw new TDBException("NodeCacheClock.getOrFill", ex); }
+        if ( n != null )
+            put(id, n);
+        return n;
+    }
+
+    @Override
+    public void put(NodeId id, Node node) {
+        if ( node == null )
+            return;
+        long key = NodeIdFactory.encode(id);
+        int b = bucket(key);
+        int start = b*BucketSize;
+        Entry entry = new Entry(key, node);
+        synchronized(locks[b & (LockStripes-1)]) {
+            int free = -1;
+            for ( int i = 0 ; i < BucketSize ; i++ ) {
+                Entry e = slots.get(start+i);
+                if ( e == null ) {
+                    if ( free < 0 )
+                        free = i;
+                } else if ( e.key == key ) {
+                    slots.set(start+i, entry);
+                    return;
+                }
+            }
+            if ( free >= 0 ) {
+                slots.set(start+free, entry);
+                size.increment();
+                return;
+            }
+            // CLOCK : find an entry not referenced since the hand last passed.
+            // Readers may set the flag again, so give up after two sweeps.
+            int hand = hands[b];
+            for ( int step = 0 ; ; step++ ) {
+                Entry e = slots.get(start+hand);
+                if ( e.referenced && step < 2*BucketSize ) {
+                    e.referenced = false;
+                    hand = (hand+1) % BucketSize;
+                    continue;
+                }
+                slots.set(start+hand, entry);
+                hands[b] = (byte)((hand+1) % BucketSize);
+                evictions.increment();
+                if ( dropHandler != null )
+                    dropHandler.accept(NodeIdFactory.decode(e.key), e.node);
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void remove(NodeId id) {
+        long key = NodeIdFactory.encode(id);
+        int b = bucket(key);
+        int start = b*BucketSize;
+        synchronized(locks[b & (LockStripes-1)]) {
+            for ( int i = 0 ; i < BucketSize ; i++ ) {
+                Entry e = slots.get(start+i);
+                if ( e != null && e.key == key ) {
+                    slots.set(start+i, null);
+                    size.decrement();
+                    return;
+                }
+            }
+        }
+    }
+
+    @Override
+    public Iterator<NodeId> keys() {
+        List<NodeId> x = new ArrayList<>();
+        for ( int i = 0 ; i < slots.length() ; i++ ) {
+            Entry e = slots.get(i);
+            if ( e != null )
+                x.add(NodeIdFactory.decode(e.key));
+        }
+        return x.iterator();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public void clear() {
+        for ( int b = 0 ; b <= bucketMask ; b++ ) {
+            synchronized(locks[b & (LockStripes-1)]) {
+                for ( int i = 0 ; i < BucketSize ; i++ ) {
+                    if ( slots.getAndSet(b*BucketSize+i, null) != null )
+                        size.decrement();
+                }
+            }
+        }
+    }
+
+    @Override
+    public long size() {
+        return size.sum();
+    }
+
+    @Override
+    public void setDropHandler(BiConsumer<NodeId, Node> dropHandler) {
+        this.dropHandler = dropHandler;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("NodeCacheClock[capacity=%d, size=%d, hits=%d, misses=%d, evictions=%d]",
+                             capacity(), size(), getHits(), getMisses(), getEvictions());
+    }
+}
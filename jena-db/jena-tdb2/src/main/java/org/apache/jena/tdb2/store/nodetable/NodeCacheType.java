@@ -0,0 +1,30 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.store.nodetable;
+
+/** The implementation of the NodeId to Node cache of a {@link NodeTableCache}. */
+public enum NodeCacheType {
+    /** Least-recently-used, general purpose cache. */
+    LRU,
+    /**
+     * Fixed size table keyed by the 64 bit form of the {@code NodeId}, with lock-free
+     * reads and CLOCK eviction. See {@link NodeCacheClock}.
+     */
+    CLOCK
+}
@@ -20,7 +20,9 @@ package org.apache.jena.tdb2.store.nodetable ;
 
 import java.util.ArrayList ;
 import java.util.Iterator ;
+import java.util.LinkedHashMap ;
 import java.util.List ;
+import java.util.Map ;
 
 import org.apache.jena.atlas.iterator.Iter ;
 import org.apache.jena.atlas.lib.Cache ;
@@ -44,6 +46,8 @@ public class NodeTableCache implements NodeTable {
     // The cache is assumed to be single operation-thread-safe.
     private Cache<Node, NodeId> node2id_Cache = null ;
     private Cache<NodeId, Node> id2node_Cache = null ;
+    // The NodeId->Node cache does not need the lock to be updated.
+    private boolean             id2node_Concurrent = false ;
 
     // A small cache of "known unknowns" to speed up searching for impossible
     // things.
@@ -58,21 +62,33 @@ public class NodeTableCache implements NodeTable {
         int idToNodeCacheSize = params.getNodeId2NodeCacheSize() ;
         if ( nodeToIdCacheSize <= 0 && idToNodeCacheSize <= 0 )
             return nodeTable ;
-        return new NodeTableCache(nodeTable, nodeToIdCacheSize, idToNodeCacheSize, params.getNodeMissCacheSize()) ;
+        return new NodeTableCache(nodeTable, nodeToIdCacheSize, idToNodeCacheSize, params.getNodeMissCacheSize(),
+                                  params.getNodeId2NodeCacheType()) ;
     }
 
     public static NodeTable create(NodeTable nodeTable, int nodeToIdCacheSize, int idToNodeCacheSize, int nodeMissesCacheSize) {
+        return create(nodeTable, nodeToIdCacheSize, idToNodeCacheSize, nodeMissesCacheSize, NodeCacheType.LRU) ;
+    }
+
+    public static NodeTable create(NodeTable nodeTable, int nodeToIdCacheSize, int idToNodeCacheSize, int nodeMissesCacheSize,
+                                   NodeCacheType idToNodeCacheType) {
         if ( nodeToIdCacheSize <= 0 && idToNodeCacheSize <= 0 )
             return nodeTable ;
-        return new NodeTableCache(nodeTable, nodeToIdCacheSize, idToNodeCacheSize, nodeMissesCacheSize) ;
+        return new NodeTableCache(nodeTable, nodeToIdCacheSize, idToNodeCacheSize, nodeMissesCacheSize, idToNodeCacheType) ;
     }
 
-    private NodeTableCache(NodeTable baseTable, int nodeToIdCacheSize, int idToNodeCacheSize, int nodeMissesCacheSize) {
+    private NodeTableCache(NodeTable baseTable, int nodeToIdCacheSize, int idToNodeCacheSize, int nodeMissesCacheSize,
+                           NodeCacheType idToNodeCacheType) {
         this.baseTable = baseTable ;
         if ( nodeToIdCacheSize > 0 )
             node2id_Cache = CacheFactory.createCache(nodeToIdCacheSize) ;
-        if ( idToNodeCacheSize > 0 )
-            id2node_Cache = CacheFactory.createCache(idToNodeCacheSize) ;
+        if ( idToNodeCacheSize > 0 ) {
+            if ( idToNodeCacheType == NodeCacheType.CLOCK ) {
+                id2node_Cache = new NodeCacheClock(idToNodeCacheSize) ;
+                id2node_Concurrent = true ;
+            } else
+                id2node_Cache = CacheFactory.createCache(idToNodeCacheSize) ;
+        }
         if ( nodeMissesCacheSize > 0 )
             notPresent = CacheFactory.createCacheSet(nodeMissesCacheSize) ;
     }
@@ -87,6 +103,11 @@ public class NodeTableCache implements NodeTable {
         return node2id_Cache.getIfPresent(node) ;
     }
 
+    /** The NodeId to Node cache, or null if there isn't one. */
+    public Cache<NodeId, Node> getNodeIdToNodeCache() {
+        return id2node_Cache ;
+    }
+
     public boolean isCachedNodeId(NodeId id) {
         return getNodeForNodeIdCache(id) != null ;
     }
@@ -166,9 +187,38 @@ public class NodeTableCache implements NodeTable {
         }
     }
 
+    /** Look in the cache, then pass the distinct misses to the base table in one call. */
     @Override
     public List<Node> bulkNodeIdToNode(List<NodeId> nodeIds) {
-        return NodeTableOps.bulkNodeIdToNodeImpl(this, nodeIds) ;
+        List<Node> nodes = new ArrayList<>(nodeIds.size()) ;
+        Map<NodeId, Node> misses = new LinkedHashMap<>() ;
+        for ( NodeId nid : nodeIds ) {
+            Node n = null ;
+            if ( nid != null && NodeId.isConcrete(nid) ) {
+                n = cacheLookup(nid) ;
+                if ( n == null )
+                    misses.put(nid, null) ;
+            }
+            nodes.add(n) ;
+        }
+        if ( misses.isEmpty() )
+            return nodes ;
+        List<NodeId> missIds = new ArrayList<>(misses.keySet()) ;
+        List<Node> missNodes = baseTable.bulkNodeIdToNode(missIds) ;
+        for ( int i = 0 ; i < missIds.size() ; i++ )
+            misses.put(missIds.get(i), missNodes.get(i)) ;
+        if ( id2node_Concurrent ) {
+            misses.forEach((nid, n) -> { if ( n != null ) id2node_Cache.put(nid, n) ; }) ;
+        } else {
+            synchronized (lock) {
+                misses.forEach((nid, n) -> cacheUpdate(n, nid)) ;
+            }
+        }
+        for ( int i = 0 ; i < nodes.size() ; i++ ) {
+            if ( nodes.get(i) == null )
+                nodes.set(i, misses.get(nodeIds.get(i))) ;
+        }
+        return nodes ;
     }
 
     // ---- The worker functions
@@ -184,6 +234,15 @@ public class NodeTableCache implements NodeTable {
         if ( n != null )
             return n ;
 
+        if ( id2node_Concurrent ) {
+            // A NodeId always maps to the same Node, so there is nothing to
+            // keep consistent with the other caches. No lock.
+            n = baseTable.getNodeForNodeId(id) ;
+            if ( n != null )
+                id2node_Cache.put(id, n) ;
+            return n ;
+        }
+
         synchronized (lock) {
             // Lock to update two caches consisently.
             // Verify cache miss
@@ -18,6 +18,8 @@
 
 package org.apache.jena.tdb2.store.nodetable;
 
+import java.util.ArrayList ;
+import java.util.List ;
 
 import org.apache.jena.graph.Node ;
 import org.apache.jena.tdb2.store.NodeId;
@@ -32,20 +34,47 @@ public class NodeTableInline extends NodeTableWrapper
 {
     // Stack order: Inline > Cache > Actual
     
+    private final boolean inlineStrings ;
+    private final boolean orderedDecimals ;
+    
     public static NodeTable create(NodeTable nodeTable)
     {
-        return new NodeTableInline(nodeTable) ;
+        return create(nodeTable, false) ;
+    }
+    
+    /** Create an inline wrapper; {@code inlineStrings} also inlines short strings
+     * (see {@link NodeId#inline(Node, boolean)}).
+     */
+    public static NodeTable create(NodeTable nodeTable, boolean inlineStrings)
+    {
+        return create(nodeTable, inlineStrings, false) ;
+    }
+    
+    /** Create an inline wrapper; {@code orderedDecimals} inlines decimals so that they
+     * sort in numeric order (see {@link NodeId#inline(Node, boolean, boolean)}).
+     */
+    public static NodeTable create(NodeTable nodeTable, boolean inlineStrings, boolean orderedDecimals)
+    {
+        return new NodeTableInline(nodeTable, inlineStrings, orderedDecimals) ;
     }
     
-    private NodeTableInline(NodeTable nodeTable)
+    private NodeTableInline(NodeTable nodeTable, boolean inlineStrings, boolean orderedDecimals)
     {
         super(nodeTable) ;
+        this.inlineStrings = inlineStrings ;
+        this.orderedDecimals = orderedDecimals ;
+    }
+    
+    /** The inline NodeId for the node, or null if it is not inlined by this table. */ 
+    public NodeId inline(Node node)
+    {
+        return NodeId.inline(node, inlineStrings, orderedDecimals) ;
     }
     
     @Override
     public final NodeId getAllocateNodeId(Node node)
     {
-        NodeId nid = NodeId.inline(node) ;
+        NodeId nid = inline(node) ;
         if ( nid != null ) return nid ;
         return super.getAllocateNodeId(node) ;
     }
@@ -53,7 +82,7 @@ public class NodeTableInline extends NodeTableWrapper
     @Override
     public final NodeId getNodeIdForNode(Node node)
     {
-        NodeId nid = NodeId.inline(node) ;
+        NodeId nid = inline(node) ;
         if ( nid != null ) return nid ;
         return super.getNodeIdForNode(node) ;
     }
@@ -66,6 +95,29 @@ public class NodeTableInline extends NodeTableWrapper
         return super.getNodeForNodeId(id) ;
     }
     
+    @Override
+    public List<Node> bulkNodeIdToNode(List<NodeId> nodeIds)
+    {
+        // Only the non-inline NodeIds go to the underlying table.
+        List<Node> nodes = new ArrayList<>(nodeIds.size()) ;
+        List<NodeId> stored = new ArrayList<>() ;
+        for ( NodeId nid : nodeIds ) {
+            Node n = NodeId.extract(nid) ;
+            if ( n == null )
+                stored.add(nid) ;
+            nodes.add(n) ;
+        }
+        if ( stored.isEmpty() )
+            return nodes ;
+        List<Node> storedNodes = super.bulkNodeIdToNode(stored) ;
+        int j = 0 ;
+        for ( int i = 0 ; i < nodes.size() ; i++ ) {
+            if ( nodes.get(i) == null )
+                nodes.set(i, storedNodes.get(j++)) ;
+        }
+        return nodes ;
+    }
+
     @Override
     public String toString() { return "Inline("+nodeTable.toString()+")" ; }
 }
@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.tdb2.store.nodetable;
+
+import org.apache.jena.dboe.base.file.BinaryDataFile;
+import org.apache.jena.dboe.index.Index;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.riot.thrift.wire.RDF_PrefixName;
+import org.apache.jena.riot.thrift.wire.RDF_Term;
+import org.apache.jena.tdb2.TDBException;
+import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.NodeIdFactory;
+
+/**
+ * NodeTable using Thrift that stores each namespace once.
+ * <p>
+ * An IRI is split after its last {@code '/'} or {@code '#'}. The namespace is a node of
+ * the node table, stored in full; the IRI is stored as a Thrift prefixed name with
+ * the location of the namespace node, in base 36, as the prefix, followed by the local
+ * part. Namespace nodes are written, and found again, like any other node, in the same
+ * transaction as the IRIs that use them. The {@link NamespaceDictionary} caches
+ * namespaces in both directions, so decoding a compressed IRI is a map lookup and a
+ * string concatenation.
+ */
+public class NodeTableNamespaces extends NodeTableTRDF {
+    /**
+     * Shortest namespace worth sharing: the reference to the namespace costs about
+     * as much as a namespace of this length.
+     */
+    public static final int MinNamespaceLength = 12;
+
+    private final NamespaceDictionary dictionary;
+
+    public NodeTableNamespaces(Index nodeToId, BinaryDataFile objectFile, NamespaceDictionary dictionary) {
+        super(nodeToId, objectFile);
+        this.dictionary = dictionary;
+    }
+
+    /** Index of the start of the local part of an IRI, or -1 if the IRI is stored in full. */ 
+    static int splitPoint(String iri) {
+        int idx = Math.max(iri.lastIndexOf('/'), iri.lastIndexOf('#')) + 1;
+        if ( idx < MinNamespaceLength || idx == iri.length() )
+            return -1;
+        return idx;
+    }
+
+    @Override
+    protected RDF_Term encode(Node node) {
+        if ( node.isURI() ) {
+            String iri = node.getURI();
+            int idx = splitPoint(iri);
+            if ( idx > 0 ) {
+                long ptr = namespacePtr(iri.substring(0, idx));
+                return RDF_Term.prefixName(new RDF_PrefixName(Long.toString(ptr, Character.MAX_RADIX), iri.substring(idx)));
+            }
+        }
+        return super.encode(node);
+    }
+
+    /** Find, or write, the namespace node. Called within the node table lock. */
+    private long namespacePtr(String namespace) {
+        Long ptr = dictionary.getPtr(namespace);
+        if ( ptr != null )
+            return ptr;
+        // The namespace has an empty local part so this does not recurse further.
+        NodeId nodeId = accessIndex(NodeFactory.createURI(namespace), true);
+        long x = nodeId.getPtrLocation();
+        dictionary.add(namespace, x);
+        return x;
+    }
+
+    @Override
+    protected Node decode(RDF_Term term) {
+        if ( ! term.isSetPrefixName() )
+            return super.decode(term);
+        RDF_PrefixName pn = term.getPrefixName();
+        long ptr = Long.parseLong(pn.getPrefix(), Character.MAX_RADIX);
+        String namespace = dictionary.getNamespace(ptr);
+        if ( namespace == null ) {
+            // Within the node table lock (see NodeTableNative), after the term has been read.
+            Node ns = readNodeFromTable(NodeIdFactory.createPtr(ptr));
+            if ( ns == null || ! ns.isURI() )
+                throw new TDBException("NodeTableNamespaces: bad namespace reference: "+pn.getPrefix());
+            namespace = ns.getURI();
+            dictionary.add(namespace, ptr);
+        }
+        return NodeFactory.createURI(namespace.concat(pn.getLocalName()));
+    }
+
+    public NamespaceDictionary getDictionary()  { return dictionary; }
+}
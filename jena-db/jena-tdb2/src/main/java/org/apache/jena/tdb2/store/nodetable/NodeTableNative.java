@@ -18,6 +18,7 @@
 
 package org.apache.jena.tdb2.store.nodetable ;
 
+import java.util.Arrays ;
 import java.util.Iterator ;
 import java.util.List ;
 
@@ -77,9 +78,30 @@ public abstract class NodeTableNative implements NodeTable
         return NodeTableOps.bulkNodeToNodeIdImpl(this, nodes, withAllocation) ;
     }
 
+    /** Read the nodes in the order they are in the node file, not the order of the list. */ 
     @Override
     public List<Node> bulkNodeIdToNode(List<NodeId> nodeIds) {
-        return NodeTableOps.bulkNodeIdToNodeImpl(this, nodeIds) ;
+        int N = nodeIds.size() ;
+        Node[] nodes = new Node[N] ;
+        Integer[] order = new Integer[N] ;
+        int count = 0 ;
+        for ( int i = 0 ; i < N ; i++ ) {
+            if ( nodeIds.get(i).isPtr() )
+                order[count++] = i ;
+            else
+                nodes[i] = _retrieveNodeByNodeId(nodeIds.get(i)) ;
+        }
+        Arrays.sort(order, 0, count, (i1, i2) -> Long.compare(nodeIds.get(i1).getPtrLocation(), nodeIds.get(i2).getPtrLocation())) ;
+        synchronized (this) {
+            for ( int j = 0 ; j < count ; j++ ) {
+                int i = order[j] ;
+                if ( j > 0 && nodeIds.get(order[j-1]).equals(nodeIds.get(i)) )
+                    nodes[i] = nodes[order[j-1]] ;
+                else
+                    nodes[i] = readNodeFromTable(nodeIds.get(i)) ;
+            }
+        }
+        return Arrays.asList(nodes) ;
     }
     
     // ---- The worker functions
@@ -56,7 +56,7 @@ public class NodeTableTRDF extends NodeTableNative {
 
     @Override
     protected NodeId writeNodeToTable(Node node) {
-        RDF_Term term = ThriftConvert.convert(node, true) ;
+        RDF_Term term = encode(node) ;
         try {
             long x = diskFile.length() ;
             // Paired : [*]
@@ -78,7 +78,7 @@ public class NodeTableTRDF extends NodeTableNative {
             transport.readPosition(x) ;
             RDF_Term term = new RDF_Term() ;
             term.read(protocol) ;
-            Node n = ThriftConvert.convert(term) ;
+            Node n = decode(term) ;
             return n ;
         }
         catch (TException ex) {
@@ -90,6 +90,17 @@ public class NodeTableTRDF extends NodeTableNative {
         }
     }
 
+    /** Convert a node to the term written to the data file.
+     *  Called before the position of the node in the file is determined. */
+    protected RDF_Term encode(Node node) {
+        return ThriftConvert.convert(node, true) ;
+    }
+
+    /** Convert a term read from the data file to a node. */
+    protected Node decode(RDF_Term term) {
+        return ThriftConvert.convert(term) ;
+    }
+
     @Override
     protected void syncSub() {
         try { transport.flush(); }
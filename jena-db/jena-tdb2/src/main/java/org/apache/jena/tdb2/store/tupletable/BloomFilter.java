@@ -0,0 +1,136 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.tdb2.store.tupletable;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A Bloom filter of 64 bit hashes. It is safe to add and test from several
+ * threads at once.
+ * <p>
+ * A filter can say a key is present when it is not (about 1% of the time with
+ * 10 bits per key), but never says an added key is absent.
+ */
+public class BloomFilter {
+    private final AtomicLongArray bits;
+    private final long numBits;
+    private final int numHashes;
+    private final long capacity;
+    private final LongAdder added = new LongAdder();
+
+    /** Create a filter for {@code capacity} keys, at {@code bitsPerKey} bits each. */
+    public static BloomFilter create(long capacity, int bitsPerKey) {
+        if ( capacity <= 0 || bitsPerKey <= 0 )
+            throw new IllegalArgumentException("BloomFilter: capacity="+capacity+", bitsPerKey="+bitsPerKey);
+        long numBits = Math.min(64L*Integer.MAX_VALUE, Math.max(64, capacity*bitsPerKey));
+        // Optimal number of hash functions : (m/n) ln 2
+        int numHashes = Math.max(1, (int)Math.round(bitsPerKey*Math.log(2)));
+        return new BloomFilter(new AtomicLongArray((int)((numBits+63)/64)), numHashes, capacity);
+    }
+
+    private BloomFilter(AtomicLongArray bits, int numHashes, long capacity) {
+        this.bits = bits;
+        this.numBits = 64L*bits.length();
+        this.numHashes = numHashes;
+        this.capacity = capacity;
+    }
+
+    /** Number of keys the filter was sized for. */
+    public long capacity()          { return capacity; }
+
+    /** Number of calls of {@link #add}, including keys added more than once. */ 
+    public long added()             { return added.sum(); }
+
+    /** Whether more keys have been added than the filter was sized for. */
+    public boolean isOverloaded()   { return added() > capacity; }
+
+    public void add(long hash) {
+        added.increment();
+        long h2 = h2(hash);
+        for ( int i = 0 ; i < numHashes ; i++ ) {
+            long bit = Math.floorMod(hash+i*h2, numBits);
+            int idx = (int)(bit >>> 6);
+            long mask = 1L << bit;
+            // Avoid the write if already set.
+            long x = bits.get(idx);
+            while ( (x & mask) == 0 ) {
+                if ( bits.compareAndSet(idx, x, x | mask) )
+                    break;
+                x = bits.get(idx);
+            }
+        }
+    }
+
+    public boolean mightContain(long hash) {
+        long h2 = h2(hash);
+        for ( int i = 0 ; i < numHashes ; i++ ) {
+            long bit = Math.floorMod(hash+i*h2, numBits);
+            if ( (bits.get((int)(bit >>> 6)) & (1L << bit)) == 0 )
+                return false;
+        }
+        return true;
+    }
+
+    // Second hash for double hashing (Kirsch and Mitzenmacher); odd so it is never zero.
+    private static long h2(long hash) {
+        return mix(hash ^ 0x9E3779B97F4A7C15L) | 1L;
+    }
+
+    /** Mix the bits of a long (the MurmurHash3 finalizer). */
+    public static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    public void write(DataOutputStream out) throws IOException {
+        out.writeInt(numHashes);
+        out.writeLong(capacity);
+        out.writeLong(added());
+        out.writeInt(bits.length());
+        for ( int i = 0 ; i < bits.length() ; i++ )
+            out.writeLong(bits.get(i));
+    }
+
+    public static BloomFilter read(DataInputStream in) throws IOException {
+        int numHashes = in.readInt();
+        long capacity = in.readLong();
+        long added = in.readLong();
+        int len = in.readInt();
+        AtomicLongArray bits = new AtomicLongArray(len);
+        for ( int i = 0 ; i < len ; i++ )
+            bits.set(i, in.readLong());
+        BloomFilter filter = new BloomFilter(bits, numHashes, capacity);
+        filter.added.add(added);
+        return filter;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("BloomFilter[bits=%d, hashes=%d, capacity=%d, added=%d]", numBits, numHashes, capacity, added());
+    }
+}
@@ -19,13 +19,17 @@
 package org.apache.jena.tdb2.store.tupletable;
 
 import java.util.Collection ;
+import java.util.Collections ;
 import java.util.Iterator ;
+import java.util.List ;
 
+import org.apache.jena.atlas.iterator.Iter ;
 import org.apache.jena.atlas.lib.Closeable ;
 import org.apache.jena.atlas.lib.Sync ;
 import org.apache.jena.atlas.lib.tuple.Tuple ;
 import org.apache.jena.atlas.lib.tuple.TupleMap ;
 import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.NodeIdFactory;
 
 public interface TupleIndex extends Sync, Closeable
 {
@@ -55,6 +59,31 @@ public interface TupleIndex extends Sync, Closeable
      */
     public Iterator<Tuple<NodeId>> find(Tuple<NodeId> pattern) ;
     
+    /** Find all matching tuples, as at most {@code n} iterators over disjoint key
+     *  ranges of the index, in index order. Together the iterators give the same
+     *  tuples as {@link #find}. The iterators are created in the calling thread, and
+     *  so inside its transaction, but can then be consumed independently, for example
+     *  by a parallel stream; see {@link TupleSpliterator}.
+     *  <p>
+     *  The default is a single iterator from {@link #find}.
+     */
+    public default List<Iterator<Tuple<NodeId>>> findPartitioned(Tuple<NodeId> pattern, int n) {
+        return Collections.singletonList(find(pattern)) ;
+    }
+
+    /** Find all matching tuples where slot {@code slot} (natural order, "any" in the
+     *  pattern) has an on-disk form, compared as unsigned 64 bit numbers, between
+     *  {@code lo} and {@code hi} inclusive.
+     *  <p>
+     *  The default is {@link #find} followed by a filter.
+     */
+    public default Iterator<Tuple<NodeId>> findRange(Tuple<NodeId> pattern, int slot, long lo, long hi) {
+        return Iter.filter(find(pattern), t -> {
+            long x = NodeIdFactory.encode(t.get(slot)) ;
+            return Long.compareUnsigned(lo, x) <= 0 && Long.compareUnsigned(x, hi) <= 0 ;
+        }) ;
+    }
+
     /** return an iterator of everything */
     public Iterator<Tuple<NodeId>> all() ;
     
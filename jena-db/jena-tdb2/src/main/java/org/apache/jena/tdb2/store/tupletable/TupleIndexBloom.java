@@ -0,0 +1,267 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.tdb2.store.tupletable;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.jena.atlas.iterator.Iter;
+import org.apache.jena.atlas.lib.tuple.Tuple;
+import org.apache.jena.dboe.base.file.FileSet;
+import org.apache.jena.dboe.base.file.Location;
+import org.apache.jena.dboe.index.RangeIndex;
+import org.apache.jena.dboe.trans.bplustree.BPTStateMgr;
+import org.apache.jena.dboe.trans.bplustree.BPlusTree;
+import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.NodeIdFactory;
+import org.apache.jena.tdb2.sys.IOX;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link TupleIndex} with a Bloom filter of the key prefixes of the index.
+ * For an SPO index, the filter holds (S), (S,P) and (S,P,O). A {@link #find} that
+ * fixes the leading slots of the index, including a test for a complete tuple,
+ * first asks the filter, and does not touch the index if the prefix is absent.
+ * <p>
+ * The filter is only ever added to. Deleted tuples and tuples of aborted
+ * transactions stay in the filter, which is always safe: they only cause an
+ * unnecessary index access.
+ * <p>
+ * The filter is written to "<i>index</i>.bloom" when the index is closed, with
+ * the B+Tree state at that point. It is used on the next open only if the
+ * B+Tree state is the same, otherwise (first use, crash, files replaced) it is
+ * rebuilt by {@link #rebuild}, which reads the whole index.
+ */
+public class TupleIndexBloom extends TupleIndexWrapper
+{
+    private static Logger log = LoggerFactory.getLogger(TupleIndexBloom.class);
+
+    /** File extension for a persisted filter */
+    public static final String extBloom = "bloom";
+    /** Smallest number of keys a filter is sized for. */
+    public static long MinCapacity = 64*1024;
+
+    private static final int MAGIC = 0x544442ff;
+    private final int bitsPerKey;
+    private final Path file;
+    // Do not write the filter file.
+    private final boolean readOnly;
+    // Null means "not ready".
+    private volatile BloomFilter filter = null;
+
+    /** Create a filter for {@code index}, kept in {@code location} unless that is a memory location. */
+    public TupleIndexBloom(TupleIndex index, int bitsPerKey, Location location) {
+        this(index, bitsPerKey, location, false);
+    }
+
+    /**
+     * Create a filter for {@code index}, kept in {@code location} unless that is a
+     * memory location. If {@code readOnly}, an existing filter file is used but never written.
+     */
+    public TupleIndexBloom(TupleIndex index, int bitsPerKey, Location location, boolean readOnly) {
+        super(index);
+        this.bitsPerKey = bitsPerKey;
+        this.readOnly = readOnly;
+        this.file = location.isMem() ? null : Paths.get(new FileSet(location, index.getName()).filename(extBloom));
+        if ( file != null )
+            this.filter = load();
+    }
+
+    /** Whether the filter is in use. If not, call {@link #rebuild}. */
+    public boolean isReady() {
+        return filter != null;
+    }
+
+    /** The filter, or null if the filter is not ready. */
+    public BloomFilter getFilter() {
+        return filter;
+    }
+
+    /**
+     * Build the filter from the contents of the index. Call inside a read
+     * transaction, with no writers active.
+     */
+    public void rebuild() {
+        long size = index.size();
+        long capacity = Math.max(MinCapacity, 2*size*getTupleLength());
+        BloomFilter f = BloomFilter.create(capacity, bitsPerKey);
+        // all() is in index order.
+        Iterator<Tuple<NodeId>> iter = index.all();
+        iter.forEachRemaining(t->addKeys(f, t));
+        filter = f;
+    }
+
+    @Override
+    public void add(Tuple<NodeId> tuple) {
+        super.add(tuple);
+        BloomFilter f = filter;
+        if ( f != null )
+            addKeys(f, tuple);
+    }
+
+    @Override
+    public void addAll(Collection<Tuple<NodeId>> tuples) {
+        super.addAll(tuples);
+        BloomFilter f = filter;
+        if ( f != null )
+            tuples.forEach(t->addKeys(f, t));
+    }
+
+    // delete, deleteAll : the filter is not changed.
+    // clear : the filter is not changed - the clear may be aborted.
+
+    @Override
+    public Iterator<Tuple<NodeId>> find(Tuple<NodeId> pattern) {
+        if ( ! mightMatch(pattern) )
+            return Iter.nullIterator();
+        return super.find(pattern);
+    }
+
+    @Override
+    public List<Iterator<Tuple<NodeId>>> findPartitioned(Tuple<NodeId> pattern, int n) {
+        if ( ! mightMatch(pattern) )
+            return Collections.singletonList(Iter.nullIterator());
+        return super.findPartitioned(pattern, n);
+    }
+
+    @Override
+    public Iterator<Tuple<NodeId>> findRange(Tuple<NodeId> pattern, int slot, long lo, long hi) {
+        if ( ! mightMatch(pattern) )
+            return Iter.nullIterator();
+        return super.findRange(pattern, slot, lo, hi);
+    }
+
+    /** Return false if no tuple in the index can match the pattern (natural order). */
+    public boolean mightMatch(Tuple<NodeId> pattern) {
+        BloomFilter f = filter;
+        if ( f == null )
+            return true;
+        int N = getTupleLength();
+        long h = 0;
+        int len = 0;
+        for ( int i = 0 ; i < N ; i++ ) {
+            NodeId nid = pattern.get(getMapping().getSlotIdx(i));
+            if ( NodeId.isAny(nid) )
+                break;
+            h = next(h, nid);
+            len++;
+        }
+        if ( len == 0 )
+            return true;
+        return f.mightContain(finish(h, len));
+    }
+
+    /** Add all the prefixes of a tuple in natural order. */
+    private void addKeys(BloomFilter f, Tuple<NodeId> tuple) {
+        int N = getTupleLength();
+        long h = 0;
+        for ( int i = 0 ; i < N ; i++ ) {
+            h = next(h, tuple.get(getMapping().getSlotIdx(i)));
+            f.add(finish(h, i+1));
+        }
+    }
+
+    private static long next(long h, NodeId nid) {
+        return BloomFilter.mix(h ^ NodeIdFactory.encode(nid)) + 0x9E3779B97F4A7C15L;
+    }
+
+    private static long finish(long h, int len) {
+        return BloomFilter.mix(h ^ len);
+    }
+
+    @Override
+    public void close() {
+        save();
+        super.close();
+    }
+
+    // ---- Persistence.
+
+    /** The on-disk state of the B+Tree, or null if there is no B+Tree. */
+    private long[] stamp() {
+        TupleIndex base = baseTupleIndex();
+        if ( ! ( base instanceof TupleIndexRecord ) )
+            return null;
+        RangeIndex rIndex = ((TupleIndexRecord)base).getRangeIndex();
+        if ( ! ( rIndex instanceof BPlusTree ) )
+            return null;
+        BPTStateMgr state = ((BPlusTree)rIndex).getStateManager();
+        return new long[] { state.getRoot(), state.getNodeBlocksLimit(), state.getRecordsBlocksLimit() };
+    }
+
+    private void save() {
+        BloomFilter f = filter;
+        long[] stamp = stamp();
+        if ( readOnly || file == null || f == null || stamp == null )
+            return;
+        Path tmp = Paths.get(file.toString()+".tmp");
+        try {
+            try ( DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp))) ) {
+                out.writeInt(MAGIC);
+                out.writeInt(getTupleLength());
+                out.writeInt(bitsPerKey);
+                for ( long x : stamp )
+                    out.writeLong(x);
+                f.write(out);
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            log.warn("Failed to write Bloom filter "+file+" : "+ex.getMessage());
+        }
+    }
+
+    /** Read the filter file : return null if missing, not valid, or out of date. */
+    private BloomFilter load() {
+        if ( ! Files.exists(file) )
+            return null;
+        long[] stamp = stamp();
+        if ( stamp == null )
+            return null;
+        BloomFilter f = null;
+        try ( DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file))) ) {
+            boolean valid = ( in.readInt() == MAGIC && in.readInt() == getTupleLength() && in.readInt() == bitsPerKey );
+            for ( int i = 0 ; valid && i < stamp.length ; i++ )
+                valid = ( in.readLong() == stamp[i] );
+            if ( valid )
+                f = BloomFilter.read(in);
+        } catch (IOException ex) {
+            log.warn("Failed to read Bloom filter "+file+" : "+ex.getMessage());
+        }
+        // Remove, so that it can never be mistaken for current.
+        IOX.delete(file);
+        if ( f != null && f.isOverloaded() )
+            // Rebuild at a larger size.
+            return null;
+        return f;
+    }
+
+    @Override
+    public String toString() {
+        return "Bloom:"+index.toString();
+    }
+}
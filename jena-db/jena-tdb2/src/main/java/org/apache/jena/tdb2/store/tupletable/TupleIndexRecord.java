@@ -21,13 +21,17 @@ package org.apache.jena.tdb2.store.tupletable;
 import static java.lang.String.format ;
 import static org.apache.jena.tdb2.sys.SystemTDB.SizeOfNodeId;
 
+import java.util.ArrayList ;
 import java.util.Collection ;
+import java.util.Collections ;
 import java.util.Iterator ;
+import java.util.List ;
 import java.util.function.Predicate ;
 
 import org.apache.jena.atlas.iterator.Iter ;
 import org.apache.jena.atlas.iterator.NullIterator ;
 import org.apache.jena.atlas.iterator.SingletonIterator ;
+import org.apache.jena.atlas.lib.Bytes ;
 import org.apache.jena.atlas.lib.tuple.Tuple ;
 import org.apache.jena.atlas.lib.tuple.TupleFactory;
 import org.apache.jena.atlas.lib.tuple.TupleMap ;
@@ -244,6 +248,101 @@ public class TupleIndexRecord extends TupleIndexBase
         return tuples ;
     }
     
+    /** Split the key range of the pattern at points chosen by the index
+     * (for a B+Tree, keys of the branch nodes) and create an iterator for each
+     * sub-range.
+     */
+    @Override
+    public List<Iterator<Tuple<NodeId>>> findPartitioned(Tuple<NodeId> patternNaturalOrder, int n) {
+        Tuple<NodeId> pattern = tupleMap.map(patternNaturalOrder) ;
+        int numSlots = 0 ;
+        int leadingIdx = -1 ;
+        boolean leading = true ;
+        for ( int i = 0 ; i < pattern.len() ; i++ ) {
+            NodeId X = pattern.get(i) ;
+            if ( NodeId.isAny(X) ) {
+                leading = false ;
+                continue ;
+            }
+            numSlots++ ;
+            if ( leading )
+                leadingIdx = i ;
+        }
+        if ( n <= 1 || numSlots == pattern.len() )
+            return Collections.singletonList(find(patternNaturalOrder)) ;
+
+        Record minRec = null ;
+        Record maxRec = null ;
+        if ( leadingIdx >= 0 ) {
+            minRec = factory.createKeyOnly() ;
+            maxRec = factory.createKeyOnly() ;
+            for ( int i = 0 ; i <= leadingIdx ; i++ ) {
+                NodeIdFactory.set(pattern.get(i), minRec.getKey(), i*SizeOfNodeId) ;
+                NodeIdFactory.set(pattern.get(i), maxRec.getKey(), i*SizeOfNodeId) ;
+            }
+            NodeIdFactory.setNext(pattern.get(leadingIdx), maxRec.getKey(), leadingIdx*SizeOfNodeId) ;
+        }
+        List<Record> points = index.splitPoints(minRec, maxRec, n) ;
+        if ( points.isEmpty() )
+            return Collections.singletonList(find(patternNaturalOrder)) ;
+
+        boolean needsScan = ( leadingIdx < numSlots-1 ) ;
+        List<Iterator<Tuple<NodeId>>> iterators = new ArrayList<>(points.size()+1) ;
+        Record lo = minRec ;
+        for ( int i = 0 ; i <= points.size() ; i++ ) {
+            Record hi = ( i < points.size() ) ? points.get(i) : maxRec ;
+            Iterator<Tuple<NodeId>> tuples = index.iterator(lo, hi, recordMapper) ;
+            if ( needsScan )
+                tuples = scan(tuples, patternNaturalOrder) ;
+            iterators.add(tuples) ;
+            lo = hi ;
+        }
+        return iterators ;
+    }
+
+    /** A single range scan of the index if the fixed slots of the pattern are the
+     * leading slots of the index, followed by {@code slot}; otherwise find and filter.
+     */
+    @Override
+    public Iterator<Tuple<NodeId>> findRange(Tuple<NodeId> patternNaturalOrder, int slot, long lo, long hi) {
+        if ( Long.compareUnsigned(lo, hi) > 0 )
+            return Iter.nullIterator() ;
+        Tuple<NodeId> pattern = tupleMap.map(patternNaturalOrder) ;
+        int k = 0 ;
+        while ( k < pattern.len() && ! NodeId.isAny(pattern.get(k)) )
+            k++ ;
+        if ( k == pattern.len() || tupleMap.mapIdx(k) != slot || weight(patternNaturalOrder) != k )
+            return filterRange(find(patternNaturalOrder), slot, lo, hi) ;
+        for ( int i = k+1 ; i < pattern.len() ; i++ ) {
+            if ( ! NodeId.isAny(pattern.get(i)) )
+                return filterRange(find(patternNaturalOrder), slot, lo, hi) ;
+        }
+
+        // Keys: prefix, then lo, inclusive to prefix, then hi+1, exclusive.
+        Record minRec = factory.createKeyOnly() ;
+        Record maxRec = factory.createKeyOnly() ;
+        for ( int i = 0 ; i < k ; i++ ) {
+            NodeIdFactory.set(pattern.get(i), minRec.getKey(), i*SizeOfNodeId) ;
+            NodeIdFactory.set(pattern.get(i), maxRec.getKey(), i*SizeOfNodeId) ;
+        }
+        Bytes.setLong(lo, minRec.getKey(), k*SizeOfNodeId) ;
+        if ( hi != -1L )
+            Bytes.setLong(hi+1, maxRec.getKey(), k*SizeOfNodeId) ;
+        else if ( k > 0 )
+            // Top of the range of NodeIds : the next prefix.
+            NodeIdFactory.setNext(pattern.get(k-1), maxRec.getKey(), (k-1)*SizeOfNodeId) ;
+        else
+            maxRec = null ;
+        return index.iterator(minRec, maxRec, recordMapper) ;
+    }
+
+    private static Iterator<Tuple<NodeId>> filterRange(Iterator<Tuple<NodeId>> iter, int slot, long lo, long hi) {
+        return Iter.filter(iter, t -> {
+            long x = NodeIdFactory.encode(t.get(slot)) ;
+            return Long.compareUnsigned(lo, x) <= 0 && Long.compareUnsigned(x, hi) <= 0 ;
+        }) ;
+    }
+
     @Override
     public Iterator<Tuple<NodeId>> all()
     {
@@ -20,6 +20,7 @@ package org.apache.jena.tdb2.store.tupletable;
 
 import java.util.Collection ;
 import java.util.Iterator ;
+import java.util.List ;
 
 import org.apache.jena.atlas.lib.tuple.Tuple ;
 import org.apache.jena.atlas.lib.tuple.TupleMap ;
@@ -61,6 +62,16 @@ public class TupleIndexWrapper implements TupleIndex
         return index.find(pattern) ;
     }
 
+    @Override
+    public List<Iterator<Tuple<NodeId>>> findPartitioned(Tuple<NodeId> pattern, int n) {
+        return index.findPartitioned(pattern, n) ;
+    }
+
+    @Override
+    public Iterator<Tuple<NodeId>> findRange(Tuple<NodeId> pattern, int slot, long lo, long hi) {
+        return index.findRange(pattern, slot, lo, hi) ;
+    }
+
     @Override
     public Iterator<Tuple<NodeId>> all() {
         return index.all() ;
@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.store.tupletable;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.apache.jena.atlas.iterator.Iter;
+import org.apache.jena.atlas.lib.tuple.Tuple;
+import org.apache.jena.tdb2.store.NodeId;
+
+/**
+ * A {@link Spliterator} over the iterators of
+ * {@link TupleIndex#findPartitioned(Tuple, int)}, one per key range of an index.
+ * Splitting hands over half of the remaining key ranges; a single key range is not
+ * split further.
+ * <p>
+ * The iterators are created before any splitting, in the thread that called
+ * {@code findPartitioned}, which must be inside a transaction. The ranges may then
+ * be consumed in other threads until that transaction ends.
+ */
+public class TupleSpliterator implements Spliterator<Tuple<NodeId>> {
+
+    /** A suitable number of key ranges for a parallel stream. */
+    public static int defaultPartitions() {
+        // Key ranges are of similar size, not equal size. 
+        return 4 * ForkJoinPool.getCommonPoolParallelism();
+    }
+
+    /** A stream of the tuples, parallel or not, that closes the range iterators when closed. */
+    public static Stream<Tuple<NodeId>> stream(List<Iterator<Tuple<NodeId>>> iterators, boolean parallel) {
+        return stream(iterators, parallel, null, null);
+    }
+
+    /**
+     * A stream of the tuples, parallel or not, that closes the range iterators when
+     * closed. {@code enter} and {@code exit}, if not null, are called in the thread
+     * consuming the tuples, before and after a key range, or a single tuple, is
+     * passed on. They are used to make the stream pipeline run in the transaction
+     * of the thread that created the stream.
+     */
+    public static Stream<Tuple<NodeId>> stream(List<Iterator<Tuple<NodeId>>> iterators, boolean parallel,
+                                               Runnable enter, Runnable exit) {
+        return StreamSupport.stream(new TupleSpliterator(iterators, enter, exit), parallel)
+            .onClose(()->iterators.forEach(Iter::close));
+    }
+
+    private final List<Iterator<Tuple<NodeId>>> iterators;
+    private final Runnable enter;
+    private final Runnable exit;
+    private int current;
+    private final int end;
+
+    public TupleSpliterator(List<Iterator<Tuple<NodeId>>> iterators) {
+        this(iterators, null, null);
+    }
+
+    public TupleSpliterator(List<Iterator<Tuple<NodeId>>> iterators, Runnable enter, Runnable exit) {
+        this(iterators, enter, exit, 0, iterators.size());
+    }
+
+    private TupleSpliterator(List<Iterator<Tuple<NodeId>>> iterators, Runnable enter, Runnable exit, int start, int end) {
+        this.iterators = iterators;
+        this.enter = enter;
+        this.exit = exit;
+        this.current = start;
+        this.end = end;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super Tuple<NodeId>> action) {
+        while ( current < end ) {
+            Iterator<Tuple<NodeId>> iter = iterators.get(current);
+            if ( iter.hasNext() ) {
+                Tuple<NodeId> tuple = iter.next();
+                enter();
+                try { action.accept(tuple); }
+                finally { exit(); }
+                return true;
+            }
+            current++;
+        }
+        return false;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super Tuple<NodeId>> action) {
+        for ( ; current < end ; current++ ) {
+            enter();
+            try { iterators.get(current).forEachRemaining(action); }
+            finally { exit(); }
+        }
+    }
+
+    private void enter() {
+        if ( enter != null )
+            enter.run();
+    }
+
+    private void exit() {
+        if ( exit != null )
+            exit.run();
+    }
+
+    @Override
+    public Spliterator<Tuple<NodeId>> trySplit() {
+        int remaining = end - current;
+        if ( remaining < 2 )
+            return null;
+        int mid = current + remaining / 2;
+        Spliterator<Tuple<NodeId>> prefix = new TupleSpliterator(iterators, enter, exit, current, mid);
+        current = mid;
+        return prefix;
+    }
+
+    /** Not known - the key ranges are of similar, not equal, size. */
+    @Override
+    public long estimateSize() {
+        return Long.MAX_VALUE;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | DISTINCT | NONNULL;
+    }
+}
@@ -20,10 +20,13 @@ package org.apache.jena.tdb2.store.tupletable;
 
 import static java.lang.String.format ;
 
+import java.util.Collections ;
 import java.util.Iterator ;
 import java.util.List ;
+import java.util.stream.Stream ;
 
 import org.apache.jena.atlas.iterator.Iter;
+import org.apache.jena.atlas.iterator.IteratorConcat;
 import org.apache.jena.atlas.lib.Closeable ;
 import org.apache.jena.atlas.lib.Sync ;
 import org.apache.jena.atlas.lib.tuple.Tuple ;
@@ -43,6 +46,7 @@ public class TupleTable implements Sync, Closeable
     private final TupleIndex   scanAllIndex ;   // Use this index if a complete scan is needed.
     private final int tupleLen ;
     private boolean syncNeeded = false ;
+    private TupleTableMonitor monitor = null ;
     
     public TupleTable(int tupleLen, TupleIndex[] indexes)
     {
@@ -84,12 +88,29 @@ public class TupleTable implements Sync, Closeable
         return indexes[0] ;
     }
 
+    /**
+     * Set the monitor told about each change to the table.
+     * With a monitor, an add or delete first tests whether the tuple is present.
+     */
+    public void setMonitor(TupleTableMonitor monitor) {
+        this.monitor = monitor ;
+    }
+
+    public TupleTableMonitor getMonitor() {
+        return monitor ;
+    }
+
     /** Insert a tuple */
     public void add(Tuple<NodeId> t) {
         // A "contains test" could be used to avoid needing to hit all
         // the indexes when the triple is already present.
         if ( tupleLen != t.len() )
             throw new TDBException(format("Mismatch: inserting tuple of length %d into a table of tuples of length %d", t.len(), tupleLen)) ;
+        if ( monitor != null ) {
+            if ( contains(t) )
+                return ;
+            monitor.beforeAdd(this, t) ;
+        }
         for ( int i = 0 ; i < indexes.length ; i++ ) {
             if ( indexes[i] == null ) continue ;
             indexes[i].add(t) ;
@@ -99,6 +120,10 @@ public class TupleTable implements Sync, Closeable
 
     /** Insert tuples */
     public void addAll(List<Tuple<NodeId>> t) {
+        if ( monitor != null ) {
+            t.forEach(this::add) ;
+            return ;
+        }
         // Parallel.
         for ( int i = 0 ; i < indexes.length ; i++ ) {
             if ( indexes[i] == null ) continue ;
@@ -111,16 +136,24 @@ public class TupleTable implements Sync, Closeable
     public void delete( Tuple<NodeId> t ) { 
         if ( tupleLen != t.len() )
             throw new TDBException(format("Mismatch: deleting tuple of length %d from a table of tuples of length %d", t.len(), tupleLen)) ;
+        if ( monitor != null && ! contains(t) )
+            return ;
 
         for ( TupleIndex index : indexes ) {
             if ( index == null )
                 continue;
             index.delete( t );
         }
+        if ( monitor != null )
+            monitor.afterDelete(this, t) ;
     }
     
     /** Delete tuples */
     public void deleteAll(List<Tuple<NodeId>> t) {
+        if ( monitor != null ) {
+            t.forEach(this::delete) ;
+            return ;
+        }
         // Parallel.
         for ( int i = 0 ; i < indexes.length ; i++ ) {
             if ( indexes[i] == null ) continue ;
@@ -129,23 +162,131 @@ public class TupleTable implements Sync, Closeable
         }
     }
 
+    /** Test whether the table contains a tuple matching the pattern */
+    public boolean contains(Tuple<NodeId> pattern) {
+        Iterator<Tuple<NodeId>> iter = find(pattern) ;
+        try { return iter.hasNext() ; }
+        finally { Iter.close(iter) ; }
+    }
+
     /** Find all matching tuples - a slot of NodeId.NodeIdAny means match any */
     public Iterator<Tuple<NodeId>> find(Tuple<NodeId> pattern) {
         if ( tupleLen != pattern.len() )
             throw new TDBException(format("Mismatch: finding tuple of length %d in a table of tuples of length %d", pattern.len(), tupleLen)) ;
-        
-        int numSlots = 0 ;
-        // Canonical form. 
-        for ( int i = 0 ; i < tupleLen ; i++ ) {
-            NodeId x = pattern.get(i) ;
-            if ( ! NodeId.isAny(x) )
-                numSlots++ ;
-            if ( NodeId.isDoesNotExist(x))
-                return Iter.nullIterator();
+        if ( ! canMatch(pattern) )
+            return Iter.nullIterator();
+        if ( isAll(pattern) )
+            return scanAllIndex.all() ;
+        return chooseIndex(pattern).find(pattern) ;
+    }
+
+    /**
+     * Find all matching tuples as at most {@code n} iterators over disjoint key ranges
+     * of the index chosen for the pattern. See {@link TupleIndex#findPartitioned}.
+     */
+    public List<Iterator<Tuple<NodeId>>> findPartitioned(Tuple<NodeId> pattern, int n) {
+        if ( tupleLen != pattern.len() )
+            throw new TDBException(format("Mismatch: finding tuple of length %d in a table of tuples of length %d", pattern.len(), tupleLen)) ;
+        if ( ! canMatch(pattern) )
+            return Collections.singletonList(Iter.nullIterator());
+        return chooseIndex(pattern).findPartitioned(pattern, n) ;
+    }
+
+    /**
+     * Stream the matching tuples, using the key ranges of {@link #findPartitioned} to
+     * split the work for a parallel stream. The stream must be consumed inside the
+     * transaction of the calling thread; the stream should be closed.
+     */
+    public Stream<Tuple<NodeId>> stream(Tuple<NodeId> pattern, boolean parallel) {
+        int n = parallel ? TupleSpliterator.defaultPartitions() : 1 ;
+        return TupleSpliterator.stream(findPartitioned(pattern, n), parallel) ;
+    }
+
+    /**
+     * Find all matching tuples, in the order of slot {@code slot} (order of the NodeId
+     * on-disk form, as unsigned 64 bit numbers), for tuples with the same fixed slots.
+     * Return null if no index delivers matches in that order.
+     * See {@link #chooseIndexOrdered}.
+     */
+    public Iterator<Tuple<NodeId>> findOrdered(Tuple<NodeId> pattern, int slot) {
+        if ( tupleLen != pattern.len() )
+            throw new TDBException(format("Mismatch: finding tuple of length %d in a table of tuples of length %d", pattern.len(), tupleLen)) ;
+        TupleIndex index = chooseIndexOrdered(pattern, slot) ;
+        if ( index == null )
+            return null ;
+        if ( ! canMatch(pattern) )
+            return Iter.nullIterator();
+        if ( isAll(pattern) )
+            return index.all() ;
+        return index.find(pattern) ;
+    }
+
+    /**
+     * Find all matching tuples where slot {@code slot}, which is "any" in the pattern,
+     * has an on-disk form in one of the ranges, each a pair of unsigned 64 bit numbers
+     * {@code [lo, hi]} inclusive. The ranges must be in order and not overlap. Each range
+     * is a range scan of an index chosen by {@link #chooseIndexOrdered}. Return null if
+     * there is no such index.
+     */
+    public Iterator<Tuple<NodeId>> findRanges(Tuple<NodeId> pattern, int slot, List<long[]> ranges) {
+        if ( tupleLen != pattern.len() )
+            throw new TDBException(format("Mismatch: finding tuple of length %d in a table of tuples of length %d", pattern.len(), tupleLen)) ;
+        TupleIndex index = chooseIndexOrdered(pattern, slot) ;
+        if ( index == null )
+            return null ;
+        if ( ! canMatch(pattern) )
+            return Iter.nullIterator();
+        IteratorConcat<Tuple<NodeId>> iter = new IteratorConcat<>() ;
+        for ( long[] r : ranges )
+            iter.add(index.findRange(pattern, slot, r[0], r[1])) ;
+        return iter ;
+    }
+
+    /**
+     * Choose an index whose key starts with the fixed slots of the pattern (in any
+     * order) followed by slot {@code slot}, so that a range scan of the index returns
+     * the matches sorted by that slot. If the slot is fixed in the pattern, any index
+     * will do. Return null if there is no such index. Only whether a slot is "any" or
+     * not matters, so this can be used for planning with {@link NodeId#NodeIdDefined}
+     * placeholders.
+     */
+    public TupleIndex chooseIndexOrdered(Tuple<NodeId> pattern, int slot) {
+        if ( ! NodeId.isAny(pattern.get(slot)) )
+            return chooseIndex(pattern) ;
+        int fixed = 0 ;
+        for ( int i = 0 ; i < pattern.len() ; i++ ) {
+            if ( ! NodeId.isAny(pattern.get(i)) )
+                fixed++ ;
         }
+        for ( TupleIndex idx : indexes ) {
+            if ( idx == null )
+                continue ;
+            if ( idx.weight(pattern) == fixed && idx.getMapping().mapIdx(fixed) == slot )
+                return idx ;
+        }
+        return null ;
+    }
 
-        if ( numSlots == 0 )
-            return scanAllIndex.all() ;
+    private static boolean canMatch(Tuple<NodeId> pattern) {
+        for ( int i = 0 ; i < pattern.len() ; i++ ) {
+            if ( NodeId.isDoesNotExist(pattern.get(i)) )
+                return false ;
+        }
+        return true ;
+    }
+
+    private static boolean isAll(Tuple<NodeId> pattern) {
+        for ( int i = 0 ; i < pattern.len() ; i++ ) {
+            if ( ! NodeId.isAny(pattern.get(i)) )
+                return false ;
+        }
+        return true ;
+    }
+
+    /** The index with the best weight for the pattern, or the complete scan index. */
+    private TupleIndex chooseIndex(Tuple<NodeId> pattern) {
+        if ( isAll(pattern) )
+            return scanAllIndex ;
         
         int indexNumSlots = 0 ;
         TupleIndex index = null ;
@@ -162,7 +303,7 @@ public class TupleTable implements Sync, Closeable
         if ( index == null )
             // No index at all.  Scan.
             index = indexes[0] ;
-        return index.find(pattern) ;
+        return index ;
     }
     
     @Override
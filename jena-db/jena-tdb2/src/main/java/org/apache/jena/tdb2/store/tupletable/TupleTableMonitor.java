@@ -0,0 +1,38 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.tdb2.store.tupletable;
+
+import org.apache.jena.atlas.lib.tuple.Tuple ;
+import org.apache.jena.tdb2.store.NodeId ;
+
+/**
+ * Told about each tuple that is actually added to or deleted from a {@link TupleTable}.
+ * Adding a tuple that is already present, or deleting one that is not, is not
+ * reported.
+ * @see TupleTable#setMonitor
+ */
+public interface TupleTableMonitor
+{
+    /** The tuple is about to be added; the table does not contain it yet. */
+    public void beforeAdd(TupleTable table, Tuple<NodeId> tuple) ;
+
+    /** The tuple has been deleted; the table no longer contains it. */
+    public void afterDelete(TupleTable table, Tuple<NodeId> tuple) ;
+}
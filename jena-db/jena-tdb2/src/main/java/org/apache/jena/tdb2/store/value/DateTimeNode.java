@@ -111,6 +111,22 @@ public class DateTimeNode
         return v;
     }
 
+    /** Whether a packed dateTime has the timezone "Z".
+     * Packed dateTimes with timezone "Z" are in time order. */
+    public static boolean isTimezoneZ(long v) {
+        return BitsLong.unpack(v, TZ, TZ + TZ_LEN) == TZ_Z;
+    }
+
+    /** The lowest packed dateTime with the timezone "Z". */
+    public static long minTimezoneZ() {
+        return tz(0, TZ_Z);
+    }
+
+    /** The highest packed dateTime with the timezone "Z". */
+    public static long maxTimezoneZ() {
+        return BitsLong.set(tz(0, TZ_Z), 0, TZ);
+    }
+
     // From string. Assumed legal. Retains all info this way.
     // returns -1 for unpackable.
     public static long packDate(String lex) {
@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.tdb2.store.value;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+
+/**
+ * Decimal packed into 56 bits so that the unsigned order of the packed values
+ * is the order of the decimal values.
+ * <p>
+ * The value is held as {@code 0.d1d2...d14 * 10^exp} with {@code d1} not zero: 1 bit
+ * sign (1 for zero and positive), 8 bits of exponent (biased by 128) and 47 bits
+ * for the 14 digit mantissa. For negative values, the exponent and mantissa bits are
+ * inverted. Decimals with more than 14 significant digits, or out of the range of the
+ * exponent, do not fit.
+ * <p>
+ * Only the value is kept, not the lexical form: "1.50" and "1.5" are the same.
+ * 
+ * @see DecimalNode56 DecimalNode56 for the encoding that keeps the scale.
+ */
+public class DecimalNodeOrdered
+{
+    static final int         DIGITS        = 14;
+    static final int         MANTISSA_LEN  = 47;
+    static final int         EXP_BIAS      = 128;
+
+    private static final long MANTISSA_MASK = (1L << MANTISSA_LEN) - 1;
+    private static final long MAGNITUDE_MASK = (1L << 55) - 1;
+    private static final long POSITIVE     = 1L << 55;
+    private static final long MIN_MANTISSA = 10_000_000_000_000L;     // 10^13
+
+    /** The packed value of zero. */
+    public static final long  ZERO         = POSITIVE;
+    /** The lowest packed value. */
+    public static final long  MIN          = 0;
+    /** The highest packed value. */
+    public static final long  MAX          = (1L << 56) - 1;
+
+    private static final long[] POWERS = new long[DIGITS + 1];
+    static {
+        POWERS[0] = 1;
+        for ( int i = 1; i < POWERS.length; i++ )
+            POWERS[i] = POWERS[i - 1] * 10;
+    }
+
+    /** Pack a decimal, or return -1 if it does not fit. */
+    public static long pack(BigDecimal decimal) {
+        if ( decimal.signum() == 0 )
+            return ZERO;
+        BigDecimal x = decimal.stripTrailingZeros();
+        if ( x.precision() > DIGITS )
+            return -1;
+        return pack$(x);
+    }
+
+    // x is not zero, has no trailing zeros and at most DIGITS digits.
+    private static long pack$(BigDecimal x) {
+        int precision = x.precision();
+        long exp = (long)precision - x.scale();
+        if ( exp < -EXP_BIAS || exp >= EXP_BIAS )
+            return -1;
+        long mantissa = x.unscaledValue().abs().longValue() * POWERS[DIGITS - precision];
+        long magnitude = ((exp + EXP_BIAS) << MANTISSA_LEN) | mantissa;
+        if ( x.signum() > 0 )
+            return POSITIVE | magnitude;
+        return ~magnitude & MAGNITUDE_MASK;
+    }
+
+    public static BigDecimal unpack(long v) {
+        if ( v == ZERO )
+            return BigDecimal.ZERO;
+        boolean positive = (v & POSITIVE) != 0;
+        long magnitude = positive ? v & MAGNITUDE_MASK : ~v & MAGNITUDE_MASK;
+        int exp = (int)(magnitude >>> MANTISSA_LEN) - EXP_BIAS;
+        long mantissa = magnitude & MANTISSA_MASK;
+        return BigDecimal.valueOf(positive ? mantissa : -mantissa, DIGITS - exp).stripTrailingZeros();
+    }
+
+    /**
+     * The packed value for an inclusive bound of a range. For an upper bound, every
+     * decimal less than or equal to {@code decimal} packs to a value no greater than the
+     * result; for a lower bound, every decimal greater than or equal to {@code decimal}
+     * packs to a value no less than the result. The result is {@code MIN-1} or
+     * {@code MAX+1} when no packed value is in range.
+     */
+    public static long packBound(BigDecimal decimal, boolean upper) {
+        if ( decimal.signum() == 0 )
+            return ZERO;
+        BigDecimal x = decimal.round(new MathContext(DIGITS, upper ? RoundingMode.CEILING : RoundingMode.FLOOR))
+                              .stripTrailingZeros();
+        long exp = (long)x.precision() - x.scale();
+        boolean positive = x.signum() > 0;
+        if ( exp >= EXP_BIAS ) {
+            // Beyond the largest magnitude.
+            if ( positive )
+                return upper ? MAX : MAX + 1;
+            return upper ? MIN - 1 : MIN;
+        }
+        if ( exp < -EXP_BIAS ) {
+            // Between zero and the smallest magnitude.
+            long smallest = MIN_MANTISSA;
+            if ( positive )
+                return upper ? ZERO : POSITIVE | smallest;
+            return upper ? ~smallest & MAGNITUDE_MASK : ZERO;
+        }
+        return pack$(x);
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.store.value;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Short strings, and short language-tagged strings, in 56 bits.
+ * <ul>
+ * <li>String: up to 7 bytes of UTF-8, first byte in the high byte, zero padded.
+ * <li>Language-tagged string: high byte is the index of the language tag in a
+ * fixed table, then up to 6 bytes of UTF-8.
+ * </ul>
+ * The strings are packed so that, for the same language tag, the numeric order of
+ * the packed values is the order of the UTF-8 bytes. Strings containing U+0000 are
+ * not packed, so a zero byte marks the end.
+ * <p>
+ * The tag table is part of the on-disk format: entries must not be changed or
+ * reordered. New entries can be added at the end, up to 255 entries.
+ */
+public class StringNode {
+    public static final int MaxStringBytes     = 7;
+    public static final int MaxLangStringBytes = 6;
+
+    // Index 0 is not used.
+    private static final String[] langTags = {
+        null,
+        "en", "de", "fr", "es", "it", "nl", "pt", "ru", "ja", "zh",
+        "ar", "pl", "sv", "da", "fi", "no", "nb", "nn", "cs", "el",
+        "hu", "ko", "tr", "he", "hi", "id", "ro", "uk", "bg", "hr",
+        "sk", "sl", "sr", "lt", "lv", "et", "ca", "eu", "gl", "ga",
+        "cy", "is", "mt", "la", "fa", "th", "vi", "ms", "bn", "ur",
+        "en-GB", "en-US", "en-gb", "en-us", "de-DE", "de-AT", "de-CH", "fr-FR", "fr-CA", "es-ES",
+        "es-MX", "pt-PT", "pt-BR", "zh-CN", "zh-TW", "zh-Hans", "zh-Hant", "sr-Latn", "sr-Cyrl", "x-default"
+    };
+
+    private static final Map<String, Integer> langIndex = new HashMap<>();
+    static {
+        for ( int i = 1 ; i < langTags.length ; i++ )
+            langIndex.put(langTags[i], i);
+    }
+
+    /** Pack a string: return -1 if it does not fit. */
+    public static long packString(String str) {
+        return packBytes(str, MaxStringBytes);
+    }
+
+    public static String unpackString(long v) {
+        return unpackBytes(v, MaxStringBytes);
+    }
+
+    /** Pack a language-tagged string: return -1 if it does not fit or the language tag is not in the table. */
+    public static long packLangString(String str, String lang) {
+        Integer idx = langIndex.get(lang);
+        if ( idx == null )
+            return -1;
+        long v = packBytes(str, MaxLangStringBytes);
+        if ( v == -1 )
+            return -1;
+        return ((long)idx) << (8 * MaxLangStringBytes) | v;
+    }
+
+    public static String unpackLangString(long v) {
+        return unpackBytes(v, MaxLangStringBytes);
+    }
+
+    public static String unpackLang(long v) {
+        int idx = (int)((v >>> (8 * MaxLangStringBytes)) & 0xFF);
+        if ( idx <= 0 || idx >= langTags.length )
+            return null;
+        return langTags[idx];
+    }
+
+    private static long packBytes(String str, int maxBytes) {
+        // Quick check: each char is at least one byte.
+        if ( str.length() > maxBytes )
+            return -1;
+        byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+        if ( bytes.length > maxBytes )
+            return -1;
+        long v = 0;
+        for ( int i = 0 ; i < maxBytes ; i++ ) {
+            int b = 0;
+            if ( i < bytes.length ) {
+                b = bytes[i] & 0xFF;
+                if ( b == 0 )
+                    return -1;
+            }
+            v = (v << 8) | b;
+        }
+        // Not all Java strings are valid UTF-16 (e.g. unpaired surrogates).
+        if ( ! unpackBytes(v, maxBytes).equals(str) )
+            return -1;
+        return v;
+    }
+
+    private static String unpackBytes(long v, int maxBytes) {
+        byte[] bytes = new byte[maxBytes];
+        int len = 0;
+        for ( int i = 0 ; i < maxBytes ; i++ ) {
+            byte b = (byte)(v >>> (8 * (maxBytes - 1 - i)));
+            if ( b == 0 )
+                break;
+            bytes[len++] = b;
+        }
+        return new String(bytes, 0, len, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,325 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.tdb2.sys;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+import org.apache.jena.atlas.json.*;
+import org.apache.jena.dboe.base.file.BinaryDataFile;
+import org.apache.jena.dboe.base.file.Location;
+import org.apache.jena.dboe.index.Index;
+import org.apache.jena.dboe.sys.Names;
+import org.apache.jena.dboe.sys.SystemIndex;
+import org.apache.jena.dboe.trans.bplustree.BPTStateMgr;
+import org.apache.jena.dboe.trans.bplustree.BPlusTree;
+import org.apache.jena.dboe.transaction.txn.TransactionCoordinator;
+import org.apache.jena.system.Txn;
+import org.apache.jena.tdb2.TDBException;
+import org.apache.jena.tdb2.store.DatasetGraphTDB;
+import org.apache.jena.tdb2.store.DatasetPrefixesTDB;
+import org.apache.jena.tdb2.store.nodetable.NodeTable;
+import org.apache.jena.tdb2.store.nodetable.NodeTableTRDF;
+import org.apache.jena.tdb2.store.tupletable.TupleIndex;
+import org.apache.jena.tdb2.store.tupletable.TupleIndexRecord;
+
+/**
+ * Binary backup of the files of a TDB2 database.
+ * <p>
+ * B+Tree block files and node data files are only appended to: blocks below the
+ * committed allocation limit of a B+Tree, and bytes below the committed length of a
+ * node data file, do not change. A backup copies each of these files up to its
+ * committed length and records that length in a manifest, {@value #MANIFEST}. An
+ * incremental backup, made against an earlier backup of the same database
+ * directory, only copies the bytes from the length recorded by the earlier backup.
+ * Other files (B+Tree and node data state, configuration, the journal, ...) are small
+ * and are copied whole.
+ * <p>
+ * Writers are blocked during the backup; readers carry on.
+ * <p>
+ * A full backup directory has the same files as the database directory.
+ * {@link #restore} puts together a database directory from a backup and any
+ * earlier backups it is an increment of.
+ */
+public class BackupStorage {
+    /** Name of the manifest file of a backup directory. */
+    public static final String MANIFEST = "backup.json";
+
+    private static final String kGeneration = "generation";
+    private static final String kPrevious   = "previous";
+    private static final String kFiles      = "files";
+    private static final String kName       = "name";
+    private static final String kOffset     = "offset";
+    private static final String kLength     = "length";
+
+    /**
+     * Test whether the storage is made of the B+Trees and node data files that
+     * {@link #backup} handles.
+     */
+    public static boolean canBackup(DatasetGraphTDB dsg) {
+        return committedLengths(dsg) != null;
+    }
+
+    /**
+     * Backup the files of {@code dsg} to the directory {@code dst}, which must exist
+     * and be empty. If {@code previous} is not null, it is an earlier backup of
+     * the same database directory and only the changes since then are copied.
+     */
+    public static void backup(DatasetGraphTDB dsg, Path dst, Path previous) {
+        Location location = dsg.getLocation();
+        if ( location.isMem() )
+            throw new TDBException("Backup of files of a memory location: "+location);
+        Path src = IOX.asPath(location);
+        String generation = src.getFileName().toString();
+        JsonObject prevManifest = null;
+        if ( previous != null ) {
+            prevManifest = readManifest(previous);
+            if ( ! generation.equals(prevManifest.get(kGeneration).getAsString().value()) )
+                throw new TDBException("Previous backup is of a different database directory: "+previous);
+        }
+        Map<String, Long> prevLengths = ( prevManifest == null ) ? Collections.emptyMap() : lengths(prevManifest);
+
+        TransactionCoordinator txnMgr = dsg.getTxnSystem().getTxnMgr();
+        // Wait for any writer to finish, then stop new ones.
+        txnMgr.blockWriters();
+        try {
+            Map<String, Long> committed = Txn.calculateRead(dsg, ()->committedLengths(dsg));
+            if ( committed == null )
+                throw new TDBException("Storage can not be backed up by file: "+location);
+            List<String[]> entries = new ArrayList<>();
+            for ( Path file : files(src) ) {
+                String name = file.getFileName().toString();
+                long length;
+                long offset = 0;
+                if ( committed.containsKey(name) ) {
+                    length = committed.get(name);
+                    Long prev = prevLengths.get(name);
+                    if ( prev != null && prev <= length )
+                        offset = prev;
+                } else
+                    length = Files.size(file);
+                copy(file, dst.resolve(name), offset, length);
+                entries.add(new String[]{name, Long.toString(offset), Long.toString(length)});
+            }
+            JsonBuilder builder = new JsonBuilder();
+            builder.startObject();
+            builder.key(kGeneration).value(generation);
+            if ( previous != null )
+                // Backups are kept side by side.
+                builder.key(kPrevious).value(previous.getFileName().toString());
+            builder.key(kFiles).startArray();
+            for ( String[] e : entries ) {
+                builder.startObject()
+                    .key(kName).value(e[0])
+                    .key(kOffset).value(Long.parseLong(e[1]))
+                    .key(kLength).value(Long.parseLong(e[2]))
+                    .finishObject();
+            }
+            builder.finishArray();
+            builder.finishObject();
+            try ( OutputStream out = Files.newOutputStream(dst.resolve(MANIFEST)) ) {
+                JSON.write(out, builder.build());
+            }
+        } catch (IOException ex) {
+            throw IOX.exception(ex);
+        } finally {
+            txnMgr.enableWriters();
+        }
+    }
+
+    /** The name of the database directory saved by a backup. */
+    public static String generation(Path backup) {
+        return readManifest(backup).get(kGeneration).getAsString().value();
+    }
+
+    /**
+     * Create, in directory {@code dst}, the database directory saved by the backup in
+     * directory {@code backup} and the backups it is an increment of. The database
+     * directory has the name of the one backed up. Return its path.
+     */
+    public static Path restore(Path backup, Path dst) {
+        // Backups, latest first, back to a full backup.
+        List<Path> chain = new ArrayList<>();
+        List<JsonObject> manifests = new ArrayList<>();
+        for ( Path p = backup ; p != null ; ) {
+            JsonObject m = readManifest(p);
+            chain.add(p);
+            manifests.add(m);
+            p = m.hasKey(kPrevious) ? p.resolveSibling(m.get(kPrevious).getAsString().value()) : null;
+        }
+        JsonObject latest = manifests.get(0);
+        Path dbDir = dst.resolve(latest.get(kGeneration).getAsString().value());
+        if ( Files.exists(dbDir) )
+            throw new TDBException("Already exists: "+dbDir);
+        IOX.createDirectory(dbDir);
+        Map<String, Long> length = lengths(latest);
+        for ( String name : length.keySet() ) {
+            // Find the copy from the start of the file, then apply later parts in order.
+            int start = -1;
+            for ( int i = 0 ; i < manifests.size() ; i++ ) {
+                JsonObject e = entry(manifests.get(i), name);
+                if ( e == null )
+                    throw new TDBException("Backup "+chain.get(i)+" does not have file "+name);
+                if ( e.get(kOffset).getAsNumber().value().longValue() == 0 ) {
+                    start = i;
+                    break;
+                }
+            }
+            if ( start < 0 )
+                throw new TDBException("No complete backup of file "+name);
+            Path file = dbDir.resolve(name);
+            try ( FileChannel out = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE) ) {
+                for ( int i = start ; i >= 0 ; i-- ) {
+                    long offset = entry(manifests.get(i), name).get(kOffset).getAsNumber().value().longValue();
+                    if ( out.size() < offset )
+                        throw new TDBException("Backup "+chain.get(i)+" does not follow on for file "+name);
+                    out.truncate(offset);
+                    try ( FileChannel in = FileChannel.open(chain.get(i).resolve(name), StandardOpenOption.READ) ) {
+                        long n = in.size();
+                        long posn = 0;
+                        while ( posn < n )
+                            posn += in.transferTo(posn, n-posn, out.position(offset+posn));
+                    }
+                }
+                out.force(true);
+            } catch (IOException ex) { throw IOX.exception(ex); }
+        }
+        return dbDir;
+    }
+
+    /** Copy bytes [offset, length) of a file. */
+    private static void copy(Path src, Path dst, long offset, long length) throws IOException {
+        try ( FileChannel in = FileChannel.open(src, StandardOpenOption.READ);
+              FileChannel out = FileChannel.open(dst, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE) ) {
+            long posn = offset;
+            while ( posn < length ) {
+                long n = in.transferTo(posn, length-posn, out);
+                if ( n <= 0 )
+                    throw new TDBException("File shorter than its committed length: "+src);
+                posn += n;
+            }
+            out.force(true);
+        }
+    }
+
+    /** Files of the database directory, except the lock file. */
+    private static List<Path> files(Path dir) throws IOException {
+        List<Path> files = new ArrayList<>();
+        try ( DirectoryStream<Path> stream = Files.newDirectoryStream(dir) ) {
+            for ( Path p : stream ) {
+                if ( ! Files.isRegularFile(p) || p.getFileName().toString().equals(Names.TDB_LOCK_FILE) )
+                    continue;
+                files.add(p);
+            }
+        }
+        Collections.sort(files);
+        return files;
+    }
+
+    private static JsonObject readManifest(Path backup) {
+        Path p = backup.resolve(MANIFEST);
+        if ( ! Files.exists(p) )
+            throw new TDBException("Not a backup directory: "+backup);
+        return JSON.read(p.toString());
+    }
+
+    private static Map<String, Long> lengths(JsonObject manifest) {
+        Map<String, Long> x = new LinkedHashMap<>();
+        for ( JsonValue v : manifest.get(kFiles).getAsArray() ) {
+            JsonObject e = v.getAsObject();
+            x.put(e.get(kName).getAsString().value(), e.get(kLength).getAsNumber().value().longValue());
+        }
+        return x;
+    }
+
+    private static JsonObject entry(JsonObject manifest, String name) {
+        for ( JsonValue v : manifest.get(kFiles).getAsArray() ) {
+            JsonObject e = v.getAsObject();
+            if ( name.equals(e.get(kName).getAsString().value()) )
+                return e;
+        }
+        return null;
+    }
+
+    /**
+     * The committed lengths of the append-only files, by file name, or null if some
+     * part of the storage is not handled. Call in a transaction.
+     */
+    private static Map<String, Long> committedLengths(DatasetGraphTDB dsg) {
+        Map<String, Long> lengths = new HashMap<>();
+        if ( ! addIndexes(lengths, dsg.getTripleTable().getNodeTupleTable().getTupleTable().getIndexes()) )
+            return null;
+        if ( ! addIndexes(lengths, dsg.getQuadTable().getNodeTupleTable().getTupleTable().getIndexes()) )
+            return null;
+        if ( ! addNodeTable(lengths, dsg.getTripleTable().getNodeTupleTable().getNodeTable(), dsg.getStoreParams().getNodeTableBaseName()) )
+            return null;
+        if ( ! ( dsg.getPrefixes() instanceof DatasetPrefixesTDB ) )
+            return null;
+        DatasetPrefixesTDB prefixes = (DatasetPrefixesTDB)dsg.getPrefixes();
+        if ( ! addIndexes(lengths, prefixes.getNodeTupleTable().getTupleTable().getIndexes()) )
+            return null;
+        if ( ! addNodeTable(lengths, prefixes.getNodeTupleTable().getNodeTable(), dsg.getStoreParams().getPrefixTableBaseName()) )
+            return null;
+        return lengths;
+    }
+
+    private static boolean addIndexes(Map<String, Long> lengths, TupleIndex[] indexes) {
+        for ( TupleIndex index : indexes ) {
+            if ( index == null )
+                continue;
+            TupleIndex base = index.baseTupleIndex();
+            if ( ! ( base instanceof TupleIndexRecord ) )
+                return false;
+            if ( ! addIndex(lengths, ((TupleIndexRecord)base).getRangeIndex(), index.getName()) )
+                return false;
+        }
+        return true;
+    }
+
+    private static boolean addNodeTable(Map<String, Long> lengths, NodeTable nodeTable, String name) {
+        NodeTable base = nodeTable.baseNodeTable();
+        if ( ! ( base instanceof NodeTableTRDF ) )
+            return false;
+        if ( ! addIndex(lengths, ((NodeTableTRDF)base).getIndex(), name) )
+            return false;
+        BinaryDataFile data = ((NodeTableTRDF)base).getData();
+        lengths.put(filename(name+"-data", Names.extObjNodeData), data.length());
+        return true;
+    }
+
+    private static boolean addIndex(Map<String, Long> lengths, Index index, String name) {
+        if ( ! ( index instanceof BPlusTree ) )
+            return false;
+        BPTStateMgr state = ((BPlusTree)index).getStateManager();
+        lengths.put(filename(name, Names.extBptTree), state.getNodeBlocksLimit()*SystemIndex.BlockSize);
+        lengths.put(filename(name, Names.extBptRecords), state.getRecordsBlocksLimit()*SystemIndex.BlockSize);
+        return true;
+    }
+
+    private static String filename(String name, String ext) {
+        return name+"."+ext;
+    }
+}
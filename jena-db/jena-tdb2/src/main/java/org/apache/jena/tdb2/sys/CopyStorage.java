@@ -0,0 +1,201 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.sys;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.jena.dboe.base.block.BlockMgr;
+import org.apache.jena.dboe.base.block.BlockMgrFactory;
+import org.apache.jena.dboe.base.file.BinaryDataFile;
+import org.apache.jena.dboe.base.file.BufferChannel;
+import org.apache.jena.dboe.base.file.FileFactory;
+import org.apache.jena.dboe.base.file.FileSet;
+import org.apache.jena.dboe.base.file.Location;
+import org.apache.jena.dboe.base.record.Record;
+import org.apache.jena.dboe.index.Index;
+import org.apache.jena.dboe.index.RangeIndex;
+import org.apache.jena.dboe.sys.Names;
+import org.apache.jena.dboe.sys.SystemIndex;
+import org.apache.jena.dboe.trans.bplustree.BPlusTree;
+import org.apache.jena.dboe.trans.bplustree.BPlusTreeParams;
+import org.apache.jena.dboe.trans.bplustree.rewriter.BPlusTreeRewriter;
+import org.apache.jena.system.Txn;
+import org.apache.jena.tdb2.TDBException;
+import org.apache.jena.tdb2.setup.StoreParamsCodec;
+import org.apache.jena.tdb2.store.DatasetGraphTDB;
+import org.apache.jena.tdb2.store.DatasetPrefixesTDB;
+import org.apache.jena.tdb2.store.nodetable.NodeTable;
+import org.apache.jena.tdb2.store.nodetable.NodeTableTRDF;
+import org.apache.jena.tdb2.store.tupletable.TupleIndex;
+import org.apache.jena.tdb2.store.tupletable.TupleIndexBloom;
+import org.apache.jena.tdb2.store.tupletable.TupleIndexRecord;
+
+/**
+ * Copy the storage of a TDB2 database, file by file.
+ * <p>
+ * The node data files are copied sequentially, up to their committed length, so
+ * {@code NodeIds} do not change. Each B+Tree is rebuilt by streaming its records,
+ * which are already in order, into {@link BPlusTreeRewriter}, giving full
+ * blocks. The files are copied in parallel, each in its own read transaction on
+ * the source.
+ * <p>
+ * Compare with {@link CopyDSG}, which copies quad by quad.
+ */
+public class CopyStorage {
+    /** Maximum number of files copied at the same time. */
+    public static int Threads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Test whether the storage is made of the B+Trees and node data files that
+     * {@link #copy} handles.
+     */
+    public static boolean canCopy(DatasetGraphTDB dsg) {
+        return tasks(dsg, null) != null;
+    }
+
+    /**
+     * Copy the storage of {@code dsgSrc} to {@code dst}, which must be a
+     * new, empty directory. No writer may run on {@code dsgSrc} during the copy.
+     */
+    public static void copy(DatasetGraphTDB dsgSrc, Location dst) {
+        if ( dst.isMem() || dsgSrc.getLocation().isMem() )
+            throw new TDBException("Copy storage involves a memory location: "+dsgSrc.getLocation()+" : "+dst);
+        List<Runnable> tasks = tasks(dsgSrc, dst);
+        if ( tasks == null )
+            throw new TDBException("Storage can not be copied by file: "+dsgSrc.getLocation());
+        StoreParamsCodec.write(dst, dsgSrc.getStoreParams());
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(Threads, tasks.size())));
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            tasks.forEach(t->futures.add(executor.submit(()->Txn.executeRead(dsgSrc, t))));
+            for ( Future<?> f : futures ) {
+                try { f.get(); }
+                catch (ExecutionException ex) { throw new TDBException("Exception copying storage", ex.getCause()); }
+                catch (InterruptedException ex) { throw new TDBException("Interrupted copying storage", ex); }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /** The copy operations, or null if some part of the storage is not handled. */
+    private static List<Runnable> tasks(DatasetGraphTDB dsg, Location dst) {
+        List<Runnable> tasks = new ArrayList<>();
+        if ( ! addIndexes(tasks, dsg.getTripleTable().getNodeTupleTable().getTupleTable().getIndexes(), dst) )
+            return null;
+        if ( ! addIndexes(tasks, dsg.getQuadTable().getNodeTupleTable().getTupleTable().getIndexes(), dst) )
+            return null;
+        if ( ! addNodeTable(tasks, dsg.getTripleTable().getNodeTupleTable().getNodeTable(), dsg.getStoreParams().getNodeTableBaseName(), dsg.getLocation(), dst) )
+            return null;
+        if ( ! ( dsg.getPrefixes() instanceof DatasetPrefixesTDB ) )
+            return null;
+        DatasetPrefixesTDB prefixes = (DatasetPrefixesTDB)dsg.getPrefixes();
+        if ( ! addIndexes(tasks, prefixes.getNodeTupleTable().getTupleTable().getIndexes(), dst) )
+            return null;
+        if ( ! addNodeTable(tasks, prefixes.getNodeTupleTable().getNodeTable(), dsg.getStoreParams().getPrefixTableBaseName(), dsg.getLocation(), dst) )
+            return null;
+        return tasks;
+    }
+
+    private static boolean addIndexes(List<Runnable> tasks, TupleIndex[] indexes, Location dst) {
+        for ( TupleIndex index : indexes ) {
+            if ( index == null )
+                continue;
+            TupleIndex base = index.baseTupleIndex();
+            if ( ! ( base instanceof TupleIndexRecord ) )
+                return false;
+            RangeIndex rIndex = ((TupleIndexRecord)base).getRangeIndex();
+            if ( ! ( rIndex instanceof BPlusTree ) )
+                return false;
+            BPlusTree bpt = (BPlusTree)rIndex;
+            tasks.add(()->copyIndex(bpt, dst, index.getName()));
+        }
+        return true;
+    }
+
+    private static boolean addNodeTable(List<Runnable> tasks, NodeTable nodeTable, String name, Location src, Location dst) {
+        NodeTable base = nodeTable.baseNodeTable();
+        if ( ! ( base instanceof NodeTableTRDF ) )
+            return false;
+        Index index = ((NodeTableTRDF)base).getIndex();
+        if ( ! ( index instanceof BPlusTree ) )
+            return false;
+        BPlusTree bpt = (BPlusTree)index;
+        BinaryDataFile data = ((NodeTableTRDF)base).getData();
+        String dataName = name+"-data";
+        tasks.add(()->copyIndex(bpt, dst, name));
+        tasks.add(()->copyData(data, src, dataName, dst));
+        return true;
+    }
+
+    /** Rebuild a B+Tree, packed, in another location. Call in a read transaction. */
+    private static void copyIndex(BPlusTree bpt, Location dst, String name) {
+        packIndex(dst, name, bpt.getParams(), bpt.iterator());
+    }
+
+    /** Copy the committed part of a node data file. Call in a read transaction. */
+    private static void copyData(BinaryDataFile data, Location src, String name, Location dst) {
+        long length = data.length();
+        Path srcPath = Paths.get(new FileSet(src, name).filename(Names.extObjNodeData));
+        Path dstPath = Paths.get(new FileSet(dst, name).filename(Names.extObjNodeData));
+        try ( FileChannel in = FileChannel.open(srcPath, StandardOpenOption.READ);
+              FileChannel out = FileChannel.open(dstPath, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE) ) {
+            long posn = 0;
+            while ( posn < length )
+                posn += in.transferTo(posn, length-posn, out);
+            out.force(true);
+        } catch (IOException ex) { throw IOX.exception(ex); }
+    }
+
+    /**
+     * Write a B+Tree, replacing any existing files, from a stream of records
+     * that is sorted and has no duplicates. The B+Tree must not be in use.
+     */
+    public static void packIndex(Location location, String name, BPlusTreeParams params, Iterator<Record> records) {
+        if ( location.isMem() )
+            throw new TDBException("Can't pack an index in a memory location: "+location);
+        FileSet fileset = new FileSet(location, name);
+        for ( String ext : new String[] {Names.extBptState, Names.extBptTree, Names.extBptRecords, TupleIndexBloom.extBloom} ) {
+            Path path = Paths.get(fileset.filename(ext));
+            if ( Files.exists(path) )
+                IOX.delete(path);
+        }
+        int blockSize = SystemIndex.BlockSize;
+        // Small caches; blocks are written once, in order.
+        BufferChannel bptState = FileFactory.createBufferChannel(fileset, Names.extBptState);
+        BlockMgr blkMgrNodes = BlockMgrFactory.create(fileset, Names.extBptTree, blockSize, 10, 10);
+        BlockMgr blkMgrRecords = BlockMgrFactory.create(fileset, Names.extBptRecords, blockSize, 10, 10);
+        BPlusTree bpt = BPlusTreeRewriter.packIntoBPlusTree(records, params, params.getRecordFactory(), bptState, blkMgrNodes, blkMgrRecords);
+        if ( bpt == null )
+            throw new TDBException("Failed to build index "+name);
+        bpt.close();
+    }
+}
@@ -58,6 +58,27 @@ public class DatabaseConnection {
         return make(location, params) ;
     }
     
+    /** Get a read-only {@code DatabaseConnection} to an existing database,
+     *  for example, an immutable snapshot.
+     *  The files are memory mapped read-only and are not locked, the journal is not recovered
+     *  and write transactions are rejected. Read transactions do not take any locks.
+     *  The database must not be updated, by this or any other process, while it is connected read-only.
+     */
+    public synchronized static DatabaseConnection connectReadOnly(Location location) {
+        if ( location.isMem() )
+            throw new TDBException("Can't connect read-only to a memory location");
+        DatabaseConnection dbConn = cache.get(location) ;
+        if ( dbConn != null ) {
+            if ( ! dbConn.isReadOnly() )
+                throw new TDBException("Location is already connected for update: "+location) ;
+            return dbConn ;
+        }
+        DatasetGraph dsg = DatabaseOps.connectReadOnly(location);
+        dbConn = new DatabaseConnection(dsg, location, null, true) ;
+        cache.put(location, dbConn) ;
+        return dbConn ;
+    }
+
     /**
      * Return a {@code StoreConnection} for a particular location,
      * creating it if it does not exist in storage.
@@ -66,11 +87,13 @@ public class DatabaseConnection {
         if ( location.isMemUnique() ) {
             // Uncached, in-memory. 
             DatasetGraph dsg = DatabaseOps.create(location);
-            DatabaseConnection dbConn = new DatabaseConnection(dsg, location, null);
+            DatabaseConnection dbConn = new DatabaseConnection(dsg, location, null, false);
             return dbConn;
         }
         // Cached by Location. Named in-memory or on-disk.
         DatabaseConnection dbConn = cache.computeIfAbsent(location, (loc)->buildForCache(loc, params));
+        if ( dbConn.isReadOnly() )
+            throw new TDBException("Location is connected read-only: "+location) ;
         return dbConn ;
     }
     
@@ -85,7 +108,7 @@ public class DatabaseConnection {
             lock.lockEx();
         }
         DatasetGraph dsg = DatabaseOps.create(location);
-        return new DatabaseConnection(dsg, location, lock) ;
+        return new DatabaseConnection(dsg, location, lock, false) ;
     }
     
 //    private static DatasetGraph buildMem(Location location, StoreParams params) {
@@ -123,7 +146,7 @@ public class DatabaseConnection {
         //dbConn.datasetGraphSwitchable = null;
         cache.remove(location) ;
         // Release the lock after the cache is emptied.
-        if (SystemTDB.DiskLocationMultiJvmUsagePrevention && ! location.isMem() ) {
+        if (SystemTDB.DiskLocationMultiJvmUsagePrevention && ! location.isMem() && dbConn.lock != null ) {
             if ( ! dbConn.lock.isLockedHere() )
                 SystemTDB.errlog.warn("Location " + location.getDirectoryPath() + " was not locked by this process.");
             dbConn.lock.unlock();
@@ -152,14 +175,16 @@ public class DatabaseConnection {
     // This is the location of the TDB2 container directory. 
     private final Location          location ;
     private final ProcessFileLock   lock ;
+    private final boolean           readOnly ;
     private boolean                 isValid = true ;
     
-    private DatabaseConnection(DatasetGraph dsg, Location location, ProcessFileLock fileLock)
+    private DatabaseConnection(DatasetGraph dsg, Location location, ProcessFileLock fileLock, boolean readOnly)
     {
         this.datasetGraph = dsg;
         this.datasetGraphSwitchable =  ( dsg instanceof DatasetGraphSwitchable ) ? (DatasetGraphSwitchable )dsg : null;
         this.location = location ;
         this.lock = fileLock;
+        this.readOnly = readOnly;
     }
 
     public DatasetGraph getDatasetGraph() {
@@ -177,4 +202,9 @@ public class DatabaseConnection {
     public ProcessFileLock getLock() {
         return lock ;
     }
+
+    /** Whether this is a read-only connection, from {@link #connectReadOnly}. */
+    public boolean isReadOnly() {
+        return readOnly ;
+    }
 }
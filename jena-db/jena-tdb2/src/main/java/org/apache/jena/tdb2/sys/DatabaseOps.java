@@ -22,6 +22,7 @@ import java.io.BufferedOutputStream ;
 import java.io.IOException ;
 import java.io.OutputStream ;
 import java.nio.file.* ;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.zip.GZIPOutputStream ;
 
@@ -78,6 +79,18 @@ public class DatabaseOps {
         return createSwitchable(location);
     }
     
+    /** Connect read-only to the latest database in an existing container - called by {@code DatabaseConnection}. */
+    /*package*/ static DatasetGraph connectReadOnly(Location location) {
+        if ( ! location.exists() )
+            throw new TDBException("No such location: "+location);
+        Path path = IOX.asPath(location);
+        Path db = findLocation(path, dbPrefix);
+        if ( db == null )
+            throw new TDBException("No database: "+location);
+        DatasetGraphTDB dsg = StoreConnection.connectReadOnly(IOX.asLocation(db)).getDatasetGraphTDB();
+        return new DatasetGraphSwitchable(path, location, dsg);
+    }
+
     private static DatasetGraphSwitchable createSwitchable(Location location) {
         if ( location.isMem() ) {
             DatasetGraph dsg = StoreConnection.connectCreate(location).getDatasetGraph();
@@ -129,6 +142,56 @@ public class DatabaseOps {
         return x.getRight().toString();
     }
     
+    /**
+     * Binary backup of the files of the current database directory, in a new directory
+     * under "Backups". With {@code incremental}, and an earlier binary backup of the same
+     * database directory, only the changes since the latest one are copied.
+     * See {@link BackupStorage}. Return the name of the backup directory.
+     */
+    public static String backupFiles(DatasetGraphSwitchable container, boolean incremental) {
+        checkSupportsAdmin(container);
+        Path dbPath = container.getContainerPath();
+        Path backupDir = dbPath.resolve(BACKUPS_DIR);
+        if ( ! Files.exists(backupDir) )
+            IOX.createDirectory(backupDir);
+        DatasetGraphTDB dsg = (DatasetGraphTDB)container.get();
+        Path previous = incremental ? findLatestBackup(backupDir, IOX.asPath(dsg.getLocation()).getFileName().toString()) : null;
+        Path dir = createUniqueDirectory(backupDir, BACKUPS_FN);
+        BackupStorage.backup(dsg, dir, previous);
+        return dir.toString();
+    }
+
+    /**
+     * Restore a binary backup, and the backups it is an increment of, into {@code location}
+     * which must not already have a database. Return the database directory.
+     */
+    public static Path restore(Path backup, Location location) {
+        Path path = IOX.asPath(location);
+        if ( findLocation(path, dbPrefix) != null )
+            throw new TDBException("Location already has a database: "+location);
+        if ( ! Files.exists(path) )
+            IOX.createDirectory(path);
+        return BackupStorage.restore(backup, path);
+    }
+
+    /** The latest binary backup, in name order, of the database directory {@code generation}, or null. */
+    private static Path findLatestBackup(Path backupDir, String generation) {
+        List<Path> backups = new ArrayList<>();
+        try ( DirectoryStream<Path> stream = Files.newDirectoryStream(backupDir, BACKUPS_FN+"_*") ) {
+            for ( Path p : stream ) {
+                if ( Files.exists(p.resolve(BackupStorage.MANIFEST)) )
+                    backups.add(p);
+            }
+        } catch (IOException ex) { throw IOX.exception(ex); }
+        backups.sort(null);
+        for ( int i = backups.size()-1 ; i >= 0 ; i-- ) {
+            Path p = backups.get(i);
+            if ( generation.equals(BackupStorage.generation(p)) )
+                return p;
+        }
+        return null;
+    }
+
     private static void checkSupportsAdmin(DatasetGraphSwitchable container) {
         if ( ! container.hasContainerPath() )
             throw new TDBException("Dataset does not support admin operations");
@@ -167,12 +230,34 @@ public class DatabaseOps {
         }
     }
 
+    // --> IOX
+    private static Path createUniqueDirectory(Path dirPath, String basename) {
+        String timestamp = DateTimeUtils.nowAsString("yyyy-MM-dd_HHmmss") ;
+        String dirname = basename + "_" + timestamp ;
+        Path p = dirPath.resolve(dirname);
+        int x = 0 ;
+        for(;;) {
+            try {
+                return Files.createDirectory(p);
+            } catch (FileAlreadyExistsException ex) {
+                // Drop through and try again.
+            } catch (IOException ex) {
+                throw IOX.exception(ex) ;
+            }
+            x++;
+            if ( x >= 5 )
+                throw new RuntimeIOException("Can't create the unique name: number of attempts exceeded");
+            p = dirPath.resolve(dirname+"_"+x);
+        }
+    }
     
     // JVM-wide :-(
     private static Object compactionLock = new Object();
     
     public static void compact(DatasetGraphSwitchable container) {
         checkSupportsAdmin(container);
+        if ( ((DatasetGraphTDB)container.get()).getTxnSystem().getTxnMgr().isReadOnly() )
+            throw new TDBException("Can't compact a read-only database");
         synchronized(compactionLock) {
             Path base = container.getContainerPath();
             Path db1 = findLocation(base, dbPrefix);
@@ -231,8 +316,15 @@ public class DatabaseOps {
         // txnMgr.begin(WRITE, false) will now bounce.
         
         // Copy the latest generation.
-        DatasetGraphTDB dsgCompact = StoreConnection.connectCreate(loc2).getDatasetGraphTDB();
-        CopyDSG.copy(dsgBase, dsgCompact);   
+        DatasetGraphTDB dsgCompact;
+        if ( CopyStorage.canCopy(dsgBase) ) {
+            // Stream each index and node table file, in parallel.
+            CopyStorage.copy(dsgBase, loc2);
+            dsgCompact = StoreConnection.connectCreate(loc2).getDatasetGraphTDB();
+        } else {
+            dsgCompact = StoreConnection.connectCreate(loc2).getDatasetGraphTDB();
+            CopyDSG.copy(dsgBase, dsgCompact);
+        }
 
         TransactionCoordinator txnMgr2 = dsgCompact.getTxnSystem().getTxnMgr();
         txnMgr2.startExclusiveMode();
@@ -35,6 +35,7 @@ import org.apache.jena.dboe.sys.Names;
 import org.apache.jena.dboe.transaction.txn.TransactionCoordinator;
 import org.apache.jena.dboe.transaction.txn.TransactionException;
 import org.apache.jena.sparql.core.DatasetGraph ;
+import org.apache.jena.tdb2.TDBException;
 import org.apache.jena.tdb2.setup.StoreParams;
 import org.apache.jena.tdb2.setup.TDBBuilder;
 import org.apache.jena.tdb2.store.DatasetGraphTDB;
@@ -61,6 +62,23 @@ public class StoreConnection
         return make(location, params) ;
     }
 
+    /** Get a read-only {@code StoreConnection} to an existing database.
+     *  The files are memory mapped read-only and are not locked, and the journal is not recovered.
+     *  The database must not be updated, by this or any other process, while it is connected read-only.
+     */
+    public synchronized static StoreConnection connectReadOnly(Location location) {
+        StoreConnection sConn = cache.get(location) ;
+        if ( sConn != null ) {
+            if ( ! sConn.isReadOnly() )
+                throw new TDBException("Location is already connected for update: "+location) ;
+            return sConn ;
+        }
+        DatasetGraphTDB dsg = (DatasetGraphTDB)TDBBuilder.buildReadOnly(location, null) ;
+        sConn = new StoreConnection(dsg, null) ;
+        cache.put(location, sConn) ;
+        return sConn ;
+    }
+
     /** Get the {@code StoreConnection} for a location, but do not create it.
      *  Returns null for "not setup". 
      */
@@ -79,6 +97,8 @@ public class StoreConnection
      */
     private synchronized static StoreConnection make(Location location, StoreParams params) {
         StoreConnection sConn = cache.get(location) ;
+        if ( sConn != null && sConn.isReadOnly() )
+            throw new TDBException("Location is connected read-only: "+location) ;
         if ( sConn == null ) {
             ProcessFileLock lock = null;
             if (SystemTDB.DiskLocationMultiJvmUsagePrevention && ! location.isMem() ) {
@@ -142,7 +162,7 @@ public class StoreConnection
         cache.remove(location) ;
 
         // Release the lock after the cache is emptied.
-        if (SystemTDB.DiskLocationMultiJvmUsagePrevention && ! location.isMem() ) {
+        if (SystemTDB.DiskLocationMultiJvmUsagePrevention && ! location.isMem() && sConn.lock != null ) {
             if ( ! sConn.lock.isLockedHere() )
                 SystemTDB.errlog.warn("Location " + location.getDirectoryPath() + " was not locked by this process.");
             sConn.lock.unlock();
@@ -191,5 +211,10 @@ public class StoreConnection
         return lock ;
     }
 
+    /** Whether this is a read-only connection, from {@link #connectReadOnly}. */
+    public boolean isReadOnly() {
+        return datasetGraph.getTxnSystem().getTxnMgr().isReadOnly() ;
+    }
+
 }
 
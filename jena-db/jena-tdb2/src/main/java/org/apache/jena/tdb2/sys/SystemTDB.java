@@ -122,6 +122,31 @@ public class SystemTDB
     /** Experimental : triple and quad filtering at scan level */
     public static final Symbol symTupleFilter       = allocSymbol("tupleFilter") ;
 
+    /** Number of solutions of a basic graph pattern whose nodes are retrieved together,
+     *  reading the node table in file order. Zero or unset means one at a time, when needed. */
+    public static final Symbol symMaterializeBlockSize = allocSymbol("materializeBlockSize") ;
+
+    /** Use parallel scans of key ranges of an index where possible, currently for
+     *  a COUNT of a single pattern (see {@link #symIndexCount}). Default false. */
+    public static final Symbol symParallelScan      = allocSymbol("parallelScan") ;
+
+    /** Answer a COUNT, possibly with GROUP BY, of the matches of a single pattern from
+     *  an index scan without retrieving nodes, except for group keys. Default true. */
+    public static final Symbol symIndexCount        = allocSymbol("indexCount") ;
+
+    /** Compare NodeIds, not nodes, for DISTINCT, REDUCED and FILTERs of term equality,
+     *  so that nodes are only retrieved for rows that are kept. Default true. */
+    public static final Symbol symCompareNodeIds    = allocSymbol("compareNodeIds") ;
+
+    /** Solve the first two patterns of a basic graph pattern by a merge join of two
+     *  index scans when they share a variable and there are indexes that return
+     *  matches in the order of that variable. Default false. */
+    public static final Symbol symMergeJoin         = allocSymbol("mergeJoin") ;
+
+    /** Turn FILTER comparisons of a variable with a numeric or dateTime constant into
+     *  range scans of an index over the inline values of the variable. Default true. */
+    public static final Symbol symRangeScan         = allocSymbol("rangeScan") ;
+
     private static final String propertyFileKey1    = tdbPropertyRoot+".settings" ;
     private static final String propertyFileKey2    = tdbSymbolPrefix+":settings" ;
 
@@ -25,14 +25,17 @@ import org.apache.jena.dboe.index.IndexParams;
 import org.apache.jena.dboe.index.RangeIndex;
 import org.apache.jena.dboe.trans.bplustree.BPlusTree;
 import org.apache.jena.dboe.trans.bplustree.BPlusTreeFactory;
+import org.apache.jena.dboe.transaction.txn.ComponentId;
 import org.apache.jena.query.ReadWrite ;
 import org.apache.jena.sparql.core.DatasetPrefixStorage ;
 import org.apache.jena.tdb2.setup.StoreParams;
 import org.apache.jena.tdb2.setup.TDBBuilder;
 import org.apache.jena.tdb2.store.DatasetGraphTDB;
+import org.apache.jena.tdb2.store.nodetable.NamespaceDictionary;
 import org.apache.jena.tdb2.store.nodetable.NodeTable;
 import org.apache.jena.tdb2.store.nodetable.NodeTableCache;
 import org.apache.jena.tdb2.store.nodetable.NodeTableInline;
+import org.apache.jena.tdb2.store.nodetable.NodeTableNamespaces;
 import org.apache.jena.tdb2.store.nodetable.NodeTableTRDF;
 import org.apache.jena.tdb2.sys.SystemTDB;
 
@@ -60,6 +63,8 @@ public class BuildTestLib {
                 
         Index index = buildRangeIndex(fs, recordFactory, params) ;
         BinaryDataFile bdf = createBinaryDataFile(location, basename+"-data") ;
+        if ( params.isNamespaceCompression() )
+            return new NodeTableNamespaces(index, bdf, new NamespaceDictionary(ComponentId.allocLocal())) ;
         NodeTable nt = new NodeTableTRDF(index, bdf) ;
         return nt ;
     }
@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.loader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.apache.jena.atlas.iterator.Iter;
+import org.apache.jena.atlas.logging.LogCtl;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.sparql.sse.SSE;
+import org.apache.jena.system.Txn;
+import org.apache.jena.tdb2.ConfigTest;
+import org.apache.jena.tdb2.DatabaseMgr;
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+
+public class TestLoaderParallel {
+    private static String DIR = null;
+    private static final Node g = NodeFactory.createURI("g");
+    private static final Node gx = NodeFactory.createURI("http://example/gx");
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @BeforeClass
+    static public void beforeClass() {
+        DIR = ConfigTest.getTestingDataRoot()+"/Loader/";
+        LogCtl.disable("Loader");
+    }
+
+    @AfterClass
+    static public void afterClass() {
+        LogCtl.enable("Loader");
+    }
+
+    @Test public void load_parallel_01() {
+        DatasetGraph dsg = DatabaseMgr.createDatasetGraph();
+        LoaderParallel.load(dsg, Collections.singletonList(DIR+"data-1.nq"), false);
+        Txn.executeRead(dsg, ()->{
+            assertTrue(dsg.getDefaultGraph().isEmpty());
+            assertEquals(1, dsg.getGraph(g).size());
+        });
+    }
+
+    @Test public void load_parallel_02() {
+        DatasetGraph dsg = DatabaseMgr.createDatasetGraph();
+        LoaderParallel.load(dsg, Arrays.asList(DIR+"data-2.nt", DIR+"data-3.trig", DIR+"data-4.ttl"), false);
+        Txn.executeRead(dsg, ()->{
+            assertEquals(2, dsg.getDefaultGraph().size());
+            assertEquals(1, dsg.getGraph(NodeFactory.createURI("http://example/g")).size());
+            assertEquals("http://example/", dsg.getDefaultGraph().getPrefixMapping().getNsPrefixURI(""));
+        });
+    }
+
+    @Test public void load_parallel_graph_03() {
+        DatasetGraph dsg = DatabaseMgr.createDatasetGraph();
+        LoaderParallel.load(dsg, gx, Arrays.asList(DIR+"data-2.nt", DIR+"data-4.ttl"), false);
+        Txn.executeRead(dsg, ()->{
+            assertTrue(dsg.getDefaultGraph().isEmpty());
+            assertEquals(2, dsg.getGraph(gx).size());
+        });
+    }
+
+    @Test public void load_parallel_batches_04() throws IOException {
+        // Many batches, with several in each queue.
+        File file = tempFolder.newFile("data.nq");
+        int N = 5000;
+        try ( PrintStream out = new PrintStream(file, "UTF-8") ) {
+            for ( int i = 0 ; i < N ; i++ ) {
+                out.printf("<http://example/s%d> <http://example/p%d> \"%d\" .\n", i, i%10, i);
+                out.printf("<http://example/s%d> <http://example/q> <http://example/o%d> <http://example/g%d> .\n", i, i%7, i%3);
+            }
+        }
+        int batchSize = LoaderParallel.DataBatchSize;
+        try {
+            LoaderParallel.DataBatchSize = 50;
+            DatasetGraph dsg = DatabaseMgr.createDatasetGraph();
+            LoaderParallel.load(dsg, Collections.singletonList(file.getAbsolutePath()), false);
+            DatasetGraph expected = RDFDataMgr.loadDatasetGraph(file.getAbsolutePath());
+            Txn.executeRead(dsg, ()->{
+                assertEquals(N, dsg.getDefaultGraph().size());
+                assertEquals(2*N, Iter.count(dsg.find()));
+                expected.find().forEachRemaining(q->assertTrue(dsg.contains(q)));
+                Quad q = SSE.parseQuad("(<http://example/g1> <http://example/s1> <http://example/q> <http://example/o1>)");
+                assertTrue(dsg.contains(q));
+            });
+        } finally {
+            LoaderParallel.DataBatchSize = batchSize;
+        }
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.loader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.jena.atlas.iterator.Iter;
+import org.apache.jena.atlas.logging.LogCtl;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.query.*;
+import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.sse.SSE;
+import org.apache.jena.system.Txn;
+import org.apache.jena.tdb2.ConfigTest;
+import org.apache.jena.tdb2.DatabaseMgr;
+import org.apache.jena.tdb2.TDBException;
+import org.apache.jena.tdb2.sys.TDBInternal;
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+
+public class TestLoaderSorted {
+    private static String DIR = null;
+    private static final Node g = NodeFactory.createURI("g");
+    private static final Node gx = NodeFactory.createURI("http://example/gx");
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private DatasetGraph dsg = null;
+
+    @BeforeClass
+    static public void beforeClass() {
+        DIR = ConfigTest.getTestingDataRoot()+"/Loader/";
+        LogCtl.disable("Loader");
+    }
+
+    @AfterClass
+    static public void afterClass() {
+        LogCtl.enable("Loader");
+    }
+
+    @Before
+    public void before() throws IOException {
+        dsg = DatabaseMgr.connectDatasetGraph(tempFolder.newFolder("DB").getAbsolutePath());
+    }
+
+    @After
+    public void after() {
+        TDBInternal.expel(dsg);
+    }
+
+    @Test public void sorter_01() {
+        List<long[]> tuples = new ArrayList<>();
+        tuples.add(new long[] {2, 1});
+        tuples.add(new long[] {-1, 0});
+        tuples.add(new long[] {1, 5});
+        tuples.add(new long[] {2, 1});
+        tuples.add(new long[] {1, 2});
+        // Run size 2 : spills to several runs.
+        try ( TupleSorter sorter = new TupleSorter(2, 2, tempFolder.getRoot().toPath()) ) {
+            tuples.forEach(sorter::add);
+            Iterator<long[]> iter = sorter.sorted();
+            List<long[]> results = Iter.toList(iter);
+            assertEquals(4, results.size());
+            assertTrue(Arrays.equals(new long[] {1, 2}, results.get(0)));
+            assertTrue(Arrays.equals(new long[] {1, 5}, results.get(1)));
+            assertTrue(Arrays.equals(new long[] {2, 1}, results.get(2)));
+            // Unsigned: -1 is the highest.
+            assertTrue(Arrays.equals(new long[] {-1, 0}, results.get(3)));
+        }
+        assertEquals(0, tempFolder.getRoot().listFiles(f->f.getName().endsWith(".tmp")).length);
+    }
+
+    @Test public void load_sorted_01() {
+        LoaderSorted.load(dsg, Collections.singletonList(DIR+"data-1.nq"), false);
+        Txn.executeRead(dsg, ()->{
+            assertTrue(dsg.getDefaultGraph().isEmpty());
+            assertEquals(1, dsg.getGraph(g).size());
+        });
+    }
+
+    @Test public void load_sorted_02() {
+        LoaderSorted.load(dsg, Arrays.asList(DIR+"data-2.nt", DIR+"data-3.trig", DIR+"data-4.ttl"), false);
+        Txn.executeRead(dsg, ()->{
+            assertEquals(2, dsg.getDefaultGraph().size());
+            assertEquals(1, dsg.getGraph(NodeFactory.createURI("http://example/g")).size());
+            assertEquals("http://example/", dsg.getDefaultGraph().getPrefixMapping().getNsPrefixURI(""));
+        });
+    }
+
+    @Test public void load_sorted_graph_03() {
+        LoaderSorted.load(dsg, gx, Arrays.asList(DIR+"data-2.nt", DIR+"data-4.ttl"), false);
+        Txn.executeRead(dsg, ()->{
+            assertTrue(dsg.getDefaultGraph().isEmpty());
+            assertEquals(2, dsg.getGraph(gx).size());
+        });
+    }
+
+    @Test public void load_sorted_04() throws IOException {
+        // Several sort runs for each index.
+        File file = tempFolder.newFile("data.nq");
+        int N = 5000;
+        try ( PrintStream out = new PrintStream(file, "UTF-8") ) {
+            for ( int i = 0 ; i < N ; i++ ) {
+                out.printf("<http://example/s%d> <http://example/p%d> \"%d\" .\n", i, i%10, i);
+                out.printf("<http://example/s%d> <http://example/q> <http://example/o%d> <http://example/g%d> .\n", i, i%7, i%3);
+                // Duplicate.
+                out.printf("<http://example/s%d> <http://example/p%d> \"%d\" .\n", i, i%10, i);
+            }
+        }
+        int runSize = LoaderSorted.SortRunSize;
+        try {
+            LoaderSorted.SortRunSize = 700;
+            LoaderSorted.load(dsg, Collections.singletonList(file.getAbsolutePath()), false);
+        } finally {
+            LoaderSorted.SortRunSize = runSize;
+        }
+        DatasetGraph expected = RDFDataMgr.loadDatasetGraph(file.getAbsolutePath());
+        Txn.executeRead(dsg, ()->{
+            assertEquals(N, dsg.getDefaultGraph().size());
+            assertEquals(2*N, Iter.count(dsg.find()));
+            expected.find().forEachRemaining(q->assertTrue(dsg.contains(q)));
+            // Uses the POS index.
+            assertEquals(N/10, Iter.count(dsg.find(Node.ANY, Node.ANY, SSE.parseNode("<http://example/p3>"), Node.ANY)));
+            // Uses the OSP index.
+            assertEquals(1, Iter.count(dsg.find(Node.ANY, Node.ANY, Node.ANY, SSE.parseNode("'17'"))));
+            Query query = QueryFactory.create("SELECT (count(*) AS ?C) { GRAPH <http://example/g1> { ?s ?p <http://example/o2> } }");
+            try ( QueryExecution qExec = QueryExecutionFactory.create(query, DatasetFactory.wrap(dsg)) ) {
+                int expectedCount = 0;
+                for ( int i = 0 ; i < N ; i++ )
+                    if ( i%3 == 1 && i%7 == 2 ) expectedCount++;
+                assertEquals(expectedCount, qExec.execSelect().next().getLiteral("C").getInt());
+            }
+        });
+        // The database is usable for updates.
+        Txn.executeWrite(dsg, ()->dsg.add(SSE.parseQuad("(_ <http://example/s> <http://example/p> 'new')")));
+        Txn.executeRead(dsg, ()->assertEquals(N+1, dsg.getDefaultGraph().size()));
+    }
+
+    @Test(expected=TDBException.class)
+    public void load_sorted_not_empty() {
+        Txn.executeWrite(dsg, ()->dsg.add(SSE.parseQuad("(_ <http://example/s> <http://example/p> 'x')")));
+        LoaderSorted.load(dsg, Collections.singletonList(DIR+"data-2.nt"), false);
+    }
+
+    @Test(expected=TDBException.class)
+    public void load_sorted_mem() {
+        LoaderSorted.load(DatabaseMgr.createDatasetGraph(), Collections.singletonList(DIR+"data-2.nt"), false);
+    }
+
+    @Test public void load_sorted_tmp_removed() {
+        LoaderSorted.load(dsg, Collections.singletonList(DIR+"data-2.nt"), false);
+        File dir = new File(TDBInternal.getDatasetGraphTDB(dsg).getLocation().getDirectoryPath());
+        assertFalse(new File(dir, "tmp-loader").exists());
+    }
+}
@@ -25,6 +25,7 @@ import org.apache.jena.tdb2.TDBException;
 import org.apache.jena.tdb2.setup.StoreParams;
 import org.apache.jena.tdb2.setup.StoreParamsBuilder;
 import org.apache.jena.tdb2.setup.StoreParamsCodec;
+import org.apache.jena.tdb2.store.nodetable.NodeCacheType;
 
 import static org.junit.Assert.*;
 import org.junit.Test ;
@@ -95,6 +96,76 @@ public class TestStoreParams {
         assertArrayEquals(expected, params.getTripleIndexes()) ;
     }
 
+    @Test public void store_params_15() {
+        String xs = "{ \"tdb.nodeid2node_cache_type\": \"CLOCK\" }" ;
+        JsonObject x = JSON.parse(xs) ;
+        StoreParams paramsExpected = StoreParams.builder().nodeId2NodeCacheType(NodeCacheType.CLOCK).build() ;
+        StoreParams paramsActual = StoreParamsCodec.decode(x) ;
+        assertEqualsStoreParams(paramsExpected,paramsActual) ;
+        assertEquals(NodeCacheType.CLOCK, roundTrip(paramsActual).getNodeId2NodeCacheType()) ;
+    }
+
+    @Test public void store_params_16() {
+        String xs = "{ \"tdb.prefix_compression\": true }" ;
+        JsonObject x = JSON.parse(xs) ;
+        StoreParams paramsExpected = StoreParams.builder().prefixCompression(true).build() ;
+        StoreParams paramsActual = StoreParamsCodec.decode(x) ;
+        assertEqualsStoreParams(paramsExpected,paramsActual) ;
+        assertTrue(roundTrip(paramsActual).isPrefixCompression()) ;
+        assertFalse(StoreParams.getDftStoreParams().isPrefixCompression()) ;
+        // Layout: not changed by dynamic parameters.
+        StoreParams params2 = StoreParamsBuilder.modify(StoreParams.getDftStoreParams(), paramsActual) ;
+        assertFalse(params2.isPrefixCompression()) ;
+    }
+
+    @Test public void store_params_17() {
+        String xs = "{ \"tdb.maintain_stats\": true }" ;
+        JsonObject x = JSON.parse(xs) ;
+        StoreParams paramsExpected = StoreParams.builder().maintainStats(true).build() ;
+        StoreParams paramsActual = StoreParamsCodec.decode(x) ;
+        assertEqualsStoreParams(paramsExpected,paramsActual) ;
+        assertTrue(roundTrip(paramsActual).isMaintainStats()) ;
+        assertFalse(StoreParams.getDftStoreParams().isMaintainStats()) ;
+        StoreParams params2 = StoreParamsBuilder.modify(StoreParams.getDftStoreParams(), paramsActual) ;
+        assertFalse(params2.isMaintainStats()) ;
+    }
+
+    @Test public void store_params_18() {
+        String xs = "{ \"tdb.inline_strings\": true }" ;
+        JsonObject x = JSON.parse(xs) ;
+        StoreParams paramsExpected = StoreParams.builder().inlineStrings(true).build() ;
+        StoreParams paramsActual = StoreParamsCodec.decode(x) ;
+        assertEqualsStoreParams(paramsExpected,paramsActual) ;
+        assertTrue(roundTrip(paramsActual).isInlineStrings()) ;
+        assertFalse(StoreParams.getDftStoreParams().isInlineStrings()) ;
+        StoreParams params2 = StoreParamsBuilder.modify(StoreParams.getDftStoreParams(), paramsActual) ;
+        assertFalse(params2.isInlineStrings()) ;
+    }
+
+    @Test public void store_params_19() {
+        String xs = "{ \"tdb.namespace_compression\": true }" ;
+        JsonObject x = JSON.parse(xs) ;
+        StoreParams paramsExpected = StoreParams.builder().namespaceCompression(true).build() ;
+        StoreParams paramsActual = StoreParamsCodec.decode(x) ;
+        assertEqualsStoreParams(paramsExpected,paramsActual) ;
+        assertTrue(roundTrip(paramsActual).isNamespaceCompression()) ;
+        assertFalse(StoreParams.getDftStoreParams().isNamespaceCompression()) ;
+        StoreParams params2 = StoreParamsBuilder.modify(StoreParams.getDftStoreParams(), paramsActual) ;
+        assertFalse(params2.isNamespaceCompression()) ;
+    }
+
+    @Test public void store_params_05() {
+        String xs = "{ \"tdb.inline_ordered_decimals\": true }" ;
+        JsonObject x = JSON.parse(xs) ;
+        StoreParams paramsExpected = StoreParams.builder().inlineOrderedDecimals(true).build() ;
+        StoreParams paramsActual = StoreParamsCodec.decode(x) ;
+        assertEqualsStoreParams(paramsExpected,paramsActual) ;
+        assertTrue(roundTrip(paramsActual).isInlineOrderedDecimals()) ;
+        assertFalse(StoreParams.getDftStoreParams().isInlineOrderedDecimals()) ;
+        StoreParams params2 = StoreParamsBuilder.modify(StoreParams.getDftStoreParams(), paramsActual) ;
+        assertFalse(params2.isInlineOrderedDecimals()) ;
+    }
+
     // Check that setting gets recorded and propagated.
 
     @Test public void store_params_20() {
@@ -25,6 +25,12 @@ import org.junit.runners.Suite ;
 @Suite.SuiteClasses( {
     TestSolverTDB.class     // Tests the TDB connectivity
     , TestStats.class
+    , TestTransStats.class
+    , TestParallelScan.class
+    , TestSolverCount.class
+    , TestCompareNodeIds.class
+    , TestMergeJoin.class
+    , TestRangeScan.class
 })
 
 public class TS_SolverTDB
@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.tdb2.solver;
+
+import static org.junit.Assert.assertEquals ;
+import static org.junit.Assert.assertTrue ;
+
+import org.apache.jena.datatypes.xsd.XSDDatatype ;
+import org.apache.jena.graph.Node ;
+import org.apache.jena.graph.NodeFactory ;
+import org.apache.jena.query.* ;
+import org.apache.jena.sparql.core.DatasetGraph ;
+import org.apache.jena.sparql.core.Quad ;
+import org.apache.jena.sparql.resultset.ResultSetCompare ;
+import org.apache.jena.system.Txn ;
+import org.apache.jena.tdb2.junit.TL;
+import org.apache.jena.tdb2.sys.SystemTDB;
+import org.junit.AfterClass ;
+import org.junit.BeforeClass ;
+import org.junit.Test ;
+
+/** DISTINCT, REDUCED and FILTER comparing NodeIds : {@link QueryIterDistinctNodeId}, {@link QueryIterFilterNodeId} */
+public class TestCompareNodeIds
+{
+    static final int N = 500 ;
+    static Dataset dataset = null ;
+
+    @BeforeClass static public void beforeClass() {
+        dataset = TL.createTestDatasetMem() ;
+        DatasetGraph dsg = dataset.asDatasetGraph() ;
+        Txn.executeWrite(dsg, ()->{
+            for ( int i = 0 ; i < N ; i++ ) {
+                Node s = uri("s"+(i%20)) ;
+                Node p = uri("p"+(i%7)) ;
+                Node o = ( i%5 == 0 )
+                    ? uri("s"+(i%9))
+                    : ( i%2 == 0 ) ? NodeFactory.createLiteral("o"+(i%31)) : NodeFactory.createLiteral(Integer.toString(i%11), XSDDatatype.XSDinteger) ;
+                dsg.add(Quad.defaultGraphIRI, s, p, o) ;
+            }
+        }) ;
+    }
+
+    @AfterClass static public void afterClass() {
+        TL.expel(dataset);
+    }
+
+    private static Node uri(String localName) {
+        return NodeFactory.createURI("http://example/"+localName) ;
+    }
+
+    private static final String PREFIX = "PREFIX : <http://example/> " ;
+
+    @Test public void distinct_1() { test("SELECT DISTINCT ?s { ?s ?p ?o }") ; }
+
+    @Test public void distinct_2() { test("SELECT DISTINCT ?p ?o { ?s ?p ?o }") ; }
+
+    @Test public void distinct_3() { test("SELECT DISTINCT * { ?s :p1 ?o }") ; }
+
+    // Some rows with an unbound variable.
+    @Test public void distinct_4() { test("SELECT DISTINCT ?s ?z { ?s ?p ?o OPTIONAL { ?o :p2 ?z } }") ; }
+
+    // Values not from the database, or not the same term as the database value.
+    @Test public void distinct_5() { test("SELECT DISTINCT ?o { { ?s ?p ?o } UNION { VALUES ?o { 1 01 'o3' :s1 :other } } }") ; }
+
+    @Test public void distinct_6() { test("SELECT (count(DISTINCT ?o) AS ?c) { ?s ?p ?o }") ; }
+
+    @Test public void reduced_1() { test("SELECT REDUCED ?s { ?s ?p ?o }") ; }
+
+    @Test public void filter_1() { test("SELECT * { ?s ?p ?o OPTIONAL { ?o ?q ?z } FILTER(sameTerm(?s, ?z)) }") ; }
+
+    @Test public void filter_2() { test("SELECT * { ?s ?p ?o OPTIONAL { ?o ?q ?z } FILTER(?z = :s1) }") ; }
+
+    @Test public void filter_3() { test("SELECT * { ?s ?p ?o OPTIONAL { ?o ?q ?z } FILTER(sameTerm(?o, 1)) }") ; }
+
+    @Test public void filter_4() { test("SELECT * { ?s ?p ?o OPTIONAL { ?o ?q ?z } FILTER(sameTerm(?o, 01)) }") ; }
+
+    @Test public void filter_5() { test("SELECT * { ?s ?p ?o OPTIONAL { ?o ?q ?z } FILTER(?z = :other) }") ; }
+
+    @Test public void filter_6() { test("SELECT * { { ?s ?p ?o } UNION { VALUES (?s ?o) { (:s1 :s1) (:x :x) (:x :y) } } FILTER(sameTerm(?s, ?o)) }") ; }
+
+    @Test public void filter_7() { test("SELECT * { ?s ?p ?o OPTIONAL { ?o ?q ?z } FILTER(?z = :s1 && ?p != :p1) FILTER(sameTerm(?s, ?z)) }") ; }
+
+    private static void test(String queryString) {
+        Txn.executeRead(dataset, ()->{
+            ResultSetRewindable expected = exec(PREFIX+queryString, false) ;
+            ResultSetRewindable actual = exec(PREFIX+queryString, true) ;
+            assertEquals(expected.size(), actual.size()) ;
+            assertTrue(ResultSetCompare.equalsByTerm(expected, actual)) ;
+        }) ;
+    }
+
+    private static ResultSetRewindable exec(String queryString, boolean compareNodeIds) {
+        try ( QueryExecution qExec = QueryExecutionFactory.create(queryString, dataset) ) {
+            qExec.getContext().set(SystemTDB.symCompareNodeIds, compareNodeIds) ;
+            return ResultSetFactory.copyResults(qExec.execSelect()) ;
+        }
+    }
+}
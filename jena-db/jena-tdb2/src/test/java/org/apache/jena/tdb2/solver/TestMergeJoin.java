@@ -0,0 +1,165 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.tdb2.solver;
+
+import static org.junit.Assert.assertEquals ;
+import static org.junit.Assert.assertFalse ;
+import static org.junit.Assert.assertTrue ;
+
+import java.util.Collections ;
+import java.util.Set ;
+
+import org.apache.jena.atlas.lib.tuple.Tuple ;
+import org.apache.jena.atlas.lib.tuple.TupleFactory ;
+import org.apache.jena.dboe.base.file.Location ;
+import org.apache.jena.graph.Node ;
+import org.apache.jena.graph.NodeFactory ;
+import org.apache.jena.query.* ;
+import org.apache.jena.sparql.core.DatasetGraph ;
+import org.apache.jena.sparql.core.Quad ;
+import org.apache.jena.sparql.core.Var ;
+import org.apache.jena.sparql.resultset.ResultSetCompare ;
+import org.apache.jena.system.Txn ;
+import org.apache.jena.tdb2.setup.StoreParams ;
+import org.apache.jena.tdb2.store.tupletable.TupleTable ;
+import org.apache.jena.tdb2.sys.StoreConnection ;
+import org.apache.jena.tdb2.sys.SystemTDB ;
+import org.apache.jena.tdb2.sys.TDBInternal ;
+import org.junit.BeforeClass ;
+import org.junit.Test ;
+
+/** Merge join of two index scans : {@link StageMergeJoin} */
+public class TestMergeJoin
+{
+    static final int N = 2000 ;
+    static Dataset dataset = null ;
+    static Node g = NodeFactory.createURI("http://example/g") ;
+
+    @BeforeClass static public void beforeClass() {
+        // Add a PSO index so that "?s :p ?x . ?s :q ?y" can be merged.
+        StoreParams params = StoreParams.builder()
+            .tripleIndexes(new String[] {"SPO", "POS", "OSP", "PSO"})
+            .build() ;
+        DatasetGraph dsg = StoreConnection.connectCreate(Location.mem(), params).getDatasetGraph() ;
+        dataset = DatasetFactory.wrap(dsg) ;
+        Txn.executeWrite(dsg, ()->{
+            for ( int i = 0 ; i < N ; i++ ) {
+                Node s = uri("s"+(i%50)) ;
+                Node p = uri("p"+(i%3)) ;
+                Node o = ( i%7 == 0 ) ? uri("s"+(i%11)) : NodeFactory.createLiteral("o"+(i%13)) ;
+                dsg.add(Quad.defaultGraphIRI, s, p, o) ;
+                if ( i%2 == 0 )
+                    dsg.add(g, s, p, o) ;
+            }
+        }) ;
+    }
+
+    private static Node uri(String localName) {
+        return NodeFactory.createURI("http://example/"+localName) ;
+    }
+
+    private static final String PREFIX = "PREFIX : <http://example/> " ;
+
+    // Shared subject, needs PSO.
+    @Test public void mergeJoin_1() { test("SELECT * { ?s :p0 ?x . ?s :p1 ?y }") ; }
+
+    // Shared object : POS.
+    @Test public void mergeJoin_2() { test("SELECT * { ?s1 :p0 ?o . ?s2 :p2 ?o }") ; }
+
+    // Object of one, subject of the other.
+    @Test public void mergeJoin_3() { test("SELECT * { ?s :p0 ?o . ?o :p1 ?z }") ; }
+
+    // Two shared variables.
+    @Test public void mergeJoin_4() { test("SELECT * { ?s :p0 ?o . ?s :p2 ?o }") ; }
+
+    // More patterns after the merge join.
+    @Test public void mergeJoin_5() { test("SELECT * { ?s :p0 ?x . ?s :p1 ?y . ?y :p2 ?z }") ; }
+
+    // Named graph.
+    @Test public void mergeJoin_6() { test("SELECT * { GRAPH :g { ?s :p0 ?x . ?s :p1 ?y } }") ; }
+
+    // Unknown node.
+    @Test public void mergeJoin_7() { test("SELECT * { ?s :p0 ?x . ?s :other ?y }") ; }
+
+    // Input bindings from outside the basic graph pattern.
+    @Test public void mergeJoin_8() { test("SELECT * { VALUES ?s { :s1 :s2 :s99 } ?s :p0 ?x . ?s :p1 ?y }") ; }
+
+    // Repeated variable in a pattern.
+    @Test public void mergeJoin_9() { test("SELECT * { ?s :p0 ?s . ?s :p0 ?y }") ; }
+
+    @Test public void mergeJoin_plan_1() {
+        TupleTable tupleTable = tripleTable() ;
+        Tuple<Node> t1 = pattern("?s", ":p", "?x") ;
+        Tuple<Node> t2 = pattern("?s", ":q", "?y") ;
+        Set<Var> none = Collections.emptySet() ;
+        assertTrue(StageMergeJoin.canMergeJoin(tupleTable, t1, t2, Var.alloc("s"), none)) ;
+        assertFalse(StageMergeJoin.canMergeJoin(tupleTable, t1, t2, Var.alloc("x"), none)) ;
+    }
+
+    @Test public void mergeJoin_plan_2() {
+        TupleTable tupleTable = tripleTable() ;
+        Tuple<Node> t1 = pattern("?s", "?p", "?x") ;
+        Tuple<Node> t2 = pattern("?s", ":q", "?y") ;
+        // (P,S) : PSO
+        assertTrue(StageMergeJoin.canMergeJoin(tupleTable, t1, t2, Var.alloc("s"), Collections.singleton(Var.alloc("p")))) ;
+        // (O,S) : OSP
+        assertTrue(StageMergeJoin.canMergeJoin(tupleTable, t1, t2, Var.alloc("s"), Collections.singleton(Var.alloc("x")))) ;
+    }
+
+    @Test public void mergeJoin_plan_3() {
+        TupleTable tupleTable = tripleTable() ;
+        Tuple<Node> t1 = pattern(":a", "?p", "?x") ;
+        Tuple<Node> t2 = pattern("?x", ":q", "?y") ;
+        // (S,O) : no index.
+        assertFalse(StageMergeJoin.canMergeJoin(tupleTable, t1, t2, Var.alloc("x"), Collections.emptySet())) ;
+        // (S,P,O) : SPO
+        assertTrue(StageMergeJoin.canMergeJoin(tupleTable, t1, t2, Var.alloc("x"), Collections.singleton(Var.alloc("p")))) ;
+    }
+
+    private static TupleTable tripleTable() {
+        return TDBInternal.getDatasetGraphTDB(dataset).getTripleTable().getNodeTupleTable().getTupleTable() ;
+    }
+
+    private static Tuple<Node> pattern(String s, String p, String o) {
+        return TupleFactory.tuple(node(s), node(p), node(o)) ;
+    }
+
+    private static Node node(String x) {
+        if ( x.startsWith("?") )
+            return Var.alloc(x.substring(1)) ;
+        return uri(x.substring(1)) ;
+    }
+
+    private static void test(String queryString) {
+        Txn.executeRead(dataset, ()->{
+            ResultSetRewindable expected = exec(PREFIX+queryString, false) ;
+            ResultSetRewindable actual = exec(PREFIX+queryString, true) ;
+            assertEquals(expected.size(), actual.size()) ;
+            assertTrue(ResultSetCompare.equalsByTerm(expected, actual)) ;
+        }) ;
+    }
+
+    private static ResultSetRewindable exec(String queryString, boolean mergeJoin) {
+        try ( QueryExecution qExec = QueryExecutionFactory.create(queryString, dataset) ) {
+            qExec.getContext().set(SystemTDB.symMergeJoin, mergeJoin) ;
+            return ResultSetFactory.copyResults(qExec.execSelect()) ;
+        }
+    }
+}
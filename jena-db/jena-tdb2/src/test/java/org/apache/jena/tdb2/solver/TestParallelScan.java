@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.solver;
+
+import static org.junit.Assert.assertEquals ;
+
+import java.util.HashSet ;
+import java.util.Set ;
+import java.util.stream.Collectors ;
+import java.util.stream.Stream ;
+
+import org.apache.jena.graph.Node ;
+import org.apache.jena.graph.NodeFactory ;
+import org.apache.jena.graph.Triple ;
+import org.apache.jena.query.* ;
+import org.apache.jena.sparql.core.DatasetGraph ;
+import org.apache.jena.sparql.core.Quad ;
+import org.apache.jena.system.Txn ;
+import org.apache.jena.tdb2.junit.TL;
+import org.apache.jena.tdb2.store.DatasetGraphTDB;
+import org.apache.jena.tdb2.store.GraphTDB;
+import org.apache.jena.tdb2.sys.SystemTDB;
+import org.apache.jena.tdb2.sys.TDBInternal;
+import org.junit.AfterClass ;
+import org.junit.BeforeClass ;
+import org.junit.Test ;
+
+/** Parallel scans of key ranges of indexes: COUNT and {@link GraphTDB#parallelStream} */
+public class TestParallelScan
+{
+    static final int N = 5000 ;
+    static Dataset dataset = null ;
+    static Node g = NodeFactory.createURI("http://example/g") ;
+
+    @BeforeClass static public void beforeClass() {
+        dataset = TL.createTestDatasetMem() ;
+        DatasetGraph dsg = dataset.asDatasetGraph() ;
+        Txn.executeWrite(dsg, ()->{
+            for ( int i = 0 ; i < N ; i++ ) {
+                Node s = uri("s"+(i%10)) ;
+                Node p = uri("p"+(i%3)) ;
+                Node o = ( i%7 == 0 ) ? s : NodeFactory.createLiteral("o"+i) ;
+                dsg.add(Quad.defaultGraphIRI, s, p, o) ;
+                if ( i%2 == 0 )
+                    dsg.add(g, s, p, o) ;
+            }
+        }) ;
+    }
+
+    @AfterClass static public void afterClass() {
+        TL.expel(dataset);
+    }
+
+    private static Node uri(String localName) {
+        return NodeFactory.createURI("http://example/"+localName) ;
+    }
+
+    @Test public void parallelCount_1() { testCount("SELECT (count(*) AS ?C) { ?s ?p ?o }") ; }
+
+    @Test public void parallelCount_2() { testCount("SELECT (count(*) AS ?C) { ?s <http://example/p1> ?o }") ; }
+
+    @Test public void parallelCount_3() { testCount("SELECT (count(?o) AS ?C) (count(*) AS ?D) { <http://example/s1> ?p ?o }") ; }
+
+    // Repeated variable.
+    @Test public void parallelCount_4() { testCount("SELECT (count(*) AS ?C) { ?s ?p ?s }") ; }
+
+    @Test public void parallelCount_5() { testCount("SELECT (count(*) AS ?C) { GRAPH <http://example/g> { ?s <http://example/p2> ?o } }") ; }
+
+    // Unknown node.
+    @Test public void parallelCount_6() { testCount("SELECT (count(*) AS ?C) { ?s <http://example/other> ?o }") ; }
+
+    // Not a count of matches : general execution.
+    @Test public void parallelCount_7() { testCount("SELECT (count(DISTINCT ?s) AS ?C) { ?s ?p ?o }") ; }
+
+    private static void testCount(String queryString) {
+        Txn.executeRead(dataset, ()->{
+            ResultSetRewindable expected = exec(queryString, false) ;
+            ResultSetRewindable actual = exec(queryString, true) ;
+            assertEquals(expected.size(), actual.size()) ;
+            QuerySolution row1 = expected.next() ;
+            QuerySolution row2 = actual.next() ;
+            row1.varNames().forEachRemaining(v->assertEquals(row1.get(v), row2.get(v))) ;
+        }) ;
+    }
+
+    private static ResultSetRewindable exec(String queryString, boolean parallel) {
+        try ( QueryExecution qExec = QueryExecutionFactory.create(queryString, dataset) ) {
+            qExec.getContext().set(SystemTDB.symParallelScan, parallel) ;
+            // Compare with the general execution.
+            qExec.getContext().set(SystemTDB.symIndexCount, parallel) ;
+            return ResultSetFactory.copyResults(qExec.execSelect()) ;
+        }
+    }
+
+    @Test public void parallelStream_1() { testStream(null, null, null, null) ; }
+
+    @Test public void parallelStream_2() { testStream(null, null, uri("p1"), null) ; }
+
+    @Test public void parallelStream_3() { testStream(g, uri("s2"), null, null) ; }
+
+    @Test public void parallelStream_4() { testStream(g, null, null, uri("s3")) ; }
+
+    @Test public void parallelStream_5() { testStream(null, null, uri("other"), null) ; }
+
+    private static void testStream(Node gn, Node s, Node p, Node o) {
+        DatasetGraphTDB dsg = TDBInternal.getDatasetGraphTDB(dataset) ;
+        GraphTDB graph = ( gn == null ) ? dsg.getDefaultGraphTDB() : dsg.getGraphTDB(gn) ;
+        Txn.executeRead(dsg, ()->{
+            Set<Triple> expected = graph.find(s, p, o).toSet() ;
+            Set<Triple> actual ;
+            try ( Stream<Triple> stream = graph.parallelStream(s, p, o) ) {
+                actual = stream.collect(Collectors.toCollection(HashSet::new)) ;
+            }
+            assertEquals(expected, actual) ;
+        }) ;
+    }
+}
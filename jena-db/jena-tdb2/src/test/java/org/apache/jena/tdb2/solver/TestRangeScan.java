@@ -0,0 +1,301 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.tdb2.solver;
+
+import static org.junit.Assert.assertEquals ;
+import static org.junit.Assert.assertFalse ;
+import static org.junit.Assert.assertTrue ;
+
+import java.math.BigDecimal ;
+import java.util.List ;
+import java.util.Map ;
+
+import org.apache.jena.datatypes.xsd.XSDDatatype ;
+import org.apache.jena.dboe.base.file.Location ;
+import org.apache.jena.graph.Node ;
+import org.apache.jena.graph.NodeFactory ;
+import org.apache.jena.query.* ;
+import org.apache.jena.riot.system.PrefixMapFactory ;
+import org.apache.jena.shared.PrefixMapping ;
+import org.apache.jena.shared.impl.PrefixMappingImpl ;
+import org.apache.jena.sparql.core.DatasetGraph ;
+import org.apache.jena.sparql.core.Quad ;
+import org.apache.jena.sparql.core.Var ;
+import org.apache.jena.sparql.expr.ExprList ;
+import org.apache.jena.sparql.resultset.ResultSetCompare ;
+import org.apache.jena.sparql.util.ExprUtils ;
+import org.apache.jena.sparql.util.NodeFactoryExtra ;
+import org.apache.jena.system.Txn ;
+import org.apache.jena.tdb2.junit.TL;
+import org.apache.jena.tdb2.setup.StoreParams;
+import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.NodeIdFactory;
+import org.apache.jena.tdb2.store.NodeIdInline;
+import org.apache.jena.tdb2.sys.StoreConnection;
+import org.apache.jena.tdb2.sys.SystemTDB;
+import org.apache.jena.vocabulary.XSD ;
+import org.junit.AfterClass ;
+import org.junit.BeforeClass ;
+import org.junit.Test ;
+
+/** FILTER comparisons as range scans : {@link RangeScan} */
+public class TestRangeScan
+{
+    static Dataset dataset = null ;
+    // Inline decimals in order.
+    static Dataset datasetOrdered = null ;
+    static Location locationOrdered = null ;
+
+    @BeforeClass static public void beforeClass() {
+        dataset = TL.createTestDatasetMem() ;
+        load(dataset.asDatasetGraph()) ;
+        StoreParams params = StoreParams.builder().inlineOrderedDecimals(true).build() ;
+        locationOrdered = Location.mem() ;
+        datasetOrdered = DatasetFactory.wrap(StoreConnection.connectCreate(locationOrdered, params).getDatasetGraph()) ;
+        load(datasetOrdered.asDatasetGraph()) ;
+    }
+
+    private static void load(DatasetGraph dsg) {
+        Node g = uri("g") ;
+        Txn.executeWrite(dsg, ()->{
+            for ( int i = -60 ; i <= 60 ; i++ ) {
+                Node s = uri("s"+i) ;
+                add(dsg, g, s, "value", lit(Integer.toString(i), XSDDatatype.XSDinteger)) ;
+                add(dsg, g, s, "value", lit(Integer.toString(i), XSDDatatype.XSDint)) ;
+                add(dsg, g, s, "value", lit(i+".5", XSDDatatype.XSDdecimal)) ;
+                // Canonical and not canonical, inline or not.
+                add(dsg, g, s, "value", lit(BigDecimal.valueOf(i, 2).toPlainString(), XSDDatatype.XSDdecimal)) ;
+                add(dsg, g, s, "value", lit(i+".50", XSDDatatype.XSDdecimal)) ;
+                add(dsg, g, s, "value", lit(i+".000000000000001", XSDDatatype.XSDdecimal)) ;
+                add(dsg, g, s, "value", lit(i+"E-30", XSDDatatype.XSDdouble)) ;
+                add(dsg, g, s, "value", lit(i+".25e0", XSDDatatype.XSDdouble)) ;
+                add(dsg, g, s, "value", lit("v"+i, null)) ;
+                if ( i >= 0 ) {
+                    add(dsg, g, s, "value", lit(Integer.toString(i), XSDDatatype.XSDunsignedByte)) ;
+                    add(dsg, g, s, "value", lit(i+"000000000000000000000", XSDDatatype.XSDinteger)) ;
+                }
+                if ( i < 0 )
+                    add(dsg, g, s, "value", lit(Integer.toString(i), XSDDatatype.XSDnegativeInteger)) ;
+                int day = (i+60)%28 + 1 ;
+                String d = String.format("2018-02-%02dT%02d:00:00", day, (i+60)%24) ;
+                add(dsg, g, s, "when", lit(d+"Z", XSDDatatype.XSDdateTime)) ;
+                add(dsg, g, s, "when", lit(d+"+01:00", XSDDatatype.XSDdateTime)) ;
+                add(dsg, g, s, "when", lit(d, XSDDatatype.XSDdateTime)) ;
+                add(dsg, g, s, "when", lit(d+".123456Z", XSDDatatype.XSDdateTime)) ;
+                add(dsg, g, s, "when", lit(d.substring(0, 10), XSDDatatype.XSDdate)) ;
+                add(dsg, g, s, "when", lit(Integer.toString(i), XSDDatatype.XSDinteger)) ;
+            }
+        }) ;
+    }
+
+    private static void add(DatasetGraph dsg, Node g, Node s, String p, Node o) {
+        dsg.add(Quad.defaultGraphIRI, s, uri(p), o) ;
+        dsg.add(g, s, uri(p), o) ;
+    }
+
+    @AfterClass static public void afterClass() {
+        TL.expel(dataset);
+        StoreConnection.release(locationOrdered) ;
+    }
+
+    private static Node uri(String localName) {
+        return NodeFactory.createURI("http://example/"+localName) ;
+    }
+
+    private static Node lit(String lex, XSDDatatype dt) {
+        return dt == null ? NodeFactory.createLiteral(lex) : NodeFactory.createLiteral(lex, dt) ;
+    }
+
+    private static final String PREFIX = "PREFIX : <http://example/> PREFIX xsd: <http://www.w3.org/2001/XMLSchema#> " ;
+
+    @Test public void range_int_1() { test("SELECT * { ?s :value ?v FILTER(?v > 30 && ?v < 40) }") ; }
+
+    @Test public void range_int_2() { test("SELECT * { ?s :value ?v FILTER(?v >= -10) FILTER(?v <= 10) }") ; }
+
+    @Test public void range_int_3() { test("SELECT * { ?s :value ?v FILTER(-5 < ?v) }") ; }
+
+    @Test public void range_int_4() { test("SELECT * { ?s :value ?v FILTER(?v < -55) }") ; }
+
+    @Test public void range_int_5() { test("SELECT * { ?s :value ?v FILTER(?v > 10 && ?v < 5) }") ; }
+
+    @Test public void range_decimal_1() { test("SELECT * { ?s :value ?v FILTER(?v > 10.5 && ?v <= 20.0) }") ; }
+
+    @Test public void range_decimal_2() { test("SELECT * { ?s :value ?v FILTER(?v >= 0.1 && ?v < 0.255) }") ; }
+
+    @Test public void range_decimal_3() { test("SELECT * { ?s :value ?v FILTER(?v > -0.05 && ?v <= 0.0) }") ; }
+
+    @Test public void range_decimal_4() { test("SELECT * { ?s :value ?v FILTER(?v > 5.000000000000001) FILTER(?v < 6.0000000000000001) }") ; }
+
+    @Test public void range_decimal_5() { test("SELECT * { ?s :value ?v FILTER(?v <= -20.5) }") ; }
+
+    @Test public void range_decimal_6() { test("SELECT * { ?s :value ?v FILTER(?v > 1e-40 && ?v < 2.5e-30) }") ; }
+
+    @Test public void range_decimal_7() { test("SELECT * { ?s :value ?v FILTER(?v >= -20.5 && ?v <= 0.25) }") ; }
+
+    @Test public void range_double_1() { test("SELECT * { ?s :value ?v FILTER(?v >= 1.5e1 && ?v < 2.5e1) }") ; }
+
+    @Test public void range_double_2() { test("SELECT * { ?s :value ?v FILTER(?v < 1e30) }") ; }
+
+    @Test public void range_large_1() { test("SELECT * { ?s :value ?v FILTER(?v > 100000000000000000000) }") ; }
+
+    @Test public void range_join_1() { test("SELECT * { ?s :value ?v . ?s :when ?w FILTER(?v > 50) }") ; }
+
+    @Test public void range_join_2() { test("SELECT * { ?s :when ?w . ?s :value ?v FILTER(?v >= 0 && ?v < 3) }") ; }
+
+    @Test public void range_bound_1() { test("SELECT * { VALUES ?v { 1 35 } ?s :value ?v FILTER(?v > 30) }") ; }
+
+    @Test public void range_dateTime_1() {
+        test("SELECT * { ?s :when ?w FILTER(?w > '2018-02-10T00:00:00Z'^^xsd:dateTime && ?w < '2018-02-20T12:00:00Z'^^xsd:dateTime) }") ;
+    }
+
+    @Test public void range_dateTime_2() {
+        test("SELECT * { ?s :when ?w FILTER(?w <= '2018-02-05T07:00:00Z'^^xsd:dateTime) }") ;
+    }
+
+    @Test public void range_graph_1() { test("SELECT * { GRAPH :g { ?s :value ?v FILTER(?v > 30 && ?v < 40) } }") ; }
+
+    @Test public void range_graph_2() { test("SELECT * { GRAPH ?g { ?s :value ?v FILTER(?v < 0) } }") ; }
+
+    @Test public void range_graph_3() {
+        test("SELECT * { GRAPH <urn:x-arq:UnionGraph> { ?s :value ?v FILTER(?v > 30 && ?v < 40) } }") ;
+    }
+
+    @Test public void ranges_1() {
+        Map<Var, List<long[]>> ranges = RangeScan.ranges(exprs("?v > 30 && ?v < 40")) ;
+        List<long[]> r = ranges.get(Var.alloc("v")) ;
+        assertTrue(contains(r, "35")) ;
+        assertTrue(contains(r, "39")) ;
+        assertFalse(contains(r, "30")) ;
+        assertFalse(contains(r, "40")) ;
+        assertFalse(contains(r, "-35")) ;
+        assertFalse(contains(r, "'45'^^xsd:int")) ;
+        assertTrue(contains(r, "'36'^^xsd:byte")) ;
+        // Not inline or not ordered : kept.
+        assertTrue(contains(r, "35.5")) ;
+        assertTrue(contains(r, "3.5e1")) ;
+        assertTrue(contains(r, "'abc'")) ;
+    }
+
+    @Test public void ranges_2() {
+        Map<Var, List<long[]>> ranges = RangeScan.ranges(exprs("?v >= -3 && ?v <= 2")) ;
+        List<long[]> r = ranges.get(Var.alloc("v")) ;
+        assertTrue(contains(r, "-3")) ;
+        assertTrue(contains(r, "0")) ;
+        assertTrue(contains(r, "2")) ;
+        assertFalse(contains(r, "3")) ;
+        assertFalse(contains(r, "-4")) ;
+    }
+
+    @Test public void ranges_3() {
+        Map<Var, List<long[]>> ranges = RangeScan.ranges(exprs("?w >= '2018-02-10T00:00:00Z'^^xsd:dateTime")) ;
+        List<long[]> r = ranges.get(Var.alloc("w")) ;
+        assertTrue(contains(r, "'2018-02-10T00:00:00Z'^^xsd:dateTime")) ;
+        assertTrue(contains(r, "'2019-01-01T00:00:00Z'^^xsd:dateTime")) ;
+        assertFalse(contains(r, "'2018-02-09T23:59:59Z'^^xsd:dateTime")) ;
+        // Other timezones : kept.
+        assertTrue(contains(r, "'2018-02-09T00:00:00'^^xsd:dateTime")) ;
+        assertTrue(contains(r, "'2018-02-09T00:00:00+01:00'^^xsd:dateTime")) ;
+        assertTrue(contains(r, "5")) ;
+    }
+
+    @Test public void ranges_5() {
+        Map<Var, List<long[]>> ranges = RangeScan.ranges(exprs("?v > 10.5 && ?v <= 20.0"), true) ;
+        List<long[]> r = ranges.get(Var.alloc("v")) ;
+        assertTrue(containsOrdered(r, "10.5")) ;
+        assertTrue(containsOrdered(r, "15.25")) ;
+        assertTrue(containsOrdered(r, "20.0")) ;
+        assertFalse(containsOrdered(r, "10.4999")) ;
+        assertFalse(containsOrdered(r, "20.0000000001")) ;
+        assertFalse(containsOrdered(r, "-15.0")) ;
+        assertFalse(containsOrdered(r, "0.0")) ;
+        assertFalse(containsOrdered(r, "21")) ;
+        assertTrue(containsOrdered(r, "15")) ;
+        // Not ordered : kept.
+        assertTrue(containsOrdered(r, "1.5e1")) ;
+        assertTrue(contains(r, "0.0")) ;
+    }
+
+    @Test public void ranges_6() {
+        // No decimal in the range.
+        Map<Var, List<long[]>> ranges = RangeScan.ranges(exprs("?v > 10.5 && ?v < 10.25"), true) ;
+        List<long[]> r = ranges.get(Var.alloc("v")) ;
+        assertFalse(containsOrdered(r, "10.5")) ;
+        assertFalse(containsOrdered(r, "10.25")) ;
+        assertFalse(containsOrdered(r, "-1.0")) ;
+        assertTrue(containsOrdered(r, "'abc'")) ;
+    }
+
+    @Test public void ranges_4() {
+        // Not a comparison with a constant.
+        assertTrue(RangeScan.ranges(exprs("?v > ?w || ?v < 3")).isEmpty()) ;
+        assertTrue(RangeScan.ranges(exprs("?v != 3")).isEmpty()) ;
+    }
+
+    private static final PrefixMapping prefixes = new PrefixMappingImpl().setNsPrefix("xsd", XSD.getURI()) ;
+
+    private static ExprList exprs(String exprString) {
+        return new ExprList(ExprUtils.parse(exprString, prefixes)) ;
+    }
+
+    private static boolean contains(List<long[]> ranges, String nodeString) {
+        return contains(ranges, nodeString, false) ;
+    }
+
+    private static boolean containsOrdered(List<long[]> ranges, String nodeString) {
+        return contains(ranges, nodeString, true) ;
+    }
+
+    private static boolean contains(List<long[]> ranges, String nodeString, boolean orderedDecimals) {
+        Node n = NodeFactoryExtra.parseNode(nodeString, PrefixMapFactory.create(prefixes)) ;
+        NodeId id = NodeIdInline.inline(n, false, orderedDecimals) ;
+        // Nodes in the node table.
+        long x = ( id == null ) ? 1 : NodeIdFactory.encode(id) ;
+        for ( long[] r : ranges ) {
+            if ( Long.compareUnsigned(r[0], x) <= 0 && Long.compareUnsigned(x, r[1]) <= 0 )
+                return true ;
+        }
+        return false ;
+    }
+
+    private static void test(String queryString) {
+        ResultSetRewindable expected = Txn.calculateRead(dataset, ()->exec(dataset, PREFIX+queryString, false)) ;
+        test(dataset, queryString, expected) ;
+        test(datasetOrdered, queryString, expected) ;
+    }
+
+    private static void test(Dataset dataset, String queryString, ResultSetRewindable expected) {
+        Txn.executeRead(dataset, ()->{
+            ResultSetRewindable actual1 = exec(dataset, PREFIX+queryString, false) ;
+            ResultSetRewindable actual2 = exec(dataset, PREFIX+queryString, true) ;
+            for ( ResultSetRewindable actual : new ResultSetRewindable[] {actual1, actual2} ) {
+                expected.reset() ;
+                assertEquals(expected.size(), actual.size()) ;
+                assertTrue(ResultSetCompare.equalsByTerm(expected, actual)) ;
+            }
+        }) ;
+    }
+
+    private static ResultSetRewindable exec(Dataset dataset, String queryString, boolean rangeScan) {
+        try ( QueryExecution qExec = QueryExecutionFactory.create(queryString, dataset) ) {
+            qExec.getContext().set(SystemTDB.symRangeScan, rangeScan) ;
+            return ResultSetFactory.copyResults(qExec.execSelect()) ;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.tdb2.solver;
+
+import static org.junit.Assert.assertEquals ;
+import static org.junit.Assert.assertTrue ;
+
+import org.apache.jena.graph.Node ;
+import org.apache.jena.graph.NodeFactory ;
+import org.apache.jena.query.* ;
+import org.apache.jena.sparql.core.DatasetGraph ;
+import org.apache.jena.sparql.core.Quad ;
+import org.apache.jena.sparql.resultset.ResultSetCompare ;
+import org.apache.jena.system.Txn ;
+import org.apache.jena.tdb2.junit.TL;
+import org.apache.jena.tdb2.sys.SystemTDB;
+import org.junit.AfterClass ;
+import org.junit.BeforeClass ;
+import org.junit.Test ;
+
+/** COUNT and GROUP BY from index scans : {@link SolverCount} */
+public class TestSolverCount
+{
+    static final int N = 3000 ;
+    static Dataset dataset = null ;
+
+    @BeforeClass static public void beforeClass() {
+        dataset = TL.createTestDatasetMem() ;
+        DatasetGraph dsg = dataset.asDatasetGraph() ;
+        Node g = uri("g") ;
+        Txn.executeWrite(dsg, ()->{
+            for ( int i = 0 ; i < N ; i++ ) {
+                Node s = uri("s"+(i%20)) ;
+                Node p = uri("p"+(i%7)) ;
+                Node o = ( i%5 == 0 ) ? s : NodeFactory.createLiteral("o"+(i%31)) ;
+                dsg.add(Quad.defaultGraphIRI, s, p, o) ;
+                if ( i%3 == 0 )
+                    dsg.add(g, s, p, o) ;
+            }
+        }) ;
+    }
+
+    @AfterClass static public void afterClass() {
+        TL.expel(dataset);
+    }
+
+    private static Node uri(String localName) {
+        return NodeFactory.createURI("http://example/"+localName) ;
+    }
+
+    private static final String PREFIX = "PREFIX : <http://example/> " ;
+
+    @Test public void count_1() { test("SELECT (count(*) AS ?C) { ?s :p1 ?o }") ; }
+
+    // Unknown node.
+    @Test public void count_2() { test("SELECT (count(*) AS ?C) { ?s :other ?o }") ; }
+
+    // Group with an index with the group variable after the constant : POS
+    @Test public void count_group_1() { test("SELECT ?o (count(*) AS ?C) { ?s :p2 ?o } GROUP BY ?o") ; }
+
+    // Group with no suitable index : P,S
+    @Test public void count_group_2() { test("SELECT ?s (count(*) AS ?C) { ?s :p2 ?o } GROUP BY ?s") ; }
+
+    // Group over all triples.
+    @Test public void count_group_3() { test("SELECT ?p (count(*) AS ?C) { ?s ?p ?o } GROUP BY ?p") ; }
+
+    @Test public void count_group_4() { test("SELECT ?s ?p (count(?o) AS ?C) { ?s ?p ?o } GROUP BY ?s ?p") ; }
+
+    // Repeated variable.
+    @Test public void count_group_5() { test("SELECT ?p (count(*) AS ?C) { ?s ?p ?s } GROUP BY ?p") ; }
+
+    @Test public void count_group_6() { test("SELECT ?p (count(*) AS ?C) { GRAPH :g { ?s ?p ?o } } GROUP BY ?p") ; }
+
+    // No matches : no groups, one row.
+    @Test public void count_group_7() { test("SELECT ?o (count(*) AS ?C) { ?s :other ?o } GROUP BY ?o") ; }
+
+    @Test public void count_group_8() { test("SELECT ?p (count(*) AS ?C) { ?s ?p ?o } GROUP BY ?p HAVING (count(*) > 400)") ; }
+
+    // Not a count of matches : general execution.
+    @Test public void count_group_9() { test("SELECT ?p (count(DISTINCT ?s) AS ?C) { ?s ?p ?o } GROUP BY ?p") ; }
+
+    // Group expression : general execution.
+    @Test public void count_group_10() { test("SELECT ?x (count(*) AS ?C) { ?s ?p ?o } GROUP BY (str(?p) AS ?x)") ; }
+
+    // Group, no aggregators
+    @Test public void count_group_12() { test("SELECT ?p { ?s ?p ?o } GROUP BY ?p") ; }
+
+    @Test public void count_group_13() { test("SELECT ?p { ?s ?p :other } GROUP BY ?p") ; }
+
+    // Parallel : hash table of counts
+    @Test public void count_group_11() { test("SELECT ?p (count(*) AS ?C) { ?s ?p ?o } GROUP BY ?p", true) ; }
+
+    private static void test(String queryString) {
+        test(queryString, false) ;
+    }
+
+    private static void test(String queryString, boolean parallel) {
+        Txn.executeRead(dataset, ()->{
+            ResultSetRewindable expected = exec(PREFIX+queryString, false, false) ;
+            ResultSetRewindable actual = exec(PREFIX+queryString, true, parallel) ;
+            assertEquals(expected.size(), actual.size()) ;
+            assertTrue(ResultSetCompare.equalsByTerm(expected, actual)) ;
+        }) ;
+    }
+
+    private static ResultSetRewindable exec(String queryString, boolean indexCount, boolean parallel) {
+        try ( QueryExecution qExec = QueryExecutionFactory.create(queryString, dataset) ) {
+            qExec.getContext().set(SystemTDB.symIndexCount, indexCount) ;
+            qExec.getContext().set(SystemTDB.symParallelScan, parallel) ;
+            return ResultSetFactory.copyResults(qExec.execSelect()) ;
+        }
+    }
+}
@@ -40,7 +40,9 @@ import org.apache.jena.sparql.engine.binding.Binding ;
 import org.apache.jena.sparql.resultset.ResultSetCompare ;
 import org.apache.jena.sparql.sse.SSE ;
 import org.apache.jena.tdb2.ConfigTest;
+import org.apache.jena.tdb2.TDB2;
 import org.apache.jena.tdb2.junit.TL;
+import org.apache.jena.tdb2.sys.SystemTDB;
 import org.junit.AfterClass ;
 import org.junit.BeforeClass ;
 import org.junit.Test ;
@@ -123,6 +125,34 @@ public class TestSolverTDB
         equals(rs1, rs2) ;
     }
 
+    @Test public void solve_block_01()
+    {
+        // Nodes retrieved in blocks smaller than the results.
+        TDB2.getContext().set(SystemTDB.symMaterializeBlockSize, 2) ;
+        try {
+            ResultSet rs1 = exec("(bgp (:s ?p ?o))", graph) ;
+            ResultSet rs2 = results("(row (?p :p) (?o :o))",
+                                    "(row (?p :p) (?o 10))",
+                                    "(row (?p :p) (?o :x))"
+                                    ) ;
+            equals(rs1, rs2) ;
+        } finally {
+            TDB2.getContext().unset(SystemTDB.symMaterializeBlockSize) ;
+        }
+    }
+
+    @Test public void solve_block_02()
+    {
+        TDB2.getContext().set(SystemTDB.symMaterializeBlockSize, 100) ;
+        try {
+            ResultSet rs1 = exec("(project (?s ?y) (bgp (?s :p ?z) (?z :q ?y)))", graph) ;
+            ResultSet rs2 = results("(row (?s :s) (?y :y))") ;
+            equals(rs1, rs2) ;
+        } finally {
+            TDB2.getContext().unset(SystemTDB.symMaterializeBlockSize) ;
+        }
+    }
+
     // ------
     
     private static void equals(ResultSet rs1, ResultSet rs2)
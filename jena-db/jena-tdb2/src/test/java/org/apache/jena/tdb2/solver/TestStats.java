@@ -19,15 +19,20 @@
 package org.apache.jena.tdb2.solver;
 
 import static org.junit.Assert.assertEquals ;
+import static org.junit.Assert.assertSame ;
 
+import java.util.Collections ;
 import java.util.Iterator ;
 
 import org.apache.jena.atlas.lib.tuple.Tuple ;
 import org.apache.jena.system.Txn;
 import org.apache.jena.graph.NodeFactory ;
 import org.apache.jena.sparql.core.Quad ;
+import org.apache.jena.sparql.engine.optimizer.CharacteristicSets ;
+import org.apache.jena.sparql.engine.optimizer.reorder.ReorderCharacteristicSets ;
 import org.apache.jena.sparql.sse.SSE ;
 import org.apache.jena.tdb2.junit.TL;
+import org.apache.jena.tdb2.solver.stats.CharacteristicSetsTDB;
 import org.apache.jena.tdb2.solver.stats.StatsCollectorNodeId;
 import org.apache.jena.tdb2.solver.stats.StatsResults;
 import org.apache.jena.tdb2.store.DatasetGraphTDB;
@@ -113,6 +118,23 @@ public class TestStats
         assertEquals(1, r.getPredicates().keySet().size()) ;
     }
 
+    @Test public void characteristic_sets_01() {
+        CharacteristicSets sets = Txn.calculateRead(dsg, ()->CharacteristicSetsTDB.build(dsg)) ;
+        // <s> in the default graph and <s> over the named graphs.
+        assertEquals(1, sets.getSets().size()) ;
+        assertEquals(2, sets.getSubjectCount()) ;
+        assertEquals(4, sets.getTripleCount()) ;
+        assertEquals(2, sets.subjects(Collections.singleton(NodeFactory.createURI("p")))) ;
+    }
+
+    @Test public void characteristic_sets_02() {
+        DatasetGraphTDB dsg2 = TDBInternal.getDatasetGraphTDB(TL.createTestDatasetGraphMem()) ;
+        Txn.executeWrite(dsg2, ()->dsg2.add(q1)) ;
+        ReorderCharacteristicSets reorder = CharacteristicSetsTDB.enable(dsg2) ;
+        assertSame(reorder, dsg2.getReorderTransform()) ;
+        assertEquals(1, reorder.getCharacteristicSets().getTripleCount()) ;
+    }
+
 }
 
 
@@ -0,0 +1,207 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.tdb2.solver;
+
+import static org.junit.Assert.* ;
+
+import java.io.File ;
+import java.io.IOException ;
+
+import org.apache.jena.dboe.base.file.Location ;
+import org.apache.jena.graph.Node ;
+import org.apache.jena.graph.NodeFactory ;
+import org.apache.jena.query.ReadWrite ;
+import org.apache.jena.sparql.core.BasicPattern ;
+import org.apache.jena.sparql.engine.optimizer.reorder.ReorderFixed ;
+import org.apache.jena.sparql.graph.NodeConst ;
+import org.apache.jena.sparql.sse.SSE ;
+import org.apache.jena.system.Txn ;
+import org.apache.jena.tdb2.setup.StoreParams ;
+import org.apache.jena.tdb2.solver.stats.ReorderTransformationStats ;
+import org.apache.jena.tdb2.solver.stats.StatsResults ;
+import org.apache.jena.tdb2.solver.stats.TransStats ;
+import org.apache.jena.tdb2.store.DatasetGraphTDB ;
+import org.apache.jena.tdb2.sys.StoreConnection ;
+import org.junit.After ;
+import org.junit.Rule ;
+import org.junit.Test ;
+import org.junit.rules.TemporaryFolder ;
+
+public class TestTransStats
+{
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder() ;
+
+    static StoreParams params = StoreParams.builder().maintainStats(true).build() ;
+    static Node p = NodeFactory.createURI("http://example/p") ;
+
+    private Location location = null ;
+
+    @After public void after() {
+        if ( location != null )
+            StoreConnection.release(location) ;
+    }
+
+    private DatasetGraphTDB create() {
+        location = Location.mem() ;
+        return StoreConnection.connectCreate(location, params).getDatasetGraphTDB() ;
+    }
+
+    private DatasetGraphTDB open(Location loc) {
+        location = loc ;
+        return StoreConnection.connectCreate(location, params).getDatasetGraphTDB() ;
+    }
+
+    private static TransStats stats(DatasetGraphTDB dsg) {
+        return (TransStats)dsg.getTripleTable().getNodeTupleTable().getTupleTable().getMonitor() ;
+    }
+
+    private static StatsResults results(DatasetGraphTDB dsg) {
+        return Txn.calculateRead(dsg, ()->stats(dsg).results()) ;
+    }
+
+    private static void add(DatasetGraphTDB dsg, String... triples) {
+        Txn.executeWrite(dsg, ()->{
+            for ( String x : triples )
+                dsg.getDefaultGraph().add(SSE.parseTriple(x)) ;
+        }) ;
+    }
+
+    private static void delete(DatasetGraphTDB dsg, String... triples) {
+        Txn.executeWrite(dsg, ()->{
+            for ( String x : triples )
+                dsg.getDefaultGraph().delete(SSE.parseTriple(x)) ;
+        }) ;
+    }
+
+    private static void check(StatsResults r, long count, int countP, int distinctS, int distinctO) {
+        assertEquals(count, r.getCount()) ;
+        assertEquals(countP, r.getPredicates().getOrDefault(p, 0).intValue()) ;
+        assertEquals(distinctS, r.getDistinctSubjects().getOrDefault(p, 0).intValue()) ;
+        assertEquals(distinctO, r.getDistinctObjects().getOrDefault(p, 0).intValue()) ;
+    }
+
+    @Test public void trans_stats_01() {
+        DatasetGraphTDB dsg = create() ;
+        assertNotNull(stats(dsg)) ;
+        assertTrue(dsg.getReorderTransform() instanceof ReorderTransformationStats) ;
+        check(results(dsg), 0, 0, 0, 0) ;
+    }
+
+    @Test public void trans_stats_02() {
+        DatasetGraphTDB dsg = create() ;
+        add(dsg, "(<s1> <http://example/p> <o1>)", "(<s1> <http://example/p> <o2>)", "(<s2> <http://example/p> <o1>)",
+                 "(<s1> rdf:type <C>)") ;
+        StatsResults r = results(dsg) ;
+        check(r, 4, 3, 2, 2) ;
+        assertEquals(1, r.getTypes().get(NodeFactory.createURI("C")).intValue()) ;
+        assertEquals(1, r.getPredicates().get(NodeConst.nodeRDFType).intValue()) ;
+        // Already present.
+        add(dsg, "(<s1> <http://example/p> <o1>)") ;
+        check(results(dsg), 4, 3, 2, 2) ;
+    }
+
+    @Test public void trans_stats_03() {
+        DatasetGraphTDB dsg = create() ;
+        add(dsg, "(<s1> <http://example/p> <o1>)", "(<s1> <http://example/p> <o2>)", "(<s2> <http://example/p> <o1>)") ;
+        delete(dsg, "(<s1> <http://example/p> <o1>)") ;
+        check(results(dsg), 2, 2, 2, 2) ;
+        delete(dsg, "(<s1> <http://example/p> <o2>)") ;
+        check(results(dsg), 1, 1, 1, 1) ;
+        // Not present.
+        delete(dsg, "(<s1> <http://example/p> <o2>)") ;
+        check(results(dsg), 1, 1, 1, 1) ;
+        delete(dsg, "(<s2> <http://example/p> <o1>)") ;
+        StatsResults r = results(dsg) ;
+        check(r, 0, 0, 0, 0) ;
+        assertTrue(r.getPredicates().isEmpty()) ;
+    }
+
+    @Test public void trans_stats_04() {
+        DatasetGraphTDB dsg = create() ;
+        add(dsg, "(<s1> <http://example/p> <o1>)") ;
+        long version = stats(dsg).getVersion() ;
+        dsg.begin(org.apache.jena.query.ReadWrite.WRITE) ;
+        dsg.getDefaultGraph().add(SSE.parseTriple("(<s2> <http://example/p> <o2>)")) ;
+        dsg.add(SSE.parseQuad("(<g> <s3> <http://example/p> <o3>)")) ;
+        check(stats(dsg).results(), 3, 3, 3, 3) ;
+        dsg.abort() ;
+        dsg.end() ;
+        check(results(dsg), 1, 1, 1, 1) ;
+        assertEquals(version, stats(dsg).getVersion()) ;
+    }
+
+    @Test public void trans_stats_05() throws IOException {
+        File dir = tempFolder.newFolder("DB") ;
+        Location loc = Location.create(dir.getAbsolutePath()) ;
+        DatasetGraphTDB dsg = open(loc) ;
+        add(dsg, "(<s1> <http://example/p> <o1>)", "(<s1> <http://example/p> <o2>)", "(<s2> <http://example/p> <o1>)") ;
+        Txn.executeWrite(dsg, ()->dsg.add(SSE.parseQuad("(<g> <s3> <http://example/p> <o3>)"))) ;
+        StoreConnection.release(loc) ;
+
+        // Read back.
+        DatasetGraphTDB dsg2 = open(loc) ;
+        check(results(dsg2), 4, 4, 3, 3) ;
+        StoreConnection.release(loc) ;
+
+        // Rebuild.
+        assertTrue(new File(dir, TransStats.statsBaseName+"."+TransStats.extStats).delete()) ;
+        DatasetGraphTDB dsg3 = open(loc) ;
+        check(results(dsg3), 4, 4, 3, 3) ;
+    }
+
+    @Test public void trans_stats_06() {
+        DatasetGraphTDB dsg = create() ;
+        Txn.executeWrite(dsg, ()->{
+            for ( int i = 0 ; i < 100 ; i++ )
+                dsg.getDefaultGraph().add(SSE.parseTriple("(<s"+i+"> <http://example/common> <o"+i+">)")) ;
+            dsg.getDefaultGraph().add(SSE.parseTriple("(<s1> <http://example/rare> <x>)")) ;
+        }) ;
+        BasicPattern bgp = SSE.parseBGP("(bgp (?x <http://example/common> ?y) (?x <http://example/rare> ?z))") ;
+        ReorderTransformationStats reorder = (ReorderTransformationStats)dsg.getReorderTransform() ;
+        BasicPattern bgp2 = Txn.calculateRead(dsg, ()->reorder.reorder(bgp)) ;
+        assertFalse(Txn.calculateRead(dsg, reorder::get) instanceof ReorderFixed) ;
+        assertEquals(bgp.get(1), bgp2.get(0)) ;
+    }
+
+    @Test public void trans_stats_07() throws InterruptedException {
+        // A reader that started before a commit that adds a new predicate.
+        // No node cache, so the new node would have to be read from the node table.
+        StoreParams params2 = StoreParams.builder(params)
+            .node2NodeIdCacheSize(0).nodeId2NodeCacheSize(0).nodeMissCacheSize(0).build() ;
+        location = Location.mem() ;
+        DatasetGraphTDB dsg = StoreConnection.connectCreate(location, params2).getDatasetGraphTDB() ;
+        add(dsg, "(<s1> <http://example/p> <o1>)", "(<s2> <http://example/p> <o2>)") ;
+        ReorderTransformationStats reorder = (ReorderTransformationStats)dsg.getReorderTransform() ;
+        BasicPattern bgp = SSE.parseBGP("(bgp (?x <http://example/p> ?y) (?x <http://example/new> ?z))") ;
+        dsg.begin(ReadWrite.READ) ;
+        try {
+            Thread thread = new Thread(()->add(dsg, "(<s1> <http://example/new> <http://example/newObject>)")) ;
+            thread.start() ;
+            thread.join() ;
+            assertEquals(2, reorder.reorder(bgp).size()) ;
+            // The statistics as of the start of the read transaction.
+            assertFalse(stats(dsg).results().getPredicates().containsKey(NodeFactory.createURI("http://example/new"))) ;
+        } finally { dsg.end() ; }
+        StatsResults r = results(dsg) ;
+        assertEquals(1, r.getPredicates().get(NodeFactory.createURI("http://example/new")).intValue()) ;
+        assertEquals(2, Txn.calculateRead(dsg, ()->reorder.reorder(bgp)).size()) ;
+    }
+}
@@ -18,16 +18,34 @@
 
 package org.apache.jena.tdb2.store;
 
+import static org.junit.Assert.assertEquals ;
 import static org.junit.Assert.assertFalse ;
 import static org.junit.Assert.assertTrue ;
 
+import java.io.IOException ;
+import java.util.Arrays ;
+import java.util.List ;
+
+import org.apache.jena.atlas.iterator.Iter ;
+import org.apache.jena.datatypes.xsd.XSDDatatype ;
+import org.apache.jena.dboe.base.file.Location ;
 import org.apache.jena.graph.Graph ;
 import org.apache.jena.graph.Node ;
+import org.apache.jena.graph.NodeFactory ;
 import org.apache.jena.graph.Triple ;
+import org.apache.jena.query.ReadWrite ;
+import org.apache.jena.sparql.core.DatasetGraph ;
 import org.apache.jena.sparql.util.NodeFactoryExtra ;
+import org.apache.jena.system.Txn ;
 import org.apache.jena.tdb2.junit.TL;
+import org.apache.jena.tdb2.setup.StoreParams ;
 import org.apache.jena.tdb2.store.GraphViewSwitchable;
+import org.apache.jena.tdb2.store.nodetable.NodeTable;
+import org.apache.jena.tdb2.store.nodetable.NodeTableNamespaces;
+import org.apache.jena.tdb2.sys.StoreConnection ;
+import org.junit.Rule ;
 import org.junit.Test ;
+import org.junit.rules.TemporaryFolder ;
 
 /** Testing persistence  */ 
 public class TestDatasetTDBPersist
@@ -36,6 +54,9 @@ public class TestDatasetTDBPersist
     static Node n1 = NodeFactoryExtra.parseNode("<http://example/n1>") ;
     static Node n2 = NodeFactoryExtra.parseNode("<http://example/n2>") ;
     
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder() ;
+
     @Test
     public void dataset1() {
         TL.exec((ds) -> {
@@ -44,6 +65,151 @@ public class TestDatasetTDBPersist
         }) ;
     }
     
+    @Test
+    public void dataset_prefix_compression() throws IOException {
+        Location location = Location.create(tempFolder.newFolder("DB").getAbsolutePath()) ;
+        StoreParams params = StoreParams.builder().prefixCompression(true).build() ;
+        int N = 5000 ;
+        DatasetGraph dsg = StoreConnection.connectCreate(location, params).getDatasetGraph() ;
+        Txn.executeWrite(dsg, ()->{
+            for ( int i = 0 ; i < N ; i++ )
+                dsg.getDefaultGraph().add(new Triple(n0, n1, NodeFactory.createURI("http://example/o"+i))) ;
+        }) ;
+        Txn.executeWrite(dsg, ()->{
+            for ( int i = 0 ; i < N ; i += 2 )
+                dsg.getDefaultGraph().delete(new Triple(n0, n1, NodeFactory.createURI("http://example/o"+i))) ;
+        }) ;
+        StoreConnection.release(location) ;
+        
+        // Reopen : the layout is read from the location.
+        StoreConnection sConn = StoreConnection.connectCreate(location) ;
+        assertTrue(sConn.getDatasetGraphTDB().getStoreParams().isPrefixCompression()) ;
+        DatasetGraph dsg2 = sConn.getDatasetGraph() ;
+        Txn.executeRead(dsg2, ()->{
+            assertEquals(N/2, dsg2.getDefaultGraph().size()) ;
+            assertEquals(N/2, Iter.count(dsg2.getDefaultGraph().find(Node.ANY, n1, Node.ANY))) ;
+            assertTrue(dsg2.getDefaultGraph().contains(n0, n1, NodeFactory.createURI("http://example/o1"))) ;
+            assertFalse(dsg2.getDefaultGraph().contains(n0, n1, NodeFactory.createURI("http://example/o2"))) ;
+        }) ;
+        StoreConnection.release(location) ;
+    }
+    
+    @Test
+    public void dataset_namespace_compression() throws IOException {
+        Location location = Location.create(tempFolder.newFolder("DB").getAbsolutePath()) ;
+        StoreParams params = StoreParams.builder().namespaceCompression(true).build() ;
+        Node ns = NodeFactory.createURI("http://example/namespace/") ;
+        Node o1 = NodeFactory.createURI("http://example/namespace/o1") ;
+        Node o2 = NodeFactory.createURI("http://example/other/o2") ;
+        Node o3 = NodeFactory.createURI("http://example/namespace/o3") ;
+        Node o4 = NodeFactory.createURI("http://example/other/o4") ;
+        StoreConnection sConn1 = StoreConnection.connectCreate(location, params) ;
+        DatasetGraph dsg = sConn1.getDatasetGraph() ;
+        Txn.executeWrite(dsg, ()->{
+            dsg.getDefaultGraph().add(new Triple(n0, n1, o1)) ;
+        }) ;
+        // Aborted: the namespace node for o2 is lost, and its space in the node file reused.
+        dsg.begin(ReadWrite.WRITE) ;
+        dsg.getDefaultGraph().add(new Triple(n0, n1, o2)) ;
+        dsg.abort() ;
+        dsg.end() ;
+        Txn.executeWrite(dsg, ()->{
+            // o3 goes where the namespace of o2 was.
+            dsg.getDefaultGraph().add(new Triple(n0, n1, o3)) ;
+            // Same namespace as o2 : must be written again.
+            dsg.getDefaultGraph().add(new Triple(n0, n2, o4)) ;
+            // The namespace itself as a node.
+            dsg.getDefaultGraph().add(new Triple(n0, n2, ns)) ;
+        }) ;
+        List<Node> nodes = Arrays.asList(o1, o3, o4, ns) ;
+        Txn.executeRead(dsg, ()->{
+            assertEquals(4, dsg.getDefaultGraph().size()) ;
+            assertTrue(dsg.getDefaultGraph().contains(n0, n2, o4)) ;
+            // Decode, bypassing the node cache.
+            NodeTable base = sConn1.getDatasetGraphTDB().getTripleTable().getNodeTupleTable().getNodeTable().baseNodeTable() ;
+            assertTrue(base instanceof NodeTableNamespaces) ;
+            for ( Node n : nodes )
+                assertEquals(n, base.getNodeForNodeId(base.getNodeIdForNode(n))) ;
+        }) ;
+        StoreConnection.release(location) ;
+
+        // Reopen : empty namespace dictionary.
+        StoreConnection sConn = StoreConnection.connectCreate(location) ;
+        assertTrue(sConn.getDatasetGraphTDB().getStoreParams().isNamespaceCompression()) ;
+        DatasetGraph dsg2 = sConn.getDatasetGraph() ;
+        Txn.executeRead(dsg2, ()->{
+            List<Node> objects = Iter.toList(dsg2.getDefaultGraph().find(n0, Node.ANY, Node.ANY).mapWith(Triple::getObject)) ;
+            assertEquals(4, objects.size()) ;
+            assertTrue(objects.containsAll(nodes)) ;
+            assertTrue(dsg2.getDefaultGraph().contains(n0, n2, o4)) ;
+        }) ;
+        StoreConnection.release(location) ;
+    }
+
+    @Test
+    public void dataset_inline_strings() throws IOException {
+        Location location = Location.create(tempFolder.newFolder("DB").getAbsolutePath()) ;
+        StoreParams params = StoreParams.builder().inlineStrings(true).build() ;
+        Node s1 = NodeFactory.createLiteral("abc") ;
+        Node s2 = NodeFactory.createLiteral("chat", "fr") ;
+        Node s3 = NodeFactory.createLiteral("a longer string") ;
+        DatasetGraph dsg = StoreConnection.connectCreate(location, params).getDatasetGraph() ;
+        Txn.executeWrite(dsg, ()->{
+            dsg.getDefaultGraph().add(new Triple(n0, n1, s1)) ;
+            dsg.getDefaultGraph().add(new Triple(n0, n1, s2)) ;
+            dsg.getDefaultGraph().add(new Triple(n0, n1, s3)) ;
+        }) ;
+        StoreConnection.release(location) ;
+
+        StoreConnection sConn = StoreConnection.connectCreate(location) ;
+        DatasetGraphTDB dsgtdb = sConn.getDatasetGraphTDB() ;
+        assertTrue(dsgtdb.getStoreParams().isInlineStrings()) ;
+        DatasetGraph dsg2 = sConn.getDatasetGraph() ;
+        Txn.executeRead(dsg2, ()->{
+            assertTrue(dsgtdb.getTripleTable().getNodeTupleTable().getNodeTable().getNodeIdForNode(s1).isInline()) ;
+            assertTrue(dsgtdb.getTripleTable().getNodeTupleTable().getNodeTable().getNodeIdForNode(s2).isInline()) ;
+            assertFalse(dsgtdb.getTripleTable().getNodeTupleTable().getNodeTable().getNodeIdForNode(s3).isInline()) ;
+            assertEquals(3, dsg2.getDefaultGraph().size()) ;
+            assertTrue(dsg2.getDefaultGraph().contains(n0, n1, s1)) ;
+            assertTrue(dsg2.getDefaultGraph().contains(n0, n1, s2)) ;
+            assertTrue(dsg2.getDefaultGraph().contains(n0, n1, s3)) ;
+            assertEquals(1, Iter.count(dsg2.getDefaultGraph().find(Node.ANY, Node.ANY, s1))) ;
+        }) ;
+        StoreConnection.release(location) ;
+    }
+
+    @Test
+    public void dataset_inline_ordered_decimals() throws IOException {
+        Location location = Location.create(tempFolder.newFolder("DB").getAbsolutePath()) ;
+        StoreParams params = StoreParams.builder().inlineOrderedDecimals(true).build() ;
+        Node d1 = NodeFactory.createLiteral("1.5", XSDDatatype.XSDdecimal) ;
+        Node d2 = NodeFactory.createLiteral("-0.25", XSDDatatype.XSDdecimal) ;
+        Node d3 = NodeFactory.createLiteral("1.50", XSDDatatype.XSDdecimal) ;
+        DatasetGraph dsg = StoreConnection.connectCreate(location, params).getDatasetGraph() ;
+        Txn.executeWrite(dsg, ()->{
+            dsg.getDefaultGraph().add(new Triple(n0, n1, d1)) ;
+            dsg.getDefaultGraph().add(new Triple(n0, n1, d2)) ;
+            dsg.getDefaultGraph().add(new Triple(n0, n1, d3)) ;
+        }) ;
+        StoreConnection.release(location) ;
+
+        StoreConnection sConn = StoreConnection.connectCreate(location) ;
+        DatasetGraphTDB dsgtdb = sConn.getDatasetGraphTDB() ;
+        assertTrue(dsgtdb.getStoreParams().isInlineOrderedDecimals()) ;
+        DatasetGraph dsg2 = sConn.getDatasetGraph() ;
+        Txn.executeRead(dsg2, ()->{
+            NodeTable nodeTable = dsgtdb.getTripleTable().getNodeTupleTable().getNodeTable() ;
+            assertEquals(NodeIdType.XSD_DECIMAL_ORDERED, nodeTable.getNodeIdForNode(d1).type()) ;
+            assertEquals(NodeIdType.XSD_DECIMAL_ORDERED, nodeTable.getNodeIdForNode(d2).type()) ;
+            assertFalse(nodeTable.getNodeIdForNode(d3).isInline()) ;
+            assertEquals(3, dsg2.getDefaultGraph().size()) ;
+            assertTrue(dsg2.getDefaultGraph().contains(n0, n1, d1)) ;
+            assertTrue(dsg2.getDefaultGraph().contains(n0, n1, d2)) ;
+            assertTrue(dsg2.getDefaultGraph().contains(n0, n1, d3)) ;
+        }) ;
+        StoreConnection.release(location) ;
+    }
+
     @Test
     public void dataset2() {
         TL.exec((ds) -> {
@@ -19,6 +19,7 @@
 package org.apache.jena.tdb2.store;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertFalse;
 
 import java.nio.ByteBuffer;
@@ -112,6 +113,14 @@ public class TestNodeId
     
     @Test public void nodeId_codec_15() { testCodecBuffer("'2.2'^^xsd:float"); }
 
+    // Same value, different types.
+    @Test public void nodeId_equals_01() {
+        NodeId nid1 = NodeIdFactory.createPtr(5);
+        NodeId nid2 = NodeIdInline.inline(NodeFactoryExtra.parseNode("5"));
+        assertNotEquals(nid1, nid2);
+        assertEquals(nid1, NodeIdFactory.createPtr(5));
+    }
+
     private static void testCodecBuffer(String str) {
         Node n = NodeFactoryExtra.parseNode(str);
         NodeId nid = NodeIdInline.inline(n);
@@ -33,12 +33,11 @@ import org.apache.jena.tdb2.store.DatasetGraphTDB;
 import org.apache.jena.tdb2.store.NodeId;
 import org.apache.jena.tdb2.store.nodetable.NodeTable;
 import org.apache.jena.tdb2.sys.SystemTDB;
+import org.apache.jena.tdb2.sys.TDBInternal;
 import org.junit.AfterClass ;
 import org.junit.BeforeClass ;
-import org.junit.Ignore;
 import org.junit.Test ;
 
-@Ignore("Quad filter tests not ready (transactions)")
 public class TestQuadFilter
 {
     private static String graphToHide = "http://example/g2" ;
@@ -56,7 +55,7 @@ public class TestQuadFilter
     private static Dataset setup()
     {
         Dataset ds = TDB2Factory.createDataset() ;
-        DatasetGraphTDB dsg = (DatasetGraphTDB)(ds.asDatasetGraph()) ;
+        DatasetGraphTDB dsg = TDBInternal.getDatasetGraphTDB(ds) ;
         Txn.executeWrite(dsg,  ()->{
             Quad q1 = SSE.parseQuad("(<http://example/g1> <http://example/s> <http://example/p> <http://example/o1>)") ;
             Quad q2 = SSE.parseQuad("(<http://example/g2> <http://example/s> <http://example/p> <http://example/o2>)") ;
@@ -69,7 +68,7 @@ public class TestQuadFilter
     /** Create a filter to exclude the graph http://example/g2 */
     private static Predicate<Tuple<NodeId>> createFilter(Dataset ds)
     {
-        DatasetGraphTDB dsg = (DatasetGraphTDB)(ds.asDatasetGraph()) ;
+        DatasetGraphTDB dsg = TDBInternal.getDatasetGraphTDB(ds) ;
         final NodeTable nodeTable = dsg.getQuadTable().getNodeTupleTable().getNodeTable() ;
         final NodeId target = nodeTable.getNodeIdForNode(NodeFactory.createURI(graphToHide)) ;
         return item -> !( item.len() == 4 && item.get(0).equals(target) );
@@ -78,8 +77,23 @@ public class TestQuadFilter
     @Test public void quad_filter_1()   { test("SELECT * { GRAPH ?g { ?s ?p ?o } }", 1, 2) ; }
     @Test public void quad_filter_2()   { test("SELECT * { ?s ?p ?o }", 1, 2) ; }
     @Test public void quad_filter_3()   { test("SELECT * { GRAPH ?g { } }", 1, 2) ; }
-    
+
+    // Counts from the indexes (SolverCount).
+    @Test public void quad_filter_count_1()
+    { testCount("SELECT (COUNT(*) AS ?c) { GRAPH <"+graphToHide+"> { ?s ?p ?o } }", 0, 1) ; }
+
+    @Test public void quad_filter_count_2()
+    { testCount("SELECT (COUNT(*) AS ?c) { GRAPH <http://example/g1> { ?s ?p ?o } }", 1, 1) ; }
+
+    @Test public void quad_filter_count_3()
+    { testCount("SELECT ?s (COUNT(*) AS ?c) { GRAPH <"+graphToHide+"> { ?s ?p ?o } } GROUP BY ?s", 0, 1) ; }
+
     private void test(String qs, int withFilter, int withoutFilter)
+    {
+        Txn.executeRead(ds, ()->test$(qs, withFilter, withoutFilter)) ;
+    }
+
+    private void test$(String qs, int withFilter, int withoutFilter)
     {
         Predicate<Tuple<NodeId>> filter = createFilter(ds) ;
         
@@ -108,6 +122,29 @@ public class TestQuadFilter
         }
 
     }
+
+    /** Test the count, in ?c, of a query: 0 for no rows. */
+    private void testCount(String qs, long withFilter, long withoutFilter)
+    {
+        Txn.executeRead(ds, ()->{
+            Predicate<Tuple<NodeId>> filter = createFilter(ds) ;
+            Query query = QueryFactory.create(qs) ;
+            try(QueryExecution qExec = QueryExecutionFactory.create(query, ds)) {
+                qExec.getContext().set(SystemTDB.symTupleFilter, filter) ;
+                assertEquals(withFilter, count(qExec.execSelect())) ;
+            }
+            try(QueryExecution qExec = QueryExecutionFactory.create(query, ds)) {
+                assertEquals(withoutFilter, count(qExec.execSelect())) ;
+            }
+        }) ;
+    }
+
+    private static long count(ResultSet rs)
+    {
+        if ( ! rs.hasNext() )
+            return 0 ;
+        return rs.next().getLiteral("c").getLong() ;
+    }
         
     
 }
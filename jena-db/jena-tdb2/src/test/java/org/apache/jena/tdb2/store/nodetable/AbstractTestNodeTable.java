@@ -22,6 +22,10 @@ import static org.junit.Assert.assertEquals ;
 import static org.junit.Assert.assertNotEquals ;
 import static org.junit.Assert.assertNotNull ;
 
+import java.util.ArrayList ;
+import java.util.Collections ;
+import java.util.List ;
+
 import org.apache.jena.graph.Node ;
 import org.apache.jena.sparql.util.NodeFactoryExtra ;
 import org.apache.jena.tdb2.store.NodeId;
@@ -65,4 +69,26 @@ public abstract class AbstractTestNodeTable
     @Test public void nodetable_05()    { testNode("'x'@en") ; }
     @Test public void nodetable_06()    { testNode("'x'^^<http://example/dt>") ; }
     @Test public void nodetable_07()    { testNode("'نواف'") ; }
+
+    @Test public void nodetable_bulk_01() {
+        NodeTable nt = createEmptyNodeTable() ;
+        String[] strs = { "<http://example/x>", "1", "'x'", "_:b", "'x'@en" } ;
+        List<NodeId> nodeIds = new ArrayList<>() ;
+        List<Node> expected = new ArrayList<>() ;
+        for ( String str : strs ) {
+            Node n = NodeFactoryExtra.parseNode(str) ;
+            nodeIds.add(nt.getAllocateNodeId(n)) ;
+            expected.add(n) ;
+        }
+        // Reverse order, a repeat and a NodeId for no node.
+        Collections.reverse(nodeIds) ;
+        Collections.reverse(expected) ;
+        nodeIds.add(nodeIds.get(0)) ;
+        expected.add(expected.get(0)) ;
+        nodeIds.add(NodeId.NodeDoesNotExist) ;
+        expected.add(null) ;
+        assertEquals(expected, nt.bulkNodeIdToNode(nodeIds)) ;
+        // Again, from any caches.
+        assertEquals(expected, nt.bulkNodeIdToNode(nodeIds)) ;
+    }
 }
@@ -27,6 +27,9 @@ import org.junit.runners.Suite ;
     , TestNodeTableStoredBase.class
     , TestNodeTableStored.class
     , TestNodeTable.class
+    , TestNodeTableNamespaces.class
+    , TestNodeTableClock.class
+    , TestNodeCacheClock.class
 })
 public class TS_NodeTable
 {
@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.tdb2.store.nodetable;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.NodeIdFactory;
+import org.apache.jena.tdb2.store.NodeIdType;
+import org.junit.Test;
+
+public class TestNodeCacheClock {
+    private static NodeId id(long x)  { return NodeIdFactory.createPtr(x); }
+    private static Node node(long x)  { return NodeFactory.createURI("http://example/n"+x); }
+
+    @Test public void clock_01() {
+        NodeCacheClock cache = new NodeCacheClock(100);
+        assertTrue(cache.capacity() >= 100);
+        assertTrue(cache.isEmpty());
+        assertNull(cache.getIfPresent(id(1)));
+        cache.put(id(1), node(1));
+        assertEquals(node(1), cache.getIfPresent(id(1)));
+        assertTrue(cache.containsKey(id(1)));
+        assertEquals(1, cache.size());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test public void clock_02() {
+        NodeCacheClock cache = new NodeCacheClock(100);
+        cache.put(id(1), node(1));
+        cache.put(id(1), node(2));
+        assertEquals(1, cache.size());
+        assertEquals(node(2), cache.getIfPresent(id(1)));
+        cache.remove(id(1));
+        assertFalse(cache.containsKey(id(1)));
+        assertTrue(cache.isEmpty());
+    }
+
+    @Test public void clock_03() {
+        // Overfill : entries are evicted, never more than the capacity.
+        NodeCacheClock cache = new NodeCacheClock(16);
+        int N = 1000;
+        for ( int i = 0 ; i < N ; i++ )
+            cache.put(id(i), node(i));
+        assertTrue(cache.size() <= cache.capacity());
+        assertEquals(N, cache.size()+cache.getEvictions());
+        for ( int i = 0 ; i < N ; i++ ) {
+            Node n = cache.getIfPresent(id(i));
+            if ( n != null )
+                assertEquals(node(i), n);
+        }
+        cache.clear();
+        assertEquals(0, cache.size());
+    }
+
+    @Test public void clock_04() {
+        NodeCacheClock cache = new NodeCacheClock(16);
+        Node n = cache.getOrFill(id(7), ()->node(7));
+        assertEquals(node(7), n);
+        assertEquals(node(7), cache.getOrFill(id(7), ()->{ throw new RuntimeException(); }));
+        cache.resetCounters();
+        assertEquals(0, cache.getHits());
+        assertEquals(0, cache.getMisses());
+    }
+
+    @Test public void clock_05() {
+        // Inline NodeIds are keys as well.
+        NodeCacheClock cache = new NodeCacheClock(16);
+        NodeId nid = NodeIdFactory.createValue(NodeIdType.XSD_INTEGER, 5);
+        cache.put(nid, node(5));
+        assertEquals(node(5), cache.getIfPresent(nid));
+        assertTrue(cache.keys().hasNext());
+        assertEquals(nid, cache.keys().next());
+    }
+
+    @Test public void clock_concurrent_01() throws Exception {
+        NodeCacheClock cache = new NodeCacheClock(64);
+        int N = 500;
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for ( int t = 0 ; t < 4 ; t++ ) {
+                futures.add(executor.submit(()->{
+                    for ( int r = 0 ; r < 20 ; r++ ) {
+                        for ( int i = 0 ; i < N ; i++ ) {
+                            long x = i;
+                            Node n = cache.getOrFill(id(x), ()->node(x));
+                            assertEquals(node(x), n);
+                        }
+                    }
+                }));
+            }
+            for ( Future<?> f : futures )
+                f.get();
+        } finally {
+            executor.shutdownNow();
+        }
+        assertTrue(cache.size() <= cache.capacity());
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jena.tdb2.store.nodetable;
+
+import static org.junit.Assert.assertEquals ;
+import static org.junit.Assert.assertTrue ;
+
+import java.util.ArrayList ;
+import java.util.List ;
+
+import org.apache.jena.atlas.lib.FileOps ;
+import org.apache.jena.dboe.base.file.Location;
+import org.apache.jena.graph.Node ;
+import org.apache.jena.graph.NodeFactory ;
+import org.apache.jena.tdb2.ConfigTest;
+import org.apache.jena.tdb2.junit.BuildTestLib;
+import org.apache.jena.tdb2.setup.StoreParams;
+import org.apache.jena.tdb2.setup.StoreParamsBuilder;
+import org.apache.jena.tdb2.store.NodeId ;
+import org.junit.Test ;
+
+public class TestNodeTableNamespaces extends AbstractTestNodeTable
+{
+    static String base = ConfigTest.getTestingDir() ;
+    static Location location = Location.create(base+"/nodetable-ns-test") ;
+
+    @Override
+    protected NodeTable createEmptyNodeTable()
+    {
+        FileOps.ensureDir(location.getDirectoryPath());
+        FileOps.clearDirectory(location.getDirectoryPath());
+        StoreParams params = 
+            StoreParamsBuilder.create()
+                .nodeId2NodeCacheSize(-1)
+                .node2NodeIdCacheSize(-1)
+                .nodeMissCacheSize(-1)
+                .namespaceCompression(true).build() ;
+        return BuildTestLib.makeNodeTableBase(location, "test", params) ;
+    }
+
+    @Test public void nodetable_ns_split_01() {
+        assertEquals("http://example/ns/".length(), NodeTableNamespaces.splitPoint("http://example/ns/x")) ;
+        assertEquals("http://example/ns#".length(), NodeTableNamespaces.splitPoint("http://example/ns#x")) ;
+        // Too short, no local part, no separator.
+        assertEquals(-1, NodeTableNamespaces.splitPoint("http://ex/x")) ;
+        assertEquals(-1, NodeTableNamespaces.splitPoint("http://example/ns/")) ;
+        assertEquals(-1, NodeTableNamespaces.splitPoint("urn:example:abcdef")) ;
+    }
+
+    @Test public void nodetable_ns_01()    { testNode("<http://example/ns/x>") ; }
+    @Test public void nodetable_ns_02()    { testNode("<http://example/ns#x>") ; }
+    @Test public void nodetable_ns_03()    { testNode("'x'^^<http://example/ns#dt>") ; }
+
+    @Test public void nodetable_ns_04() {
+        NodeTable nt = createEmptyNodeTable() ;
+        writeNode(nt, "<http://example/ns/x>") ;
+        writeNode(nt, "<http://example/ns/y>") ;
+        // The namespace, as written for the first IRI.
+        writeNode(nt, "<http://example/ns/>") ;
+        writeNode(nt, "<http://example/other#z>") ;
+        writeNode(nt, "<http://example/ns/x>") ;
+    }
+
+    @Test public void nodetable_ns_05() {
+        // Many IRIs sharing a few namespaces; each namespace is stored once.
+        NodeTable nt = createEmptyNodeTable() ;
+        List<NodeId> ids = new ArrayList<>() ;
+        List<Node> nodes = new ArrayList<>() ;
+        for ( int i = 0 ; i < 100 ; i++ ) {
+            Node n = NodeFactory.createURI("http://example/namespace/"+(i%3)+"/local"+i) ;
+            nodes.add(n) ;
+            ids.add(nt.getAllocateNodeId(n)) ;
+        }
+        assertEquals(nodes, nt.bulkNodeIdToNode(ids)) ;
+        for ( int i = 0 ; i < 3 ; i++ ) {
+            NodeId nsId = nt.getNodeIdForNode(NodeFactory.createURI("http://example/namespace/"+i+"/")) ;
+            assertTrue(nsId.isPtr()) ;
+        }
+        for ( int i = 0 ; i < nodes.size() ; i++ )
+            assertEquals(nodes.get(i), nt.getNodeForNodeId(ids.get(i))) ;
+    }
+}
@@ -25,6 +25,7 @@ import org.junit.runners.Suite;
 @Suite.SuiteClasses( {
     TestTupleIndexRecord.class,
     TestTupleIndexRecordDirect.class,
+    TestTupleIndexBloom.class,
     TestTupleTable.class
 } )
 
@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.tdb2.store.tupletable;
+
+import static org.apache.jena.atlas.lib.tuple.TupleFactory.tuple ;
+import static org.apache.jena.tdb2.store.tupletable.NData.*;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.jena.atlas.lib.tuple.TupleMap ;
+import org.apache.jena.dboe.base.file.FileSet;
+import org.apache.jena.dboe.base.file.Location;
+import org.apache.jena.dboe.base.record.RecordFactory;
+import org.apache.jena.dboe.index.IndexParams;
+import org.apache.jena.dboe.index.RangeIndex;
+import org.apache.jena.graph.Node;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.sse.SSE;
+import org.apache.jena.system.Txn;
+import org.apache.jena.tdb2.junit.BuildTestLib;
+import org.apache.jena.tdb2.setup.StoreParams;
+import org.apache.jena.tdb2.store.DatasetGraphTDB;
+import org.apache.jena.tdb2.sys.StoreConnection;
+import org.apache.jena.tdb2.sys.SystemTDB;
+import org.apache.jena.tdb2.sys.TDBInternal;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TestTupleIndexBloom extends AbstractTestTupleIndex
+{
+    static RecordFactory factory = new RecordFactory(3*SystemTDB.SizeOfNodeId, 0) ;
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Override
+    protected TupleIndexBloom create(String description)
+    {
+        IndexParams indexParams = StoreParams.getDftStoreParams() ; 
+        RangeIndex rIdx = BuildTestLib.buildRangeIndex(FileSet.mem(), factory, indexParams) ;
+        TupleMap tmap = TupleMap.create("SPO", description) ;
+        TupleIndexRecord index = new TupleIndexRecord(3, tmap, description, factory, rIdx) ;
+        TupleIndexBloom bloom = new TupleIndexBloom(index, 10, Location.mem()) ;
+        bloom.rebuild();
+        return bloom ;
+    }
+
+    @Test public void bloom_filter_01() {
+        BloomFilter f = BloomFilter.create(1000, 10) ;
+        for ( long i = 0 ; i < 1000 ; i++ )
+            f.add(BloomFilter.mix(i)) ;
+        for ( long i = 0 ; i < 1000 ; i++ )
+            assertTrue(f.mightContain(BloomFilter.mix(i))) ;
+        int falsePositives = 0 ;
+        for ( long i = 1000 ; i < 11000 ; i++ ) {
+            if ( f.mightContain(BloomFilter.mix(i)) )
+                falsePositives++ ;
+        }
+        // Expected about 1%.
+        assertTrue("False positives: "+falsePositives, falsePositives < 300) ;
+        assertFalse(f.isOverloaded()) ;
+    }
+
+    @Test public void bloom_index_01() {
+        TupleIndexBloom index = create("POS") ;
+        add(index, n1, n2, n3) ;
+        assertTrue(index.mightMatch(tuple(n1, n2, n3))) ;
+        assertTrue(index.mightMatch(tuple(null, n2, null))) ;
+        assertTrue(index.mightMatch(tuple(null, n2, n3))) ;
+        // Does not fix the leading slot of POS.
+        assertTrue(index.mightMatch(tuple(n4, null, null))) ;
+        assertFalse(index.mightMatch(tuple(null, n4, null))) ;
+        assertFalse(index.mightMatch(tuple(n1, n2, n4))) ;
+        assertFalse(index.find(tuple(n1, n2, n4)).hasNext()) ;
+    }
+
+    @Test public void bloom_index_02() {
+        // Deleted tuples stay in the filter; the index gives the right answer. 
+        TupleIndexBloom index = create("SPO") ;
+        add(index, n1, n2, n3) ;
+        index.delete(tuple(n1, n2, n3)) ;
+        assertTrue(index.mightMatch(tuple(n1, n2, n3))) ;
+        assertFalse(index.find(tuple(n1, n2, n3)).hasNext()) ;
+    }
+
+    @Test public void bloom_index_03() {
+        // Rebuild from existing contents.
+        TupleIndexBloom index = create("SPO") ;
+        TupleIndex base = index.wrapped() ;
+        base.add(tuple(n1, n2, n3)) ;
+        assertFalse(index.mightMatch(tuple(n1, null, null))) ;
+        index.rebuild() ;
+        assertTrue(index.mightMatch(tuple(n1, null, null))) ;
+    }
+
+    private static final Node s1 = SSE.parseNode(":s1") ;
+    private static final Node p1 = SSE.parseNode(":p1") ;
+    private static final Node o1 = SSE.parseNode(":o1") ;
+    private static final Node o2 = SSE.parseNode(":o2") ;
+
+    @Test public void bloom_database_01() throws IOException {
+        File dir = tempFolder.newFolder("DB") ;
+        Location location = Location.create(dir.getAbsolutePath()) ;
+        StoreParams params = StoreParams.builder().bloomBitsPerKey(10).build() ;
+
+        DatasetGraph dsg = StoreConnection.connectCreate(location, params).getDatasetGraph() ;
+        Txn.executeWrite(dsg, ()->dsg.getDefaultGraph().add(SSE.parseTriple("(:s1 :p1 :o1)"))) ;
+        Txn.executeRead(dsg, ()->{
+            assertTrue(dsg.getDefaultGraph().contains(s1, p1, o1)) ;
+            assertFalse(dsg.getDefaultGraph().contains(s1, p1, o2)) ;
+        }) ;
+        DatasetGraphTDB dsgtdb = TDBInternal.getDatasetGraphTDB(dsg) ;
+        TupleIndex index = dsgtdb.getTripleTable().getNodeTupleTable().getTupleTable().getIndexes()[0] ;
+        assertTrue(index instanceof TupleIndexBloom) ;
+        assertTrue(((TupleIndexBloom)index).isReady()) ;
+        StoreConnection.release(location) ;
+        assertTrue(new File(dir, index.getName()+"."+TupleIndexBloom.extBloom).exists()) ;
+
+        // Reopen : filter read from disk, then removed while in use.
+        DatasetGraph dsg2 = StoreConnection.connectCreate(location, params).getDatasetGraph() ;
+        assertFalse(new File(dir, index.getName()+"."+TupleIndexBloom.extBloom).exists()) ;
+        DatasetGraphTDB dsgtdb2 = TDBInternal.getDatasetGraphTDB(dsg2) ;
+        TupleIndexBloom index2 = (TupleIndexBloom)dsgtdb2.getTripleTable().getNodeTupleTable().getTupleTable().getIndexes()[0] ;
+        assertTrue(index2.isReady()) ;
+        assertTrue(index2.getFilter().added() > 0) ;
+        Txn.executeWrite(dsg2, ()->dsg2.getDefaultGraph().add(SSE.parseTriple("(:s1 :p1 :o2)"))) ;
+        Txn.executeRead(dsg2, ()->{
+            assertTrue(dsg2.getDefaultGraph().contains(s1, p1, o1)) ;
+            assertTrue(dsg2.getDefaultGraph().contains(s1, p1, o2)) ;
+        }) ;
+        StoreConnection.release(location) ;
+    }
+}
@@ -21,7 +21,9 @@ package org.apache.jena.tdb2.store.tupletable;
 import static org.apache.jena.atlas.lib.tuple.TupleFactory.tuple ;
 import static org.apache.jena.tdb2.store.tupletable.NData.*;
 
+import java.util.ArrayList ;
 import java.util.Iterator ;
+import java.util.List ;
 import java.util.Set ;
 
 import org.apache.jena.atlas.iterator.Iter ;
@@ -35,6 +37,7 @@ import org.apache.jena.dboe.index.RangeIndex;
 import org.apache.jena.tdb2.junit.BuildTestLib;
 import org.apache.jena.tdb2.setup.StoreParams;
 import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.NodeIdFactory;
 import org.apache.jena.tdb2.store.tupletable.TupleIndexRecord;
 import org.apache.jena.tdb2.sys.SystemTDB;
 import org.junit.Test ;
@@ -313,4 +316,50 @@ public class TestTupleIndexRecordDirect
    }
 
     
+    @Test public void TupleIndexRecordPartitioned_1()
+    {
+        TupleIndexRecord index = createLarge("SPO", 5000) ;
+        List<Iterator<Tuple<NodeId>>> ranges = index.findPartitioned(tuple(NodeId.NodeIdAny, NodeId.NodeIdAny, NodeId.NodeIdAny), 4) ;
+        assertTrue(ranges.size() > 1) ;
+        assertTrue(ranges.size() <= 4) ;
+        testPartitioned(index, tuple(NodeId.NodeIdAny, NodeId.NodeIdAny, NodeId.NodeIdAny)) ;
+    }
+
+    @Test public void TupleIndexRecordPartitioned_2()
+    {
+        TupleIndexRecord index = createLarge("SPO", 5000) ;
+        testPartitioned(index, tuple(NodeIdFactory.createPtr(3), NodeId.NodeIdAny, NodeId.NodeIdAny)) ;
+    }
+
+    @Test public void TupleIndexRecordPartitioned_3()
+    {
+        // Partial scan.
+        TupleIndexRecord index = createLarge("SPO", 5000) ;
+        testPartitioned(index, tuple(NodeIdFactory.createPtr(3), NodeId.NodeIdAny, NodeIdFactory.createPtr(5))) ;
+    }
+
+    @Test public void TupleIndexRecordPartitioned_4()
+    {
+        TupleIndexRecord index = createLarge("POS", 5000) ;
+        testPartitioned(index, tuple(NodeId.NodeIdAny, NodeIdFactory.createPtr(1000), NodeId.NodeIdAny)) ;
+        testPartitioned(index, tuple(NodeId.NodeIdAny, NodeId.NodeIdAny, NodeIdFactory.createPtr(2))) ;
+    }
+
+    private static TupleIndexRecord createLarge(String description, int N)
+    {
+        TupleIndexRecord index = create(description) ;
+        for ( int i = 0 ; i < N ; i++ )
+            add(index, NodeIdFactory.createPtr(i%10), NodeIdFactory.createPtr(i), NodeIdFactory.createPtr(i%7)) ;
+        return index ;
+    }
+
+    private static void testPartitioned(TupleIndexRecord index, Tuple<NodeId> pattern)
+    {
+        List<Tuple<NodeId>> expected = Iter.toList(index.find(pattern)) ;
+        List<Tuple<NodeId>> actual = new ArrayList<>() ;
+        index.findPartitioned(pattern, 8).forEach(iter -> iter.forEachRemaining(actual::add)) ;
+        assertEquals(expected, actual) ;
+        long count = TupleSpliterator.stream(index.findPartitioned(pattern, 8), true).count() ;
+        assertEquals(expected.size(), count) ;
+    }
 }
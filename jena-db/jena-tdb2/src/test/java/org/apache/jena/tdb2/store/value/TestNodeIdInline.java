@@ -19,12 +19,16 @@
 package org.apache.jena.tdb2.store.value;
 
 import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+
 import org.apache.jena.datatypes.xsd.XSDDatatype;
 import org.apache.jena.graph.Node;
 import org.apache.jena.graph.NodeFactory;
 import org.apache.jena.sparql.expr.NodeValue;
 import org.apache.jena.sparql.util.NodeFactoryExtra;
 import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.NodeIdType;
 import org.junit.Test;
 
 public class TestNodeIdInline
@@ -115,6 +119,69 @@ public class TestNodeIdInline
     @Test public void nodeId_decimal_8()
     { test("0.00000001", NodeFactory.createLiteral("0.00000001", XSDDatatype.XSDdecimal)) ; }
 
+    @Test public void nodeId_decimal_ordered_1()
+    { testOrdered("3.14", "3.14") ; }
+
+    @Test public void nodeId_decimal_ordered_2()
+    { testOrdered("-1.0", "-1.0") ; }
+
+    @Test public void nodeId_decimal_ordered_3()
+    // 14 digits
+    { testOrdered("2412.8047819268", "2412.8047819268") ; }
+
+    @Test public void nodeId_decimal_ordered_4()
+    { testOrdered("0.000000000000000000001", "0.000000000000000000001") ; }
+
+    @Test public void nodeId_decimal_ordered_5()
+    // 15 digits
+    { testNoInlineOrdered("2412.80478192688") ; }
+
+    @Test public void nodeId_decimal_ordered_6()
+    // Only the canonical form.
+    { testNoInlineOrdered("1.50") ; }
+
+    @Test public void nodeId_decimal_ordered_7()
+    { testNoInlineOrdered("'3'^^xsd:decimal") ; }
+
+    @Test public void nodeId_decimal_ordered_8()
+    { testOrdered("100.0", "100.0") ; }
+
+    @Test public void nodeId_decimal_order_1() {
+        // Order of packed decimals is numeric order.
+        String[] decimals = { "-1e20", "-123.45", "-1", "-0.5", "-0.0001", "0", "1e-30", "0.0001",
+                              "0.5", "0.50000000000001", "1", "9.9999999999999", "10", "123.45", "1e20" } ;
+        long prev = -1 ;
+        for ( String s : decimals ) {
+            long v = DecimalNodeOrdered.pack(new BigDecimal(s)) ;
+            assertNotEquals(-1, v) ;
+            assertEquals(0, new BigDecimal(s).compareTo(DecimalNodeOrdered.unpack(v))) ;
+            if ( prev != -1 )
+                assertTrue(s, prev < v) ;
+            prev = v ;
+        }
+    }
+
+    @Test public void nodeId_decimal_order_2() {
+        // Bounds : every decimal on the inside of the bound packs to the inside.
+        BigDecimal d = new BigDecimal("1.000000000000001") ;
+        assertEquals(-1, DecimalNodeOrdered.pack(d)) ;
+        assertEquals(DecimalNodeOrdered.pack(new BigDecimal("1.0000000000001")), DecimalNodeOrdered.packBound(d, true)) ;
+        assertEquals(DecimalNodeOrdered.pack(BigDecimal.ONE), DecimalNodeOrdered.packBound(d, false)) ;
+        assertEquals(DecimalNodeOrdered.ZERO, DecimalNodeOrdered.packBound(BigDecimal.ZERO, true)) ;
+        BigDecimal big = new BigDecimal("1e200") ;
+        // Exponent out of range.
+        assertEquals(-1, DecimalNodeOrdered.pack(big)) ;
+        assertEquals(DecimalNodeOrdered.MAX, DecimalNodeOrdered.packBound(big, true)) ;
+        assertEquals(DecimalNodeOrdered.MAX+1, DecimalNodeOrdered.packBound(big, false)) ;
+        assertEquals(DecimalNodeOrdered.MIN-1, DecimalNodeOrdered.packBound(big.negate(), true)) ;
+        assertEquals(DecimalNodeOrdered.MIN, DecimalNodeOrdered.packBound(big.negate(), false)) ;
+        BigDecimal small = new BigDecimal("1e-200") ;
+        assertEquals(DecimalNodeOrdered.ZERO, DecimalNodeOrdered.packBound(small, true)) ;
+        assertTrue(DecimalNodeOrdered.ZERO < DecimalNodeOrdered.packBound(small, false)) ;
+        assertTrue(DecimalNodeOrdered.ZERO > DecimalNodeOrdered.packBound(small.negate(), true)) ;
+        assertEquals(DecimalNodeOrdered.ZERO, DecimalNodeOrdered.packBound(small.negate(), false)) ;
+    }
+
     @Test public void nodeId_dateTime_01()
     { test("'2008-04-28T15:36:15+01:00'^^xsd:dateTime") ; }
 
@@ -257,6 +324,97 @@ public class TestNodeIdInline
     @Test public void nodeId_float_5()
     { test("'1.1E9'^^xsd:float") ; }
 
+    @Test public void nodeId_string_1()
+    { testString("'abc'") ; }
+
+    @Test public void nodeId_string_2()
+    { testString("''") ; }
+
+    @Test public void nodeId_string_3()
+    // 7 bytes
+    { testString("'ABCDEFG'") ; }
+
+    @Test public void nodeId_string_4()
+    // 8 bytes
+    { testNoInlineString("'ABCDEFGH'") ; }
+
+    @Test public void nodeId_string_5()
+    // 6 bytes of UTF-8
+    { testString("'\u00E9t\u00E9s'") ; }
+
+    @Test public void nodeId_string_6()
+    // 9 bytes of UTF-8
+    { testNoInlineString("'\u00E9t\u00E9\u00E9\u00E9'") ; }
+
+    @Test public void nodeId_string_7()
+    { testString("'abc'^^xsd:string", "'abc'") ; }
+
+    @Test public void nodeId_string_8()
+    // Not unless asked for.
+    { testNoInline("'abc'") ; }
+
+    @Test public void nodeId_langString_1()
+    { testString("'chat'@fr") ; }
+
+    @Test public void nodeId_langString_2()
+    { testString("'colour'@en-GB") ; }
+
+    @Test public void nodeId_langString_3()
+    // Language tag not in the table.
+    { testNoInlineString("'abc'@en-AU") ; }
+
+    @Test public void nodeId_langString_4()
+    // 7 bytes
+    { testNoInlineString("'ABCDEFG'@en") ; }
+
+    @Test public void nodeId_langString_5()
+    { testNoInline("'abc'@en") ; }
+
+    @Test public void nodeId_string_order_1() {
+        // Order of packed strings is UTF-8 byte order.
+        String[] strs = { "", "A", "AB", "ABC", "B", "a", "\u00E9" } ;
+        long prev = -1 ;
+        for ( String s : strs ) {
+            long v = StringNode.packString(s) ;
+            if ( prev != -1 )
+                assertTrue(prev < v) ;
+            prev = v ;
+        }
+    }
+
+    private void testOrdered(String x, String expected) {
+        Node n = NodeFactoryExtra.parseNode(x) ;
+        NodeId nodeId = NodeId.inline(n, false, true) ;
+        assertNotNull("Expected inlining: "+x, nodeId);
+        assertEquals(NodeIdType.XSD_DECIMAL_ORDERED, nodeId.type()) ;
+        Node n2 = NodeId.extract(nodeId) ;
+        assertEquals("Not same term", NodeFactoryExtra.parseNode(expected), n2) ;
+        assertEquals("Not same term", n, n2) ;
+    }
+
+    private void testNoInlineOrdered(String x) {
+        Node n = NodeFactoryExtra.parseNode(x) ;
+        NodeId nodeId = NodeId.inline(n, false, true) ;
+        assertNull("Converted NodeId but expected no inline form: "+x, nodeId) ;
+    }
+
+    private void testString(String x) { testString(x, x) ; }
+
+    private void testString(String x, String expected) {
+        Node n = NodeFactoryExtra.parseNode(x) ;
+        NodeId nodeId = NodeId.inline(n, true) ;
+        assertNotNull("Expected inlining: "+x, nodeId);
+        Node n2 = NodeId.extract(nodeId) ;
+        assertEquals("Not same term", NodeFactoryExtra.parseNode(expected), n2) ;
+        assertEquals("Not same term", n, n2) ;
+    }
+
+    private void testNoInlineString(String x) {
+        Node n = NodeFactoryExtra.parseNode(x) ;
+        NodeId nodeId = NodeId.inline(n, true) ;
+        assertNull("Converted NodeId but expected no inline form: "+x, nodeId) ;
+    }
+
     private void test(String x) { test(x, x) ; }
     
     private void test(String x, String expected) {
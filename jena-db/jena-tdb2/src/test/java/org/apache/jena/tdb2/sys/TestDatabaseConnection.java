@@ -18,13 +18,19 @@
 
 package org.apache.jena.tdb2.sys;
 
-import static org.junit.Assert.assertNotSame ;
-import static org.junit.Assert.assertSame ;
+import static org.junit.Assert.*;
 
+import org.apache.jena.atlas.iterator.Iter ;
 import org.apache.jena.atlas.lib.FileOps ;
 import org.apache.jena.dboe.base.file.Location;
+import org.apache.jena.dboe.transaction.txn.TransactionException;
+import org.apache.jena.query.ReadWrite ;
 import org.apache.jena.sparql.core.DatasetGraph ;
+import org.apache.jena.sparql.core.Quad ;
+import org.apache.jena.sparql.sse.SSE ;
+import org.apache.jena.system.Txn ;
 import org.apache.jena.tdb2.ConfigTest;
+import org.apache.jena.tdb2.TDBException;
 import org.apache.jena.tdb2.sys.DatabaseConnection;
 import org.apache.jena.tdb2.sys.TDBInternal;
 import org.junit.Test ;
@@ -66,5 +72,80 @@ public class TestDatabaseConnection {
         assertNotSame(dg1, dg2) ;
     }
 
+    private static Quad q1 = SSE.parseQuad("(:g :s :p 1)") ;
+    private static Quad q2 = SSE.parseQuad("(_ :s :p 'abc')") ;
+
+    // Create a database, with some data, and release it.
+    private static Location readOnlyDatabase() {
+        TDBInternal.reset() ;
+        String DIRx = ConfigTest.getCleanDir() ;
+        Location DIR = Location.create(DIRx);
+        FileOps.clearAll(DIRx) ;
+        DatasetGraph dsg = DatabaseConnection.connectCreate(DIR).getDatasetGraph() ;
+        Txn.executeWrite(dsg, ()->{ dsg.add(q1) ; dsg.add(q2) ; }) ;
+        TDBInternal.expel(dsg) ;
+        return DIR ;
+    }
+
+    @Test
+    public void testReadOnly1() {
+        Location DIR = readOnlyDatabase() ;
+        try {
+            DatabaseConnection dbConn = DatabaseConnection.connectReadOnly(DIR) ;
+            assertTrue(dbConn.isReadOnly()) ;
+            assertNull(dbConn.getLock()) ;
+            DatasetGraph dsg = dbConn.getDatasetGraph() ;
+            assertSame(dsg, DatabaseConnection.connectReadOnly(DIR).getDatasetGraph()) ;
+            Txn.executeRead(dsg, ()->{
+                assertTrue(dsg.contains(q1)) ;
+                assertTrue(dsg.contains(q2)) ;
+                assertEquals(2, Iter.count(dsg.find())) ;
+            }) ;
+            TDBInternal.expel(dsg) ;
+            // Reconnect for update.
+            DatasetGraph dsg2 = DatabaseConnection.connectCreate(DIR).getDatasetGraph() ;
+            Txn.executeWrite(dsg2, ()->dsg2.delete(q1)) ;
+            Txn.executeRead(dsg2, ()->assertEquals(1, Iter.count(dsg2.find()))) ;
+        }
+        finally {
+            TDBInternal.reset() ;
+            FileOps.clearAll(DIR.getDirectoryPath()) ;
+        }
+    }
+
+    @Test(expected=TransactionException.class)
+    public void testReadOnly2() {
+        Location DIR = readOnlyDatabase() ;
+        try {
+            DatasetGraph dsg = DatabaseConnection.connectReadOnly(DIR).getDatasetGraph() ;
+            dsg.begin(ReadWrite.WRITE) ;
+        }
+        finally {
+            TDBInternal.reset() ;
+            FileOps.clearAll(DIR.getDirectoryPath()) ;
+        }
+    }
+
+    @Test(expected=TDBException.class)
+    public void testReadOnly3() {
+        Location DIR = readOnlyDatabase() ;
+        try {
+            DatabaseConnection.connectCreate(DIR) ;
+            DatabaseConnection.connectReadOnly(DIR) ;
+        }
+        finally {
+            TDBInternal.reset() ;
+            FileOps.clearAll(DIR.getDirectoryPath()) ;
+        }
+    }
+
+    @Test(expected=TDBException.class)
+    public void testReadOnly4() {
+        TDBInternal.reset() ;
+        String DIRx = ConfigTest.getCleanDir() ;
+        FileOps.clearAll(DIRx) ;
+        DatabaseConnection.connectReadOnly(Location.create(DIRx)) ;
+    }
+
 
 }
@@ -23,12 +23,22 @@ import static org.junit.Assert.assertFalse ;
 import static org.junit.Assert.assertNotEquals ;
 import static org.junit.Assert.assertTrue ;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Stream;
+
 import org.apache.commons.io.FileUtils ;
+import org.apache.jena.atlas.iterator.Iter;
 import org.apache.jena.atlas.lib.FileOps ;
 import org.apache.jena.dboe.base.file.Location;
 import org.apache.jena.system.Txn;
 import org.apache.jena.graph.Graph ;
+import org.apache.jena.graph.Node;
 import org.apache.jena.graph.Triple ;
+import org.apache.jena.query.ReadWrite ;
 import org.apache.jena.riot.RDFDataMgr ;
 import org.apache.jena.sparql.core.DatasetGraph ;
 import org.apache.jena.sparql.core.Quad ;
@@ -36,6 +46,7 @@ import org.apache.jena.sparql.sse.SSE ;
 import org.apache.jena.tdb2.DatabaseMgr;
 import org.apache.jena.tdb2.store.DatasetGraphSwitchable;
 import org.apache.jena.tdb2.store.DatasetGraphTDB;
+import org.apache.jena.tdb2.store.NodeId;
 import org.apache.jena.tdb2.sys.IOX;
 import org.apache.jena.tdb2.sys.StoreConnection;
 import org.apache.jena.tdb2.sys.TDBInternal;
@@ -160,6 +171,51 @@ public class TestDatabaseOps
         Txn.executeRead(dsgOld,  ()->assertNull(dsgOld.getDefaultGraph().getPrefixMapping().getNsPrefixURI("ex")));
     }
 
+    @Test public void compact_indexes_4() {
+        // Enough data for several blocks, with deletes, in all indexes.
+        DatasetGraph dsg = DatabaseMgr.connectDatasetGraph(dir);
+        DatasetGraphSwitchable dsgs = (DatasetGraphSwitchable)dsg;
+        int N = 2000;
+        Txn.executeWrite(dsg, ()-> {
+            dsg.getDefaultGraph().getPrefixMapping().setNsPrefix("ex", "http://example/");
+            for ( int i = 0 ; i < N ; i++ ) {
+                dsg.add(SSE.parseQuad("(_ <http://example/s"+i+"> <http://example/p> 'a"+i+"')"));
+                dsg.add(SSE.parseQuad("(<http://example/g"+(i%5)+"> <http://example/s"+i+"> <http://example/q> "+i+")"));
+            }
+        });
+        Txn.executeWrite(dsg, ()-> {
+            for ( int i = 0 ; i < N ; i += 2 )
+                dsg.delete(SSE.parseQuad("(_ <http://example/s"+i+"> <http://example/p> 'a"+i+"')"));
+        });
+        DatasetGraphTDB dsg1 = (DatasetGraphTDB)dsgs.get();
+        Node n1 = SSE.parseNode("'a1'");
+        NodeId id1 = Txn.calculateRead(dsg, ()->TDBInternal.getNodeId(dsg1, n1));
+        List<Quad> expected = Txn.calculateRead(dsg, ()->Iter.toList(dsg.find()));
+
+        DatabaseMgr.compact(dsg);
+
+        DatasetGraphTDB dsg2 = (DatasetGraphTDB)dsgs.get();
+        assertNotEquals(dsg1, dsg2);
+        Txn.executeRead(dsg, ()-> {
+            assertEquals(expected.size(), Iter.count(dsg.find()));
+            expected.forEach(q->assertTrue(dsg.contains(q)));
+            assertEquals(N/2, dsg.getDefaultGraph().size());
+            // Other indexes.
+            assertEquals(N/5, Iter.count(dsg.find(SSE.parseNode("<http://example/g1>"), Node.ANY, Node.ANY, Node.ANY)));
+            assertEquals(N, Iter.count(dsg.find(Node.ANY, Node.ANY, SSE.parseNode("<http://example/q>"), Node.ANY)));
+            assertEquals(1, Iter.count(dsg.find(Node.ANY, Node.ANY, Node.ANY, n1)));
+            assertEquals("http://example/", dsg.getDefaultGraph().getPrefixMapping().getNsPrefixURI("ex"));
+            // The node table is copied: NodeIds do not change.
+            assertEquals(id1, TDBInternal.getNodeId(dsg2, n1));
+        });
+        // Usable for update.
+        Txn.executeWrite(dsg, ()->dsg.add(quad1));
+        Txn.executeRead(dsg, ()->assertEquals(N/2+1, dsg.getDefaultGraph().size()));
+        // Compact again.
+        DatabaseMgr.compact(dsg);
+        Txn.executeRead(dsg, ()->assertTrue(dsg.contains(quad1)));
+    }
+
     @Test public void backup_1() {
         DatasetGraph dsg = DatabaseMgr.connectDatasetGraph(dir);
         Txn.executeWrite(dsg, ()-> {
@@ -176,5 +232,80 @@ public class TestDatabaseOps
         String file2 = DatabaseMgr.backup(dsg);
         assertNotEquals(file1, file2);
     }
+
+    private static void addQuads(DatasetGraph dsg, int start, int N) {
+        Txn.executeWrite(dsg, ()-> {
+            for ( int i = start ; i < start+N ; i++ ) {
+                dsg.add(SSE.parseQuad("(_ <http://example/s"+i+"> <http://example/p> 'a"+i+"')"));
+                dsg.add(SSE.parseQuad("(<http://example/g"+(i%5)+"> <http://example/s"+i+"> <http://example/q> "+i+")"));
+            }
+        });
+    }
+
+    private static void assertSameData(DatasetGraph expected, DatasetGraph actual) {
+        List<Quad> quads = Txn.calculateRead(expected, ()->Iter.toList(expected.find()));
+        Txn.executeRead(actual, ()-> {
+            assertEquals(quads.size(), Iter.count(actual.find()));
+            quads.forEach(q->assertTrue(actual.contains(q)));
+        });
+    }
+
+    @Test public void backup_files_2() {
+        DatasetGraph dsg = DatabaseMgr.connectDatasetGraph(dir);
+        addQuads(dsg, 0, 1000);
+        Txn.executeWrite(dsg, ()->dsg.getDefaultGraph().getPrefixMapping().setNsPrefix("ex", "http://example/"));
+        String backup = DatabaseMgr.backupFiles(dsg, false);
+        assertTrue(Files.exists(Paths.get(backup, BackupStorage.MANIFEST)));
+
+        String loc2 = dir.getPath("restore");
+        DatabaseMgr.restore(backup, loc2);
+        DatasetGraph dsg2 = DatabaseMgr.connectDatasetGraph(loc2);
+        assertSameData(dsg, dsg2);
+        Txn.executeRead(dsg2, ()->assertEquals("http://example/", dsg2.getDefaultGraph().getPrefixMapping().getNsPrefixURI("ex")));
+        // Independent of the original and usable for update.
+        Txn.executeWrite(dsg2, ()->dsg2.add(quad1));
+        Txn.executeRead(dsg2, ()->assertEquals(1001, dsg2.getDefaultGraph().size()));
+        Txn.executeRead(dsg, ()->assertFalse(dsg.contains(quad1)));
+    }
+
+    @Test public void backup_files_3() throws IOException {
+        DatasetGraph dsg = DatabaseMgr.connectDatasetGraph(dir);
+        addQuads(dsg, 0, 2000);
+        // Incremental, with no earlier backup, is a full backup.
+        String backup1 = DatabaseMgr.backupFiles(dsg, true);
+        List<Quad> quads1 = Txn.calculateRead(dsg, ()->Iter.toList(dsg.find()));
+
+        addQuads(dsg, 2000, 100);
+        // Aborted changes are not backed up.
+        dsg.begin(ReadWrite.WRITE);
+        dsg.add(quad1);
+        dsg.abort();
+        dsg.end();
+        String backup2 = DatabaseMgr.backupFiles(dsg, true);
+        assertNotEquals(backup1, backup2);
+        assertTrue(size(Paths.get(backup2)) < size(Paths.get(backup1)));
+
+        addQuads(dsg, 3000, 10);
+        String backup3 = DatabaseMgr.backupFiles(dsg, true);
+
+        String loc3 = dir.getPath("restore3");
+        DatabaseMgr.restore(backup3, loc3);
+        DatasetGraph dsg3 = DatabaseMgr.connectDatasetGraph(loc3);
+        assertSameData(dsg, dsg3);
+
+        String loc1 = dir.getPath("restore1");
+        DatabaseMgr.restore(backup1, loc1);
+        DatasetGraph dsg1 = DatabaseMgr.connectDatasetGraph(loc1);
+        Txn.executeRead(dsg1, ()-> {
+            assertEquals(quads1.size(), Iter.count(dsg1.find()));
+            assertFalse(dsg1.contains(quad1));
+        });
+    }
+
+    private static long size(Path dir) throws IOException {
+        try ( Stream<Path> files = Files.list(dir) ) {
+            return files.mapToLong(p->p.toFile().length()).sum();
+        }
+    }
     
 }
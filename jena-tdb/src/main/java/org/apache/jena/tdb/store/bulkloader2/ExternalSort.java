@@ -0,0 +1,296 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jena.tdb.store.bulkloader2;
+
+import java.io.* ;
+import java.util.ArrayList ;
+import java.util.Arrays ;
+import java.util.Iterator ;
+import java.util.List ;
+import java.util.PriorityQueue ;
+import java.util.concurrent.* ;
+import java.util.zip.Deflater ;
+import java.util.zip.DeflaterOutputStream ;
+import java.util.zip.InflaterInputStream ;
+
+import org.apache.jena.atlas.AtlasException ;
+import org.apache.jena.atlas.io.IO ;
+import org.apache.jena.atlas.iterator.IteratorSlotted ;
+import org.apache.jena.atlas.lib.Closeable ;
+import org.apache.jena.tdb.base.record.Record ;
+import org.apache.jena.tdb.base.record.RecordFactory ;
+
+/**
+ * External sort of fixed length records, removing duplicates - the in-JVM
+ * replacement for {@code sort -u} between the phases of tdbloader2.
+ * <p>
+ * The input is cut into runs of {@code runSize} records. Runs are sorted by
+ * {@code parallel} worker threads and spilled to compressed temporary files
+ * while the caller's thread carries on reading the input. The runs are then
+ * merged (k-way) as the returned iterator is consumed; the temporary files are
+ * deleted when the iterator is exhausted or closed. If all the input fits in
+ * one run, it is sorted in memory and nothing is written.
+ * <p>
+ * The order is {@link Record#compareByKey}, which is the order of the B+Tree
+ * built by {@link org.apache.jena.tdb.index.bplustree.BPlusTreeRewriter}.
+ */
+public class ExternalSort
+{
+    /** Default number of records in a run (about 64M bytes for quad records). */
+    public static final int DftRunSize = 1000*1000 ;
+    
+    private static final int BufferSize = 128*1024 ;
+    
+    private final RecordFactory recordFactory ;
+    private final int runSize ;
+    private final int parallel ;
+    private final File tmpDir ;
+
+    /**
+     * @param recordFactory Record format
+     * @param runSize       Number of records sorted in memory in one run
+     * @param parallel      Number of threads sorting runs
+     * @param tmpDir        Directory for the run files; null for the system temporary directory.
+     */
+    public ExternalSort(RecordFactory recordFactory, int runSize, int parallel, File tmpDir) {
+        if ( runSize <= 0 )
+            throw new IllegalArgumentException("Run size must be positive: "+runSize) ;
+        if ( parallel <= 0 )
+            throw new IllegalArgumentException("Parallelism must be positive: "+parallel) ;
+        this.recordFactory = recordFactory ;
+        this.runSize = runSize ;
+        this.parallel = parallel ;
+        this.tmpDir = tmpDir ;
+    }
+
+    /** Sort the input, removing duplicates. The input is consumed before this method returns. */
+    public Iterator<Record> sort(Iterator<Record> input) {
+        ExecutorService executor = Executors.newFixedThreadPool(parallel, (r) -> {
+            Thread thread = new Thread(r, "ExternalSort") ;
+            thread.setDaemon(true) ;
+            return thread ;
+        }) ;
+        // Bound the number of runs held in memory waiting to be sorted and written.
+        Semaphore inFlight = new Semaphore(parallel) ;
+        List<Future<File>> runs = new ArrayList<>() ;
+        try {
+            Record[] chunk = new Record[runSize] ;
+            int n = 0 ;
+            while ( input.hasNext() ) {
+                chunk[n++] = input.next() ;
+                if ( n == runSize ) {
+                    if ( runs.isEmpty() && ! input.hasNext() )
+                        // Exactly one run.
+                        break ;
+                    runs.add(spill(executor, inFlight, chunk, n)) ;
+                    chunk = new Record[runSize] ;
+                    n = 0 ;
+                }
+            }
+            
+            if ( runs.isEmpty() ) {
+                if ( parallel > 1 )
+                    Arrays.parallelSort(chunk, 0, n, Record::compareByKey) ;
+                else
+                    Arrays.sort(chunk, 0, n, Record::compareByKey) ;
+                int len = distinct(chunk, n) ;
+                return Arrays.asList(chunk).subList(0, len).iterator() ;
+            }
+            
+            if ( n > 0 )
+                runs.add(spill(executor, inFlight, chunk, n)) ;
+            chunk = null ;
+            List<File> files = new ArrayList<>(runs.size()) ;
+            for ( Future<File> f : runs )
+                files.add(f.get()) ;
+            return new MergeIterator(files) ;
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt() ;
+            abandon(executor, runs) ;
+            throw new AtlasException("Interrupted while sorting", ex) ;
+        }
+        catch (ExecutionException ex) {
+            abandon(executor, runs) ;
+            throw new AtlasException("Failed to write sort run", ex.getCause()) ;
+        }
+        catch (RuntimeException ex) {
+            abandon(executor, runs) ;
+            throw ex ;
+        }
+        finally { executor.shutdown() ; }
+    }
+
+    private Future<File> spill(ExecutorService executor, Semaphore inFlight, Record[] chunk, int n) throws InterruptedException {
+        inFlight.acquire() ;
+        try {
+            return executor.submit(() -> {
+                try {
+                    Arrays.sort(chunk, 0, n, Record::compareByKey) ;
+                    int len = distinct(chunk, n) ;
+                    return writeRun(chunk, len) ;
+                } finally { inFlight.release() ; }
+            }) ;
+        } catch (RejectedExecutionException ex) {
+            inFlight.release() ;
+            throw ex ;
+        }
+    }
+
+    /** Stop work and remove any run files already written. */
+    private static void abandon(ExecutorService executor, List<Future<File>> runs) {
+        executor.shutdownNow() ;
+        for ( Future<File> f : runs ) {
+            try {
+                f.get().delete() ;
+            } catch (Exception ex) { /* Not written or cancelled */ }
+        }
+    }
+
+    /** Remove adjacent duplicates from a sorted array; return the new length. */
+    private static int distinct(Record[] records, int n) {
+        if ( n == 0 )
+            return 0 ;
+        int j = 0 ;
+        for ( int i = 1 ; i < n ; i++ ) {
+            if ( ! Record.keyEQ(records[j], records[i]) )
+                records[++j] = records[i] ;
+        }
+        for ( int i = j+1 ; i < n ; i++ )
+            records[i] = null ;
+        return j+1 ;
+    }
+
+    private File writeRun(Record[] records, int n) throws IOException {
+        File file = File.createTempFile("sort-", ".tmp", tmpDir) ;
+        file.deleteOnExit() ;
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED) ;
+        try ( OutputStream out = new DeflaterOutputStream(new FileOutputStream(file), deflater, BufferSize) ) {
+            for ( int i = 0 ; i < n ; i++ ) {
+                Record r = records[i] ;
+                out.write(r.getKey()) ;
+                if ( recordFactory.hasValue() )
+                    out.write(r.getValue()) ;
+            }
+        } catch (IOException | RuntimeException ex) {
+            file.delete() ;
+            throw ex ;
+        } finally { deflater.end() ; }
+        return file ;
+    }
+
+    /** One run file being merged. */ 
+    private final class Run {
+        final File file ;
+        final InputStream input ;
+        Record current = null ;
+        
+        Run(File file) {
+            this.file = file ;
+            try { this.input = new BufferedInputStream(new InflaterInputStream(new FileInputStream(file)), BufferSize) ; }
+            catch (FileNotFoundException ex) { throw new AtlasException(ex) ; }
+        }
+
+        /** Move to the next record; return false at the end of the run. */
+        boolean advance() {
+            byte[] key = new byte[recordFactory.keyLength()] ;
+            if ( ! readFully(key, true) ) {
+                current = null ;
+                return false ;
+            }
+            byte[] value = null ;
+            if ( recordFactory.hasValue() ) {
+                value = new byte[recordFactory.valueLength()] ;
+                readFully(value, false) ;
+            }
+            current = recordFactory.create(key, value) ;
+            return true ;
+        }
+
+        private boolean readFully(byte[] bytes, boolean eofAllowed) {
+            try {
+                int len = 0 ;
+                while ( len < bytes.length ) {
+                    int x = input.read(bytes, len, bytes.length-len) ;
+                    if ( x == -1 ) {
+                        if ( len == 0 && eofAllowed )
+                            return false ;
+                        throw new AtlasException("Truncated sort run: "+file) ;
+                    }
+                    len += x ;
+                }
+                return true ;
+            } catch (IOException ex) { IO.exception(ex) ; return false ; }
+        }
+        
+        void close() {
+            IO.close(input) ;
+            file.delete() ;
+        }
+    }
+
+    private final class MergeIterator extends IteratorSlotted<Record> implements Closeable {
+        private final List<Run> runs = new ArrayList<>() ;
+        private final PriorityQueue<Run> queue ;
+        private Record last = null ;
+        
+        MergeIterator(List<File> files) {
+            queue = new PriorityQueue<>(files.size(), (r1, r2) -> Record.compareByKey(r1.current, r2.current)) ;
+            try {
+                for ( File f : files ) {
+                    Run run = new Run(f) ;
+                    runs.add(run) ;
+                    if ( run.advance() )
+                        queue.add(run) ;
+                }
+            } catch (RuntimeException ex) {
+                files.forEach(File::delete) ;
+                closeIterator() ;
+                throw ex ;
+            }
+        }
+
+        @Override
+        protected boolean hasMore() {
+            return ! queue.isEmpty() ;
+        }
+
+        @Override
+        protected Record moveToNext() {
+            while ( ! queue.isEmpty() ) {
+                Run run = queue.poll() ;
+                Record r = run.current ;
+                if ( run.advance() )
+                    queue.add(run) ;
+                // Duplicates across runs.
+                if ( last != null && Record.keyEQ(last, r) )
+                    continue ;
+                last = r ;
+                return r ;
+            }
+            return null ;
+        }
+
+        @Override
+        protected void closeIterator() {
+            runs.forEach(Run::close) ;
+            runs.clear() ;
+            queue.clear() ;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jena.tdb.store.bulkloader2;
+
+import java.io.File ;
+import java.util.List ;
+
+import org.apache.jena.atlas.lib.DateTimeUtils ;
+import org.apache.jena.atlas.lib.FileOps ;
+import org.apache.jena.tdb.TDB ;
+import org.apache.jena.tdb.base.file.Location ;
+import org.apache.jena.tdb.sys.Names ;
+import org.slf4j.Logger ;
+
+/**
+ * The whole tdbloader2 pipeline in one JVM: the data phase ({@link ProcNodeTableBuilder})
+ * writes the tuples of node ids to work files, then each index is built by
+ * {@link ProcIndexBuild} with an {@link ExternalSort} in place of the
+ * external {@code sort} of the scripts.
+ */
+public class ProcBulkLoad
+{
+    private static Logger cmdLog = TDB.logLoader ;
+    
+    /** Work file for triples - the same name as used by the tdbloader2 scripts */
+    public static final String workTriples  = "data-triples" ;
+    /** Work file for quads - the same name as used by the tdbloader2 scripts */
+    public static final String workQuads    = "data-quads" ;
+    
+    /**
+     * Bulk load into a new database.
+     * @param location      Database location (must be on disk)
+     * @param datafiles     Files to load
+     * @param collectStats  Write a stats file
+     * @param parallel      Number of threads used for sorting
+     * @param keepWork      Do not delete the work files at the end.
+     */
+    public static void exec(Location location, List<String> datafiles, boolean collectStats, int parallel, boolean keepWork) {
+        if ( location.isMem() )
+            throw new IllegalArgumentException("Bulk loader2 requires a disk location") ;
+        if ( parallel <= 0 )
+            throw new IllegalArgumentException("Parallelism must be positive: "+parallel) ;
+        String dataFileTriples = location.getPath(workTriples, "tmp") ;
+        String dataFileQuads = location.getPath(workQuads, "tmp") ;
+        
+        cmdLog.info("Data Load Phase -- "+DateTimeUtils.nowAsString()) ;
+        ProcNodeTableBuilder.exec(location, dataFileTriples, dataFileQuads, datafiles, collectStats) ;
+        
+        cmdLog.info("Index Building Phase -- "+DateTimeUtils.nowAsString()) ;
+        for ( String idx : Names.tripleIndexes )
+            buildIndex(location, idx, dataFileTriples, parallel) ;
+        for ( String idx : Names.quadIndexes )
+            buildIndex(location, idx, dataFileQuads, parallel) ;
+        
+        if ( ! keepWork ) {
+            FileOps.delete(dataFileTriples) ;
+            FileOps.delete(dataFileQuads) ;
+        }
+        cmdLog.info("Bulk load finished -- "+DateTimeUtils.nowAsString()) ;
+    }
+
+    private static void buildIndex(Location location, String indexName, String dataFile, int parallel) {
+        if ( new File(dataFile).length() == 0 )
+            // Nothing to index; the empty index is created when the database is first used.
+            return ;
+        cmdLog.info("Build "+indexName) ;
+        FileOps.deleteSilent(location.getPath(indexName, Names.bptExtTree)) ;
+        FileOps.deleteSilent(location.getPath(indexName, Names.bptExtRecords)) ;
+        ProcIndexBuild.exec(location.getDirectoryPath(), indexName, dataFile, parallel) ;
+    }
+}
@@ -18,11 +18,13 @@
 
 package org.apache.jena.tdb.store.bulkloader2;
 
+import java.io.File ;
 import java.io.InputStream ;
 import java.util.Iterator ;
 
 import org.apache.jena.atlas.AtlasException ;
 import org.apache.jena.atlas.io.IO ;
+import org.apache.jena.atlas.iterator.Iter ;
 import org.apache.jena.tdb.base.block.BlockMgr ;
 import org.apache.jena.tdb.base.block.BlockMgrFactory ;
 import org.apache.jena.tdb.base.file.FileSet ;
@@ -39,7 +41,18 @@ import org.apache.jena.tdb.sys.SystemTDB ;
 /** From a file of records, build a (packed) index */ 
 public class ProcIndexBuild
 {
+    /** Build an index from a file of rows already sorted, and made distinct, in index order. */
     public static void exec(String locationStr, String indexName, String dataFile) {
+        exec(locationStr, indexName, dataFile, 0) ;
+    }
+    
+    /**
+     * Build an index from a file of rows in any order.
+     * The rows are sorted, and duplicates removed, by an {@link ExternalSort} using {@code parallel} threads,
+     * with run files in the database directory.
+     * If {@code parallel} is zero, the rows must already be in index order.
+     */
+    public static void exec(String locationStr, String indexName, String dataFile, int parallel) {
         
         // Argument processing
         
@@ -98,7 +111,14 @@ public class ProcIndexBuild
 
         int rowBlock = 1000;
         Iterator<Record> iter = new RecordsFromInput(input, tupleLength, colMap, rowBlock);
-        BPlusTree bpt2 = BPlusTreeRewriter.packIntoBPlusTree(iter, bptParams, recordFactory, blkMgrNodes, blkMgrRecords);
-        bpt2.close();
+        if ( parallel > 0 ) {
+            ExternalSort sorter = new ExternalSort(recordFactory, ExternalSort.DftRunSize, parallel, new File(location.getDirectoryPath())) ;
+            iter = sorter.sort(iter) ;
+            IO.close(input) ;
+        }
+        try {
+            BPlusTree bpt2 = BPlusTreeRewriter.packIntoBPlusTree(iter, bptParams, recordFactory, blkMgrNodes, blkMgrRecords);
+            bpt2.close();
+        } finally { Iter.close(iter) ; }
     }
 }
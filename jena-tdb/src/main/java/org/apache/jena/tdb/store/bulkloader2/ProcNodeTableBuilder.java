@@ -86,6 +86,10 @@ public class ProcNodeTableBuilder {
         // See Stats class.
         if ( ! location.isMem() && sink.getCollector() != null )
             Stats.write(dsg.getLocation().getPath(Names.optStats), sink.getCollector().results()) ;
+        // Release the node table files; the index phase may run in this JVM.
+        // (The indexes have already been closed.)
+        dsg.getTripleTable().getNodeTupleTable().getNodeTable().close() ;
+        dsg.getPrefixes().close() ;
         
         // ---- Monitor
         long time = monitor.finish() ;
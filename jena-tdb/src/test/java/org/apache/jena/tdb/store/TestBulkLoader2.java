@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jena.tdb.store ;
+
+import java.io.File ;
+import java.io.PrintStream ;
+import java.util.* ;
+
+import org.apache.jena.atlas.io.IO ;
+import org.apache.jena.atlas.iterator.Iter ;
+import org.apache.jena.atlas.junit.BaseTest ;
+import org.apache.jena.atlas.lib.Bytes ;
+import org.apache.jena.atlas.logging.LogCtl ;
+import org.apache.jena.riot.RDFDataMgr ;
+import org.apache.jena.sparql.core.DatasetGraph ;
+import org.apache.jena.sparql.core.Quad ;
+import org.apache.jena.sparql.util.FmtUtils ;
+import org.apache.jena.tdb.ConfigTest ;
+import org.apache.jena.tdb.TDB ;
+import org.apache.jena.tdb.TDBFactory ;
+import org.apache.jena.tdb.base.file.Location ;
+import org.apache.jena.tdb.base.record.Record ;
+import org.apache.jena.tdb.base.record.RecordFactory ;
+import org.apache.jena.tdb.store.bulkloader2.ExternalSort ;
+import org.apache.jena.tdb.store.bulkloader2.ProcBulkLoad ;
+import org.apache.jena.tdb.sys.TDBMaker ;
+import org.junit.AfterClass ;
+import org.junit.BeforeClass ;
+import org.junit.Test ;
+
+/** The in-JVM tdbloader2 pipeline */
+public class TestBulkLoader2 extends BaseTest {
+    private static RecordFactory recordFactory = new RecordFactory(8, 0) ;
+    
+    @BeforeClass
+    static public void beforeClass() {
+        LogCtl.disable(TDB.logLoaderName) ;
+    }
+
+    @AfterClass
+    static public void afterClass() {
+        LogCtl.enable(TDB.logLoaderName) ;
+    }
+
+    private static List<Record> records(int N, int range, long seed) {
+        Random random = new Random(seed) ;
+        List<Record> x = new ArrayList<>() ;
+        for ( int i = 0 ; i < N ; i++ ) {
+            Record r = recordFactory.create() ;
+            // Negative numbers test the unsigned order.
+            Bytes.setLong(random.nextInt(range)-range/2, r.getKey()) ;
+            x.add(r) ;
+        }
+        return x ;
+    }
+    
+    private static void testSort(List<Record> input, int runSize, int parallel) {
+        String dir = ConfigTest.getCleanDir() ;
+        ExternalSort sorter = new ExternalSort(recordFactory, runSize, parallel, new File(dir)) ;
+        List<Record> results = Iter.toList(sorter.sort(input.iterator())) ;
+        
+        List<Record> expected = new ArrayList<>(input) ;
+        expected.sort(Record::compareByKey) ;
+        for ( int i = expected.size()-1 ; i > 0 ; i-- ) {
+            if ( Record.keyEQ(expected.get(i), expected.get(i-1)) )
+                expected.remove(i) ;
+        }
+        assertEquals(expected, results) ;
+        // Run files removed.
+        assertEquals(0, new File(dir).list().length) ;
+    }
+    
+    @Test public void external_sort_01() { testSort(records(0, 10, 1), 10, 1) ; }
+    
+    // In-memory
+    @Test public void external_sort_02() { testSort(records(100, 1000, 2), 1000, 2) ; }
+
+    // Exactly one run.
+    @Test public void external_sort_03() { testSort(records(100, 1000, 3), 100, 2) ; }
+
+    // Many runs, with duplicates within and across runs.
+    @Test public void external_sort_04() { testSort(records(1000, 300, 4), 10, 3) ; }
+    
+    @Test public void external_sort_05() { testSort(records(1001, 5000, 5), 100, 1) ; }
+
+    @Test public void bulkload_01() {
+        String dataFile = ConfigTest.getTestingDir()+"/bulkload-data.nq" ;
+        try ( PrintStream out = new PrintStream(IO.openOutputFile(dataFile)) ) {
+            Random random = new Random(6) ;
+            for ( int i = 0 ; i < 500 ; i++ ) {
+                String s = "<http://example/s"+random.nextInt(50)+">" ;
+                String p = "<http://example/p"+random.nextInt(5)+">" ;
+                String o = random.nextBoolean() ? "<http://example/s"+random.nextInt(50)+">" : "\""+random.nextInt(20)+"\"" ;
+                String g = ( i % 3 == 0 ) ? "" : " <http://example/g"+random.nextInt(4)+">" ;
+                out.println(s+" "+p+" "+o+g+" .") ;
+            }
+        }
+        DatasetGraph expected = RDFDataMgr.loadDatasetGraph(dataFile) ;
+        
+        Location location = Location.create(ConfigTest.getCleanDir()) ;
+        TDBMaker.releaseLocation(location) ;
+        ProcBulkLoad.exec(location, Arrays.asList(dataFile), true, 2, false) ;
+        assertFalse(new File(location.getPath(ProcBulkLoad.workTriples, "tmp")).exists()) ;
+        assertFalse(new File(location.getPath(ProcBulkLoad.workQuads, "tmp")).exists()) ;
+        
+        DatasetGraph dsg = TDBFactory.createDatasetGraph(location) ;
+        try {
+            List<Quad> quads = Iter.toList(dsg.find()) ;
+            assertEquals(Iter.count(expected.find()), quads.size()) ;
+            quads.forEach((q) -> assertTrue(FmtUtils.stringForQuad(q), expected.contains(q))) ;
+            // Every index.
+            expected.find().forEachRemaining((q) -> {
+                assertTrue(dsg.contains(q)) ;
+                assertTrue(dsg.find(q.getGraph(), null, q.getPredicate(), q.getObject()).hasNext()) ;
+                assertTrue(dsg.find(q.getGraph(), null, null, q.getObject()).hasNext()) ;
+                assertTrue(dsg.find(null, q.getSubject(), q.getPredicate(), q.getObject()).hasNext()) ;
+                assertTrue(dsg.find(null, null, q.getPredicate(), q.getObject()).hasNext()) ;
+                assertTrue(dsg.find(null, null, null, q.getObject()).hasNext()) ;
+            }) ;
+        } finally {
+            TDBFactory.release(dsg) ;
+        }
+    }
+}